@@ -0,0 +1,94 @@
+package rs.igapp.aurora.agent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * AgentConfig - Podesavanja agenta (aurora.agent.* iz agent.properties)
+ *
+ * Podrazumevane vrednosti su u agent.properties na classpath-u; fajl zadat pri pokretanju ih prepisuje.
+ */
+public record AgentConfig(String agentId,
+                          String serverHost,
+                          int serverPort,
+                          List<Path> files,
+                          Path dataDir,
+                          boolean startAtEnd,
+                          int batchSize,
+                          Duration batchLinger,
+                          Duration readInterval,
+                          boolean compress,
+                          Long severityId,
+                          boolean includeFile,
+                          int maxLineBytes,
+                          int maxFrameSize,
+                          int spoolSegmentSize,
+                          long spoolMaxSize,
+                          Duration spoolSyncInterval,
+                          Duration retryPause,
+                          Duration heartbeatInterval) {
+
+    public static AgentConfig load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream defaults = AgentConfig.class.getResourceAsStream("/agent.properties")) {
+            if (defaults != null) {
+                properties.load(defaults);
+            }
+        }
+        if (file != null) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+        }
+        return from(properties);
+    }
+
+    public static AgentConfig from(Properties properties) {
+        String agentId = required(properties, "aurora.agent.id");
+        String severity = properties.getProperty("aurora.agent.severity-id", "").trim();
+        return new AgentConfig(
+            agentId,
+            properties.getProperty("aurora.agent.server.host", "localhost"),
+            intValue(properties, "aurora.agent.server.port", 5170),
+            Arrays.stream(required(properties, "aurora.agent.files").split(","))
+                .map(String::trim)
+                .filter(path -> !path.isEmpty())
+                .map(Path::of)
+                .toList(),
+            Path.of(properties.getProperty("aurora.agent.data-dir", "data")),
+            !"BEGINNING".equalsIgnoreCase(properties.getProperty("aurora.agent.start-position", "END")),
+            intValue(properties, "aurora.agent.batch.size", 500),
+            Duration.parse(properties.getProperty("aurora.agent.batch.linger", "PT1S")),
+            Duration.parse(properties.getProperty("aurora.agent.read-interval", "PT0.2S")),
+            Boolean.parseBoolean(properties.getProperty("aurora.agent.compress", "true")),
+            severity.isEmpty() ? null : Long.valueOf(severity),
+            Boolean.parseBoolean(properties.getProperty("aurora.agent.include-file", "true")),
+            intValue(properties, "aurora.agent.max-line-bytes", 65536),
+            intValue(properties, "aurora.agent.max-frame-size", 1048576),
+            intValue(properties, "aurora.agent.spool.segment-size", 67108864),
+            Long.parseLong(properties.getProperty("aurora.agent.spool.max-size", "1073741824").trim()),
+            Duration.parse(properties.getProperty("aurora.agent.spool.sync-interval", "PT1S")),
+            Duration.parse(properties.getProperty("aurora.agent.retry-pause", "PT1S")),
+            Duration.parse(properties.getProperty("aurora.agent.heartbeat-interval", "PT30S")));
+    }
+
+    private static String required(Properties properties, String key) {
+        String value = properties.getProperty(key, "").trim();
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException("Missing required agent property " + key);
+        }
+        return value;
+    }
+
+    private static int intValue(Properties properties, String key, int defaultValue) {
+        return Integer.parseInt(properties.getProperty(key, String.valueOf(defaultValue)).trim());
+    }
+}
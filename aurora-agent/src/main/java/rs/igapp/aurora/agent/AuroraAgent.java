@@ -0,0 +1,271 @@
+package rs.igapp.aurora.agent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rs.igapp.aurora.agent.ship.Shipper;
+import rs.igapp.aurora.agent.spool.MappedSpool;
+import rs.igapp.aurora.agent.tail.FileTailer;
+import rs.igapp.aurora.agent.transport.BinaryIngestClient;
+import rs.igapp.aurora.api.dto.request.LogEventRequest;
+import rs.igapp.aurora.api.protocol.IngestProtocol;
+
+/**
+ * AuroraAgent - Agent za slanje logova: prati fajlove, pravi batch-eve, spool-uje ih i salje serveru
+ *
+ * TOK:
+ * FileTailer (nove linije) -> batch (batch.size linija ili batch.linger) -> EVENTS frame (Deflate)
+ *   -> MappedSpool (zajedno sa offset-ima fajlova) -> Shipper -> BinaryIngestServer
+ *
+ * NITI:
+ * - aurora-agent-collect  cita fajlove, pravi i spool-uje batch-eve
+ * - aurora-agent-ship     salje iz spool-a, ceka ACK, ponavlja posle prekida
+ * Kad je spool pun, collect nit ceka - linije ostaju u fajlovima dok server ne prihvati zaostatak.
+ * Batch-evi koje server odbije (REJECTED) cuvaju se u data-dir/dead-letter.
+ *
+ * CPU:
+ * Fajlovi se citaju najvise jednom u read-interval (podrazumevano 200ms) bez obzira na broj upisa,
+ * pa je cena po liniji: jedan String, jedan LogEventRequest i deo jednog Deflate poziva po batch-u.
+ * Merenje: rs.igapp.aurora.agent.bench.AgentCpuBenchmark.
+ *
+ * Pokretanje: java -cp aurora-agent.jar:... rs.igapp.aurora.agent.AuroraAgent /etc/aurora/agent.properties
+ */
+public class AuroraAgent implements Closeable {
+
+    private static final Logger log = System.getLogger(AuroraAgent.class.getName());
+
+    public static final String THREAD_PREFIX = "aurora-agent-";
+
+    private final AgentConfig config;
+    private final String agentVersion;
+    private final MappedSpool spool;
+    private final FileTailer tailer;
+    private final Shipper shipper;
+    private final Map<Path, String> rawData = new HashMap<>();
+    private final List<LogEventRequest> batch = new ArrayList<>();
+    private final AtomicLong lines = new AtomicLong();
+
+    private Thread collectThread;
+    private Thread shipThread;
+    private volatile boolean running;
+    private boolean abandoned;
+    private long nextSeq;
+    private long batchBytes;
+    private long batchDeadline;
+    private LocalDateTime readTime;
+
+    public AuroraAgent(AgentConfig config) throws IOException {
+        this.config = config;
+        String version = AuroraAgent.class.getPackage().getImplementationVersion();
+        this.agentVersion = version != null ? version : "dev";
+        this.spool = new MappedSpool(config.dataDir().resolve("spool"), config.spoolSegmentSize(),
+            config.spoolMaxSize(), config.spoolSyncInterval());
+        this.tailer = new FileTailer(config.files(), config.startAtEnd(), config.maxLineBytes());
+        this.tailer.restore(spool.lastCheckpoint());
+        this.nextSeq = spool.lastSeq() + 1;
+        this.shipper = new Shipper(spool,
+            new BinaryIngestClient(config.serverHost(), config.serverPort(), false, config.maxFrameSize(), 30_000),
+            config.dataDir().resolve("dead-letter"), config.agentId(), agentVersion, config.retryPause(), config.heartbeatInterval());
+    }
+
+    public static void main(String[] args) throws Exception {
+        AuroraAgent agent = new AuroraAgent(AgentConfig.load(args.length > 0 ? Path.of(args[0]) : null));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                agent.close();
+            } catch (IOException | RuntimeException e) {
+                log.log(Level.ERROR, "Agent shutdown failed", e);
+            }
+        }, THREAD_PREFIX + "shutdown"));
+        try {
+            agent.start();
+        } catch (Shipper.FrameSizeMismatchException e) {
+            log.log(Level.ERROR, "Agent not started: {0}", e.getMessage());
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Prvi HELLO pre pokretanja niti: max-frame-size veca od serverove zaustavlja agenta odmah
+     * (FrameSizeMismatchException sa porukom sta podesiti). Nedostupan server nije greska - ship nit ponavlja.
+     */
+    public void start() {
+        try {
+            shipper.connect();
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Server not reachable at start ({0}), will keep retrying", e.getMessage());
+        }
+        running = true;
+        collectThread = new Thread(this::collectLoop, THREAD_PREFIX + "collect");
+        shipThread = new Thread(shipper, THREAD_PREFIX + "ship");
+        collectThread.start();
+        shipThread.start();
+        log.log(Level.INFO, "Agent {0} {1} tailing {2}, shipping to {3}:{4,number,#}",
+            config.agentId(), agentVersion, config.files(), config.serverHost(), config.serverPort());
+    }
+
+    /**
+     * Zatvara tekuci batch u spool, zaustavlja slanje i force-uje spool na disk.
+     * Collect nit se ne prekida interrupt-om: FileChannel bi se zatvorio usred citanja i checkpoint
+     * bi izgubio taj fajl - nit sama primeti running = false (najvise posle jednog cekanja).
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            if (collectThread != null) {
+                collectThread.join(TimeUnit.SECONDS.toMillis(10));
+            }
+            shipper.stop();
+            if (shipThread != null) {
+                shipThread.interrupt();
+                shipThread.join(TimeUnit.SECONDS.toMillis(10));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        tailer.close();
+        spool.close();
+    }
+
+    // ==================== STANJE ====================
+
+    public long lines() {
+        return lines.get();
+    }
+
+    public long pendingBatches() {
+        return spool.pending();
+    }
+
+    public long sentBatches() {
+        return shipper.sentBatches();
+    }
+
+    // ==================== PRIKUPLJANJE ====================
+
+    private void collectLoop() {
+        long readIntervalMillis = config.readInterval().toMillis();
+        long idleWaitMillis = Math.max(readIntervalMillis, 1_000);
+        try {
+            while (running) {
+                long started = System.nanoTime();
+                readTime = LocalDateTime.now();
+                tailer.poll(this::onLine);
+                if (!batch.isEmpty() && System.nanoTime() - batchDeadline >= 0) {
+                    seal();
+                }
+
+                // Najvise jedno citanje u read-interval; bez otvorenog batch-a spava dok WatchService ne javi promenu
+                long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                if (elapsedMillis < readIntervalMillis) {
+                    Thread.sleep(readIntervalMillis - elapsedMillis);
+                }
+                long lingerLeft = batch.isEmpty() ? idleWaitMillis
+                    : TimeUnit.NANOSECONDS.toMillis(batchDeadline - System.nanoTime());
+                if (lingerLeft > 0) {
+                    tailer.awaitChanges(lingerLeft);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (CancellationException e) {
+            log.log(Level.WARNING, "Spool full at shutdown, unspooled lines will be re-read on start");
+        } catch (IOException | RuntimeException e) {
+            log.log(Level.ERROR, "Collector stopped", e);
+        } finally {
+            sealOnShutdown();
+        }
+    }
+
+    private void onLine(Path file, String line) {
+        if (line.isBlank()) {
+            return;
+        }
+        if (batch.isEmpty()) {
+            batchDeadline = System.nanoTime() + config.batchLinger().toNanos();
+        }
+        batch.add(LogEventRequest.builder()
+            .sourceId(config.agentId())
+            .message(line)
+            .severityId(config.severityId())
+            .rawData(config.includeFile() ? rawData.computeIfAbsent(file, AuroraAgent::fileJson) : null)
+            .timestamp(readTime)
+            .build());
+        lines.incrementAndGet();
+        batchBytes += line.length();
+        if (batch.size() >= config.batchSize() || batchBytes >= config.maxFrameSize() / 2) {
+            sealUninterruptibly();
+        }
+    }
+
+    /**
+     * Kodira batch i upisuje ga u spool sa offset-ima fajlova posle njegove poslednje linije.
+     * Pun spool: ceka (backpressure na citanje fajlova). Gasenje dok ceka: batch se napusta - checkpoint
+     * u spool-u je od prethodnog batch-a, pa se te linije citaju ponovo pri sledecem startu.
+     */
+    private void seal() throws IOException, InterruptedException {
+        ByteBuffer frame = IngestProtocol.encodeEvents(nextSeq, batch, config.compress(), config.maxFrameSize());
+        byte[] checkpoint = tailer.checkpoint();
+        boolean warned = false;
+        while (!spool.append(nextSeq, checkpoint, frame)) {
+            if (!running) {
+                abandoned = true;
+                throw new CancellationException("Spool full at shutdown");
+            }
+            if (!warned) {
+                log.log(Level.WARNING, "Spool is full ({0} batches pending), pausing file reads", spool.pending());
+                warned = true;
+            }
+            Thread.sleep(500);
+        }
+        nextSeq++;
+        batch.clear();
+        batchBytes = 0;
+    }
+
+    // Iz sink-a (usred citanja fajla) - prekid se odlaze do kraja seal-a
+    private void sealUninterruptibly() {
+        try {
+            seal();
+        } catch (InterruptedException e) {
+            running = false;
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new IllegalStateException("Spool write failed", e);
+        }
+    }
+
+    private void sealOnShutdown() {
+        if (batch.isEmpty() || abandoned) {
+            return;
+        }
+        try {
+            // Ako je spool pun, linije nisu izgubljene: checkpoint nije pomeren pa se citaju ponovo pri startu
+            ByteBuffer frame = IngestProtocol.encodeEvents(nextSeq, batch, config.compress(), config.maxFrameSize());
+            if (spool.append(nextSeq, tailer.checkpoint(), frame)) {
+                nextSeq++;
+            }
+            batch.clear();
+        } catch (IOException e) {
+            log.log(Level.ERROR, "Could not spool last batch on shutdown", e);
+        }
+    }
+
+    private static String fileJson(Path file) {
+        String path = file.toString().replace("\\", "\\\\").replace("\"", "\\\"");
+        return "{\"file\":\"" + path + "\"}";
+    }
+}
@@ -0,0 +1,319 @@
+package rs.igapp.aurora.agent.bench;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Inflater;
+
+import rs.igapp.aurora.agent.AgentConfig;
+import rs.igapp.aurora.agent.AuroraAgent;
+import rs.igapp.aurora.api.dto.request.LogEventRequest;
+import rs.igapp.aurora.api.protocol.IngestAck;
+import rs.igapp.aurora.api.protocol.IngestProtocol;
+import rs.igapp.aurora.api.protocol.IngestProtocol.FrameHeader;
+
+/**
+ * AgentCpuBenchmark - CPU agenta pri zadatom broju linija u sekundi, uz proveru da nema gubitaka i duplikata
+ *
+ * Generator dopisuje rate linija/s u log fajl (tikovi od 10ms), agent ga prati i salje ugradjenom
+ * prijemniku koji radi isto sto i BinaryIngestServer (HELLO, dedup po batchSeq, ACK). Svaka linija
+ * nosi redni broj, pa prijemnik broji izgubljene i duplirane linije.
+ *
+ * CPU = CPU vreme niti agenta (aurora-agent-*) / proteklo vreme, u procentima jednog jezgra,
+ * mereno posle zagrevanja. Generator i prijemnik nisu ukljuceni; GC/JIT niti takodje nisu.
+ *
+ * outage=N prekida prijemnik na N sekundi usred merenja: agent spool-uje, pa posle povratka
+ * salje zaostatak - rezultat mora i dalje biti 0 izgubljenih i 0 dupliranih.
+ *
+ * Pokretanje:
+ *   java -cp aurora-agent.jar:... rs.igapp.aurora.agent.bench.AgentCpuBenchmark rate=5000 seconds=60 warmup=10 outage=5
+ */
+public final class AgentCpuBenchmark {
+
+    private static final double CPU_BUDGET_PERCENT = 2.0;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        int rate = Integer.parseInt(options.getOrDefault("rate", "5000"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "60"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int outage = Integer.parseInt(options.getOrDefault("outage", "0"));
+
+        Path dir = Files.createTempDirectory("aurora-agent-bench");
+        Path logFile = dir.resolve("bench.log");
+        Files.createFile(logFile);
+
+        AckSink sink = new AckSink();
+        sink.start();
+
+        Properties properties = new Properties();
+        properties.setProperty("aurora.agent.id", "bench-agent");
+        properties.setProperty("aurora.agent.server.port", String.valueOf(sink.port));
+        properties.setProperty("aurora.agent.files", logFile.toString());
+        properties.setProperty("aurora.agent.data-dir", dir.resolve("data").toString());
+        properties.setProperty("aurora.agent.start-position", "BEGINNING");
+        AuroraAgent agent = new AuroraAgent(AgentConfig.from(properties));
+        agent.start();
+
+        Generator generator = new Generator(logFile, rate);
+        Thread generatorThread = new Thread(generator, "bench-generator");
+        generatorThread.start();
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        TimeUnit.SECONDS.sleep(warmup);
+        long cpuStart = agentCpuNanos(threads);
+        long wallStart = System.nanoTime();
+        long linesStart = generator.written;
+
+        if (outage > 0) {
+            TimeUnit.SECONDS.sleep(Math.max(0, (seconds - outage) / 2));
+            System.out.printf("Receiver down for %ds...%n", outage);
+            sink.pause();
+            TimeUnit.SECONDS.sleep(outage);
+            System.out.printf("Receiver up, %d batches spooled%n", agent.pendingBatches());
+            sink.resume();
+            TimeUnit.SECONDS.sleep(Math.max(0, seconds - outage - (seconds - outage) / 2));
+        } else {
+            TimeUnit.SECONDS.sleep(seconds);
+        }
+
+        long cpu = agentCpuNanos(threads) - cpuStart;
+        long wall = System.nanoTime() - wallStart;
+        long lines = generator.written - linesStart;
+        generator.running = false;
+        generatorThread.join();
+
+        // Sacekaj da agent isporuci sve sto je generator napisao
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (sink.received() < generator.written && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        agent.close();
+        sink.stop();
+
+        double cpuPercent = cpu * 100.0 / wall;
+        System.out.printf("%nlines/s (measured)   %,.0f%n", lines / (wall / 1e9));
+        System.out.printf("agent CPU            %.2f%% of one core (budget %.1f%%)%n", cpuPercent, CPU_BUDGET_PERCENT);
+        System.out.printf("lines written        %,d%n", generator.written);
+        System.out.printf("lines received       %,d%n", sink.received());
+        System.out.printf("lost                 %,d%n", sink.lost(generator.written));
+        System.out.printf("duplicated           %,d%n", sink.duplicated);
+        System.out.printf("duplicate batches    %,d (acknowledged by seq, not delivered)%n", sink.duplicateBatches);
+        System.out.printf("wire bytes/line      %.1f%n", (double) sink.bytes / Math.max(1, sink.received()));
+        boolean pass = cpuPercent < CPU_BUDGET_PERCENT && sink.lost(generator.written) == 0 && sink.duplicated == 0;
+        System.out.println(pass ? "PASS" : "FAIL");
+        System.exit(pass ? 0 : 1);
+    }
+
+    private static long agentCpuNanos(ThreadMXBean threads) {
+        long total = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith(AuroraAgent.THREAD_PREFIX)) {
+                long cpu = threads.getThreadCpuTime(thread.threadId());
+                total += Math.max(0, cpu);
+            }
+        }
+        return total;
+    }
+
+    // ==================== GENERATOR ====================
+
+    private static final class Generator implements Runnable {
+
+        private final Path file;
+        private final int rate;
+        private volatile boolean running = true;
+        private volatile long written;
+
+        Generator(Path file, int rate) {
+            this.file = file;
+            this.rate = rate;
+        }
+
+        @Override
+        public void run() {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                long start = System.nanoTime();
+                long next = 0;
+                StringBuilder chunk = new StringBuilder();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (running) {
+                    // Koliko linija je trebalo do sada, upisanih u jednom write-u po tiku
+                    long due = (System.nanoTime() - start) * rate / 1_000_000_000L;
+                    chunk.setLength(0);
+                    for (; next < due; next++) {
+                        chunk.append("Oct 17 10:00:00 web-01 sshd[").append(1000 + random.nextInt(9000))
+                            .append("]: Failed password for invalid user admin from 10.0.")
+                            .append(random.nextInt(256)).append('.').append(random.nextInt(256))
+                            .append(" port ").append(1024 + random.nextInt(60000)).append(" ssh2 line=")
+                            .append(next).append('\n');
+                    }
+                    if (!chunk.isEmpty()) {
+                        ByteBuffer bytes = StandardCharsets.UTF_8.encode(chunk.toString());
+                        while (bytes.hasRemaining()) {
+                            channel.write(bytes);
+                        }
+                        written = next;
+                    }
+                    TimeUnit.MILLISECONDS.sleep(10);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // ==================== PRIJEMNIK ====================
+
+    /**
+     * Minimalni BinaryIngestServer: HELLO vraca poslednji batchSeq, vec vidjen batchSeq se potvrdjuje
+     * bez isporuke, linije se obelezavaju u BitSet-u po rednom broju.
+     */
+    private static final class AckSink {
+
+        private final BitSet seen = new BitSet();
+        private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+        private ServerSocket server;
+        private int port;
+        private volatile boolean paused;
+        private long lastSeq;
+        private long received;
+        private long duplicated;
+        private long duplicateBatches;
+        private long bytes;
+
+        void start() throws IOException {
+            server = new ServerSocket();
+            server.setReuseAddress(true);
+            server.bind(new InetSocketAddress("localhost", port));
+            port = server.getLocalPort();
+            Thread acceptor = new Thread(this::acceptLoop, "bench-sink");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        void pause() throws IOException {
+            paused = true;
+            server.close();
+            for (Socket client : clients) {
+                client.close();
+            }
+        }
+
+        void resume() throws IOException {
+            paused = false;
+            start();
+        }
+
+        void stop() throws IOException {
+            pause();
+        }
+
+        synchronized long received() {
+            return received;
+        }
+
+        synchronized long lost(long written) {
+            return written - seen.cardinality();
+        }
+
+        private void acceptLoop() {
+            ServerSocket listener = server;
+            while (!paused) {
+                try {
+                    Socket client = listener.accept();
+                    clients.add(client);
+                    Thread handler = new Thread(() -> handle(client), "bench-sink-client");
+                    handler.setDaemon(true);
+                    handler.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void handle(Socket client) {
+            Inflater inflater = new Inflater(true);
+            ByteBuffer inflated = ByteBuffer.allocate(IngestProtocol.DEFAULT_MAX_FRAME_SIZE);
+            try (client; InputStream in = client.getInputStream(); OutputStream out = client.getOutputStream()) {
+                byte[] header = new byte[IngestProtocol.HEADER_SIZE];
+                while (true) {
+                    readFully(in, header);
+                    FrameHeader frame = IngestProtocol.readHeader(ByteBuffer.wrap(header), IngestProtocol.DEFAULT_MAX_FRAME_SIZE);
+                    byte[] payload = new byte[frame.length()];
+                    readFully(in, payload);
+                    ByteBuffer ack = ByteBuffer.allocate(IngestProtocol.ACK_FRAME_SIZE);
+                    if (frame.type() == IngestProtocol.TYPE_HELLO) {
+                        synchronized (this) {
+                            IngestProtocol.writeAck(ack, lastSeq, IngestAck.Status.ACCEPTED, 0);
+                        }
+                    } else {
+                        ByteBuffer body = ByteBuffer.wrap(payload);
+                        List<LogEventRequest> events = IngestProtocol.decodeEvents(
+                            frame.deflated() ? IngestProtocol.inflate(inflater, body, inflated) : body);
+                        deliver(frame.batchSeq(), events, IngestProtocol.HEADER_SIZE + payload.length);
+                        IngestProtocol.writeAck(ack, frame.batchSeq(), IngestAck.Status.ACCEPTED, events.size());
+                    }
+                    out.write(ack.array());
+                    out.flush();
+                }
+            } catch (IOException e) {
+                // agent se odvezao ili je prijemnik pauziran
+            } finally {
+                clients.remove(client);
+                inflater.end();
+            }
+        }
+
+        private synchronized void deliver(long batchSeq, List<LogEventRequest> events, int frameBytes) {
+            if (batchSeq <= lastSeq) {
+                duplicateBatches++;
+                return;
+            }
+            lastSeq = batchSeq;
+            bytes += frameBytes;
+            for (LogEventRequest event : events) {
+                String message = event.getMessage();
+                int line = Integer.parseInt(message.substring(message.lastIndexOf("line=") + 5));
+                if (seen.get(line)) {
+                    duplicated++;
+                }
+                seen.set(line);
+                received++;
+            }
+        }
+
+        private static void readFully(InputStream in, byte[] target) throws IOException {
+            if (in.readNBytes(target, 0, target.length) < target.length) {
+                throw new EOFException();
+            }
+        }
+    }
+}
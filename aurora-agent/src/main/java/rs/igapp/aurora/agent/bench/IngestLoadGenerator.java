@@ -0,0 +1,273 @@
+package rs.igapp.aurora.agent.bench;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import rs.igapp.aurora.agent.transport.BinaryIngestClient;
+import rs.igapp.aurora.api.dto.request.LogEventRequest;
+import rs.igapp.aurora.api.dto.response.BulkIngestResponse;
+import rs.igapp.aurora.api.protocol.IngestAck;
+import rs.igapp.aurora.api.protocol.IngestProtocol;
+
+/**
+ * IngestLoadGenerator - Poredi REST i binarni ingest pod istim opterecenjem
+ *
+ * Svi modovi salju u isti IngestQueue na serveru, pa razlika meri samo transport (HTTP + JSON
+ * naspram TCP frame-ova), ne upis u bazu:
+ * - rest-single    POST /api/log-events/async, jedan dogadjaj po zahtevu
+ * - rest-batch     POST /api/log-events/async, batch dogadjaja po zahtevu
+ * - binary         BinaryIngestServer, batch po frame-u
+ * - binary-deflate isto, sa Deflate kompresijom payload-a
+ * Odbijeni ostatak (429 / THROTTLED) se ponovo salje posle pauze i broji kao retry.
+ *
+ * Pokretanje (server sa aurora.ingest.binary.enabled=true, izvor source mora postojati):
+ *   java -cp aurora-agent.jar rs.igapp.aurora.agent.bench.IngestLoadGenerator \
+ *        mode=all events=200000 batch=500 connections=4 source=bench-agent-1
+ * Opcije (key=value): mode (all | rest-single | rest-batch | binary | binary-deflate), server, host, port,
+ * events, rest-single-events, batch, connections, source, warmup, retry-pause-ms.
+ */
+public final class IngestLoadGenerator {
+
+    private static final String[] MESSAGES = {
+        "Failed password for invalid user %s from 10.0.%d.%d port 52314 ssh2",
+        "Accepted publickey for %s from 192.168.%d.%d port 40022 ssh2",
+        "pam_unix(sudo:session): session opened for user root by %s (uid=%d%d)",
+        "kernel: [UFW BLOCK] IN=eth0 OUT= SRC=203.0.%d.%d DST=10.0.0.5 PROTO=TCP user=%s",
+        "GET /api/login HTTP/1.1 401 user=%s upstream=10.1.%d.%d:8080"
+    };
+    private static final String[] USERS = {"root", "admin", "deploy", "postgres", "jenkins", "backup", "www-data"};
+
+    private final Map<String, String> options;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final HttpClient httpClient = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+
+    private IngestLoadGenerator(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected key=value, got " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        new IngestLoadGenerator(options).run();
+    }
+
+    private void run() throws Exception {
+        String mode = option("mode", "all");
+        int events = intOption("events", 200_000);
+        int batch = intOption("batch", 500);
+        List<Mode> modes = switch (mode) {
+            case "all" -> List.of(Mode.REST_SINGLE, Mode.REST_BATCH, Mode.BINARY, Mode.BINARY_DEFLATE);
+            default -> List.of(Mode.of(mode));
+        };
+
+        List<Result> results = new ArrayList<>();
+        for (Mode m : modes) {
+            int total = m == Mode.REST_SINGLE ? intOption("rest-single-events", Math.min(events, 20_000)) : events;
+            int size = m == Mode.REST_SINGLE ? 1 : batch;
+            execute(m, intOption("warmup", 10_000), size);
+            results.add(execute(m, total, size));
+        }
+
+        System.out.printf("%n%-15s %10s %9s %11s %9s %8s %8s %8s %8s%n",
+            "mode", "events", "seconds", "events/s", "MB sent", "B/event", "p50 ms", "p99 ms", "retries");
+        for (Result r : results) {
+            double seconds = r.elapsedNanos() / 1e9;
+            System.out.printf("%-15s %10d %9.2f %11.0f %9.1f %8.1f %8.2f %8.2f %8d%n",
+                r.mode().label, r.events(), seconds, r.events() / seconds, r.bytes() / 1e6,
+                (double) r.bytes() / r.events(), r.percentile(0.50), r.percentile(0.99), r.retries());
+        }
+    }
+
+    // ==================== IZVRSAVANJE ====================
+
+    private Result execute(Mode mode, int events, int batchSize) throws Exception {
+        int connections = intOption("connections", 4);
+        ExecutorService executor = Executors.newFixedThreadPool(connections);
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < connections; i++) {
+                int share = events / connections + (i < events % connections ? 1 : 0);
+                futures.add(executor.submit(() -> mode.binary()
+                    ? sendBinary(mode, share, batchSize)
+                    : sendRest(mode, share, batchSize)));
+            }
+            Result total = new Result(mode, 0, 0, 0, 0, new long[0]);
+            for (Future<Result> future : futures) {
+                total = total.merge(future.get());
+            }
+            return total.withElapsed(System.nanoTime() - start);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Result sendBinary(Mode mode, int events, int batchSize) throws Exception {
+        long[] latencies = new long[(events + batchSize - 1) / batchSize];
+        int requests = 0;
+        int retries = 0;
+        try (BinaryIngestClient client = new BinaryIngestClient(option("host", "localhost"), intOption("port", 5170),
+                mode == Mode.BINARY_DEFLATE, IngestProtocol.DEFAULT_MAX_FRAME_SIZE, 30_000)) {
+            for (int sent = 0; sent < events; sent += batchSize) {
+                List<LogEventRequest> batch = generate(Math.min(batchSize, events - sent));
+                long start = System.nanoTime();
+                IngestAck ack = client.send(batch);
+                while (ack.status() == IngestAck.Status.THROTTLED) {
+                    retries++;
+                    Thread.sleep(intOption("retry-pause-ms", 1000));
+                    batch = batch.subList(ack.accepted(), batch.size());
+                    ack = client.send(batch);
+                }
+                if (ack.status() == IngestAck.Status.REJECTED) {
+                    throw new IllegalStateException("Server rejected batch " + ack.batchSeq());
+                }
+                latencies[requests++] = System.nanoTime() - start;
+            }
+            return new Result(mode, events, 0, client.bytesSent(), retries, Arrays.copyOf(latencies, requests));
+        }
+    }
+
+    private Result sendRest(Mode mode, int events, int batchSize) throws Exception {
+        URI uri = URI.create(option("server", "http://localhost:8080") + "/api/log-events/async");
+        long[] latencies = new long[(events + batchSize - 1) / batchSize];
+        int requests = 0;
+        int retries = 0;
+        long bytes = 0;
+        for (int sent = 0; sent < events; sent += batchSize) {
+            List<LogEventRequest> batch = generate(Math.min(batchSize, events - sent));
+            long start = System.nanoTime();
+            while (true) {
+                byte[] body = objectMapper.writeValueAsBytes(batch);
+                HttpResponse<byte[]> response = httpClient.send(HttpRequest.newBuilder(uri)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                        .build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+                bytes += body.length;
+                if (response.statusCode() == 429) {
+                    retries++;
+                    int accepted = objectMapper.readValue(response.body(), BulkIngestResponse.class).getAccepted();
+                    Thread.sleep(intOption("retry-pause-ms", 1000));
+                    batch = batch.subList(accepted, batch.size());
+                    continue;
+                }
+                if (response.statusCode() / 100 != 2) {
+                    throw new IOException("HTTP " + response.statusCode() + ": " + new String(response.body()));
+                }
+                break;
+            }
+            latencies[requests++] = System.nanoTime() - start;
+        }
+        return new Result(mode, events, 0, bytes, retries, Arrays.copyOf(latencies, requests));
+    }
+
+    // Sinteticki auth/firewall dogadjaji - ponavljaju se sabloni kao u pravim logovima, vrednosti variraju
+    private List<LogEventRequest> generate(int count) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String source = option("source", "bench-agent-1");
+        LocalDateTime now = LocalDateTime.now();
+        List<LogEventRequest> batch = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String user = USERS[random.nextInt(USERS.length)];
+            String message = String.format(MESSAGES[random.nextInt(MESSAGES.length)],
+                user, random.nextInt(256), random.nextInt(256));
+            batch.add(LogEventRequest.builder()
+                .sourceId(source)
+                .message(message)
+                .severityId((long) (1 + random.nextInt(4)))
+                .rawData(random.nextInt(4) == 0
+                    ? "{\"user\":\"" + user + "\",\"pid\":" + random.nextInt(65536) + ",\"facility\":\"auth\"}"
+                    : null)
+                .timestamp(now)
+                .build());
+        }
+        return batch;
+    }
+
+    private String option(String key, String defaultValue) {
+        return options.getOrDefault(key, defaultValue);
+    }
+
+    private int intOption(String key, int defaultValue) {
+        return Integer.parseInt(options.getOrDefault(key, String.valueOf(defaultValue)));
+    }
+
+    // ==================== REZULTAT ====================
+
+    private enum Mode {
+        REST_SINGLE("rest-single"),
+        REST_BATCH("rest-batch"),
+        BINARY("binary"),
+        BINARY_DEFLATE("binary-deflate");
+
+        private final String label;
+
+        Mode(String label) {
+            this.label = label;
+        }
+
+        boolean binary() {
+            return this == BINARY || this == BINARY_DEFLATE;
+        }
+
+        static Mode of(String label) {
+            for (Mode mode : values()) {
+                if (mode.label.equals(label)) {
+                    return mode;
+                }
+            }
+            throw new IllegalArgumentException("Unknown mode " + label);
+        }
+    }
+
+    private record Result(Mode mode, long events, long elapsedNanos, long bytes, int retries, long[] latencies) {
+
+        Result merge(Result other) {
+            long[] merged = Arrays.copyOf(latencies, latencies.length + other.latencies.length);
+            System.arraycopy(other.latencies, 0, merged, latencies.length, other.latencies.length);
+            return new Result(mode, events + other.events, 0, bytes + other.bytes, retries + other.retries, merged);
+        }
+
+        Result withElapsed(long nanos) {
+            Arrays.sort(latencies);
+            return new Result(mode, events, nanos, bytes, retries, latencies);
+        }
+
+        // Latencija jednog zahteva (batch-a) u ms, ukljucujuci ponovna slanja
+        double percentile(double p) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            return latencies[Math.min(latencies.length - 1, (int) (p * latencies.length))] / 1e6;
+        }
+    }
+}
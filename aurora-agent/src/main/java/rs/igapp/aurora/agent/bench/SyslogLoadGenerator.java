@@ -0,0 +1,121 @@
+package rs.igapp.aurora.agent.bench;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * SyslogLoadGenerator - UDP syslog opterecenje za SyslogReceiver
+ *
+ * Svaki posiljalac ima svoj socket (svoj izvorni port), pa SO_REUSEPORT na serveru deli poruke
+ * na sve udp-threads niti. Poruke su unapred pripremljene (mesavina RFC 3164 i RFC 5424 sa
+ * hosts razlicitih hostname-ova), pa generator meri server, ne formatiranje.
+ *
+ * UDP ne potvrdjuje prijem: generator ispisuje koliko je poslao, a gubitak se cita sa servera -
+ * razlika poslatog i aurora.syslog.received (kernel je odbacio datagrame, premali receive-buffer)
+ * i aurora.syslog.dropped{reason=queue-full} (IngestQueue pun).
+ *
+ * Pokretanje (server sa aurora.syslog.enabled=true):
+ *   java -cp aurora-agent.jar rs.igapp.aurora.agent.bench.SyslogLoadGenerator \
+ *        messages=2000000 senders=4 rate=100000 hosts=50
+ * Opcije (key=value): host, port, messages, senders, rate (poruka/s ukupno, 0 = bez ogranicenja), hosts.
+ */
+public final class SyslogLoadGenerator {
+
+    private static final int TEMPLATES = 4096;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected key=value, got " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        InetAddress host = InetAddress.getByName(options.getOrDefault("host", "localhost"));
+        int port = Integer.parseInt(options.getOrDefault("port", "5514"));
+        long messages = Long.parseLong(options.getOrDefault("messages", "2000000"));
+        int senders = Integer.parseInt(options.getOrDefault("senders", "4"));
+        long rate = Long.parseLong(options.getOrDefault("rate", "0"));
+        byte[][] templates = templates(Integer.parseInt(options.getOrDefault("hosts", "50")));
+
+        ExecutorService executor = Executors.newFixedThreadPool(senders);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < senders; i++) {
+                long share = messages / senders + (i < messages % senders ? 1 : 0);
+                long senderRate = rate / senders;
+                futures.add(executor.submit(() -> send(host, port, templates, share, senderRate)));
+            }
+            long bytes = 0;
+            for (Future<Long> future : futures) {
+                bytes += future.get();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("sent %,d messages in %.2fs: %,.0f msg/s, %.1f MB, %.0f B/msg%n",
+                messages, seconds, messages / seconds, bytes / 1e6, (double) bytes / messages);
+            System.out.println("Compare with server metrics aurora.syslog.received and aurora.syslog.dropped");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long send(InetAddress host, int port, byte[][] templates, long count, long rate) throws Exception {
+        long bytes = 0;
+        long intervalNanos = rate > 0 ? 1_000_000_000L / rate : 0;
+        long next = System.nanoTime();
+        try (DatagramSocket socket = new DatagramSocket()) {
+            DatagramPacket packet = new DatagramPacket(templates[0], 0, host, port);
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (long i = 0; i < count; i++) {
+                byte[] message = templates[random.nextInt(templates.length)];
+                packet.setData(message);
+                socket.send(packet);
+                bytes += message.length;
+                if (intervalNanos > 0) {
+                    next += intervalNanos;
+                    long wait = next - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static byte[][] templates(int hosts) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        byte[][] templates = new byte[TEMPLATES][];
+        for (int i = 0; i < TEMPLATES; i++) {
+            String host = "edge-" + (i % hosts);
+            String message = switch (i % 4) {
+                case 0 -> "<86>Oct 17 10:00:00 " + host + " sshd[" + random.nextInt(1000, 65536)
+                    + "]: Failed password for invalid user admin from 10.0." + random.nextInt(256) + "."
+                    + random.nextInt(256) + " port " + random.nextInt(1024, 65536) + " ssh2";
+                case 1 -> "<189>Oct 17 10:00:00 " + host + " %LINK-3-UPDOWN: Interface GigabitEthernet0/"
+                    + random.nextInt(48) + ", changed state to down";
+                case 2 -> "<134>1 2026-10-17T10:00:00.123Z " + host + " filterlog " + random.nextInt(100, 99999)
+                    + " - - 5,,,1000000103,igb0,match,block,in,4,0x0,,64,0,0,DF,6,tcp,60,203.0.113."
+                    + random.nextInt(256) + ",10.0.0.5," + random.nextInt(1024, 65536) + ",22,0,S";
+                default -> "<165>1 2026-10-17T10:00:00.123+02:00 " + host + " app " + random.nextInt(100, 99999)
+                    + " ID47 [origin ip=\"10.0.0." + random.nextInt(256) + "\"] request completed in "
+                    + random.nextInt(1000) + " ms";
+            };
+            templates[i] = message.getBytes(StandardCharsets.UTF_8);
+        }
+        return templates;
+    }
+}
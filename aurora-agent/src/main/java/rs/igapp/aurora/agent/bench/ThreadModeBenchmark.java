@@ -0,0 +1,238 @@
+package rs.igapp.aurora.agent.bench;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import rs.igapp.aurora.api.dto.request.LogEventRequest;
+
+/**
+ * ThreadModeBenchmark - Poredi server na platform i na virtuelnim nitima pod istim brojem klijenata
+ *
+ * Svaki klijent je virtuelna nit koja bez pauze salje zahtev za zahtevom (zatvorena petlja; HttpClient otvara
+ * konekciju po istovremenom zahtevu), pa je na serveru istovremeno do clients zahteva koji blokiraju na JDBC-u:
+ * - read   GET  /api/log-events?size=50 (keyset strana, read-only transakcija)
+ * - write  POST /api/log-events        (jedan dogadjaj, sinhroni INSERT i commit)
+ * Udeo upisa je write-ratio. Posle warmup sekundi meri se seconds sekundi: throughput (uspesni zahtevi/s),
+ * p50/p99/max latencija i greske (HTTP != 2xx, timeout, odbijena konekcija; timeout-i i posebno).
+ * Broje se zahtevi zavrseni u prozoru merenja. U zatvorenoj petlji je latencija ~ clients / throughput
+ * (10k klijenata na 200 req/s = 50s), pa prozor i timeout-ms moraju biti duzi od nje.
+ *
+ * Pokretanje - ista baza, dve instance servera (ili jedna pa druga na istom portu):
+ *   java -jar aurora-server.jar --server.port=8080
+ *   java -jar aurora-server.jar --server.port=8081 --spring.profiles.active=virtual
+ *   java -cp aurora-agent.jar rs.igapp.aurora.agent.bench.ThreadModeBenchmark \
+ *        targets=platform=http://localhost:8080,virtual=http://localhost:8081 clients=10000 seconds=60
+ * Opcije (key=value): targets (label=url,...), clients, seconds, warmup, write-ratio, source, timeout-ms.
+ * 10k konekcija trazi ulimit -n iznad 10000 i na klijentu i na serveru. Izvor source mora postojati.
+ * Pri poredjenju pratiti i hikaricp.connections.pending na serveru - tamo cekaju zahtevi preko pool-a.
+ */
+public final class ThreadModeBenchmark {
+
+    private final Map<String, String> options;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private ThreadModeBenchmark(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected key=value, got " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        new ThreadModeBenchmark(options).run();
+    }
+
+    private void run() throws Exception {
+        Map<String, String> targets = new LinkedHashMap<>();
+        for (String target : option("targets", "platform=http://localhost:8080,virtual=http://localhost:8081").split(",")) {
+            int eq = target.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected label=url in targets, got " + target);
+            }
+            targets.put(target.substring(0, eq).trim(), target.substring(eq + 1).trim());
+        }
+
+        List<Result> results = new ArrayList<>();
+        for (Map.Entry<String, String> target : targets.entrySet()) {
+            System.out.printf("%s: %d clients against %s%n", target.getKey(), intOption("clients", 10_000), target.getValue());
+            results.add(execute(target.getKey(), target.getValue()));
+        }
+
+        System.out.printf("%n%-10s %8s %10s %10s %9s %9s %9s %8s %8s%n",
+            "target", "clients", "requests", "req/s", "p50 ms", "p99 ms", "max ms", "errors", "timeouts");
+        for (Result r : results) {
+            System.out.printf("%-10s %8d %10d %10.0f %9.1f %9.1f %9.1f %8d %8d%n",
+                r.label(), r.clients(), r.latencies().length, r.latencies().length / r.seconds(),
+                r.percentile(0.50), r.percentile(0.99), r.percentile(1.0), r.errors(), r.timeouts());
+        }
+    }
+
+    // ==================== IZVRSAVANJE ====================
+
+    private Result execute(String label, String server) throws Exception {
+        int clients = intOption("clients", 10_000);
+        long warmupNanos = Duration.ofSeconds(intOption("warmup", 15)).toNanos();
+        long measureNanos = Duration.ofSeconds(intOption("seconds", 60)).toNanos();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient httpClient = HttpClient.newBuilder()
+                 .version(HttpClient.Version.HTTP_1_1)
+                 .connectTimeout(Duration.ofMillis(intOption("timeout-ms", 30_000)))
+                 .executor(executor)
+                 .build()) {
+            CountDownLatch ready = new CountDownLatch(clients);
+            long[] window = new long[2];  // pocetak i kraj merenja, postavlja se kad su svi klijenti spremni
+            CountDownLatch go = new CountDownLatch(1);
+            List<Future<Result>> futures = new ArrayList<>(clients);
+            for (int i = 0; i < clients; i++) {
+                futures.add(executor.submit(() -> client(httpClient, server, ready, go, window)));
+            }
+            ready.await();
+            window[0] = System.nanoTime() + warmupNanos;
+            window[1] = window[0] + measureNanos;
+            go.countDown();
+
+            List<Result> perClient = new ArrayList<>(clients);
+            for (Future<Result> future : futures) {
+                perClient.add(future.get());
+            }
+            return Result.merge(label, clients, measureNanos / 1e9, perClient);
+        }
+    }
+
+    // Jedan klijent: zahtevi bez pauze do kraja merenja; broje se samo zahtevi zavrseni u prozoru merenja
+    private Result client(HttpClient httpClient, String server, CountDownLatch ready, CountDownLatch go, long[] window)
+            throws Exception {
+        double writeRatio = Double.parseDouble(option("write-ratio", "0.2"));
+        Duration timeout = Duration.ofMillis(intOption("timeout-ms", 30_000));
+        URI readUri = URI.create(server + "/api/log-events?size=50");
+        URI writeUri = URI.create(server + "/api/log-events");
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long[] latencies = new long[1024];
+        int count = 0;
+        long errors = 0;
+        long timeouts = 0;
+
+        ready.countDown();
+        go.await();
+        long measureStart = window[0];
+        long measureEnd = window[1];
+        while (true) {
+            HttpRequest request = random.nextDouble() < writeRatio
+                ? HttpRequest.newBuilder(writeUri)
+                    .timeout(timeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(event(random)))
+                    .build()
+                : HttpRequest.newBuilder(readUri).timeout(timeout).GET().build();
+            long start = System.nanoTime();
+            if (start >= measureEnd) {
+                break;
+            }
+            boolean ok;
+            boolean timedOut = false;
+            try {
+                ok = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() / 100 == 2;
+            } catch (HttpTimeoutException e) {
+                ok = false;
+                timedOut = true;
+            } catch (IOException e) {
+                ok = false;
+            }
+            long end = System.nanoTime();
+            if (end < measureStart || end > measureEnd) {
+                continue;
+            }
+            if (!ok) {
+                errors++;
+                if (timedOut) {
+                    timeouts++;
+                }
+                continue;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = end - start;
+        }
+        return new Result(null, 0, 0, errors, timeouts, Arrays.copyOf(latencies, count));
+    }
+
+    private byte[] event(ThreadLocalRandom random) throws Exception {
+        return objectMapper.writeValueAsBytes(LogEventRequest.builder()
+            .sourceId(option("source", "bench-agent-1"))
+            .message("Failed password for invalid user admin from 10.0." + random.nextInt(256) + "."
+                + random.nextInt(256) + " port " + random.nextInt(1024, 65536) + " ssh2")
+            .severityId((long) (1 + random.nextInt(4)))
+            .timestamp(LocalDateTime.now())
+            .build());
+    }
+
+    private String option(String key, String defaultValue) {
+        return options.getOrDefault(key, defaultValue);
+    }
+
+    private int intOption(String key, int defaultValue) {
+        return Integer.parseInt(options.getOrDefault(key, String.valueOf(defaultValue)));
+    }
+
+    // ==================== REZULTAT ====================
+
+    private record Result(String label, int clients, double seconds, long errors, long timeouts, long[] latencies) {
+
+        static Result merge(String label, int clients, double seconds, List<Result> results) {
+            long errors = 0;
+            long timeouts = 0;
+            int size = 0;
+            for (Result result : results) {
+                errors += result.errors;
+                timeouts += result.timeouts;
+                size += result.latencies.length;
+            }
+            long[] merged = new long[size];
+            int offset = 0;
+            for (Result result : results) {
+                System.arraycopy(result.latencies, 0, merged, offset, result.latencies.length);
+                offset += result.latencies.length;
+            }
+            Arrays.sort(merged);
+            return new Result(label, clients, seconds, errors, timeouts, merged);
+        }
+
+        // Latencija uspesnog zahteva u ms
+        double percentile(double p) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            return latencies[Math.min(latencies.length - 1, (int) (p * latencies.length))] / 1e6;
+        }
+    }
+}
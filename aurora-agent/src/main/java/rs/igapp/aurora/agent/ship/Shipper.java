@@ -0,0 +1,185 @@
+package rs.igapp.aurora.agent.ship;
+
+import java.io.IOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rs.igapp.aurora.agent.spool.MappedSpool;
+import rs.igapp.aurora.agent.spool.SpoolRecord;
+import rs.igapp.aurora.agent.transport.BinaryIngestClient;
+import rs.igapp.aurora.api.protocol.IngestAck;
+
+/**
+ * Shipper - Salje batch-eve iz spool-a serveru, jedan po jedan, redom
+ *
+ * Na svakoj novoj konekciji prvo HELLO: server vraca poslednji batchSeq koji je video od ovog agenta
+ * (istog streamId-ja), pa se stariji zapisi potvrdjuju bez slanja. Zapis se oslobadja tek posle ACK-a:
+ * - ACCEPTED  -> ack, sledeci zapis
+ * - THROTTLED -> pauza retry-pause, pa ISTI frame ponovo (server preskace vec prihvacene dogadjaje)
+ * - REJECTED  -> frame se upisuje u dead-letter direktorijum (batch-<streamId>-<batchSeq>.frame), pa ack
+ *                (neispravan frame bi inace zauvek blokirao spool, a ovako ostaje za analizu)
+ * HELLO odbijen sa accepted = 0 (agentId nije registrovan izvor na serveru): kao greska u mrezi - agent ceka
+ * i pokusava ponovo. HELLO odbijen sa accepted > 0: server prima manje frame-ove od agentove max-frame-size -
+ * svaki veci batch bi bio odbijen, pa slanje staje (FrameSizeMismatchException; na startu agenta i sam agent).
+ * Greska u mrezi: zatvaranje konekcije i ponovni pokusaj sa eksponencijalnim cekanjem (1s .. 30s).
+ * Bez slanja duze od heartbeat-interval: HELLO na istoj konekciji, da server zna da je agent ziv.
+ */
+public class Shipper implements Runnable {
+
+    private static final Logger log = System.getLogger(Shipper.class.getName());
+
+    private static final long MIN_BACKOFF_MILLIS = 1_000;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final MappedSpool spool;
+    private final BinaryIngestClient client;
+    private final Path deadLetterDir;
+    private final String agentId;
+    private final String agentVersion;
+    private final long retryPauseMillis;
+    private final long heartbeatIntervalNanos;
+
+    private final AtomicLong sentBatches = new AtomicLong();
+    private final AtomicLong rejectedBatches = new AtomicLong();
+    private volatile boolean running = true;
+
+    public Shipper(MappedSpool spool, BinaryIngestClient client, Path deadLetterDir, String agentId,
+                   String agentVersion, Duration retryPause, Duration heartbeatInterval) {
+        this.spool = spool;
+        this.client = client;
+        this.deadLetterDir = deadLetterDir;
+        this.agentId = agentId;
+        this.agentVersion = agentVersion;
+        this.retryPauseMillis = retryPause.toMillis();
+        this.heartbeatIntervalNanos = heartbeatInterval.toNanos();
+    }
+
+    /**
+     * Agentova max-frame-size je veca od serverove - poruka kaze koju vrednost podesiti.
+     */
+    public static class FrameSizeMismatchException extends IllegalStateException {
+
+        public FrameSizeMismatchException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * HELLO na novoj konekciji i ack zapisa koje server vec ima.
+     *
+     * @throws FrameSizeMismatchException server prima manje frame-ove od agentove max-frame-size
+     * @throws IOException server nedostupan ili agent nije registrovan - ponavlja se
+     */
+    public void connect() throws IOException {
+        IngestAck hello = client.hello(agentId, agentVersion, spool.streamId());
+        if (hello.status() == IngestAck.Status.REJECTED) {
+            if (hello.accepted() > 0) {
+                throw new FrameSizeMismatchException("aurora.agent.max-frame-size=" + client.maxFrameSize()
+                    + " is larger than the server's aurora.ingest.binary.max-frame-size=" + hello.accepted()
+                    + " - set aurora.agent.max-frame-size to at most " + hello.accepted());
+            }
+            throw new IOException("server rejected HELLO of agent " + agentId + " (not registered as a source?)");
+        }
+        spool.ackUpTo(hello.batchSeq() - 1);
+        log.log(Level.INFO, "Connected to server, {0} batches pending", spool.pending());
+    }
+
+    @Override
+    public void run() {
+        long backoff = MIN_BACKOFF_MILLIS;
+        long lastExchange = System.nanoTime();
+        while (running) {
+            try {
+                if (!client.connected()) {
+                    connect();
+                    backoff = MIN_BACKOFF_MILLIS;
+                    lastExchange = System.nanoTime();
+                }
+                SpoolRecord record = spool.next(500);
+                if (record == null) {
+                    if (System.nanoTime() - lastExchange >= heartbeatIntervalNanos) {
+                        client.heartbeat(agentId, agentVersion, spool.streamId());
+                        lastExchange = System.nanoTime();
+                    }
+                    continue;
+                }
+                IngestAck ack = client.sendFrame(record.frame(), record.seq());
+                lastExchange = System.nanoTime();
+                switch (ack.status()) {
+                    case ACCEPTED -> {
+                        spool.ack(record.seq());
+                        sentBatches.incrementAndGet();
+                    }
+                    case THROTTLED -> Thread.sleep(retryPauseMillis);
+                    case REJECTED -> {
+                        if (deadLetter(record)) {
+                            spool.ack(record.seq());
+                            rejectedBatches.incrementAndGet();
+                        } else {
+                            Thread.sleep(retryPauseMillis);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (FrameSizeMismatchException e) {
+                log.log(Level.ERROR, "Shipping stopped: {0}", e.getMessage());
+                running = false;
+                client.close();
+                return;
+            } catch (IOException e) {
+                client.close();
+                log.log(Level.WARNING, "Server unreachable ({0}), retrying in {1} ms", e.getMessage(), backoff);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    // Odbijen frame na disk, kakav je poslat; false = upis nije uspeo, zapis ostaje u spool-u i salje se ponovo
+    private boolean deadLetter(SpoolRecord record) {
+        Path file = deadLetterDir.resolve("batch-" + spool.streamId() + "-" + record.seq() + ".frame");
+        try {
+            Files.createDirectories(deadLetterDir);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer frame = record.frame().duplicate();
+                while (frame.hasRemaining()) {
+                    channel.write(frame);
+                }
+                channel.force(true);
+            }
+            log.log(Level.ERROR, "Server rejected batch {0}, moved it to {1}", record.seq(), file);
+            return true;
+        } catch (IOException e) {
+            log.log(Level.ERROR, "Server rejected batch " + record.seq() + ", could not write " + file, e);
+            return false;
+        }
+    }
+
+    public void stop() {
+        running = false;
+        client.close();
+    }
+
+    public long sentBatches() {
+        return sentBatches.get();
+    }
+
+    public long rejectedBatches() {
+        return rejectedBatches.get();
+    }
+}
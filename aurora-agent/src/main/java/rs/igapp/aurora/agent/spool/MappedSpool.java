@@ -0,0 +1,331 @@
+package rs.igapp.aurora.agent.spool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * MappedSpool - Write-ahead spool agenta u memory-mapped segmentima na disku
+ *
+ * Svrha:
+ * Svaki batch se prvo upise ovde, pa ga Shipper salje iz spool-a i tek posle ACK-a oslobadja.
+ * Kad server nije dostupan batch-evi se gomilaju u segmentima i salju istim redom kad se vrati.
+ * Upis je memcpy u mapiran segment (bez write syscall-a po batch-u); proces koji padne ne gubi nista
+ * jer su stranice vec u page cache-u, a force() na sync-interval pokriva pad masine.
+ *
+ * ZAPIS:
+ *   int length, int crc32c (tela), telo: long seq, int checkpointLength, checkpoint, EVENTS frame
+ * length = 0 je kraj podataka u segmentu. Length se upisuje poslednji, pa je zapis vidljiv tek ceo;
+ * pri oporavku se skeniranje zaustavlja na prvom zapisu sa losim CRC-om (nedovrsen upis pri padu).
+ *
+ * BEZ DUPLIKATA:
+ * - Shipper dobija samo zapise koji su force-ovani na disk: poslat batch ne moze nestati posle pada
+ *   masine pa ponovo nastati sa istim seq a drugim sadrzajem
+ * - checkpoint u zapisu = offset-i fajlova posle poslednje linije batch-a; posle restarta FileTailer
+ *   nastavlja od checkpoint-a poslednjeg zapisa, pa nijedna linija nije ni izgubljena ni dvaput u spool-u
+ * - cursor fajl cuva streamId (nasumican po spool-u, za HELLO) i poslednji potvrdjen seq; vec poslat
+ *   batch koji se ponovo posalje (ACK izgubljen, cursor zaostao) server prepoznaje po seq-u
+ *
+ * Poslednji segment se nikad ne brise (u njemu je checkpoint); ostali se brisu kad su potvrdjeni.
+ */
+public class MappedSpool implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".spool";
+    private static final String CURSOR_FILE = "cursor";
+
+    private static final int RECORD_HEADER = 8;   // length + crc
+    private static final int BODY_HEADER = 12;    // seq + checkpointLength
+    private static final int CURSOR_SIZE = 16;    // streamId + ackedSeq
+
+    private final Path dir;
+    private final int segmentSize;
+    private final long maxSize;
+    private final long syncIntervalNanos;
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private final MappedByteBuffer cursor;
+    private final long streamId;
+
+    private long ackedSeq;
+    private long lastSeq;
+    private byte[] lastCheckpoint = new byte[0];
+    private int readPosition;
+    private long lastSync = System.nanoTime();
+    private boolean closed;
+
+    public MappedSpool(Path dir, int segmentSize, long maxSize, Duration syncInterval) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.segmentSize = segmentSize;
+        this.maxSize = maxSize;
+        this.syncIntervalNanos = syncInterval.toNanos();
+
+        Path cursorPath = dir.resolve(CURSOR_FILE);
+        boolean fresh = !Files.exists(cursorPath);
+        this.cursor = map(cursorPath, CURSOR_SIZE);
+        if (fresh) {
+            cursor.putLong(0, new SecureRandom().nextLong() & Long.MAX_VALUE);
+            cursor.putLong(8, 0);
+            cursor.force();
+        }
+        this.streamId = cursor.getLong(0);
+        this.ackedSeq = cursor.getLong(8);
+        recover();
+    }
+
+    // ==================== UPIS ====================
+
+    /**
+     * Dodaje batch na kraj. Vraca false ako bi spool presao max-size (pozivalac ceka i pokusava ponovo).
+     */
+    public synchronized boolean append(long seq, byte[] checkpoint, ByteBuffer frame) throws IOException {
+        int body = BODY_HEADER + checkpoint.length + frame.remaining();
+        int total = RECORD_HEADER + body;
+        if (total > segmentSize) {
+            throw new IllegalArgumentException("Spool record of " + total + " bytes exceeds segment size " + segmentSize);
+        }
+        Segment tail = segments.peekLast();
+        if (tail.writePosition + total > tail.buffer.capacity()) {
+            if ((long) (segments.size() + 1) * segmentSize > maxSize) {
+                return false;
+            }
+            tail = createSegment(tail.index + 1);
+            segments.addLast(tail);
+        }
+
+        MappedByteBuffer buffer = tail.buffer;
+        int position = tail.writePosition;
+        buffer.putLong(position + RECORD_HEADER, seq);
+        buffer.putInt(position + RECORD_HEADER + 8, checkpoint.length);
+        buffer.put(position + RECORD_HEADER + BODY_HEADER, checkpoint);
+        buffer.put(position + RECORD_HEADER + BODY_HEADER + checkpoint.length, frame, frame.position(), frame.remaining());
+        buffer.putInt(position + 4, crc(buffer, position + RECORD_HEADER, body));
+        buffer.putInt(position, body);
+
+        tail.writePosition += total;
+        tail.lastSeq = seq;
+        lastSeq = seq;
+        lastCheckpoint = checkpoint;
+        notifyAll();
+        return true;
+    }
+
+    // ==================== CITANJE ====================
+
+    /**
+     * Sledeci nepotvrdjen zapis koji je vec na disku, ili null ako ga nema za timeoutMillis.
+     * Isti zapis se vraca dok se ne pozove ack (ponovno slanje posle THROTTLED ili prekida).
+     */
+    public synchronized SpoolRecord next(long timeoutMillis) throws InterruptedException, IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (!closed) {
+            long now = System.nanoTime();
+            Segment head = head();
+            long wakeAt = deadline;
+            if (readPosition < head.writePosition) {
+                if (readPosition >= head.syncedPosition && now - lastSync >= syncIntervalNanos) {
+                    sync();
+                }
+                if (readPosition < head.syncedPosition) {
+                    return recordAt(head, readPosition);
+                }
+                wakeAt = Math.min(deadline, lastSync + syncIntervalNanos);
+            }
+            if (now - deadline >= 0) {
+                return null;
+            }
+            wait(Math.max(1, TimeUnit.NANOSECONDS.toMillis(wakeAt - now)));
+        }
+        return null;
+    }
+
+    /**
+     * Potvrdjuje zapis vracen iz next (server ga je primio ili odbacio).
+     */
+    public synchronized void ack(long seq) throws IOException {
+        Segment head = head();
+        if (readPosition < head.writePosition && head.buffer.getLong(readPosition + RECORD_HEADER) == seq) {
+            advance();
+        }
+    }
+
+    /**
+     * Potvrdjuje sve zapise do seq ukljucivo (HELLO: server ih je vec video).
+     */
+    public synchronized void ackUpTo(long seq) throws IOException {
+        while (true) {
+            Segment head = head();
+            if (readPosition >= head.writePosition || head.buffer.getLong(readPosition + RECORD_HEADER) > seq) {
+                return;
+            }
+            advance();
+        }
+    }
+
+    // ==================== STANJE ====================
+
+    public long streamId() {
+        return streamId;
+    }
+
+    public synchronized long lastSeq() {
+        return Math.max(lastSeq, ackedSeq);
+    }
+
+    // Offset-i fajlova posle poslednjeg batch-a u spool-u (prazno ako spool nikad nije pisan)
+    public synchronized byte[] lastCheckpoint() {
+        return lastCheckpoint;
+    }
+
+    // Broj batch-eva koji cekaju potvrdu servera
+    public synchronized long pending() {
+        return lastSeq - ackedSeq;
+    }
+
+    public synchronized void sync() throws IOException {
+        for (Segment segment : segments) {
+            if (segment.syncedPosition < segment.writePosition) {
+                segment.buffer.force(segment.syncedPosition, segment.writePosition - segment.syncedPosition);
+                segment.syncedPosition = segment.writePosition;
+            }
+        }
+        cursor.force();
+        lastSync = System.nanoTime();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            sync();
+            closed = true;
+            notifyAll();
+        }
+    }
+
+    // ==================== POMOCNE METODE ====================
+
+    private SpoolRecord recordAt(Segment segment, int position) {
+        int body = segment.buffer.getInt(position);
+        long seq = segment.buffer.getLong(position + RECORD_HEADER);
+        int checkpointLength = segment.buffer.getInt(position + RECORD_HEADER + 8);
+        int frameOffset = position + RECORD_HEADER + BODY_HEADER + checkpointLength;
+        ByteBuffer frame = segment.buffer.slice(frameOffset, body - BODY_HEADER - checkpointLength).asReadOnlyBuffer();
+        return new SpoolRecord(seq, frame);
+    }
+
+    private void advance() {
+        Segment head = segments.peekFirst();
+        ackedSeq = head.buffer.getLong(readPosition + RECORD_HEADER);
+        readPosition += RECORD_HEADER + head.buffer.getInt(readPosition);
+        cursor.putLong(8, ackedSeq);
+    }
+
+    // Procitan segment koji nije poslednji se brise - append je vec presao u sledeci
+    private Segment head() throws IOException {
+        Segment head = segments.peekFirst();
+        while (readPosition >= head.writePosition && segments.size() > 1) {
+            segments.removeFirst();
+            Files.deleteIfExists(head.path);
+            readPosition = 0;
+            head = segments.peekFirst();
+        }
+        return head;
+    }
+
+    // Skenira segmente, odbacuje nedovrsen zapis na kraju i potvrdjene segmente, postavlja readPosition
+    private void recover() throws IOException {
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(dir)) {
+            paths = files.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX)).sorted().toList();
+        }
+        for (Path path : paths) {
+            String name = path.getFileName().toString();
+            long index = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            Segment segment = new Segment(index, path, map(path, (int) Math.max(Files.size(path), segmentSize)));
+            scan(segment);
+            segments.addLast(segment);
+        }
+        if (segments.isEmpty()) {
+            segments.addLast(createSegment(1));
+        }
+
+        while (segments.size() > 1 && segments.peekFirst().lastSeq <= ackedSeq) {
+            Files.deleteIfExists(segments.removeFirst().path);
+        }
+        Segment head = segments.peekFirst();
+        while (readPosition < head.writePosition && head.buffer.getLong(readPosition + RECORD_HEADER) <= ackedSeq) {
+            readPosition += RECORD_HEADER + head.buffer.getInt(readPosition);
+        }
+    }
+
+    private void scan(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (position + RECORD_HEADER <= buffer.capacity()) {
+            int body = buffer.getInt(position);
+            if (body < BODY_HEADER || body > buffer.capacity() - position - RECORD_HEADER
+                    || buffer.getInt(position + 4) != crc(buffer, position + RECORD_HEADER, body)) {
+                break;
+            }
+            segment.lastSeq = buffer.getLong(position + RECORD_HEADER);
+            int checkpointLength = buffer.getInt(position + RECORD_HEADER + 8);
+            lastCheckpoint = new byte[checkpointLength];
+            buffer.get(position + RECORD_HEADER + BODY_HEADER, lastCheckpoint);
+            lastSeq = Math.max(lastSeq, segment.lastSeq);
+            position += RECORD_HEADER + body;
+        }
+        // Ostatak posle poslednjeg ispravnog zapisa (nedovrsen upis) se brise da ga sledeci upis ne nastavi
+        if (position + 4 <= buffer.capacity() && buffer.getInt(position) != 0) {
+            for (int i = position; i < buffer.capacity(); i++) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+        segment.writePosition = position;
+        segment.syncedPosition = position;
+    }
+
+    private Segment createSegment(long index) throws IOException {
+        Path path = dir.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+        return new Segment(index, path, map(path, segmentSize));
+    }
+
+    private static MappedByteBuffer map(Path path, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static int crc(ByteBuffer buffer, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(offset, length));
+        return (int) crc.getValue();
+    }
+
+    private static final class Segment {
+
+        private final long index;
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+        private int syncedPosition;
+        private long lastSeq;
+
+        Segment(long index, Path path, MappedByteBuffer buffer) {
+            this.index = index;
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package rs.igapp.aurora.agent.spool;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Jedan batch iz spool-a: batchSeq i EVENTS frame spreman za slanje (read-only pogled na mapiran segment).
+ */
+public record SpoolRecord(long seq, ByteBuffer frame) {
+}
@@ -0,0 +1,247 @@
+package rs.igapp.aurora.agent.tail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FileTailer - Prati fajlove i vraca nove kompletne linije (tail -F)
+ *
+ * Svrha:
+ * Agent cita samo ono sto je dopisano od poslednjeg citanja. Offset posle poslednje isporucene linije
+ * je checkpoint fajla; AuroraAgent ga upisuje u spool zajedno sa batch-em u kome je ta linija,
+ * pa posle restarta agent nastavlja tacno od prve linije koja nije u spool-u.
+ *
+ * CITANJE:
+ * Iz offset-a u heap bafer (FileChannel.read sa pozicijom), linije se seku na '\n' ('\r' se odbacuje).
+ * Nedovrsena poslednja linija se ne isporucuje - cita se ponovo kad dobije '\n'. Linija duza od
+ * maxLineBytes se isporucuje skracena.
+ *
+ * ROTACIJA:
+ * - Drugi fileKey (inode) pod istom putanjom: stari fajl se docita do kraja, novi cita od pocetka
+ * - Fajl kraci od offset-a (truncate): cita se od pocetka
+ * - Fajl nestao: ceka se da se ponovo pojavi
+ *
+ * WatchService (inotify na Linux-u) samo budi agenta kad se direktorijum promeni; citaju se svi fajlovi.
+ */
+public class FileTailer implements Closeable {
+
+    @FunctionalInterface
+    public interface LineSink {
+        void line(Path file, String line);
+    }
+
+    private final List<TailedFile> files = new ArrayList<>();
+    private final WatchService watchService;
+    private final boolean startAtEnd;
+    private final byte[] buffer;
+    private Map<String, Position> restored = Map.of();
+
+    public FileTailer(List<Path> paths, boolean startAtEnd, int maxLineBytes) throws IOException {
+        this.startAtEnd = startAtEnd;
+        this.buffer = new byte[Math.max(maxLineBytes, 8192)];
+        this.watchService = FileSystems.getDefault().newWatchService();
+        Set<Path> directories = new HashSet<>();
+        for (Path path : paths) {
+            Path absolute = path.toAbsolutePath().normalize();
+            files.add(new TailedFile(absolute));
+            if (directories.add(absolute.getParent())) {
+                absolute.getParent().register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        }
+    }
+
+    // ==================== CHECKPOINT ====================
+
+    /**
+     * Offset-i iz poslednjeg spool zapisa. Primenjuje se kad se fajl prvi put otvori (isti fileKey).
+     */
+    public void restore(byte[] checkpoint) throws IOException {
+        if (checkpoint == null || checkpoint.length == 0) {
+            return;
+        }
+        Map<String, Position> positions = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(checkpoint))) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                positions.put(in.readUTF(), new Position(in.readUTF(), in.readLong()));
+            }
+        }
+        restored = positions;
+    }
+
+    /**
+     * Offset posle poslednje isporucene linije za svaki otvoren fajl.
+     */
+    public byte[] checkpoint() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * files.size());
+            DataOutputStream out = new DataOutputStream(bytes);
+            List<TailedFile> open = files.stream().filter(file -> file.channel != null).toList();
+            out.writeInt(open.size());
+            for (TailedFile file : open) {
+                out.writeUTF(file.path.toString());
+                out.writeUTF(String.valueOf(file.fileKey));
+                out.writeLong(file.offset);
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // ==================== CITANJE ====================
+
+    /**
+     * Ceka promenu u pracenim direktorijumima najvise timeoutMillis.
+     */
+    public void awaitChanges(long timeoutMillis) throws InterruptedException {
+        WatchKey key = watchService.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        while (key != null) {
+            key.pollEvents();
+            key.reset();
+            key = watchService.poll();
+        }
+    }
+
+    /**
+     * Isporucuje sve nove kompletne linije svih fajlova. Vraca broj linija.
+     * Offset fajla se pomera PRE poziva sink-a, pa checkpoint() iz sink-a vec ukljucuje tu liniju.
+     */
+    public int poll(LineSink sink) throws IOException {
+        int lines = 0;
+        for (TailedFile file : files) {
+            lines += file.poll(sink);
+        }
+        return lines;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (TailedFile file : files) {
+            file.closeChannel();
+        }
+        watchService.close();
+    }
+
+    private record Position(String fileKey, long offset) {
+    }
+
+    // ==================== FAJL ====================
+
+    private final class TailedFile {
+
+        private final Path path;
+        private FileChannel channel;
+        private Object fileKey;
+        private long offset;
+        private boolean missing;
+
+        TailedFile(Path path) {
+            this.path = path;
+        }
+
+        int poll(LineSink sink) throws IOException {
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                // Rotiran a novi jos ne postoji - docitaj stari dok je otvoren
+                missing = true;
+                return channel != null ? read(sink) : 0;
+            }
+
+            if (channel == null) {
+                // Fajl koji je nastao dok ga agent prati se cita ceo
+                open(attributes, missing ? 0 : initialOffset(attributes));
+                return read(sink);
+            }
+            if (!Objects.equals(fileKey, attributes.fileKey())) {
+                int lines = read(sink);
+                closeChannel();
+                open(attributes, 0);
+                return lines + read(sink);
+            }
+            if (attributes.size() < offset) {
+                offset = 0;
+            }
+            return attributes.size() > offset ? read(sink) : 0;
+        }
+
+        private long initialOffset(BasicFileAttributes attributes) {
+            Position position = restored.get(path.toString());
+            if (position != null) {
+                // Isti fajl kao pri checkpoint-u: nastavi; rotiran dok agent nije radio: novi fajl od pocetka
+                boolean sameFile = position.fileKey().equals(String.valueOf(attributes.fileKey()));
+                return sameFile && position.offset() <= attributes.size() ? position.offset() : 0;
+            }
+            return startAtEnd ? attributes.size() : 0;
+        }
+
+        private void open(BasicFileAttributes attributes, long fromOffset) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            fileKey = attributes.fileKey();
+            offset = fromOffset;
+        }
+
+        private int read(LineSink sink) throws IOException {
+            int lines = 0;
+            while (true) {
+                ByteBuffer target = ByteBuffer.wrap(buffer);
+                int n = channel.read(target, offset);
+                if (n <= 0) {
+                    return lines;
+                }
+                int start = 0;
+                for (int i = 0; i < n; i++) {
+                    if (buffer[i] == '\n') {
+                        int end = i > start && buffer[i - 1] == '\r' ? i - 1 : i;
+                        offset += i + 1 - start;
+                        sink.line(path, new String(buffer, start, end - start, StandardCharsets.UTF_8));
+                        lines++;
+                        start = i + 1;
+                    }
+                }
+                if (start == 0 && n == buffer.length) {
+                    // Linija duza od bafera - isporuci skracenu, ostatak do '\n' postaje sledeca linija
+                    offset += n;
+                    sink.line(path, new String(buffer, 0, n, StandardCharsets.UTF_8));
+                    lines++;
+                } else if (n < buffer.length) {
+                    return lines;
+                }
+            }
+        }
+
+        private void closeChannel() throws IOException {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+}
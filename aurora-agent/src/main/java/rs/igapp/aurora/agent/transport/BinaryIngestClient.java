@@ -0,0 +1,141 @@
+package rs.igapp.aurora.agent.transport;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import rs.igapp.aurora.api.dto.request.LogEventRequest;
+import rs.igapp.aurora.api.protocol.IngestAck;
+import rs.igapp.aurora.api.protocol.IngestProtocol;
+
+/**
+ * BinaryIngestClient - Blokirajuci klijent za BinaryIngestServer (jedna TCP konekcija)
+ *
+ * send salje jedan batch kao EVENTS frame i ceka njegov ACK. Posle greske konekcija se zatvara,
+ * a sledeci send otvara novu. Nije thread-safe - jedna instanca po niti koja salje.
+ *
+ * Agent (Shipper) koristi hello + sendFrame: frame-ovi su vec kodirani u spool-u sa svojim
+ * batchSeq, a HELLO na svakoj novoj konekciji ukljucuje deduplikaciju na serveru.
+ */
+public class BinaryIngestClient implements Closeable {
+
+    private final InetSocketAddress address;
+    private final boolean compress;
+    private final int maxFrameSize;
+    private final int timeoutMillis;
+    private final byte[] ackFrame = new byte[IngestProtocol.ACK_FRAME_SIZE];
+
+    private Socket socket;
+    private OutputStream out;
+    private InputStream in;
+    private long nextSeq;
+    private long bytesSent;
+
+    public BinaryIngestClient(String host, int port, boolean compress, int maxFrameSize, int timeoutMillis) {
+        this.address = new InetSocketAddress(host, port);
+        this.compress = compress;
+        this.maxFrameSize = maxFrameSize;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public IngestAck send(List<LogEventRequest> events) throws IOException {
+        long batchSeq = ++nextSeq;
+        return sendFrame(IngestProtocol.encodeEvents(batchSeq, events, compress, maxFrameSize), batchSeq);
+    }
+
+    /**
+     * Predstavlja agenta na novoj konekciji. ACK nosi poslednji batchSeq koji je server video od njega.
+     * HELLO nosi i maxFrameSize klijenta - REJECTED sa accepted > 0 znaci da server prima manje frame-ove.
+     */
+    public IngestAck hello(String agentId, String agentVersion, long streamId) throws IOException {
+        close();
+        return exchange(IngestProtocol.encodeHello(agentId, agentVersion, streamId, maxFrameSize), -1);
+    }
+
+    /**
+     * HELLO na postojecoj konekciji: heartbeat agenta koji trenutno nema sta da posalje.
+     */
+    public IngestAck heartbeat(String agentId, String agentVersion, long streamId) throws IOException {
+        return exchange(IngestProtocol.encodeHello(agentId, agentVersion, streamId, maxFrameSize), -1);
+    }
+
+    // Vec kodiran EVENTS frame (npr. iz spool-a); position se ne menja
+    public IngestAck sendFrame(ByteBuffer frame, long batchSeq) throws IOException {
+        IngestAck ack = exchange(frame, batchSeq);
+        bytesSent += frame.remaining();
+        return ack;
+    }
+
+    public int maxFrameSize() {
+        return maxFrameSize;
+    }
+
+    public boolean connected() {
+        return socket != null;
+    }
+
+    // Bajtovi poslati u potvrdjenim frame-ovima (header + payload)
+    public long bytesSent() {
+        return bytesSent;
+    }
+
+    @Override
+    public void close() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // konekcija je ionako neupotrebljiva
+            }
+            socket = null;
+        }
+    }
+
+    // batchSeq < 0: HELLO, ACK nosi serverov batchSeq umesto naseg
+    private IngestAck exchange(ByteBuffer frame, long batchSeq) throws IOException {
+        try {
+            connect();
+            if (frame.hasArray()) {
+                out.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+            } else {
+                byte[] bytes = new byte[frame.remaining()];
+                frame.duplicate().get(bytes);
+                out.write(bytes);
+            }
+            out.flush();
+            if (in.readNBytes(ackFrame, 0, ackFrame.length) < ackFrame.length) {
+                throw new EOFException("Connection closed before ACK of batch " + batchSeq);
+            }
+            IngestAck ack = IngestProtocol.readAck(ByteBuffer.wrap(ackFrame));
+            if (batchSeq >= 0 && ack.batchSeq() != batchSeq) {
+                throw new IOException("ACK for batch " + ack.batchSeq() + ", expected " + batchSeq);
+            }
+            if (ack.status() == IngestAck.Status.REJECTED) {
+                close();
+            }
+            return ack;
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private void connect() throws IOException {
+        if (socket != null) {
+            return;
+        }
+        Socket connection = new Socket();
+        connection.setTcpNoDelay(true);
+        connection.setSoTimeout(timeoutMillis);
+        connection.connect(address, timeoutMillis);
+        socket = connection;
+        out = connection.getOutputStream();
+        in = connection.getInputStream();
+    }
+}
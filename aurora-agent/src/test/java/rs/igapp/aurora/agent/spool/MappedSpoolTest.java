@@ -0,0 +1,188 @@
+package rs.igapp.aurora.agent.spool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * MappedSpool: redosled, ponovno citanje do ack-a i oporavak posle restarta i nedovrsenog upisa (CRC)
+ */
+class MappedSpoolTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+    private static final int RECORD_HEADER = 8;
+    private static final int BODY_HEADER = 12;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recordsAreReadInOrderAndRepeatedUntilAcked() throws Exception {
+        try (MappedSpool spool = open(SEGMENT_SIZE, 1 << 20)) {
+            append(spool, 1, "a");
+            append(spool, 2, "b");
+
+            assertThat(text(spool.next(100))).isEqualTo("frame-1");
+            assertThat(text(spool.next(100))).isEqualTo("frame-1");
+            spool.ack(2);  // nije glava - ne menja nista
+            assertThat(spool.next(100).seq()).isEqualTo(1);
+
+            spool.ack(1);
+            assertThat(text(spool.next(100))).isEqualTo("frame-2");
+            assertThat(spool.pending()).isEqualTo(1);
+            spool.ack(2);
+            assertThat(spool.next(50)).isNull();
+            assertThat(spool.pending()).isZero();
+        }
+    }
+
+    @Test
+    void restartResumesAfterLastAckWithSameStreamAndCheckpoint() throws Exception {
+        long streamId;
+        try (MappedSpool spool = open(SEGMENT_SIZE, 1 << 20)) {
+            streamId = spool.streamId();
+            append(spool, 1, "a");
+            append(spool, 2, "b");
+            append(spool, 3, "c");
+            spool.next(100);
+            spool.ack(1);
+        }
+
+        try (MappedSpool spool = open(SEGMENT_SIZE, 1 << 20)) {
+            assertThat(spool.streamId()).isEqualTo(streamId);
+            assertThat(spool.lastSeq()).isEqualTo(3);
+            assertThat(spool.pending()).isEqualTo(2);
+            assertThat(spool.lastCheckpoint()).asString(StandardCharsets.UTF_8).isEqualTo("c");
+            assertThat(text(spool.next(100))).isEqualTo("frame-2");
+        }
+    }
+
+    @Test
+    void tornRecordAtTheEndIsDroppedAndOverwritten() throws Exception {
+        try (MappedSpool spool = open(SEGMENT_SIZE, 1 << 20)) {
+            append(spool, 1, "a");
+            append(spool, 2, "b");
+            append(spool, 3, "c");
+        }
+        // Pad usred upisa treceg zapisa: length je upisan, telo nije celo (CRC ne odgovara)
+        int third = 2 * recordSize("a", 1);
+        corrupt(segment(), third + RECORD_HEADER + BODY_HEADER + 1);
+
+        try (MappedSpool spool = open(SEGMENT_SIZE, 1 << 20)) {
+            assertThat(spool.lastSeq()).isEqualTo(2);
+            assertThat(spool.lastCheckpoint()).asString(StandardCharsets.UTF_8).isEqualTo("b");
+            assertThat(text(spool.next(100))).isEqualTo("frame-1");
+            spool.ack(1);
+            assertThat(text(spool.next(100))).isEqualTo("frame-2");
+            spool.ack(2);
+            assertThat(spool.next(50)).isNull();
+
+            append(spool, 3, "c2");
+        }
+
+        try (MappedSpool spool = open(SEGMENT_SIZE, 1 << 20)) {
+            assertThat(spool.lastSeq()).isEqualTo(3);
+            assertThat(spool.lastCheckpoint()).asString(StandardCharsets.UTF_8).isEqualTo("c2");
+            assertThat(text(spool.next(100))).isEqualTo("frame-3");
+        }
+    }
+
+    @Test
+    void corruptRecordHidesEverythingAfterIt() throws Exception {
+        try (MappedSpool spool = open(SEGMENT_SIZE, 1 << 20)) {
+            for (int seq = 1; seq <= 5; seq++) {
+                append(spool, seq, "x");
+            }
+        }
+        corrupt(segment(), recordSize("x", 1) + 4);  // CRC drugog zapisa
+
+        try (MappedSpool spool = open(SEGMENT_SIZE, 1 << 20)) {
+            assertThat(spool.lastSeq()).isEqualTo(1);
+            assertThat(spool.next(100).seq()).isEqualTo(1);
+            spool.ack(1);
+            assertThat(spool.next(50)).isNull();
+        }
+    }
+
+    @Test
+    void ackedSegmentsAreDeletedAndMaxSizeStopsAppends() throws Exception {
+        int recordSize = recordSize("x", 1);
+        int segmentSize = recordSize * 2;
+        try (MappedSpool spool = open(segmentSize, segmentSize * 3L)) {
+            for (int seq = 1; seq <= 6; seq++) {
+                assertThat(append(spool, seq, "x")).isTrue();
+            }
+            assertThat(append(spool, 7, "x")).isFalse();
+            assertThat(segments()).hasSize(3);
+
+            spool.next(100);
+            spool.ackUpTo(4);
+            assertThat(spool.next(100).seq()).isEqualTo(5);
+            assertThat(segments()).hasSize(1);
+            assertThat(append(spool, 7, "x")).isTrue();
+        }
+    }
+
+    @Test
+    void recordLargerThanSegmentIsRefused() throws Exception {
+        try (MappedSpool spool = open(64, 1 << 20)) {
+            assertThatThrownBy(() -> spool.append(1, new byte[0], ByteBuffer.allocate(64)))
+                .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    // ==================== POMOCNE METODE ====================
+
+    private MappedSpool open(int segmentSize, long maxSize) throws IOException {
+        return new MappedSpool(dir, segmentSize, maxSize, Duration.ZERO);
+    }
+
+    private static boolean append(MappedSpool spool, long seq, String checkpoint) throws IOException {
+        return spool.append(seq, checkpoint.getBytes(StandardCharsets.UTF_8),
+            ByteBuffer.wrap(("frame-" + seq).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static int recordSize(String checkpoint, long seq) {
+        return RECORD_HEADER + BODY_HEADER + checkpoint.length() + ("frame-" + seq).length();
+    }
+
+    private static String text(SpoolRecord record) {
+        ByteBuffer frame = record.frame().duplicate();
+        byte[] bytes = new byte[frame.remaining()];
+        frame.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Path segment() throws IOException {
+        List<Path> segments = segments();
+        assertThat(segments).hasSize(1);
+        return segments.get(0);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("segment-")).sorted().toList();
+        }
+    }
+
+    private static void corrupt(Path file, long offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, offset);
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) ~b.get(0)}), offset);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package rs.igapp.aurora.api.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeverityRequest {
+
+    @NotBlank
+    private String name;  // CRITICAL, HIGH, MEDIUM, LOW, INFO
+
+    private Integer level;
+
+    private String description;
+}
@@ -25,6 +25,12 @@ public class AlertResponse {
 
     private String message;
 
+    private Long occurrenceCount;
+
+    private LocalDateTime firstSeen;
+
+    private LocalDateTime lastSeen;
+
     private String assignedTo;
 
     private String investigationNotes;
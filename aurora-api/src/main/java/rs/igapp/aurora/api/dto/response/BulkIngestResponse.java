@@ -0,0 +1,21 @@
+package rs.igapp.aurora.api.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkIngestResponse {
+
+    private int received;
+
+    private int accepted;
+
+    private int batches;
+
+    private long elapsedMillis;
+}
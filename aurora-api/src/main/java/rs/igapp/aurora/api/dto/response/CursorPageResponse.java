@@ -0,0 +1,21 @@
+package rs.igapp.aurora.api.dto.response;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageResponse<T> {
+
+    private List<T> items;
+
+    private String nextCursor;  // Opaque token, null on the last page
+
+    private boolean hasNext;
+}
@@ -0,0 +1,24 @@
+package rs.igapp.aurora.api.dto.response;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistogramBucket {
+
+    private LocalDateTime start;
+
+    private long total;
+
+    private Map<String, Long> groups;  // Naziv vrednosti (npr. HIGH) -> broj, null bez groupBy; ostale vrednosti pod OTHER
+
+    private boolean approximate;  // true = sabrano iz krupnijih (satnih/dnevnih) bucket-a, finiji su obrisani
+}
@@ -0,0 +1,26 @@
+package rs.igapp.aurora.api.dto.response;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistogramResponse {
+
+    private LocalDateTime start;
+
+    private LocalDateTime end;
+
+    private long intervalSeconds;
+
+    private String groupBy;  // SEVERITY, SOURCE, RULE ili null (samo ukupno)
+
+    private List<HistogramBucket> buckets;
+}
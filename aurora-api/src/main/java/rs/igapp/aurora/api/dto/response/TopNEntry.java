@@ -0,0 +1,19 @@
+package rs.igapp.aurora.api.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopNEntry {
+
+    private Long id;
+
+    private String name;  // Naziv bitnosti, agentId izvora ili naziv pravila
+
+    private long count;
+}
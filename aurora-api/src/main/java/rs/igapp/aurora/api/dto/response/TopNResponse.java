@@ -0,0 +1,26 @@
+package rs.igapp.aurora.api.dto.response;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopNResponse {
+
+    private String dimension;
+
+    private LocalDateTime start;
+
+    private LocalDateTime end;
+
+    private boolean approximate;  // true = ivica opsega je sabrana iz celog sata/dana (finiji bucket-i su obrisani)
+
+    private List<TopNEntry> entries;
+}
@@ -0,0 +1,22 @@
+package rs.igapp.aurora.api.protocol;
+
+/**
+ * Odgovor servera na jedan EVENTS frame.
+ *
+ * ACK stize tek kad su dogadjaji upisani u bazu (commit), pa klijent moze da zaboravi potvrdjen batch.
+ * accepted = broj dogadjaja (od pocetka batch-a) koji su upisani. Pri THROTTLED klijent
+ * ponovo salje samo ostatak batch-a (od indeksa accepted), isto kao 429 na /api/log-events/async.
+ * Posle HELLO klijent umesto toga ponovo salje ISTI frame (isti batchSeq) - server preskace vec
+ * prihvacene dogadjaje, pa je accepted uvek zbir od pocetka batch-a.
+ *
+ * Odgovor na HELLO: batchSeq/accepted = poslednji batch tog agenta koji je server upisao (0 ako nijedan).
+ * REJECTED na HELLO: accepted = serverov maxFrameSize kad je agentov veci, 0 za neregistrovanog agenta.
+ */
+public record IngestAck(long batchSeq, Status status, int accepted) {
+
+    public enum Status {
+        ACCEPTED,   // ceo batch je prihvacen
+        THROTTLED,  // red je pun ili upis nije uspeo - upisan je samo deo, server pauzira citanje sa konekcije
+        REJECTED    // neispravan frame - server zatvara konekciju
+    }
+}
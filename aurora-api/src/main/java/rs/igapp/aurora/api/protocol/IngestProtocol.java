@@ -0,0 +1,437 @@
+package rs.igapp.aurora.api.protocol;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import rs.igapp.aurora.api.dto.request.LogEventRequest;
+
+/**
+ * IngestProtocol - Binarni format za slanje LogEventRequest batch-eva preko TCP-a (agent -> server)
+ *
+ * Svrha:
+ * JSON preko HTTP-a trosi vise na parsiranje, zaglavlja i konekcije nego na same dogadjaje.
+ * Agent drzi jednu TCP konekciju i salje batch-eve kao frame-ove; server ih dekodira direktno
+ * iz bafera u kome su procitani i ubacuje u IngestQueue.
+ *
+ * FRAME (big-endian):
+ *   int   length    duzina payload-a (bez header-a), najvise maxFrameSize
+ *   byte  type      HELLO i EVENTS (agent -> server), ACK (server -> agent)
+ *   byte  flags     DEFLATE = payload je kompresovan
+ *   long  batchSeq  redni broj batch-a, ACK ga vraca
+ *   ...   payload
+ *
+ * EVENTS payload:
+ *   varint count, pa za svaki dogadjaj:
+ *   byte presence (SEVERITY | RAW_DATA | TIMESTAMP), string sourceId, string message,
+ *   [varint severityId], [string rawData], [zigzag varint mikrosekunde od epohe, UTC]
+ *   string = varint duzina u bajtovima + UTF-8
+ * Kompresovan payload: varint nekompresovana duzina + raw Deflate (nekompresovana duzina <= maxFrameSize).
+ *
+ * HELLO payload: string agentId, string agentVersion, long streamId. Posle HELLO server pamti (i u bazi)
+ * poslednji upisan batchSeq po agentu i ponovo poslat batch (isti batchSeq) ne ubacuje dvaput - agent moze
+ * bezbedno da ponavlja spool. ACK na EVENTS stize tek posle commit-a.
+ * streamId identifikuje niz batchSeq-ova (jedan spool); novi streamId (npr. obrisan spool) ponistava stanje.
+ * Opciono na kraju HELLO: varint maxFrameSize agenta (stariji agenti ga ne salju - 0). Ako je veci od
+ * serverovog, server odgovara REJECTED sa accepted = svoj maxFrameSize; nepoznat agent dobija REJECTED sa 0.
+ *
+ * ACK payload: byte status (IngestAck.Status), int accepted.
+ */
+public final class IngestProtocol {
+
+    public static final int HEADER_SIZE = 14;
+    public static final int ACK_FRAME_SIZE = HEADER_SIZE + 5;
+    public static final int DEFAULT_MAX_FRAME_SIZE = 1024 * 1024;
+
+    public static final byte TYPE_EVENTS = 1;
+    public static final byte TYPE_ACK = 2;
+    public static final byte TYPE_HELLO = 3;
+
+    public static final byte FLAG_DEFLATE = 1;
+
+    // Manji payload-i se ne kompresuju - Deflate zaglavlje i CPU se ne isplate
+    static final int MIN_COMPRESS_SIZE = 512;
+
+    private static final int HAS_SEVERITY = 1;
+    private static final int HAS_RAW_DATA = 2;
+    private static final int HAS_TIMESTAMP = 4;
+
+    // Najmanji kodiran dogadjaj: presence + dve prazne duzine - ogranicava count pre alokacije liste
+    private static final int MIN_EVENT_SIZE = 3;
+
+    private static final IngestAck.Status[] STATUSES = IngestAck.Status.values();
+
+    private IngestProtocol() {
+    }
+
+    /**
+     * maxFrameSize = 0: agent ga nije poslao (stariji agent).
+     */
+    public record Hello(String agentId, String agentVersion, long streamId, int maxFrameSize) {
+    }
+
+    public record FrameHeader(int length, byte type, byte flags, long batchSeq) {
+
+        public boolean deflated() {
+            return (flags & FLAG_DEFLATE) != 0;
+        }
+    }
+
+    // ==================== HEADER ====================
+
+    /**
+     * Cita header (HEADER_SIZE bajtova) i proverava tip i duzinu pre nego sto se za payload zauzme bafer.
+     */
+    public static FrameHeader readHeader(ByteBuffer buffer, int maxFrameSize) {
+        int length = buffer.getInt();
+        byte type = buffer.get();
+        byte flags = buffer.get();
+        long batchSeq = buffer.getLong();
+        if (type != TYPE_EVENTS && type != TYPE_ACK && type != TYPE_HELLO) {
+            throw new IngestProtocolException("Unknown frame type " + type);
+        }
+        if (length < 0 || length > maxFrameSize) {
+            throw new IngestProtocolException("Frame length " + length + " outside 0.." + maxFrameSize);
+        }
+        return new FrameHeader(length, type, flags, batchSeq);
+    }
+
+    // ==================== EVENTS ====================
+
+    /**
+     * Kodira batch u jedan frame (header + payload), spreman za write (position = 0).
+     * Sa compress = true payload se kompresuje ako je dovoljno velik i ako se isplati.
+     */
+    public static ByteBuffer encodeEvents(long batchSeq, List<LogEventRequest> events, boolean compress, int maxFrameSize) {
+        Output out = new Output(256 + events.size() * 128);
+        out.writeVarint(events.size());
+        String lastSource = null;
+        byte[] lastSourceBytes = null;
+        for (LogEventRequest event : events) {
+            int presence = (event.getSeverityId() != null ? HAS_SEVERITY : 0)
+                | (event.getRawData() != null ? HAS_RAW_DATA : 0)
+                | (event.getTimestamp() != null ? HAS_TIMESTAMP : 0);
+            out.writeByte(presence);
+            // Batch agenta skoro uvek ima isti izvor - UTF-8 bajtovi se racunaju jednom
+            if (lastSource == null || !lastSource.equals(event.getSourceId())) {
+                lastSource = event.getSourceId();
+                lastSourceBytes = utf8(lastSource);
+            }
+            out.writeBytes(lastSourceBytes);
+            out.writeBytes(utf8(event.getMessage()));
+            if (event.getSeverityId() != null) {
+                out.writeVarint(event.getSeverityId());
+            }
+            if (event.getRawData() != null) {
+                out.writeBytes(utf8(event.getRawData()));
+            }
+            if (event.getTimestamp() != null) {
+                out.writeVarint(zigzag(toMicros(event.getTimestamp())));
+            }
+        }
+        if (out.size() > maxFrameSize) {
+            throw new IngestProtocolException("Batch of " + events.size() + " events encodes to " + out.size()
+                + " bytes, max frame size is " + maxFrameSize + " - send smaller batches");
+        }
+
+        byte flags = 0;
+        byte[] payload = out.buffer();
+        int length = out.size();
+        if (compress && length >= MIN_COMPRESS_SIZE) {
+            byte[] deflated = deflate(payload, length);
+            if (deflated.length < length) {
+                flags = FLAG_DEFLATE;
+                payload = deflated;
+                length = deflated.length;
+            }
+        }
+
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + length);
+        frame.putInt(length).put(TYPE_EVENTS).put(flags).putLong(batchSeq);
+        frame.put(payload, 0, length);
+        return frame.flip();
+    }
+
+    /**
+     * Dekodira EVENTS payload (position..limit) direktno iz bafera - bez medjukopije frame-a.
+     * Kod heap bafera se stringovi prave direktno iz backing niza, a isti sourceId u batch-u
+     * se dekodira jednom i deli izmedju svih dogadjaja.
+     */
+    public static List<LogEventRequest> decodeEvents(ByteBuffer payload) {
+        try {
+            int count = readVarintInt(payload);
+            if (count < 0 || (long) count * MIN_EVENT_SIZE > payload.remaining()) {
+                throw new IngestProtocolException("Event count " + count + " does not fit in "
+                    + payload.remaining() + " bytes");
+            }
+            List<LogEventRequest> events = new ArrayList<>(count);
+            String lastSource = null;
+            int lastSourceOffset = -1;
+            int lastSourceLength = -1;
+            for (int i = 0; i < count; i++) {
+                int presence = payload.get();
+
+                int sourceLength = readLength(payload);
+                int sourceOffset = payload.position();
+                String sourceId;
+                if (lastSource != null && payload.hasArray()
+                        && sameBytes(payload.array(), payload.arrayOffset(), lastSourceOffset, lastSourceLength,
+                                     sourceOffset, sourceLength)) {
+                    sourceId = lastSource;
+                    payload.position(sourceOffset + sourceLength);
+                } else {
+                    sourceId = readString(payload, sourceLength);
+                    lastSource = sourceId;
+                    lastSourceOffset = sourceOffset;
+                    lastSourceLength = sourceLength;
+                }
+                String message = readString(payload, readLength(payload));
+                if (sourceId.isBlank() || message.isBlank()) {
+                    throw new IngestProtocolException("Event " + i + ": sourceId and message are required");
+                }
+
+                LogEventRequest event = new LogEventRequest();
+                event.setSourceId(sourceId);
+                event.setMessage(message);
+                if ((presence & HAS_SEVERITY) != 0) {
+                    event.setSeverityId(readVarint(payload));
+                }
+                if ((presence & HAS_RAW_DATA) != 0) {
+                    event.setRawData(readString(payload, readLength(payload)));
+                }
+                if ((presence & HAS_TIMESTAMP) != 0) {
+                    event.setTimestamp(fromMicros(unzigzag(readVarint(payload))));
+                }
+                events.add(event);
+            }
+            if (payload.hasRemaining()) {
+                throw new IngestProtocolException(payload.remaining() + " trailing bytes after " + count + " events");
+            }
+            return events;
+        } catch (BufferUnderflowException e) {
+            throw new IngestProtocolException("Truncated events payload", e);
+        }
+    }
+
+    /**
+     * Raspakuje kompresovan payload u target (clear-ovan, dovoljno velik za maxFrameSize).
+     * Inflater se ponovo koristi (reset) - jedan po niti koja dekodira.
+     */
+    public static ByteBuffer inflate(Inflater inflater, ByteBuffer compressed, ByteBuffer target) {
+        try {
+            int expected = readVarintInt(compressed);
+            if (expected < 0 || expected > target.capacity()) {
+                throw new IngestProtocolException("Uncompressed length " + expected + " exceeds " + target.capacity());
+            }
+            inflater.reset();
+            inflater.setInput(compressed);
+            target.clear().limit(expected);
+            while (target.hasRemaining() && !inflater.finished()) {
+                if (inflater.inflate(target) == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+            }
+            if (target.hasRemaining() || !inflater.finished()) {
+                throw new IngestProtocolException("Compressed payload does not match its length " + expected);
+            }
+            return target.flip();
+        } catch (DataFormatException | BufferUnderflowException e) {
+            throw new IngestProtocolException("Corrupt compressed payload", e);
+        }
+    }
+
+    // ==================== HELLO ====================
+
+    public static ByteBuffer encodeHello(String agentId, String agentVersion, long streamId, int maxFrameSize) {
+        Output out = new Output(64);
+        out.writeBytes(utf8(agentId));
+        out.writeBytes(utf8(agentVersion));
+        out.writeVarint(streamId);
+        out.writeVarint(maxFrameSize);
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + out.size());
+        frame.putInt(out.size()).put(TYPE_HELLO).put((byte) 0).putLong(0);
+        frame.put(out.buffer(), 0, out.size());
+        return frame.flip();
+    }
+
+    public static Hello decodeHello(ByteBuffer payload) {
+        try {
+            String agentId = readString(payload, readLength(payload));
+            String agentVersion = readString(payload, readLength(payload));
+            long streamId = readVarint(payload);
+            int maxFrameSize = payload.hasRemaining() ? readVarintInt(payload) : 0;
+            if (agentId.isBlank()) {
+                throw new IngestProtocolException("HELLO without agentId");
+            }
+            return new Hello(agentId, agentVersion, streamId, maxFrameSize);
+        } catch (BufferUnderflowException e) {
+            throw new IngestProtocolException("Truncated HELLO payload", e);
+        }
+    }
+
+    // ==================== ACK ====================
+
+    public static void writeAck(ByteBuffer out, long batchSeq, IngestAck.Status status, int accepted) {
+        out.putInt(5).put(TYPE_ACK).put((byte) 0).putLong(batchSeq);
+        out.put((byte) status.ordinal()).putInt(accepted);
+    }
+
+    // frame = ACK_FRAME_SIZE bajtova, position na pocetku header-a
+    public static IngestAck readAck(ByteBuffer frame) {
+        FrameHeader header = readHeader(frame, ACK_FRAME_SIZE - HEADER_SIZE);
+        if (header.type() != TYPE_ACK || header.length() != ACK_FRAME_SIZE - HEADER_SIZE) {
+            throw new IngestProtocolException("Expected ACK frame, got type " + header.type());
+        }
+        int status = frame.get();
+        if (status < 0 || status >= STATUSES.length) {
+            throw new IngestProtocolException("Unknown ACK status " + status);
+        }
+        return new IngestAck(header.batchSeq(), STATUSES[status], frame.getInt());
+    }
+
+    // ==================== POMOCNE METODE ====================
+
+    // Vreme bez zone se tumaci kao UTC, kao i u ostatku servera; Postgres cuva mikrosekunde
+    static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+            (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+    }
+
+    private static long readVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IngestProtocolException("Varint longer than 10 bytes");
+    }
+
+    private static int readVarintInt(ByteBuffer buffer) {
+        long value = readVarint(buffer);
+        if (value > Integer.MAX_VALUE) {
+            throw new IngestProtocolException("Length " + value + " out of range");
+        }
+        return (int) value;
+    }
+
+    private static int readLength(ByteBuffer buffer) {
+        int length = readVarintInt(buffer);
+        if (length > buffer.remaining()) {
+            throw new IngestProtocolException("String length " + length + " exceeds remaining " + buffer.remaining());
+        }
+        return length;
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    private static boolean sameBytes(byte[] array, int base, int offsetA, int lengthA, int offsetB, int lengthB) {
+        return lengthA == lengthB
+            && Arrays.equals(array, base + offsetA, base + offsetA + lengthA, array, base + offsetB, base + offsetB + lengthB);
+    }
+
+    private static byte[] deflate(byte[] data, int length) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            Output out = new Output(length / 2 + 16);
+            out.writeVarint(length);
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk);
+                out.writeRaw(chunk, n);
+            }
+            return Arrays.copyOf(out.buffer(), out.size());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // Rastuci bafer za kodiranje (klijentska strana)
+    private static final class Output {
+
+        private byte[] buffer;
+        private int size;
+
+        Output(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[size++] = (byte) value;
+        }
+
+        void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes) {
+            writeVarint(bytes.length);
+            writeRaw(bytes, bytes.length);
+        }
+
+        void writeRaw(byte[] bytes, int length) {
+            ensure(length);
+            System.arraycopy(bytes, 0, buffer, size, length);
+            size += length;
+        }
+
+        byte[] buffer() {
+            return buffer;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package rs.igapp.aurora.api.protocol;
+
+/**
+ * Neispravan frame binarnog ingest protokola (los header, prevelik frame, ostecen payload).
+ * Server odgovara sa REJECTED i zatvara konekciju.
+ */
+public class IngestProtocolException extends RuntimeException {
+
+    public IngestProtocolException(String message) {
+        super(message);
+    }
+
+    public IngestProtocolException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,198 @@
+package rs.igapp.aurora.api.protocol;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Inflater;
+
+import org.junit.jupiter.api.Test;
+
+import rs.igapp.aurora.api.dto.request.LogEventRequest;
+
+/**
+ * IngestProtocol: sve sto encode napise decode vraca isto, a ostecen frame je IngestProtocolException
+ */
+class IngestProtocolTest {
+
+    private static final int MAX = IngestProtocol.DEFAULT_MAX_FRAME_SIZE;
+
+    @Test
+    void eventsRoundTripWithOptionalFields() {
+        List<LogEventRequest> events = List.of(
+            event("agent-1", "Failed password for root", 3L, "{\"port\":22}", LocalDateTime.of(2026, 3, 1, 12, 0, 0, 123_456_000)),
+            event("agent-1", "session opened", null, null, null),
+            event("agent-2", "čćž ünïcode ✓", 1L, null, LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999_999_000)));
+
+        ByteBuffer frame = IngestProtocol.encodeEvents(42, events, false, MAX);
+        IngestProtocol.FrameHeader header = IngestProtocol.readHeader(frame, MAX);
+
+        assertThat(header.type()).isEqualTo(IngestProtocol.TYPE_EVENTS);
+        assertThat(header.batchSeq()).isEqualTo(42);
+        assertThat(header.deflated()).isFalse();
+        assertThat(header.length()).isEqualTo(frame.remaining());
+        assertThat(IngestProtocol.decodeEvents(frame)).usingRecursiveFieldByFieldElementComparator().isEqualTo(events);
+    }
+
+    @Test
+    void timestampKeepsMicrosecondsAndDropsNanos() {
+        LocalDateTime time = LocalDateTime.of(2026, 3, 1, 12, 0, 0, 123_456_789);
+
+        ByteBuffer frame = IngestProtocol.encodeEvents(1, List.of(event("a", "m", null, null, time)), false, MAX);
+        IngestProtocol.readHeader(frame, MAX);
+
+        assertThat(IngestProtocol.decodeEvents(frame).get(0).getTimestamp()).isEqualTo(time.withNano(123_456_000));
+    }
+
+    @Test
+    void largeBatchIsDeflatedAndInflatesBack() {
+        List<LogEventRequest> events = batch(500);
+
+        ByteBuffer frame = IngestProtocol.encodeEvents(7, events, true, MAX);
+        int frameSize = frame.remaining();
+        IngestProtocol.FrameHeader header = IngestProtocol.readHeader(frame, MAX);
+        ByteBuffer payload = IngestProtocol.inflate(new Inflater(true), frame, ByteBuffer.allocate(MAX));
+
+        assertThat(header.deflated()).isTrue();
+        assertThat(frameSize).isLessThan(IngestProtocol.encodeEvents(7, events, false, MAX).remaining() / 4);
+        assertThat(IngestProtocol.decodeEvents(payload)).usingRecursiveFieldByFieldElementComparator().isEqualTo(events);
+    }
+
+    @Test
+    void smallPayloadIsNotCompressed() {
+        ByteBuffer frame = IngestProtocol.encodeEvents(1, batch(1), true, MAX);
+
+        assertThat(IngestProtocol.readHeader(frame, MAX).deflated()).isFalse();
+    }
+
+    @Test
+    void batchOverMaxFrameSizeIsRefusedOnEncode() {
+        assertThatThrownBy(() -> IngestProtocol.encodeEvents(1, batch(100), false, 1024))
+            .isInstanceOf(IngestProtocolException.class)
+            .hasMessageContaining("max frame size is 1024");
+    }
+
+    @Test
+    void headerRejectsUnknownTypeAndOversizedLength() {
+        ByteBuffer unknownType = ByteBuffer.allocate(IngestProtocol.HEADER_SIZE).putInt(0).put((byte) 9).put((byte) 0).putLong(0).flip();
+        ByteBuffer tooLong = ByteBuffer.allocate(IngestProtocol.HEADER_SIZE).putInt(2048).put(IngestProtocol.TYPE_EVENTS).put((byte) 0).putLong(0).flip();
+        ByteBuffer negative = ByteBuffer.allocate(IngestProtocol.HEADER_SIZE).putInt(-1).put(IngestProtocol.TYPE_EVENTS).put((byte) 0).putLong(0).flip();
+
+        assertThatThrownBy(() -> IngestProtocol.readHeader(unknownType, 1024)).isInstanceOf(IngestProtocolException.class);
+        assertThatThrownBy(() -> IngestProtocol.readHeader(tooLong, 1024)).isInstanceOf(IngestProtocolException.class);
+        assertThatThrownBy(() -> IngestProtocol.readHeader(negative, 1024)).isInstanceOf(IngestProtocolException.class);
+    }
+
+    @Test
+    void truncatedOrPaddedPayloadIsRejected() {
+        ByteBuffer frame = IngestProtocol.encodeEvents(1, batch(3), false, MAX);
+        IngestProtocol.readHeader(frame, MAX);
+        ByteBuffer payload = frame.slice();
+
+        for (int length = 0; length < payload.remaining(); length++) {
+            ByteBuffer truncated = payload.duplicate().limit(length);
+            assertThatThrownBy(() -> IngestProtocol.decodeEvents(truncated)).isInstanceOf(IngestProtocolException.class);
+        }
+        ByteBuffer padded = ByteBuffer.allocate(payload.remaining() + 1).put(payload.duplicate()).put((byte) 0).flip();
+        assertThatThrownBy(() -> IngestProtocol.decodeEvents(padded))
+            .isInstanceOf(IngestProtocolException.class)
+            .hasMessageContaining("trailing");
+    }
+
+    @Test
+    void hugeCountIsRejectedBeforeAllocating() {
+        // count = 2^28, a iza njega nema nijednog bajta
+        ByteBuffer payload = ByteBuffer.wrap(new byte[] {(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x01});
+
+        assertThatThrownBy(() -> IngestProtocol.decodeEvents(payload))
+            .isInstanceOf(IngestProtocolException.class)
+            .hasMessageContaining("does not fit");
+    }
+
+    @Test
+    void blankSourceOrMessageIsRejected() {
+        ByteBuffer frame = IngestProtocol.encodeEvents(1, List.of(event("agent-1", " ", null, null, null)), false, MAX);
+        IngestProtocol.readHeader(frame, MAX);
+
+        assertThatThrownBy(() -> IngestProtocol.decodeEvents(frame)).isInstanceOf(IngestProtocolException.class);
+    }
+
+    @Test
+    void truncatedOrOversizedCompressedPayloadIsRejected() {
+        ByteBuffer frame = IngestProtocol.encodeEvents(1, batch(500), true, MAX);
+        IngestProtocol.readHeader(frame, MAX);
+        ByteBuffer truncated = frame.slice().limit(frame.remaining() / 2);
+        ByteBuffer whole = frame.slice();
+
+        assertThatThrownBy(() -> IngestProtocol.inflate(new Inflater(true), truncated, ByteBuffer.allocate(MAX)))
+            .isInstanceOf(IngestProtocolException.class)
+            .hasMessageContaining("does not match");
+        assertThatThrownBy(() -> IngestProtocol.inflate(new Inflater(true), whole, ByteBuffer.allocate(16)))
+            .isInstanceOf(IngestProtocolException.class)
+            .hasMessageContaining("exceeds");
+    }
+
+    @Test
+    void helloRoundTripAndOlderAgentWithoutMaxFrameSize() {
+        ByteBuffer frame = IngestProtocol.encodeHello("agent-1", "1.2.0", -5L, 65_536);
+        IngestProtocol.FrameHeader header = IngestProtocol.readHeader(frame, MAX);
+
+        assertThat(header.type()).isEqualTo(IngestProtocol.TYPE_HELLO);
+        assertThat(IngestProtocol.decodeHello(frame))
+            .isEqualTo(new IngestProtocol.Hello("agent-1", "1.2.0", -5L, 65_536));
+
+        // Stariji agent: payload se zavrsava posle streamId
+        ByteBuffer old = IngestProtocol.encodeHello("agent-1", "1.0.0", 9L, 0);
+        IngestProtocol.readHeader(old, MAX);
+        ByteBuffer withoutMaxFrameSize = old.slice().limit(old.remaining() - 1);
+        assertThat(IngestProtocol.decodeHello(withoutMaxFrameSize).maxFrameSize()).isZero();
+    }
+
+    @Test
+    void helloWithoutAgentIdIsRejected() {
+        ByteBuffer frame = IngestProtocol.encodeHello("", "1.0.0", 1L, MAX);
+        IngestProtocol.readHeader(frame, MAX);
+
+        assertThatThrownBy(() -> IngestProtocol.decodeHello(frame)).isInstanceOf(IngestProtocolException.class);
+    }
+
+    @Test
+    void ackRoundTrip() {
+        ByteBuffer frame = ByteBuffer.allocate(IngestProtocol.ACK_FRAME_SIZE);
+        IngestProtocol.writeAck(frame, 77, IngestAck.Status.THROTTLED, 120);
+
+        assertThat(IngestProtocol.readAck(frame.flip())).isEqualTo(new IngestAck(77, IngestAck.Status.THROTTLED, 120));
+    }
+
+    @Test
+    void ackWithUnknownStatusIsRejected() {
+        ByteBuffer frame = ByteBuffer.allocate(IngestProtocol.ACK_FRAME_SIZE);
+        IngestProtocol.writeAck(frame, 1, IngestAck.Status.ACCEPTED, 0);
+        frame.put(IngestProtocol.HEADER_SIZE, (byte) 9);
+
+        assertThatThrownBy(() -> IngestProtocol.readAck(frame.flip())).isInstanceOf(IngestProtocolException.class);
+    }
+
+    private static List<LogEventRequest> batch(int size) {
+        List<LogEventRequest> events = new ArrayList<>(size);
+        LocalDateTime start = LocalDateTime.of(2026, 3, 1, 0, 0);
+        for (int i = 0; i < size; i++) {
+            events.add(event("agent-1", "Failed password for invalid user admin from 10.0.0." + (i % 256) + " port " + (40000 + i),
+                (long) (1 + i % 4), i % 3 == 0 ? "{\"seq\":" + i + "}" : null, start.plusSeconds(i)));
+        }
+        return events;
+    }
+
+    private static LogEventRequest event(String sourceId, String message, Long severityId, String rawData, LocalDateTime timestamp) {
+        return LogEventRequest.builder()
+            .sourceId(sourceId)
+            .message(message)
+            .severityId(severityId)
+            .rawData(rawData)
+            .timestamp(timestamp)
+            .build();
+    }
+}
@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -11,11 +12,14 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 @Entity
 @Table(name = "alerts")
@@ -26,32 +30,55 @@ import lombok.NoArgsConstructor;
 public class Alert {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "alerts_seq")
+    @SequenceGenerator(name = "alerts_seq", sequenceName = "alerts_seq", allocationSize = 50)  // pooled optimizer, must match INCREMENT BY
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "rule_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Rule rule;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "log_event_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private LogEvent triggeringLogEvent;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "source_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Source source;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "severity_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Severity severity;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "status_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private AlertStatus status;
 
     @Column(columnDefinition = "TEXT")
     private String message;
 
+    @Column(length = 64)
+    private String fingerprint;  // Hash normalizovane poruke - kljuc deduplikacije uz pravilo i izvor
+
+    @Column(nullable = false)
+    private Long occurrenceCount;  // Koliko puta se isti alarm ponovio u prozoru potiskivanja
+
+    @Column
+    private LocalDateTime firstSeen;
+
+    @Column
+    private LocalDateTime lastSeen;
+
     @Column
     private String assignedTo;  // Analyst username
 
@@ -71,6 +98,15 @@ public class Alert {
     protected void onCreate() {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
+        if (occurrenceCount == null) {
+            occurrenceCount = 1L;
+        }
+        if (firstSeen == null) {
+            firstSeen = createdAt;
+        }
+        if (lastSeen == null) {
+            lastSeen = firstSeen;
+        }
     }
 
     @PreUpdate
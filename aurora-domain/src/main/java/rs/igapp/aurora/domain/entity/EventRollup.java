@@ -0,0 +1,56 @@
+package rs.igapp.aurora.domain.entity;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "event_rollups")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventRollup {
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(name = "event_count", nullable = false)
+    private Long count;  // Broj dogadjaja/alarma u bucket-u (za TOTAL: trenutno stanje)
+
+    public enum Granularity { MINUTE, HOUR, DAY, TOTAL }
+
+    public enum Dimension { SEVERITY, SOURCE, RULE, ALERT_STATUS }
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+
+        @Enumerated(EnumType.STRING)
+        @Column(nullable = false, length = 16)
+        private Granularity granularity;
+
+        @Enumerated(EnumType.STRING)
+        @Column(nullable = false, length = 32)
+        private Dimension dimension;
+
+        @Column(nullable = false)
+        private Long dimensionId;  // ID bitnosti, izvora, pravila ili statusa alarma
+
+        @Column(nullable = false)
+        private LocalDateTime bucketStart;
+    }
+}
@@ -6,6 +6,7 @@ import java.util.Set;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -20,7 +21,9 @@ import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 @Entity
 @Table(name = "incidents")
@@ -41,12 +44,16 @@ public class Incident {
     @Column(columnDefinition = "TEXT")
     private String description;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "severity_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Severity severity;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "status_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private AlertStatus status;
 
     @Column
@@ -55,7 +62,15 @@ public class Incident {
     @Column(columnDefinition = "TEXT")
     private String timeline;  // Detailed incident timeline
 
+    @Column
+    private String clusterKey;  // Host/IP koji grupise alarme (null = incident otvoren rucno)
+
+    @Column
+    private LocalDateTime lastAlertAt;  // Vreme poslednjeg pridruzenog alarma
+
     @ManyToMany
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinTable(
         name = "incident_alerts",
         joinColumns = @JoinColumn(name = "incident_id"),
@@ -4,18 +4,22 @@ import java.time.LocalDateTime;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 @Entity
 @Table(name = "log_events")
@@ -26,24 +30,32 @@ import lombok.NoArgsConstructor;
 public class LogEvent {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "log_events_seq")
+    @SequenceGenerator(name = "log_events_seq", sequenceName = "log_events_seq", allocationSize = 50)  // pooled optimizer, must match INCREMENT BY
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "source_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Source source;
 
     @NotBlank
     @Column(nullable = false, columnDefinition = "TEXT")
     private String message;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "severity_id")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Severity severity;
 
     @Column(columnDefinition = "JSONB")
     private String rawData;
 
+    @Column(name = "raw_payload_id")
+    private Long rawPayloadId;  // compact encoding: raw_data is NULL, the payload lives in raw_payloads
+
     @Column(nullable = false, updatable = false)
     private LocalDateTime timestamp;
 
@@ -0,0 +1,21 @@
+package rs.igapp.aurora.persistence.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * List row of an alert: names of the related rule/source/severity/status instead of entities,
+ * no investigation_notes. Read straight from the result set - never a managed entity.
+ */
+public record AlertSummary(Long id,
+                           String ruleName,
+                           String sourceAgentId,
+                           String severityName,
+                           String statusName,
+                           String message,
+                           Long occurrenceCount,
+                           LocalDateTime firstSeen,
+                           LocalDateTime lastSeen,
+                           String assignedTo,
+                           LocalDateTime createdAt,
+                           LocalDateTime resolvedAt) {
+}
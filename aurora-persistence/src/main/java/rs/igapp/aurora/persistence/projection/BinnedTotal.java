@@ -0,0 +1,16 @@
+package rs.igapp.aurora.persistence.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Histogram row binned in the database: interval start, dimension value (null = all values outside
+ * the top groups) and the summed count.
+ */
+public interface BinnedTotal {
+
+    LocalDateTime getBin();
+
+    Long getDimensionId();
+
+    Long getTotal();
+}
@@ -0,0 +1,7 @@
+package rs.igapp.aurora.persistence.projection;
+
+/**
+ * Sum of all rollup buckets of one dimension value in a time range.
+ */
+public record DimensionTotal(Long dimensionId, Long total) {
+}
@@ -0,0 +1,11 @@
+package rs.igapp.aurora.persistence.projection;
+
+/**
+ * One row of the incident_alerts join table.
+ */
+public interface IncidentAlertLink {
+
+    Long getIncidentId();
+
+    Long getAlertId();
+}
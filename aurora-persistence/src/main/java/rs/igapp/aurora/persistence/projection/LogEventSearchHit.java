@@ -0,0 +1,22 @@
+package rs.igapp.aurora.persistence.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Full-text search hit: the list row of a log event read by the ranked native query itself,
+ * with source and severity joined in - one statement per page, no raw_data.
+ */
+public interface LogEventSearchHit {
+
+    Long getId();
+
+    String getSourceAgentId();
+
+    String getSeverityName();
+
+    String getMessage();
+
+    LocalDateTime getTimestamp();
+
+    LocalDateTime getCreatedAt();
+}
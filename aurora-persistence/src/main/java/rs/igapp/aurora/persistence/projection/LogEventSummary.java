@@ -0,0 +1,15 @@
+package rs.igapp.aurora.persistence.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * List row of a log event: only the columns the list view shows, no raw_data.
+ * Read straight from the result set - never a managed entity, no dirty checking.
+ */
+public record LogEventSummary(Long id,
+                              String sourceAgentId,
+                              String severityName,
+                              String message,
+                              LocalDateTime timestamp,
+                              LocalDateTime createdAt) {
+}
@@ -0,0 +1,13 @@
+package rs.igapp.aurora.persistence.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Id and last modification time of a rule - enough to tell which rules changed without loading them.
+ */
+public interface RuleVersion {
+
+    Long getId();
+
+    LocalDateTime getUpdatedAt();
+}
@@ -2,32 +2,67 @@ package rs.igapp.aurora.persistence.repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import rs.igapp.aurora.domain.entity.Alert;
+import rs.igapp.aurora.persistence.projection.AlertSummary;
 
 @Repository
 public interface AlertRepository extends JpaRepository<Alert, Long> {
 
+    String SUMMARY_SELECT =
+        "SELECT new rs.igapp.aurora.persistence.projection.AlertSummary("
+      + "a.id, r.name, s.agentId, sev.name, st.name, a.message, a.occurrenceCount, "
+      + "a.firstSeen, a.lastSeen, a.assignedTo, a.createdAt, a.resolvedAt) "
+      + "FROM Alert a JOIN a.rule r JOIN a.source s JOIN a.severity sev JOIN a.status st ";
+
+    // Everything AlertResponse shows comes from the same joined query - no SELECT per row
+    @Override
+    @EntityGraph(attributePaths = {"rule", "source", "severity", "status"})
+    Optional<Alert> findById(Long id);
+
+    @Override
+    @EntityGraph(attributePaths = {"rule", "source", "severity", "status"})
+    Page<Alert> findAll(Pageable pageable);
+
+    @EntityGraph(attributePaths = {"rule", "source", "severity", "status"})
     Page<Alert> findByStatus_Id(Long statusId, Pageable pageable);
 
+    @EntityGraph(attributePaths = {"rule", "source", "severity", "status"})
     Page<Alert> findBySeverity_Id(Long severityId, Pageable pageable);
 
+    @EntityGraph(attributePaths = {"rule", "source", "severity", "status"})
     Page<Alert> findByRule_Id(Long ruleId, Pageable pageable);
 
-    @Query("SELECT a FROM Alert a WHERE a.createdAt >= :startTime AND a.createdAt <= :endTime")
+    @Query("SELECT a FROM Alert a JOIN FETCH a.rule JOIN FETCH a.source JOIN FETCH a.severity JOIN FETCH a.status "
+         + "WHERE a.createdAt >= :startTime AND a.createdAt <= :endTime")
     List<Alert> findByCreatedAtRange(@Param("startTime") LocalDateTime startTime,
                                      @Param("endTime") LocalDateTime endTime);
 
     long countByStatus_Id(Long statusId);
 
-    @Query("SELECT a FROM Alert a WHERE a.assignedTo = :analyst AND a.status.id != :resolvedStatusId")
+    // Keyset pagination on (createdAt, id): no OFFSET, no count query, index-backed at any depth.
+    // List rows are projections - no investigation_notes, no entity hydration, nothing in the persistence context.
+    @Query(SUMMARY_SELECT + "ORDER BY a.createdAt DESC, a.id DESC")
+    List<AlertSummary> findFirstKeysetPage(Pageable pageable);
+
+    @Query(SUMMARY_SELECT
+         + "WHERE (a.createdAt, a.id) < (:createdAt, :id) "
+         + "ORDER BY a.createdAt DESC, a.id DESC")
+    List<AlertSummary> findKeysetPageAfter(@Param("createdAt") LocalDateTime createdAt,
+                                           @Param("id") Long id,
+                                           Pageable pageable);
+
+    @Query("SELECT a FROM Alert a JOIN FETCH a.rule JOIN FETCH a.source JOIN FETCH a.severity JOIN FETCH a.status "
+         + "WHERE a.assignedTo = :analyst AND a.status.id != :resolvedStatusId")
     List<Alert> findOpenAlertsByAnalyst(@Param("analyst") String analyst,
                                         @Param("resolvedStatusId") Long resolvedStatusId);
 }
@@ -0,0 +1,85 @@
+package rs.igapp.aurora.persistence.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import rs.igapp.aurora.domain.entity.EventRollup;
+import rs.igapp.aurora.persistence.projection.BinnedTotal;
+import rs.igapp.aurora.persistence.projection.DimensionTotal;
+
+@Repository
+public interface EventRollupRepository extends JpaRepository<EventRollup, EventRollup.Key> {
+
+    // Range over the primary key (granularity, dimension, dimension_id, bucket_start) - bounded by bucket count, not row count
+    @Query("SELECT COALESCE(SUM(r.count), 0) FROM EventRollup r "
+         + "WHERE r.id.granularity = :granularity AND r.id.dimension = :dimension AND r.id.dimensionId = :dimensionId "
+         + "AND r.id.bucketStart >= :start AND r.id.bucketStart < :end")
+    long sumCount(@Param("granularity") EventRollup.Granularity granularity,
+                  @Param("dimension") EventRollup.Dimension dimension,
+                  @Param("dimensionId") Long dimensionId,
+                  @Param("start") LocalDateTime start,
+                  @Param("end") LocalDateTime end);
+
+    @Query("SELECT COALESCE(SUM(r.count), 0) FROM EventRollup r "
+         + "WHERE r.id.granularity = :granularity AND r.id.dimension = :dimension AND r.id.dimensionId = :dimensionId")
+    long sumCount(@Param("granularity") EventRollup.Granularity granularity,
+                  @Param("dimension") EventRollup.Dimension dimension,
+                  @Param("dimensionId") Long dimensionId);
+
+    // Histogram binned in the database: date_bin from the epoch, GROUP BY (interval, value), so the result is
+    // at most intervals x (maxGroups + 1) rows whatever the range. Three granularity ranges - the finest that
+    // still has rows, coarser ones where it was pruned (empty range = start equal to end).
+    // Values outside the top :maxGroups by total come back summed, with dimension_id NULL (0 = totals only).
+    @Query(value = "WITH binned AS ("
+                 + " SELECT date_bin(make_interval(secs => :stepSeconds), bucket_start, TIMESTAMP '1970-01-01') AS bin,"
+                 + " dimension_id, SUM(event_count) AS total FROM event_rollups"
+                 + " WHERE dimension = :dimension AND ("
+                 + " (granularity = 'MINUTE' AND bucket_start >= :minuteStart AND bucket_start < :minuteEnd)"
+                 + " OR (granularity = 'HOUR' AND bucket_start >= :hourStart AND bucket_start < :hourEnd)"
+                 + " OR (granularity = 'DAY' AND bucket_start >= :dayStart AND bucket_start < :dayEnd))"
+                 + " GROUP BY 1, 2), "
+                 + "top_groups AS ("
+                 + " SELECT dimension_id FROM binned GROUP BY dimension_id"
+                 + " ORDER BY SUM(total) DESC, dimension_id LIMIT :maxGroups) "
+                 + "SELECT b.bin AS bin, t.dimension_id AS dimensionId, SUM(b.total) AS total "
+                 + "FROM binned b LEFT JOIN top_groups t ON t.dimension_id = b.dimension_id "
+                 + "GROUP BY b.bin, t.dimension_id ORDER BY b.bin",
+           nativeQuery = true)
+    List<BinnedTotal> binTotals(@Param("dimension") String dimension,
+                                @Param("stepSeconds") long stepSeconds,
+                                @Param("minuteStart") LocalDateTime minuteStart,
+                                @Param("minuteEnd") LocalDateTime minuteEnd,
+                                @Param("hourStart") LocalDateTime hourStart,
+                                @Param("hourEnd") LocalDateTime hourEnd,
+                                @Param("dayStart") LocalDateTime dayStart,
+                                @Param("dayEnd") LocalDateTime dayEnd,
+                                @Param("maxGroups") int maxGroups);
+
+    // Oldest bucket still kept for a granularity (minute and hour rows are pruned after their retention)
+    @Query("SELECT MIN(r.id.bucketStart) FROM EventRollup r "
+         + "WHERE r.id.granularity = :granularity AND r.id.dimension = :dimension")
+    LocalDateTime findFirstBucketStart(@Param("granularity") EventRollup.Granularity granularity,
+                                       @Param("dimension") EventRollup.Dimension dimension);
+
+    // Top-N input: totals per dimension value, grouped in the database
+    @Query("SELECT new rs.igapp.aurora.persistence.projection.DimensionTotal(r.id.dimensionId, SUM(r.count)) "
+         + "FROM EventRollup r "
+         + "WHERE r.id.granularity = :granularity AND r.id.dimension = :dimension "
+         + "AND r.id.bucketStart >= :start AND r.id.bucketStart < :end "
+         + "GROUP BY r.id.dimensionId")
+    List<DimensionTotal> sumByDimension(@Param("granularity") EventRollup.Granularity granularity,
+                                        @Param("dimension") EventRollup.Dimension dimension,
+                                        @Param("start") LocalDateTime start,
+                                        @Param("end") LocalDateTime end);
+
+    @Modifying
+    @Query("DELETE FROM EventRollup r WHERE r.id.granularity = :granularity AND r.id.bucketStart < :before")
+    int deleteOlderThan(@Param("granularity") EventRollup.Granularity granularity,
+                        @Param("before") LocalDateTime before);
+}
@@ -1,32 +1,65 @@
 package rs.igapp.aurora.persistence.repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import rs.igapp.aurora.domain.entity.Incident;
+import rs.igapp.aurora.persistence.projection.IncidentAlertLink;
 
 @Repository
 public interface IncidentRepository extends JpaRepository<Incident, Long> {
 
+    // Severity and status are fetched with the incident; alert ids are loaded separately (findAlertLinks)
+    @Override
+    @EntityGraph(attributePaths = {"severity", "status"})
+    Optional<Incident> findById(Long id);
+
+    @Override
+    @EntityGraph(attributePaths = {"severity", "status"})
+    Page<Incident> findAll(Pageable pageable);
+
+    @EntityGraph(attributePaths = {"severity", "status"})
     Page<Incident> findByStatus_Id(Long statusId, Pageable pageable);
 
+    @EntityGraph(attributePaths = {"severity", "status"})
     Page<Incident> findBySeverity_Id(Long severityId, Pageable pageable);
 
+    @EntityGraph(attributePaths = {"severity", "status"})
     Page<Incident> findByAssignedTo(String assignedTo, Pageable pageable);
 
-    @Query("SELECT i FROM Incident i WHERE i.createdAt >= :startTime AND i.createdAt <= :endTime")
+    @Query("SELECT i FROM Incident i JOIN FETCH i.severity JOIN FETCH i.status "
+         + "WHERE i.createdAt >= :startTime AND i.createdAt <= :endTime")
     List<Incident> findByCreatedAtRange(@Param("startTime") LocalDateTime startTime,
                                         @Param("endTime") LocalDateTime endTime);
 
-    @Query("SELECT i FROM Incident i WHERE i.resolvedAt IS NULL")
+    @Query("SELECT i FROM Incident i JOIN FETCH i.severity JOIN FETCH i.status WHERE i.resolvedAt IS NULL")
     List<Incident> findOpenIncidents();
 
     long countByStatus_Id(Long statusId);
+
+    // Keyset pagination on (createdAt, id): no OFFSET, no count query, index-backed at any depth
+    @Query("SELECT i FROM Incident i JOIN FETCH i.severity JOIN FETCH i.status "
+         + "ORDER BY i.createdAt DESC, i.id DESC")
+    List<Incident> findFirstKeysetPage(Pageable pageable);
+
+    @Query("SELECT i FROM Incident i JOIN FETCH i.severity JOIN FETCH i.status "
+         + "WHERE (i.createdAt, i.id) < (:createdAt, :id) "
+         + "ORDER BY i.createdAt DESC, i.id DESC")
+    List<Incident> findKeysetPageAfter(@Param("createdAt") LocalDateTime createdAt,
+                                       @Param("id") Long id,
+                                       Pageable pageable);
+
+    // Alert ids of a whole page in one query, straight from the join table (no Alert entities, no per-incident collection load)
+    @Query("SELECT i.id AS incidentId, a.id AS alertId FROM Incident i JOIN i.alerts a WHERE i.id IN :incidentIds")
+    List<IncidentAlertLink> findAlertLinks(@Param("incidentIds") Collection<Long> incidentIds);
 }
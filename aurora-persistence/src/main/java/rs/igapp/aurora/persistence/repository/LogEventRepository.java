@@ -2,29 +2,109 @@ package rs.igapp.aurora.persistence.repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
 import rs.igapp.aurora.domain.entity.LogEvent;
+import rs.igapp.aurora.persistence.projection.LogEventSearchHit;
+import rs.igapp.aurora.persistence.projection.LogEventSummary;
 
 @Repository
 public interface LogEventRepository extends JpaRepository<LogEvent, Long> {
 
+    String SUMMARY_SELECT =
+        "SELECT new rs.igapp.aurora.persistence.projection.LogEventSummary("
+      + "l.id, s.agentId, sev.name, l.message, l.timestamp, l.createdAt) "
+      + "FROM LogEvent l JOIN l.source s LEFT JOIN l.severity sev ";
+
+    // Native counterpart of SUMMARY_SELECT for the full-text queries (tsvector operators are not JPQL)
+    String SEARCH_SELECT =
+        "SELECT l.id AS id, s.agent_id AS sourceAgentId, sev.name AS severityName, l.message AS message, "
+      + "l.timestamp AS timestamp, l.created_at AS createdAt "
+      + "FROM log_events l JOIN sources s ON s.id = l.source_id LEFT JOIN severities sev ON sev.id = l.severity_id ";
+
+    // Source and severity come from the same joined query - mapToResponse over a page adds no SELECTs
+    @Override
+    @EntityGraph(attributePaths = {"source", "severity"})
+    Optional<LogEvent> findById(Long id);
+
+    @Override
+    @EntityGraph(attributePaths = {"source", "severity"})
+    Page<LogEvent> findAll(Pageable pageable);
+
+    @EntityGraph(attributePaths = {"source", "severity"})
     Page<LogEvent> findBySource_AgentId(String agentId, Pageable pageable);
 
+    @EntityGraph(attributePaths = {"source", "severity"})
     Page<LogEvent> findBySeverity_Id(Long severityId, Pageable pageable);
 
-    @Query("SELECT l FROM LogEvent l WHERE l.timestamp >= :startTime AND l.timestamp <= :endTime")
-    List<LogEvent> findByTimestampRange(@Param("startTime") LocalDateTime startTime,
-                                        @Param("endTime") LocalDateTime endTime);
+    // Server-side cursor: call inside a transaction and close the stream (try-with-resources)
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT l FROM LogEvent l JOIN FETCH l.source LEFT JOIN FETCH l.severity "
+         + "WHERE l.timestamp >= :startTime AND l.timestamp <= :endTime ORDER BY l.timestamp")
+    Stream<LogEvent> findByTimestampRange(@Param("startTime") LocalDateTime startTime,
+                                          @Param("endTime") LocalDateTime endTime);
 
-    @Query("SELECT l FROM LogEvent l WHERE l.message LIKE %:keyword%")
-    Page<LogEvent> searchByKeyword(@Param("keyword") String keyword, Pageable pageable);
+    // Full-text search over the GIN-indexed message_tsv column (see db/log-events-fts.sql).
+    // websearch syntax: words are AND-ed, "quoted text" is a phrase, -word excludes, OR is supported.
+    // Returns a Slice: a count over hundreds of millions of matches would cost more than the search itself.
+    // Rows come back as list projections in rank order, source and severity joined in the same statement.
+    @Query(value = SEARCH_SELECT
+                 + "WHERE l.message_tsv @@ websearch_to_tsquery('simple', :query) "
+                 + "ORDER BY ts_rank(l.message_tsv, websearch_to_tsquery('simple', :query)) DESC, l.timestamp DESC",
+           nativeQuery = true)
+    Slice<LogEventSearchHit> searchByKeyword(@Param("query") String query, Pageable pageable);
+
+    // Same search bounded by timestamp - only the partitions inside the range are scanned
+    @Query(value = SEARCH_SELECT
+                 + "WHERE l.message_tsv @@ websearch_to_tsquery('simple', :query) "
+                 + "AND l.timestamp >= :startTime AND l.timestamp <= :endTime "
+                 + "ORDER BY ts_rank(l.message_tsv, websearch_to_tsquery('simple', :query)) DESC, l.timestamp DESC",
+           nativeQuery = true)
+    Slice<LogEventSearchHit> searchByKeywordBetween(@Param("query") String query,
+                                                    @Param("startTime") LocalDateTime startTime,
+                                                    @Param("endTime") LocalDateTime endTime,
+                                                    Pageable pageable);
+
+    @Query(value = "SELECT count(*) FROM log_events l "
+                 + "WHERE l.message_tsv @@ websearch_to_tsquery('simple', :query) "
+                 + "AND l.timestamp >= :startTime AND l.timestamp <= :endTime",
+           nativeQuery = true)
+    long countByKeywordBetween(@Param("query") String query,
+                               @Param("startTime") LocalDateTime startTime,
+                               @Param("endTime") LocalDateTime endTime);
 
     long countBySeverity_Id(Long severityId);
+
+    // Bounded by timestamp so Postgres only scans the partitions inside the range
+    long countBySeverity_IdAndTimestampBetween(Long severityId, LocalDateTime startTime, LocalDateTime endTime);
+
+    // Keyset pagination on (timestamp, id): no OFFSET, no count query, index-backed at any depth.
+    // List rows are projections - no raw_data, no entity hydration, nothing in the persistence context.
+    @Query(SUMMARY_SELECT + "ORDER BY l.timestamp DESC, l.id DESC")
+    List<LogEventSummary> findFirstKeysetPage(Pageable pageable);
+
+    @Query(SUMMARY_SELECT
+         + "WHERE (l.timestamp, l.id) < (:timestamp, :id) "
+         + "ORDER BY l.timestamp DESC, l.id DESC")
+    List<LogEventSummary> findKeysetPageAfter(@Param("timestamp") LocalDateTime timestamp,
+                                              @Param("id") Long id,
+                                              Pageable pageable);
 }
@@ -10,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import rs.igapp.aurora.domain.entity.Rule;
+import rs.igapp.aurora.persistence.projection.RuleVersion;
 
 @Repository
 public interface RuleRepository extends JpaRepository<Rule, Long> {
@@ -22,4 +23,11 @@ public interface RuleRepository extends JpaRepository<Rule, Long> {
     Page<Rule> searchByName(@Param("name") String name, Pageable pageable);
 
     List<Rule> findByEnabledAndStatus_Id(Boolean enabled, Long statusId);
+
+    @Query("SELECT r.id AS id, r.updatedAt AS updatedAt FROM Rule r WHERE r.enabled = :enabled AND r.status.id = :statusId")
+    List<RuleVersion> findVersionsByEnabledAndStatus_Id(@Param("enabled") Boolean enabled,
+                                                        @Param("statusId") Long statusId);
+
+    @Query("SELECT r.id AS id, r.updatedAt AS updatedAt FROM Rule r WHERE r.enabled = :enabled")
+    List<RuleVersion> findVersionsByEnabled(@Param("enabled") Boolean enabled);
 }
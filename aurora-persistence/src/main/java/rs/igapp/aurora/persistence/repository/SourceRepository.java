@@ -17,6 +17,7 @@ public interface SourceRepository extends JpaRepository<Source, Long> {
 
     Optional<Source> findByAgentId(String agentId);
 
+    // Kolona is_active kasni za heartbeat-ovima do jednog flush-a; tekuce stanje: SourceService.findByIsActive
     List<Source> findByIsActive(Boolean isActive);
 
     Page<Source> findByHostname(String hostname, Pageable pageable);
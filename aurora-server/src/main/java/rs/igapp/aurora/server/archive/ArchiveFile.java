@@ -0,0 +1,399 @@
+package rs.igapp.aurora.server.archive;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * ArchiveFile - Format arhivskog fajla jedne particije log_events
+ *
+ * [blok 1][filter 1][blok 2][filter 2]...[indeks blokova][offset indeksa: long][MAGIC: int]
+ *
+ * Blok = do blockRows redova, sortiranih po (timestamp, id), zapisanih PO KOLONAMA i kompresovanih
+ * Deflate-om (BEST_COMPRESSION). Kolone istog tipa jedna do druge se kompresuju mnogo bolje od redova:
+ * - id, timestamp: delta + zigzag varint (susedni redovi se razlikuju za par jedinica/mikrosekundi)
+ * - created_at: razlika u odnosu na timestamp
+ * - izvor, bitnost: recnik po bloku + indeks (varint)
+ * - poruka, raw_data, message_tsv (tekst): duzina (varint) + UTF-8; tsvector je poslednji, pa ga
+ *   citanje bez pretrage (export) ni ne dekodira
+ *
+ * Indeks blokova cuva min/max timestamp svakog bloka i polozaj njegovog filtera leksema (TokenFilter) -
+ * citanje opsega otpakuje samo blokove koji ga seku, a pretraga jos preskace blokove bez trazenih leksema.
+ * Filteri su na disku, ne u memoriji; cita se samo filter bloka iz opsega.
+ *
+ * Verzije: ARC2 (vreme u mikrosekundama kao u bazi, tsvector, filteri); ARC1 (milisekunde, bez tsvector-a
+ * i filtera) se i dalje cita. U memoriji je vreme uvek u mikrosekundama.
+ */
+final class ArchiveFile {
+
+    static final int MAGIC = 0x41524332; // "ARC2"
+    static final int MAGIC_V1 = 0x41524331; // "ARC1"
+    static final int VERSION = 2;
+    private static final int TRAILER_BYTES = Long.BYTES + Integer.BYTES;
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private ArchiveFile() {
+    }
+
+    // minTimestamp/maxTimestamp u mikrosekundama; filterLength = 0 - blok nema filter (ARC1)
+    record BlockIndex(long offset, int length, int rows, long minTimestamp, long maxTimestamp,
+                      long filterOffset, int filterLength) {
+
+        boolean overlaps(long start, long end) {
+            return maxTimestamp >= start && minTimestamp <= end;
+        }
+    }
+
+    record Index(int version, List<BlockIndex> blocks) {
+    }
+
+    // vectors = tsvector po redu (tekst), null ako nije trazen ili ga fajl nema (ARC1)
+    record Block(List<ArchivedEvent> events, List<String> vectors) {
+    }
+
+    // ==================== PISANJE ====================
+
+    /**
+     * Redovi moraju stizati sortirani po timestamp-u. close() upisuje poslednji blok, indeks i force()-uje fajl.
+     */
+    static final class Writer implements Closeable {
+
+        private final FileChannel channel;
+        private final int blockRows;
+        private final List<ArchivedEvent> buffer;
+        private final List<String> vectors;
+        private final List<BlockIndex> index = new ArrayList<>();
+        private long position;
+        private long rows;
+
+        Writer(Path path, int blockRows) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+            this.blockRows = blockRows;
+            this.buffer = new ArrayList<>(blockRows);
+            this.vectors = new ArrayList<>(blockRows);
+        }
+
+        // tsvector = message_tsv::text iz baze (null za poruku bez leksema)
+        void add(ArchivedEvent event, String tsvector) throws IOException {
+            buffer.add(event);
+            vectors.add(tsvector);
+            rows++;
+            if (buffer.size() >= blockRows) {
+                writeBlock();
+            }
+        }
+
+        long rows() {
+            return rows;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (!buffer.isEmpty()) {
+                    writeBlock();
+                }
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeInt(index.size());
+                for (BlockIndex block : index) {
+                    out.writeLong(block.offset());
+                    out.writeInt(block.length());
+                    out.writeInt(block.rows());
+                    out.writeLong(block.minTimestamp());
+                    out.writeLong(block.maxTimestamp());
+                    out.writeLong(block.filterOffset());
+                    out.writeInt(block.filterLength());
+                }
+                out.writeLong(position);
+                out.writeInt(MAGIC);
+                write(bytes.toByteArray());
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new DeflaterOutputStream(bytes, deflater, BUFFER_BYTES), BUFFER_BYTES))) {
+                encodeBlock(buffer, vectors, out);
+            } finally {
+                deflater.end();
+            }
+            byte[] block = bytes.toByteArray();
+            Set<String> lexemes = new HashSet<>();
+            for (String vector : vectors) {
+                lexemes.addAll(TsVector.parse(vector).lexemes());
+            }
+            byte[] filter = TokenFilter.of(lexemes).toBytes();
+            long blockOffset = position;
+            write(block);
+            index.add(new BlockIndex(blockOffset, block.length, buffer.size(),
+                toMicros(buffer.get(0).timestamp()), toMicros(buffer.get(buffer.size() - 1).timestamp()),
+                position, filter.length));
+            write(filter);
+            buffer.clear();
+            vectors.clear();
+        }
+
+        private void write(byte[] bytes) throws IOException {
+            ByteBuffer data = ByteBuffer.wrap(bytes);
+            while (data.hasRemaining()) {
+                position += channel.write(data);
+            }
+        }
+    }
+
+    private static void encodeBlock(List<ArchivedEvent> events, List<String> vectors, DataOutputStream out)
+            throws IOException {
+        out.writeInt(events.size());
+
+        long previousId = 0;
+        for (ArchivedEvent event : events) {
+            writeSigned(out, event.id() - previousId);
+            previousId = event.id();
+        }
+        long previousTime = 0;
+        for (ArchivedEvent event : events) {
+            long time = toMicros(event.timestamp());
+            writeSigned(out, time - previousTime);
+            previousTime = time;
+        }
+        for (ArchivedEvent event : events) {
+            writeSigned(out, toMicros(event.createdAt()) - toMicros(event.timestamp()));
+        }
+
+        writeDictionaryColumn(out, events.stream().map(ArchivedEvent::sourceAgentId).toList());
+        writeDictionaryColumn(out, events.stream().map(ArchivedEvent::severityName).toList());
+
+        for (ArchivedEvent event : events) {
+            writeString(out, event.message());
+        }
+        for (ArchivedEvent event : events) {
+            writeString(out, event.rawData());
+        }
+        for (String vector : vectors) {
+            writeString(out, vector);
+        }
+    }
+
+    // Recnik razlicitih vrednosti, pa za svaki red indeks + 1 (0 = null)
+    private static void writeDictionaryColumn(DataOutputStream out, List<String> values) throws IOException {
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        for (String value : values) {
+            if (value != null) {
+                dictionary.putIfAbsent(value, dictionary.size());
+            }
+        }
+        writeUnsigned(out, dictionary.size());
+        for (String value : dictionary.keySet()) {
+            writeString(out, value);
+        }
+        for (String value : values) {
+            writeUnsigned(out, value == null ? 0 : dictionary.get(value) + 1);
+        }
+    }
+
+    // ==================== CITANJE ====================
+
+    static Index readIndex(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < TRAILER_BYTES) {
+            throw new IOException("Archive file too short");
+        }
+        ByteBuffer trailer = readFully(channel, size - TRAILER_BYTES, TRAILER_BYTES);
+        long indexOffset = trailer.getLong();
+        int magic = trailer.getInt();
+        if ((magic != MAGIC && magic != MAGIC_V1) || indexOffset < 0 || indexOffset > size - TRAILER_BYTES) {
+            throw new IOException("Not an archive file or incomplete write");
+        }
+        int version = magic == MAGIC ? VERSION : 1;
+        ByteBuffer data = readFully(channel, indexOffset, (int) (size - TRAILER_BYTES - indexOffset));
+        int count = data.getInt();
+        List<BlockIndex> index = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (version == 1) {
+                index.add(new BlockIndex(data.getLong(), data.getInt(), data.getInt(),
+                    data.getLong() * 1_000, data.getLong() * 1_000, 0, 0));
+            } else {
+                index.add(new BlockIndex(data.getLong(), data.getInt(), data.getInt(), data.getLong(), data.getLong(),
+                    data.getLong(), data.getInt()));
+            }
+        }
+        return new Index(version, index);
+    }
+
+    static Block readBlock(FileChannel channel, BlockIndex block, int version, boolean withVectors) throws IOException {
+        ByteBuffer data = readFully(channel, block.offset(), block.length());
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new InflaterInputStream(new ByteArrayInputStream(data.array(), 0, block.length())), BUFFER_BYTES))) {
+            return decodeBlock(in, version, withVectors);
+        }
+    }
+
+    // null ako blok nema filter (ARC1)
+    static TokenFilter readFilter(FileChannel channel, BlockIndex block) throws IOException {
+        if (block.filterLength() == 0) {
+            return null;
+        }
+        return TokenFilter.read(readFully(channel, block.filterOffset(), block.filterLength()));
+    }
+
+    private static Block decodeBlock(DataInputStream in, int version, boolean withVectors) throws IOException {
+        long unit = version == 1 ? 1_000 : 1;  // ARC1: milisekunde
+        int rows = in.readInt();
+        long[] ids = new long[rows];
+        long[] times = new long[rows];
+        long[] created = new long[rows];
+
+        long previous = 0;
+        for (int i = 0; i < rows; i++) {
+            previous += readSigned(in);
+            ids[i] = previous;
+        }
+        previous = 0;
+        for (int i = 0; i < rows; i++) {
+            previous += readSigned(in);
+            times[i] = previous * unit;
+        }
+        for (int i = 0; i < rows; i++) {
+            created[i] = times[i] + readSigned(in) * unit;
+        }
+        String[] sources = readDictionaryColumn(in, rows);
+        String[] severities = readDictionaryColumn(in, rows);
+        String[] messages = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            messages[i] = readString(in);
+        }
+
+        List<ArchivedEvent> events = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            events.add(new ArchivedEvent(ids[i], sources[i], severities[i], messages[i], readString(in),
+                fromMicros(times[i]), fromMicros(created[i])));
+        }
+        if (!withVectors || version == 1) {
+            return new Block(events, null);
+        }
+        List<String> vectors = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            vectors.add(readString(in));
+        }
+        return new Block(events, vectors);
+    }
+
+    private static String[] readDictionaryColumn(DataInputStream in, int rows) throws IOException {
+        String[] dictionary = new String[(int) readUnsigned(in)];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = readString(in);
+        }
+        String[] values = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            int code = (int) readUnsigned(in);
+            values[i] = code == 0 ? null : dictionary[code - 1];
+        }
+        return values;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("Archive file truncated");
+            }
+        }
+        return buffer.flip();
+    }
+
+    // ==================== KODIRANJE ====================
+
+    // timestamp u bazi ima mikrosekunde - milisekunde bi spojile razlicite dogadjaje i pomerile granice opsega
+    static long toMicros(LocalDateTime time) {
+        return Math.addExact(Math.multiplyExact(time.toEpochSecond(ZoneOffset.UTC), 1_000_000L), time.getNano() / 1_000);
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+            (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    // null = duzina 0, inace duzina + 1
+    private static void writeString(OutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeUnsigned(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeUnsigned(out, bytes.length + 1L);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        long length = readUnsigned(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[(int) (length - 1)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeSigned(OutputStream out, long value) throws IOException {
+        writeUnsigned(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static long readSigned(InputStream in) throws IOException {
+        long value = readUnsigned(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeUnsigned(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readUnsigned(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Archive block truncated");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in archive block");
+    }
+}
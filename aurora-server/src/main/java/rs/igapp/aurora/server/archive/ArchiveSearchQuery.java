@@ -0,0 +1,255 @@
+package rs.igapp.aurora.server.archive;
+
+import java.util.Arrays;
+
+/**
+ * ArchiveSearchQuery - tsquery (websearch_to_tsquery('simple', ...)) izvrsen nad arhiviranim porukama
+ *
+ * Tokenizacija mora biti ista kao u bazi, a parser Postgres-a (host, url, file, version, hword...) se ne
+ * prepisuje u Javu. Zato ni upit ni poruke ne tokenizuje Java:
+ * - upit: baza vraca websearch_to_tsquery('simple', q)::text (LogEventArchive.query)
+ * - poruke: u arhivi je uz svaki dogadjaj sacuvan message_tsv (isti tsvector koji koristi GIN indeks)
+ * Ovde se samo izvrsava gotov tsquery: & | ! i fraze <-> / <N> nad pozicijama leksema.
+ *
+ * Prioritet kao u tsquery: ! pa <-> pa & pa |. websearch ne pravi prefikse (:*) ni tezine - ignorisu se.
+ * Unutar fraze su podrzane lekseme, fraze i |; ostalo (! i &) se unutar fraze racuna kao AND bez pozicija.
+ */
+public final class ArchiveSearchQuery {
+
+    private sealed interface Node permits Lexeme, Not, And, Or, Phrase {
+    }
+
+    private record Lexeme(String value) implements Node {
+    }
+
+    private record Not(Node operand) implements Node {
+    }
+
+    private record And(Node left, Node right) implements Node {
+    }
+
+    private record Or(Node left, Node right) implements Node {
+    }
+
+    private record Phrase(Node left, Node right, int distance) implements Node {
+    }
+
+    private static final int[] NO_POSITIONS = new int[0];
+
+    // null = prazan upit (samo interpunkcija) - ne pogadja nista, isto kao u bazi
+    private final Node root;
+
+    private ArchiveSearchQuery(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * @param tsquery tekstualni oblik tsquery-ja, npr. 'failed' &amp; !( 'invalid' &lt;-&gt; 'user' )
+     */
+    public static ArchiveSearchQuery parse(String tsquery) {
+        if (tsquery == null || tsquery.isBlank()) {
+            return new ArchiveSearchQuery(null);
+        }
+        Parser parser = new Parser(tsquery);
+        Node root = parser.or();
+        parser.skipSpaces();
+        if (parser.position < tsquery.length()) {
+            throw new IllegalArgumentException("Unexpected '" + tsquery.charAt(parser.position) + "' in tsquery: " + tsquery);
+        }
+        return new ArchiveSearchQuery(root);
+    }
+
+    boolean matches(TsVector vector) {
+        return root != null && vector != null && evaluate(root, vector);
+    }
+
+    /**
+     * false samo ako blok sigurno nema pogodak (neka obavezna leksema nije u filteru bloka).
+     */
+    boolean mayMatch(TokenFilter filter) {
+        return root != null && (filter == null || mayMatch(root, filter));
+    }
+
+    // ==================== IZVRSAVANJE ====================
+
+    private static boolean evaluate(Node node, TsVector vector) {
+        return switch (node) {
+            case Lexeme lexeme -> vector.contains(lexeme.value());
+            case Not not -> !evaluate(not.operand(), vector);
+            case And and -> evaluate(and.left(), vector) && evaluate(and.right(), vector);
+            case Or or -> evaluate(or.left(), vector) || evaluate(or.right(), vector);
+            case Phrase phrase -> positions(phrase, vector).length > 0;
+        };
+    }
+
+    // Pozicije na kojima se izraz zavrsava (za frazu: pozicije desnog dela)
+    private static int[] positions(Node node, TsVector vector) {
+        return switch (node) {
+            case Lexeme lexeme -> vector.positions(lexeme.value());
+            case Or or -> union(positions(or.left(), vector), positions(or.right(), vector));
+            case Phrase phrase -> {
+                int[] left = positions(phrase.left(), vector);
+                int[] right = left.length == 0 ? NO_POSITIONS : positions(phrase.right(), vector);
+                yield follows(left, right, phrase.distance());
+            }
+            case Not not -> evaluate(not, vector) ? vector.allPositions() : NO_POSITIONS;
+            case And and -> evaluate(and, vector) ? positions(and.right(), vector) : NO_POSITIONS;
+        };
+    }
+
+    // Pozicije iz right kojima tacno distance ranije postoji pozicija iz left (oba niza rastuca)
+    private static int[] follows(int[] left, int[] right, int distance) {
+        int[] result = new int[right.length];
+        int count = 0;
+        int i = 0;
+        for (int position : right) {
+            while (i < left.length && left[i] + distance < position) {
+                i++;
+            }
+            if (i < left.length && left[i] + distance == position) {
+                result[count++] = position;
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < a.length || j < b.length) {
+            int next = j >= b.length || (i < a.length && a[i] <= b[j]) ? a[i++] : b[j++];
+            if (count == 0 || result[count - 1] != next) {
+                result[count++] = next;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static boolean mayMatch(Node node, TokenFilter filter) {
+        return switch (node) {
+            case Lexeme lexeme -> filter.mightContain(lexeme.value());
+            case Not not -> true;
+            case And and -> mayMatch(and.left(), filter) && mayMatch(and.right(), filter);
+            case Or or -> mayMatch(or.left(), filter) || mayMatch(or.right(), filter);
+            case Phrase phrase -> mayMatch(phrase.left(), filter) && mayMatch(phrase.right(), filter);
+        };
+    }
+
+    // ==================== PARSIRANJE ====================
+
+    private static final class Parser {
+
+        private final String text;
+        private int position;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Node or() {
+            Node node = and();
+            while (consume('|')) {
+                node = new Or(node, and());
+            }
+            return node;
+        }
+
+        Node and() {
+            Node node = phrase();
+            while (consume('&')) {
+                node = new And(node, phrase());
+            }
+            return node;
+        }
+
+        Node phrase() {
+            Node node = unary();
+            int distance;
+            while ((distance = phraseOperator()) >= 0) {
+                node = new Phrase(node, unary(), distance);
+            }
+            return node;
+        }
+
+        Node unary() {
+            if (consume('!')) {
+                return new Not(unary());
+            }
+            if (consume('(')) {
+                Node node = or();
+                expect(')');
+                return node;
+            }
+            return lexeme();
+        }
+
+        // <-> = <1>; -1 ako sledeci nije operator fraze
+        private int phraseOperator() {
+            skipSpaces();
+            if (position >= text.length() || text.charAt(position) != '<') {
+                return -1;
+            }
+            int close = text.indexOf('>', position);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unterminated phrase operator in tsquery: " + text);
+            }
+            String inner = text.substring(position + 1, close);
+            position = close + 1;
+            return inner.equals("-") ? 1 : Integer.parseInt(inner);
+        }
+
+        private Node lexeme() {
+            expect('\'');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                if (position >= text.length()) {
+                    throw new IllegalArgumentException("Unterminated lexeme in tsquery: " + text);
+                }
+                char c = text.charAt(position++);
+                if (c == '\\' && position < text.length()) {
+                    value.append(text.charAt(position++));
+                } else if (c == '\'') {
+                    if (position < text.length() && text.charAt(position) == '\'') {
+                        value.append('\'');
+                        position++;
+                    } else {
+                        break;
+                    }
+                } else {
+                    value.append(c);
+                }
+            }
+            // :* (prefiks) i :ABCD (tezine) - websearch ih ne pravi
+            if (position < text.length() && text.charAt(position) == ':') {
+                position++;
+                while (position < text.length() && "*ABCDabcd".indexOf(text.charAt(position)) >= 0) {
+                    position++;
+                }
+            }
+            return new Lexeme(value.toString());
+        }
+
+        private boolean consume(char expected) {
+            skipSpaces();
+            if (position < text.length() && text.charAt(position) == expected) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char expected) {
+            if (!consume(expected)) {
+                throw new IllegalArgumentException("Expected '" + expected + "' at " + position + " in tsquery: " + text);
+            }
+        }
+
+        void skipSpaces() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package rs.igapp.aurora.server.archive;
+
+import java.time.LocalDateTime;
+
+/**
+ * Jedan arhivirani log dogadjaj. Izvor i bitnost su sacuvani po imenu, pa arhiva ne zavisi
+ * od redova u sources/severities (koji mogu biti obrisani pre isteka arhive).
+ */
+public record ArchivedEvent(long id,
+                            String sourceAgentId,
+                            String severityName,
+                            String message,
+                            String rawData,
+                            LocalDateTime timestamp,
+                            LocalDateTime createdAt) {
+}
@@ -0,0 +1,387 @@
+package rs.igapp.aurora.server.archive;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import rs.igapp.aurora.server.archive.ArchiveFile.BlockIndex;
+import rs.igapp.aurora.server.payload.RawPayloadStore;
+
+/**
+ * LogEventArchive - Hladni sloj log_events: istekle particije kao kompresovani fajlovi na disku
+ *
+ * Svrha:
+ * Dogadjaji se cuvaju godinu dana, a citaju se skoro iskljucivo iz poslednje nedelje. Particija starija
+ * od aurora.partitions.retention (sa retention-action=ARCHIVE) se prepisuje u jedan fajl po koloni
+ * kompresovanih blokova (ArchiveFile) i tek onda DROP-uje. Na disku zauzima deo prostora tabele
+ * sa indeksima (nema GIN/btree indeksa, TOAST-a, praznog prostora u stranicama).
+ *
+ * TOK:
+ * - archivePartition: particija se cita server-side kursorom sortirana po (timestamp, id), pise u .tmp,
+ *   fsync, pa atomski rename - fajl je ili ceo ili ga nema
+ * - u memoriji se drzi indeks svih fajlova (min/max timestamp po fajlu i po bloku), ucitan pri pokretanju
+ * - stream/search otpakuju samo blokove ciji se min/max sece sa trazenim opsegom
+ * - search pre otpakivanja cita filter leksema bloka (TokenFilter) i preskace blok bez trazenih leksema;
+ *   poruke se porede preko sacuvanog message_tsv i tsquery-ja iz baze - isti pogoci kao GIN pretraga
+ * - fajlovi stariji od aurora.archive.retention se brisu
+ *
+ * Arhiva je samo za citanje: getByTimeRange (export) i search je koriste kad opseg zadje u nju.
+ */
+@Slf4j
+@Component
+public class LogEventArchive {
+
+    static final String EXTENSION = ".arc";
+    private static final String TEMP_EXTENSION = ".arc.tmp";
+    private static final Pattern TABLE_NAME = Pattern.compile("[a-z0-9_]+");
+
+    private static final String SELECT_PARTITION_SQL =
+        "SELECT l.id, s.agent_id, sev.name, l.message, l.raw_data::text, l.timestamp, l.created_at, l.raw_payload_id, "
+      + "l.message_tsv::text "
+      + "FROM %s l LEFT JOIN sources s ON s.id = l.source_id LEFT JOIN severities sev ON sev.id = l.severity_id "
+      + "ORDER BY l.timestamp, l.id";
+
+    private static final String TSQUERY_SQL = "SELECT websearch_to_tsquery('simple', ?)::text";
+
+    // ARC1 blokovi nemaju tsvector - racuna ga baza, istim redom kao poruke
+    private static final String TSVECTORS_SQL =
+        "SELECT to_tsvector('simple', m)::text FROM unnest(?::text[]) WITH ORDINALITY AS t(m, n) ORDER BY n";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RawPayloadStore rawPayloadStore;
+    private final TransactionTemplate transactionTemplate;
+    private final Path directory;
+    private final int blockRows;
+    private final int fetchSize;
+    private final Duration retention;
+
+    // Kljuc = najraniji timestamp u fajlu
+    private final ConcurrentSkipListMap<LocalDateTime, Segment> segments = new ConcurrentSkipListMap<>();
+
+    private final Counter archivedRows;
+    private final Counter archivedBytes;
+    private final Counter skippedBlocks;
+
+    public LogEventArchive(JdbcTemplate jdbcTemplate,
+                           RawPayloadStore rawPayloadStore,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${aurora.archive.dir:archive/log-events}") String directory,
+                           @Value("${aurora.archive.block-rows:10000}") int blockRows,
+                           @Value("${aurora.archive.fetch-size:5000}") int fetchSize,
+                           @Value("${aurora.archive.retention:P365D}") Duration retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.rawPayloadStore = rawPayloadStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.directory = Paths.get(directory);
+        this.blockRows = blockRows;
+        this.fetchSize = fetchSize;
+        this.retention = retention;
+
+        this.archivedRows = meterRegistry.counter("aurora.archive.rows");
+        this.archivedBytes = meterRegistry.counter("aurora.archive.bytes");
+        this.skippedBlocks = meterRegistry.counter("aurora.archive.search.skipped-blocks");
+        Gauge.builder("aurora.archive.segments", segments, Map::size).register(meterRegistry);
+        Gauge.builder("aurora.archive.size", segments,
+                map -> map.values().stream().mapToLong(Segment::bytes).sum())
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Jedan arhivski fajl (jedna nekadasnja particija) sa indeksom blokova.
+     */
+    record Segment(String name, Path path, int version, LocalDateTime minTimestamp, LocalDateTime maxTimestamp,
+                   long rows, long bytes, List<BlockIndex> blocks) {
+
+        boolean overlaps(LocalDateTime start, LocalDateTime end) {
+            return !maxTimestamp.isBefore(start) && !minTimestamp.isAfter(end);
+        }
+    }
+
+    @PostConstruct
+    void load() throws IOException {
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_EXTENSION)) {
+                    Files.deleteIfExists(file);  // prekinuto arhiviranje, particija je jos u bazi
+                } else if (name.endsWith(EXTENSION)) {
+                    try {
+                        register(file);
+                    } catch (IOException e) {
+                        log.error("Skipping unreadable archive file {}", file, e);
+                    }
+                }
+            }
+        }
+        log.info("Log event archive {}: {} segments", directory, segments.size());
+    }
+
+    // ==================== ARHIVIRANJE ====================
+
+    /**
+     * Prepisuje particiju (ili odvojenu tabelu) u arhivski fajl istog imena. Particiju ne dira -
+     * pozivalac je brise tek posle uspesnog povratka. Ponovni poziv prepisuje postojeci fajl.
+     *
+     * @return broj arhiviranih redova
+     */
+    public long archivePartition(String table) {
+        if (!TABLE_NAME.matcher(table).matches()) {
+            throw new IllegalArgumentException("Invalid partition name: " + table);
+        }
+        Path temp = directory.resolve(table + TEMP_EXTENSION);
+        Path target = directory.resolve(table + EXTENSION);
+        try {
+            long rows;
+            try (ArchiveFile.Writer writer = new ArchiveFile.Writer(temp, blockRows)) {
+                // Kursor (fetch size) radi samo unutar transakcije
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+                    PreparedStatement statement = con.prepareStatement(SELECT_PARTITION_SQL.formatted(table));
+                    statement.setFetchSize(fetchSize);
+                    return statement;
+                }, (ResultSet rs) -> {
+                    // U arhivu ide obican JSON - arhiva ne zavisi od raw_payloads (koji se brisu posle retention-a)
+                    String rawData = rs.getString(5);
+                    long payloadId = rs.getLong(8);
+                    if (rawData == null && !rs.wasNull()) {
+                        rawData = rawPayloadStore.json(payloadId);
+                    }
+                    try {
+                        writer.add(new ArchivedEvent(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                            rawData, rs.getTimestamp(6).toLocalDateTime(), rs.getTimestamp(7).toLocalDateTime()),
+                            rs.getString(9));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+                rows = writer.rows();
+            }
+            if (rows == 0) {
+                Files.deleteIfExists(temp);
+                return 0;
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            Segment segment = register(target);
+            archivedRows.increment(rows);
+            archivedBytes.increment(segment.bytes());
+            log.info("Archived {} ({} rows, {} bytes)", table, rows, segment.bytes());
+            return rows;
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw new UncheckedIOException("Archiving " + table + " failed", e);
+        } catch (RuntimeException e) {
+            deleteQuietly(temp);
+            throw e;
+        }
+    }
+
+    // ==================== CITANJE ====================
+
+    public boolean overlaps(LocalDateTime start, LocalDateTime end) {
+        return segments.values().stream().anyMatch(segment -> segment.overlaps(start, end));
+    }
+
+    /**
+     * Svi arhivirani dogadjaji u [start, end], od najstarijeg, blok po blok (u memoriji je najvise jedan blok).
+     *
+     * @return broj poslatih dogadjaja
+     */
+    public long stream(LocalDateTime start, LocalDateTime end, Consumer<ArchivedEvent> sink) {
+        long min = ArchiveFile.toMicros(start);
+        long max = ArchiveFile.toMicros(end);
+        long[] count = new long[1];
+        for (Segment segment : segments.values()) {
+            if (!segment.overlaps(start, end)) {
+                continue;
+            }
+            forEachBlock(segment, min, max, false, null, block -> {
+                for (ArchivedEvent event : block.events()) {
+                    if (!event.timestamp().isBefore(start) && !event.timestamp().isAfter(end)) {
+                        sink.accept(event);
+                        count[0]++;
+                    }
+                }
+                return true;
+            });
+        }
+        return count[0];
+    }
+
+    /**
+     * websearch upit (sintaksa kao LogEventRepository pretraga) preveden u tsquery - prevodi ga baza,
+     * pa arhiva i GIN pretraga dele istu tokenizaciju ('simple' konfiguracija).
+     */
+    public ArchiveSearchQuery query(String websearch) {
+        return ArchiveSearchQuery.parse(jdbcTemplate.queryForObject(TSQUERY_SQL, String.class, websearch));
+    }
+
+    /**
+     * Pogoci pretrage u [start, end], od najnovijeg. offset/limit se broje samo nad pogocima.
+     * Otpakuju se samo blokovi iz opsega ciji filter leksema moze da sadrzi upit.
+     */
+    public List<ArchivedEvent> search(ArchiveSearchQuery query, LocalDateTime start, LocalDateTime end,
+                                      long offset, int limit) {
+        long min = ArchiveFile.toMicros(start);
+        long max = ArchiveFile.toMicros(end);
+        List<ArchivedEvent> matches = new ArrayList<>(limit);
+        long[] skipped = new long[1];
+        for (Segment segment : segments.descendingMap().values()) {
+            if (!segment.overlaps(start, end)) {
+                continue;
+            }
+            boolean more = forEachBlock(segment, min, max, true, query, block -> {
+                List<ArchivedEvent> events = block.events();
+                List<String> vectors = block.vectors() != null ? block.vectors() : tsvectors(events);
+                for (int i = events.size() - 1; i >= 0; i--) {
+                    ArchivedEvent event = events.get(i);
+                    if (event.timestamp().isBefore(start) || event.timestamp().isAfter(end)
+                            || !query.matches(TsVector.parse(vectors.get(i)))) {
+                        continue;
+                    }
+                    if (skipped[0] < offset) {
+                        skipped[0]++;
+                    } else {
+                        matches.add(event);
+                        if (matches.size() >= limit) {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            });
+            if (!more) {
+                break;
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Blokovi segmenta koji seku [min, max] (mikrosekunde), jedan po jedan (sledeci se otpakuje tek kad
+     * visitor zavrsi sa prethodnim). Sa query != null: blok se preskace ako ga filter leksema iskljucuje,
+     * a ARC2 blok se cita sa tsvector kolonom.
+     *
+     * @return false ako je visitor prekinuo obilazak
+     */
+    private boolean forEachBlock(Segment segment, long min, long max, boolean descending, ArchiveSearchQuery query,
+                                 Predicate<ArchiveFile.Block> visitor) {
+        List<BlockIndex> selected = new ArrayList<>();
+        for (BlockIndex block : segment.blocks()) {
+            if (block.overlaps(min, max)) {
+                selected.add(block);
+            }
+        }
+        if (descending) {
+            selected = selected.reversed();
+        }
+        for (BlockIndex index : selected) {
+            ArchiveFile.Block block;
+            try (FileChannel channel = FileChannel.open(segment.path(), StandardOpenOption.READ)) {
+                if (query != null && !query.mayMatch(ArchiveFile.readFilter(channel, index))) {
+                    skippedBlocks.increment();
+                    continue;
+                }
+                block = ArchiveFile.readBlock(channel, index, segment.version(), query != null);
+            } catch (NoSuchFileException e) {
+                return true;  // obrisan (retention) u medjuvremenu
+            } catch (IOException e) {
+                throw new UncheckedIOException("Reading archive " + segment.name() + " failed", e);
+            }
+            if (!visitor.test(block)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<String> tsvectors(List<ArchivedEvent> events) {
+        String[] messages = events.stream().map(ArchivedEvent::message).toArray(String[]::new);
+        return jdbcTemplate.query(con -> {
+            PreparedStatement statement = con.prepareStatement(TSVECTORS_SQL);
+            statement.setArray(1, con.createArrayOf("text", messages));
+            return statement;
+        }, (rs, rowNum) -> rs.getString(1));
+    }
+
+    // ==================== RETENTION ====================
+
+    @Scheduled(fixedDelayString = "${aurora.partitions.maintenance-interval:PT1H}")
+    public void prune() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        for (Segment segment : segments.values()) {
+            if (!segment.maxTimestamp().isBefore(cutoff)) {
+                break;  // sortirano po pocetku - dalje su samo noviji
+            }
+            segments.remove(segment.minTimestamp(), segment);
+            deleteQuietly(segment.path());
+            log.info("Deleted expired archive segment {}", segment.name());
+        }
+    }
+
+    // ==================== POMOCNE METODE ====================
+
+    private Segment register(Path file) throws IOException {
+        ArchiveFile.Index index;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            index = ArchiveFile.readIndex(channel);
+        }
+        List<BlockIndex> blocks = index.blocks();
+        if (blocks.isEmpty()) {
+            throw new IOException("Archive file has no blocks");
+        }
+        String fileName = file.getFileName().toString();
+        Segment segment = new Segment(
+            fileName.substring(0, fileName.length() - EXTENSION.length()),
+            file,
+            index.version(),
+            ArchiveFile.fromMicros(blocks.get(0).minTimestamp()),
+            ArchiveFile.fromMicros(blocks.get(blocks.size() - 1).maxTimestamp()),
+            blocks.stream().mapToLong(BlockIndex::rows).sum(),
+            Files.size(file),
+            List.copyOf(blocks));
+        // Ponovno arhiviranje iste particije zamenjuje stari zapis
+        segments.values().removeIf(existing -> existing.name().equals(segment.name()));
+        segments.put(segment.minTimestamp(), segment);
+        return segment;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete {}", path, e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package rs.igapp.aurora.server.archive;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * Bloom filter leksema jednog arhivskog bloka - pretraga preskace blok bez otpakivanja kad neka
+ * obavezna leksema upita sigurno nije u njemu.
+ *
+ * BITS_PER_LEXEME bita po razlicitoj leksemi i HASHES hash funkcija (~1% laznih pogodaka).
+ * Hash je FNV-1a 64 nad UTF-8 bajtovima - isti fajl daje isti rezultat u svakoj JVM.
+ */
+final class TokenFilter {
+
+    private static final int BITS_PER_LEXEME = 10;
+    private static final int HASHES = 7;
+    private static final int MIN_BITS = 64;
+
+    private final long[] bits;
+
+    private TokenFilter(long[] bits) {
+        this.bits = bits;
+    }
+
+    static TokenFilter of(Collection<String> lexemes) {
+        long wanted = Math.max(MIN_BITS, (long) lexemes.size() * BITS_PER_LEXEME);
+        int words = (int) Math.min(Integer.MAX_VALUE / 2, (wanted + 63) / 64);
+        TokenFilter filter = new TokenFilter(new long[words]);
+        for (String lexeme : lexemes) {
+            filter.add(lexeme);
+        }
+        return filter;
+    }
+
+    static TokenFilter read(ByteBuffer data) {
+        long[] bits = new long[data.remaining() / Long.BYTES];
+        data.asLongBuffer().get(bits);
+        return new TokenFilter(bits);
+    }
+
+    byte[] toBytes() {
+        ByteBuffer data = ByteBuffer.allocate(bits.length * Long.BYTES);
+        data.asLongBuffer().put(bits);
+        return data.array();
+    }
+
+    boolean mightContain(String lexeme) {
+        long hash = hash(lexeme);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long size = (long) bits.length * 64;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, size);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void add(String lexeme) {
+        long hash = hash(lexeme);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long size = (long) bits.length * 64;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, size);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    private static long hash(String lexeme) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : lexeme.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,104 @@
+package rs.igapp.aurora.server.archive;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tekstualni tsvector iz baze ('lexeme':1,3 'drugi':2) kao mapa leksema -> rastuce pozicije.
+ *
+ * Leksema bez pozicija (tsvector::text bez :N, npr. posle strip()) dobija poziciju 0 - dovoljno za
+ * &amp; | !, a fraze nad njom ne pogadjaju, kao ni u bazi.
+ */
+final class TsVector {
+
+    static final TsVector EMPTY = new TsVector(Map.of());
+
+    private static final int[] NO_POSITIONS = new int[0];
+
+    private final Map<String, int[]> lexemes;
+
+    private TsVector(Map<String, int[]> lexemes) {
+        this.lexemes = lexemes;
+    }
+
+    static TsVector parse(String text) {
+        if (text == null || text.isEmpty()) {
+            return EMPTY;
+        }
+        Map<String, int[]> lexemes = new HashMap<>();
+        int position = 0;
+        int length = text.length();
+        while (position < length) {
+            char c = text.charAt(position);
+            if (c == ' ') {
+                position++;
+                continue;
+            }
+            if (c != '\'') {
+                throw new IllegalArgumentException("Expected quoted lexeme at " + position + " in tsvector");
+            }
+            position++;
+            StringBuilder lexeme = new StringBuilder();
+            while (true) {
+                if (position >= length) {
+                    throw new IllegalArgumentException("Unterminated lexeme in tsvector");
+                }
+                char ch = text.charAt(position++);
+                if (ch == '\\' && position < length) {
+                    lexeme.append(text.charAt(position++));
+                } else if (ch == '\'') {
+                    if (position < length && text.charAt(position) == '\'') {
+                        lexeme.append('\'');
+                        position++;
+                    } else {
+                        break;
+                    }
+                } else {
+                    lexeme.append(ch);
+                }
+            }
+            int[] positions = {0};
+            if (position < length && text.charAt(position) == ':') {
+                positions = new int[4];
+                int count = 0;
+                do {
+                    position++;
+                    int value = 0;
+                    while (position < length && Character.isDigit(text.charAt(position))) {
+                        value = value * 10 + (text.charAt(position++) - '0');
+                    }
+                    while (position < length && "ABCD".indexOf(text.charAt(position)) >= 0) {
+                        position++;  // tezina
+                    }
+                    if (count == positions.length) {
+                        positions = Arrays.copyOf(positions, count * 2);
+                    }
+                    positions[count++] = value;
+                } while (position < length && text.charAt(position) == ',');
+                positions = Arrays.copyOf(positions, count);
+            }
+            lexemes.put(lexeme.toString(), positions);
+        }
+        return new TsVector(lexemes);
+    }
+
+    boolean contains(String lexeme) {
+        return lexemes.containsKey(lexeme);
+    }
+
+    int[] positions(String lexeme) {
+        int[] positions = lexemes.get(lexeme);
+        return positions != null ? positions : NO_POSITIONS;
+    }
+
+    int[] allPositions() {
+        return lexemes.values().stream().flatMapToInt(Arrays::stream).sorted().distinct().toArray();
+    }
+
+    Set<String> lexemes() {
+        return Collections.unmodifiableSet(lexemes.keySet());
+    }
+}
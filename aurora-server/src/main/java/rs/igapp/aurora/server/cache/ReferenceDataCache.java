@@ -0,0 +1,171 @@
+package rs.igapp.aurora.server.cache;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import rs.igapp.aurora.domain.entity.Severity;
+import rs.igapp.aurora.domain.entity.Source;
+import rs.igapp.aurora.persistence.repository.SeverityRepository;
+import rs.igapp.aurora.persistence.repository.SourceRepository;
+
+/**
+ * ReferenceDataCache - Kes referentnih podataka (Source po agentId, Severity po id) za ingest
+ *
+ * Svrha:
+ * LogEventService.mapToEntity je za SVAKI dogadjaj radio dva SELECT-a (findByAgentId + findById).
+ * Izvori i bitnosti se retko menjaju, pa ih drzimo u ogranicenom konkurentnom kesu (Caffeine).
+ * U stabilnom radu ingest ne radi nijedan upit za referentne podatke.
+ *
+ * INVALIDACIJA:
+ * - SourceService / SeverityService zovu evict* kada se entitet menja ili brise
+ * - Izbacivanje se radi odmah I posle commit-a, da konkurentni citac ne vrati staru vrednost u kes
+ * - expireAfterWrite je sigurnosna mreza za izmene koje zaobilaze servise (npr. direktan SQL)
+ *
+ * UCITAVANJE:
+ * Promasaj se cita iz baze VAN kesa (ne kroz Cache.get(key, loader)): loader unutar Caffeine compute-a drzi
+ * lock ConcurrentHashMap bin-a dok ceka JDBC konekciju, a zahtevi koji vec drze konekcije cekaju na taj
+ * lock - pri hladnom kesu i punom pool-u sve stoji do connection-timeout (sa virtuelnim nitima na JDK < 24
+ * lock jos i kaci carrier). Istovremeni promasaji istog kljuca rade po jedan SELECT, sto je samo na startu.
+ * Ucitana vrednost se upisuje samo ako se od pocetka citanja nista nije izbacilo (version), pa citanje
+ * zapoceto pre commit-a izmene ne vraca staru vrednost u kes.
+ *
+ * NEPOSTOJECI IZVORI:
+ * agentId koji nije u bazi pamti se kratko (missing-expire-after-write) - HELLO ili dogadjaj sa nepoznatim
+ * agentId-em ne pita bazu svaki put (binarni ingest to radi na IO niti). Izvor napravljen kroz
+ * SourceService izbacuje i tu oznaku, pa je vidljiv odmah posle commit-a.
+ *
+ * Metrike (hit/miss/eviction): cache.gets, cache.evictions sa tagom cache=aurora.sources / aurora.severities
+ *
+ * NAPOMENA: Vraceni entiteti su detached i dele se izmedju niti - tretirati ih kao read-only.
+ */
+@Component
+public class ReferenceDataCache {
+
+    private final SourceRepository sourceRepository;
+    private final SeverityRepository severityRepository;
+
+    private final Cache<String, Source> sourcesByAgentId;
+    private final Cache<Long, Severity> severitiesById;
+    private final Cache<String, Boolean> missingSources;
+    private final AtomicLong version = new AtomicLong();
+
+    public ReferenceDataCache(SourceRepository sourceRepository,
+                              SeverityRepository severityRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${aurora.cache.sources.max-size:10000}") long maxSources,
+                              @Value("${aurora.cache.severities.max-size:100}") long maxSeverities,
+                              @Value("${aurora.cache.expire-after-write:PT10M}") Duration expireAfterWrite,
+                              @Value("${aurora.cache.missing-expire-after-write:PT30S}") Duration missingExpireAfterWrite) {
+        this.sourceRepository = sourceRepository;
+        this.severityRepository = severityRepository;
+
+        this.sourcesByAgentId = Caffeine.newBuilder()
+            .maximumSize(maxSources)
+            .expireAfterWrite(expireAfterWrite)
+            .recordStats()
+            .build();
+        this.severitiesById = Caffeine.newBuilder()
+            .maximumSize(maxSeverities)
+            .expireAfterWrite(expireAfterWrite)
+            .recordStats()
+            .build();
+        this.missingSources = Caffeine.newBuilder()
+            .maximumSize(maxSources)
+            .expireAfterWrite(missingExpireAfterWrite)
+            .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, sourcesByAgentId, "aurora.sources");
+        CaffeineCacheMetrics.monitor(meterRegistry, severitiesById, "aurora.severities");
+    }
+
+    // ==================== CITANJE ====================
+
+    // Nepostojeci izvor se ne kesira kao vrednost (null iz loader-a), vec kao oznaka u missingSources
+    public Optional<Source> findSource(String agentId) {
+        if (missingSources.getIfPresent(agentId) != null) {
+            return Optional.empty();
+        }
+        long loadVersion = version.get();
+        Source source = load(sourcesByAgentId, agentId, loadVersion, id -> sourceRepository.findByAgentId(id).orElse(null));
+        if (source == null && version.get() == loadVersion) {
+            missingSources.put(agentId, Boolean.TRUE);
+        }
+        return Optional.ofNullable(source);
+    }
+
+    public Optional<Severity> findSeverity(Long severityId) {
+        return Optional.ofNullable(load(severitiesById, severityId, version.get(),
+            id -> severityRepository.findById(id).orElse(null)));
+    }
+
+    private <K, V> V load(Cache<K, V> cache, K key, long loadVersion, Function<K, V> loader) {
+        V value = cache.getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        value = loader.apply(key);
+        if (value != null && version.get() == loadVersion) {
+            cache.put(key, value);
+        }
+        return value;
+    }
+
+    // ==================== INVALIDACIJA ====================
+
+    public void evictSource(String agentId) {
+        if (agentId != null) {
+            evictNowAndAfterCommit(() -> {
+                sourcesByAgentId.invalidate(agentId);
+                missingSources.invalidate(agentId);
+            });
+        }
+    }
+
+    public void evictSeverity(Long severityId) {
+        if (severityId != null) {
+            evictNowAndAfterCommit(() -> severitiesById.invalidate(severityId));
+        }
+    }
+
+    public void evictAll() {
+        version.incrementAndGet();
+        sourcesByAgentId.invalidateAll();
+        missingSources.invalidateAll();
+        severitiesById.invalidateAll();
+    }
+
+    public CacheStats sourceStats() {
+        return sourcesByAgentId.stats();
+    }
+
+    public CacheStats severityStats() {
+        return severitiesById.stats();
+    }
+
+    private void evictNowAndAfterCommit(Runnable eviction) {
+        version.incrementAndGet();
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    version.incrementAndGet();
+                    eviction.run();
+                }
+            });
+        }
+    }
+}
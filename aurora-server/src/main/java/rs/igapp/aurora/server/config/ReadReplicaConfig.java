@@ -0,0 +1,90 @@
+package rs.igapp.aurora.server.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import rs.igapp.aurora.server.routing.ReplicaLagMonitor;
+import rs.igapp.aurora.server.routing.ReplicaRoutingDataSource;
+import rs.igapp.aurora.server.routing.ReplicaRoutingDataSource.Replica;
+
+/**
+ * ReadReplicaConfig - Read-only transakcije na replike, sve ostalo na primary
+ *
+ * Ukljuceno sa aurora.datasource.replicas.enabled=true (inace Boot pravi obican DataSource).
+ *
+ * TOK:
+ * - @Transactional(readOnly = true) -> JPA postavlja konekciju kao read-only
+ * - LazyConnectionDataSourceProxy uzima fizicku konekciju tek na prvom upitu, kad je read-only vec poznat,
+ *   pa read-only konekcije uzima iz ReplicaRoutingDataSource, a sve ostale iz primary pool-a
+ * - ingest, alarmi, flush-evi i sql.init (bez read-only transakcije) uvek idu na primary
+ *
+ * Replike dele korisnika i lozinku sa primary-jem ako nisu zadati posebno.
+ */
+@Configuration
+@ConditionalOnProperty(name = "aurora.datasource.replicas.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            HikariDataSource primaryDataSource,
+            DataSourceProperties properties,
+            MeterRegistry meterRegistry,
+            @Value("${aurora.datasource.replicas.urls}") String[] urls,
+            @Value("${aurora.datasource.replicas.username:}") String username,
+            @Value("${aurora.datasource.replicas.password:}") String password,
+            @Value("${aurora.datasource.replicas.pool-size:10}") int poolSize,
+            @Value("${spring.datasource.hikari.connection-timeout:30000}") long connectionTimeout) {
+        List<Replica> replicas = new ArrayList<>(urls.length);
+        for (int i = 0; i < urls.length; i++) {
+            String name = "replica-" + i;
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName(name);
+            dataSource.setJdbcUrl(urls[i].trim());
+            dataSource.setUsername(username.isEmpty() ? properties.determineUsername() : username);
+            dataSource.setPassword(password.isEmpty() ? properties.determinePassword() : password);
+            dataSource.setMaximumPoolSize(poolSize);
+            dataSource.setConnectionTimeout(connectionTimeout);
+            dataSource.setReadOnly(true);
+            // Pool se ne otvara pri pokretanju - pala replika ne sme da zaustavi aplikaciju
+            dataSource.setInitializationFailTimeout(-1);
+            replicas.add(new Replica(name, dataSource));
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaRoutingDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaRoutingDataSource);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(ReplicaRoutingDataSource replicaRoutingDataSource,
+                                               MeterRegistry meterRegistry,
+                                               @Value("${aurora.datasource.replicas.max-lag:PT10S}") Duration maxLag) {
+        return new ReplicaLagMonitor(replicaRoutingDataSource, maxLag, meterRegistry);
+    }
+}
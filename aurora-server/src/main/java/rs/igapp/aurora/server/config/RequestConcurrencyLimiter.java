@@ -0,0 +1,135 @@
+package rs.igapp.aurora.server.config;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * RequestConcurrencyLimiter - Gornja granica istovremenih HTTP zahteva kad Tomcat radi na virtuelnim nitima
+ *
+ * Svrha:
+ * Sa platform nitima broj zahteva u obradi ogranicava server.tomcat.threads.max (200), ostali cekaju u
+ * redu Tomcat executor-a. Sa virtuelnim nitima te granice nema: pri 10k klijenata 10k niti odjednom ceka
+ * na JDBC pool od 20 konekcija, Hikari ih posle connection-timeout odbija sa izuzetkom i stack trace-om,
+ * a logovanje hiljada gresaka zauzme carrier niti (na 1 jezgru - jednu) pa ni konekcije koje se oslobode
+ * nema ko da preuzme. Merenje (ThreadModeBenchmark, 10k klijenata): bez granice 0 uspesnih zahteva.
+ *
+ * TOK:
+ * - zahtev uzima dozvolu iz fer Semaphore-a (FIFO) - u obradi je najvise max-concurrent-requests
+ * - virtuelna nit koja ceka dozvolu ne kosta nista sem steka, a ne ceka u Hikari-ju
+ * - ko ne dobije dozvolu za request-queue-timeout dobija 503 + Retry-After, bez izuzetka u logu
+ * - asinhroni zahtev (npr. NDJSON export kroz StreamingResponseBody) drzi dozvolu dok se async obrada
+ *   ne zavrsi (AsyncListener), ne samo dok doFilter ne vrati - inace bi export-i zaobisli granicu
+ * - /actuator/** ne ceka (health i metrike moraju da odgovaraju i pod opterecenjem)
+ *
+ * METRIKE:
+ * - aurora.http.queued     broj zahteva koji cekaju dozvolu
+ * - aurora.http.rejected   zahtevi odbijeni posle request-queue-timeout
+ *
+ * Radi samo sa spring.threads.virtual.enabled=true.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class RequestConcurrencyLimiter extends OncePerRequestFilter {
+
+    private final Semaphore permits;
+    private final long queueTimeoutMillis;
+    private final String retryAfterSeconds;
+    private final Counter rejected;
+
+    public RequestConcurrencyLimiter(MeterRegistry meterRegistry,
+                                     @Value("${aurora.threads.max-concurrent-requests:200}") int maxConcurrentRequests,
+                                     @Value("${aurora.threads.request-queue-timeout:PT30S}") Duration queueTimeout) {
+        this.permits = new Semaphore(maxConcurrentRequests, true);
+        this.queueTimeoutMillis = queueTimeout.toMillis();
+        this.retryAfterSeconds = String.valueOf(Math.max(1, queueTimeout.toSeconds()));
+        this.rejected = meterRegistry.counter("aurora.http.rejected");
+        Gauge.builder("aurora.http.queued", permits, Semaphore::getQueueLength).register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        try {
+            if (!permits.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+                response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new PermitRelease());
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                permits.release();
+            }
+        }
+    }
+
+    // Vraca dozvolu jednom, kad se async obrada zavrsi na bilo koji nacin
+    private final class PermitRelease implements AsyncListener {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // ponovni startAsync na istom zahtevu - listener se mora ponovo registrovati
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package rs.igapp.aurora.server.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Ukljucuje @Scheduled poslove (odrzavanje particija, periodicni flush-evi, ...)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,52 @@
+package rs.igapp.aurora.server.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import jakarta.validation.Valid;
+import rs.igapp.aurora.api.dto.request.AlertRequest;
+import rs.igapp.aurora.api.dto.response.AlertResponse;
+import rs.igapp.aurora.api.dto.response.CursorPageResponse;
+import rs.igapp.aurora.server.service.AlertService;
+
+/**
+ * AlertController - REST pristup alarmima
+ *
+ * GET /api/alerts      -> keyset strana (cursor + size), najnoviji prvi, bez count(*)
+ * GET /api/alerts/{id} -> jedan alarm
+ * PUT /api/alerts/{id} -> izmena statusa / dodele / beleski
+ */
+@RestController
+@RequestMapping("/api/alerts")
+public class AlertController {
+
+    private final AlertService alertService;
+
+    public AlertController(AlertService alertService) {
+        this.alertService = alertService;
+    }
+
+    @GetMapping
+    public CursorPageResponse<AlertResponse> list(@RequestParam(required = false) String cursor,
+                                                  @RequestParam(defaultValue = "50") int size) {
+        return alertService.getPage(cursor, size);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<AlertResponse> get(@PathVariable Long id) {
+        AlertResponse response = alertService.getById(id);
+        return response != null ? ResponseEntity.ok(response) : ResponseEntity.notFound().build();
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<AlertResponse> update(@PathVariable Long id, @Valid @RequestBody AlertRequest request) {
+        AlertResponse response = alertService.update(id, request);
+        return response != null ? ResponseEntity.ok(response) : ResponseEntity.notFound().build();
+    }
+}
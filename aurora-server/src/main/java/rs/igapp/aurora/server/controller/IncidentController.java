@@ -0,0 +1,60 @@
+package rs.igapp.aurora.server.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import jakarta.validation.Valid;
+import rs.igapp.aurora.api.dto.request.IncidentRequest;
+import rs.igapp.aurora.api.dto.response.CursorPageResponse;
+import rs.igapp.aurora.api.dto.response.IncidentResponse;
+import rs.igapp.aurora.server.service.IncidentService;
+
+/**
+ * IncidentController - REST pristup incidentima
+ *
+ * GET  /api/incidents      -> keyset strana (cursor + size), najnoviji prvi, bez count(*)
+ * GET  /api/incidents/{id} -> jedan incident
+ * POST /api/incidents      -> rucno otvaranje incidenta
+ * PUT  /api/incidents/{id} -> izmena
+ */
+@RestController
+@RequestMapping("/api/incidents")
+public class IncidentController {
+
+    private final IncidentService incidentService;
+
+    public IncidentController(IncidentService incidentService) {
+        this.incidentService = incidentService;
+    }
+
+    @GetMapping
+    public CursorPageResponse<IncidentResponse> list(@RequestParam(required = false) String cursor,
+                                                     @RequestParam(defaultValue = "50") int size) {
+        return incidentService.getPage(cursor, size);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<IncidentResponse> get(@PathVariable Long id) {
+        IncidentResponse response = incidentService.getById(id);
+        return response != null ? ResponseEntity.ok(response) : ResponseEntity.notFound().build();
+    }
+
+    @PostMapping
+    public ResponseEntity<IncidentResponse> create(@Valid @RequestBody IncidentRequest request) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(incidentService.create(request));
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<IncidentResponse> update(@PathVariable Long id, @Valid @RequestBody IncidentRequest request) {
+        IncidentResponse response = incidentService.update(id, request);
+        return response != null ? ResponseEntity.ok(response) : ResponseEntity.notFound().build();
+    }
+}
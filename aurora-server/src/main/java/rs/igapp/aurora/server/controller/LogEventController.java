@@ -0,0 +1,180 @@
+package rs.igapp.aurora.server.controller;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import rs.igapp.aurora.api.dto.request.LogEventRequest;
+import rs.igapp.aurora.api.dto.response.BulkIngestResponse;
+import rs.igapp.aurora.api.dto.response.CursorPageResponse;
+import rs.igapp.aurora.api.dto.response.HistogramResponse;
+import rs.igapp.aurora.api.dto.response.LogEventResponse;
+import rs.igapp.aurora.api.dto.response.TopNResponse;
+import rs.igapp.aurora.domain.entity.EventRollup;
+import rs.igapp.aurora.server.ingest.IngestQueue;
+import rs.igapp.aurora.server.ingest.IngestRequestValidator;
+import rs.igapp.aurora.server.pagination.KeysetPages;
+import rs.igapp.aurora.server.rollup.RollupQueryService;
+import rs.igapp.aurora.server.service.LogEventIngestService;
+import rs.igapp.aurora.server.service.LogEventService;
+
+/**
+ * LogEventController - REST ulaz za log dogadjaje
+ *
+ * POST /api/log-events       -> jedan dogadjaj (CrudService.create, jedan red po pozivu)
+ * POST /api/log-events/bulk  -> lista dogadjaja, upis u batch-evima (LogEventIngestService)
+ * POST /api/log-events/async -> lista dogadjaja u IngestQueue, odmah 202 (ili 429 + Retry-After kad je red pun)
+ *      bulk i async prvo proveravaju izvor i bitnost (IngestRequestValidator) - nepoznat id je 400, ne 500 / gubitak
+ * GET  /api/log-events        -> keyset strana (cursor + size), bez count(*) i bez rawData
+ * GET  /api/log-events/{id}   -> jedan dogadjaj sa rawData
+ * GET  /api/log-events/export -> vremenski opseg kao NDJSON stream (jedan JSON objekat po liniji)
+ * GET  /api/log-events/search -> full-text pretraga poruka (reci, "fraze", -iskljucenje),
+ *      opciono u opsegu start/end (tada i kroz arhivu starijih particija)
+ * GET  /api/log-events/histogram -> broj dogadjaja po intervalu (npr. PT5M), opciono po SEVERITY/SOURCE/RULE
+ * GET  /api/log-events/top       -> top-N izvora/bitnosti/pravila po broju dogadjaja u opsegu
+ *      (oba iz rollup tabele, bez citanja log_events)
+ */
+@RestController
+@RequestMapping("/api/log-events")
+@Validated
+public class LogEventController {
+
+    private final LogEventService logEventService;
+    private final LogEventIngestService logEventIngestService;
+    private final IngestQueue ingestQueue;
+    private final IngestRequestValidator ingestRequestValidator;
+    private final RollupQueryService rollupQueryService;
+    private final ObjectMapper objectMapper;
+    private final long retryAfterSeconds;
+
+    public LogEventController(LogEventService logEventService,
+                              LogEventIngestService logEventIngestService,
+                              IngestQueue ingestQueue,
+                              IngestRequestValidator ingestRequestValidator,
+                              RollupQueryService rollupQueryService,
+                              ObjectMapper objectMapper,
+                              @Value("${aurora.ingest.queue.retry-after-seconds:1}") long retryAfterSeconds) {
+        this.logEventService = logEventService;
+        this.logEventIngestService = logEventIngestService;
+        this.ingestQueue = ingestQueue;
+        this.ingestRequestValidator = ingestRequestValidator;
+        this.rollupQueryService = rollupQueryService;
+        this.objectMapper = objectMapper;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @GetMapping
+    public CursorPageResponse<LogEventResponse> list(@RequestParam(required = false) String cursor,
+                                                     @RequestParam(defaultValue = "50") int size) {
+        return logEventService.getPage(cursor, size);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<LogEventResponse> get(@PathVariable Long id) {
+        LogEventResponse response = logEventService.getById(id);
+        return response != null ? ResponseEntity.ok(response) : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/search")
+    public Slice<LogEventResponse> search(
+            @RequestParam("q") String query,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+        // Ista gornja granica strane kao keyset liste (neograniceno size bi citalo ceo rezultat pretrage)
+        return logEventService.search(query, start, end, PageRequest.of(page, KeysetPages.clampSize(size)));
+    }
+
+    @GetMapping("/histogram")
+    public HistogramResponse histogram(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(defaultValue = "PT5M") Duration interval,
+            @RequestParam(required = false) EventRollup.Dimension groupBy) {
+        return rollupQueryService.histogram(start, end, interval, groupBy);
+    }
+
+    @GetMapping("/top")
+    public TopNResponse top(
+            @RequestParam(defaultValue = "SOURCE") EventRollup.Dimension dimension,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(defaultValue = "20") int limit) {
+        return rollupQueryService.topN(dimension, start, end, limit);
+    }
+
+    @PostMapping
+    public ResponseEntity<LogEventResponse> create(@Valid @RequestBody LogEventRequest request) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(logEventService.create(request));
+    }
+
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkIngestResponse> createBulk(@RequestBody @NotEmpty List<@Valid LogEventRequest> requests) {
+        ingestRequestValidator.validate(requests);
+        return ResponseEntity.status(HttpStatus.CREATED).body(logEventIngestService.ingest(requests));
+    }
+
+    // Prihvaceni dogadjaji su vec u redu; pri 429 klijent ponovo salje samo listu od indeksa "accepted"
+    @PostMapping("/async")
+    public ResponseEntity<BulkIngestResponse> enqueue(@RequestBody @NotEmpty List<@Valid LogEventRequest> requests) {
+        ingestRequestValidator.validate(requests);
+        int accepted = ingestQueue.offerAll(requests);
+        BulkIngestResponse body = BulkIngestResponse.builder()
+            .received(requests.size())
+            .accepted(accepted)
+            .build();
+
+        if (accepted < requests.size()) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(body);
+        }
+        return ResponseEntity.accepted().body(body);
+    }
+
+    // Redovi idu direktno iz kursora u HTTP odgovor, nista se ne skuplja u memoriji
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                logEventService.getByTimeRange(start, end, response -> {
+                    try {
+                        generator.writeObject(response);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+}
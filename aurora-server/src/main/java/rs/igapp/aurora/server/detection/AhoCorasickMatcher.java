@@ -0,0 +1,154 @@
+package rs.igapp.aurora.server.detection;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+/**
+ * AhoCorasickMatcher - Jedan prolaz kroz poruku pronalazi SVE kljucne reci odjednom
+ *
+ * Svrha:
+ * Sa stotinama keyword pravila, provera jedne po jedne kosta O(broj pravila x duzina poruke).
+ * Automat (trie + failure linkovi) se gradi jednom nad svim literalima, a poruka se cita jednom,
+ * znak po znak: O(duzina poruke + broj pogodaka), bez obzira na broj pravila.
+ *
+ * Poredjenje je bez obzira na velika/mala slova (Character.toLowerCase po znaku, bez kopije poruke).
+ * Nepromenljiv posle build() - bezbedan za citanje iz vise niti.
+ */
+final class AhoCorasickMatcher {
+
+    // Prelazi iz stanja: sortirani znakovi + ciljna stanja (binarna pretraga)
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+    private final int[] fail;
+    // ID-jevi literala koji se zavrsavaju u stanju (ukljucujuci one preko failure lanca)
+    private final int[][] outputs;
+    private final int patternCount;
+
+    private AhoCorasickMatcher(char[][] edgeChars, int[][] edgeTargets, int[] fail, int[][] outputs, int patternCount) {
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.fail = fail;
+        this.outputs = outputs;
+        this.patternCount = patternCount;
+    }
+
+    /**
+     * ID literala je njegov indeks u listi.
+     */
+    static AhoCorasickMatcher build(List<String> patterns) {
+        // 1. Trie
+        List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        List<List<Integer>> out = new ArrayList<>();
+        children.add(new TreeMap<>());
+        out.add(new ArrayList<>());
+
+        for (int id = 0; id < patterns.size(); id++) {
+            String pattern = patterns.get(id);
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = Character.toLowerCase(pattern.charAt(i));
+                Integer next = children.get(state).get(c);
+                if (next == null) {
+                    next = children.size();
+                    children.add(new TreeMap<>());
+                    out.add(new ArrayList<>());
+                    children.get(state).put(c, next);
+                }
+                state = next;
+            }
+            out.get(state).add(id);
+        }
+
+        // 2. Failure linkovi (BFS) i spajanje izlaza duz failure lanca
+        int stateCount = children.size();
+        int[] fail = new int[stateCount];
+        ArrayDeque<Integer> queue = new ArrayDeque<>(children.get(0).values());
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (Map.Entry<Character, Integer> edge : children.get(state).entrySet()) {
+                int child = edge.getValue();
+                int f = fail[state];
+                while (f != 0 && !children.get(f).containsKey(edge.getKey())) {
+                    f = fail[f];
+                }
+                Integer target = children.get(f).get(edge.getKey());
+                fail[child] = target != null && target != child ? target : 0;
+                out.get(child).addAll(out.get(fail[child]));
+                queue.add(child);
+            }
+        }
+
+        // 3. Kompaktni nizovi za brzo skeniranje
+        char[][] edgeChars = new char[stateCount][];
+        int[][] edgeTargets = new int[stateCount][];
+        int[][] outputs = new int[stateCount][];
+        for (int s = 0; s < stateCount; s++) {
+            TreeMap<Character, Integer> edges = children.get(s);
+            edgeChars[s] = new char[edges.size()];
+            edgeTargets[s] = new int[edges.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                edgeChars[s][i] = edge.getKey();
+                edgeTargets[s][i] = edge.getValue();
+                i++;
+            }
+            outputs[s] = out.get(s).stream().distinct().mapToInt(Integer::intValue).toArray();
+        }
+        return new AhoCorasickMatcher(edgeChars, edgeTargets, fail, outputs, patterns.size());
+    }
+
+    int patternCount() {
+        return patternCount;
+    }
+
+    /**
+     * Za svaki pogodak poziva onMatch sa ID-jem literala (isti literal moze stici vise puta).
+     */
+    void scan(CharSequence text, IntConsumer onMatch) {
+        if (patternCount == 0) {
+            return;
+        }
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int next;
+            while ((next = transition(state, c)) < 0 && state != 0) {
+                state = fail[state];
+            }
+            state = Math.max(next, 0);
+            for (int id : outputs[state]) {
+                onMatch.accept(id);
+            }
+        }
+    }
+
+    private int transition(int state, char c) {
+        int index = Arrays.binarySearch(edgeChars[state], c);
+        return index >= 0 ? edgeTargets[state][index] : -1;
+    }
+
+    // Pomoc za graditelje: isti literal iz vise pravila dobija jedan ID
+    static final class PatternRegistry {
+
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> patterns = new ArrayList<>();
+
+        int register(String literal) {
+            return ids.computeIfAbsent(literal.toLowerCase(Locale.ROOT), key -> {
+                patterns.add(key);
+                return patterns.size() - 1;
+            });
+        }
+
+        List<String> patterns() {
+            return patterns;
+        }
+    }
+}
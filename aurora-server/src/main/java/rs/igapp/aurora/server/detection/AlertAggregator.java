@@ -0,0 +1,230 @@
+package rs.igapp.aurora.server.detection;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import rs.igapp.aurora.server.ingest.IngestQueue;
+
+/**
+ * AlertAggregator - Deduplikacija i potiskivanje alarma izmedju detekcije i baze
+ *
+ * Svrha:
+ * Bucno pravilo moze da napravi hiljade istih alarma u minuti - svaki je poseban INSERT sa pet
+ * stranih kljuceva, a analiticar dobija zid identicnih redova. Aggregator drzi u memoriji JEDAN
+ * otvoren alarm po kljucu (pravilo, izvor, otisak poruke) i samo broji ponavljanja.
+ *
+ * TOK:
+ * DetectionEngine -> submitAfterCommit (posle commit-a ingest batch-a, dogadjaji vec postoje u bazi)
+ *   -> otvoren alarm za kljuc? occurrence++ : novi PendingAlert
+ * flush() (periodicno): novi alarmi -> INSERT, postojeci -> batch UPDATE occurrence_count/last_seen
+ *   (postojeci koji je u medjuvremenu obrisan ili razresen -> INSERT novog, PendingAlert dobija njegov ID)
+ *
+ * GRESKE UPISA:
+ * - prolazna (baza nedostupna): ponavljanja se vracaju u PendingAlert, ceo flush se ponavlja kasnije
+ * - podaci (npr. obrisano pravilo ili dogadjaj): alarm po alarm, svaki u svojoj transakciji; alarm koji
+ *   padne i sam ide u alert_dead_letters i zatvara se - ne blokira vise ni jedan flush
+ *
+ * PROZOR POTISKIVANJA (aurora.alerts.dedup.window):
+ * Ponavljanja unutar prozora od prvog pojavljivanja se spajaju u isti Alert. Posle isteka, sledece
+ * pojavljivanje otvara novi Alert. Stanje je samo u memoriji - posle restarta se otvaraju novi alarmi.
+ *
+ * METRIKE: aurora.alerts.candidates, aurora.alerts.suppressed, aurora.alerts.open,
+ * aurora.alerts.flush (trajanje), aurora.alerts.flush.failed, aurora.alerts.dead-lettered,
+ * aurora.alerts.reopened
+ */
+@Slf4j
+@Component
+public class AlertAggregator {
+
+    private final AlertWriter alertWriter;
+    private final long windowMillis;
+
+    private final Map<AlertKey, PendingAlert> open = new ConcurrentHashMap<>();
+    // Jedan flush u isto vreme; ReentrantLock jer se pod njim ceka transakcija (synchronized kaci virtuelnu nit)
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final Counter candidates;
+    private final Counter suppressed;
+    private final Counter flushFailed;
+    private final Counter deadLettered;
+    private final Counter reopened;
+    private final Timer flushTimer;
+
+    public AlertAggregator(AlertWriter alertWriter,
+                           @Value("${aurora.alerts.dedup.window:PT5M}") Duration window,
+                           MeterRegistry meterRegistry) {
+        this.alertWriter = alertWriter;
+        this.windowMillis = window.toMillis();
+
+        this.candidates = meterRegistry.counter("aurora.alerts.candidates");
+        this.suppressed = meterRegistry.counter("aurora.alerts.suppressed");
+        this.flushFailed = meterRegistry.counter("aurora.alerts.flush.failed");
+        this.deadLettered = meterRegistry.counter("aurora.alerts.dead-lettered");
+        this.reopened = meterRegistry.counter("aurora.alerts.reopened");
+        this.flushTimer = meterRegistry.timer("aurora.alerts.flush");
+        Gauge.builder("aurora.alerts.open", open, Map::size).register(meterRegistry);
+    }
+
+    record AlertKey(Long ruleId, Long sourceId, String fingerprint) {
+    }
+
+    // ==================== PRIJEM ====================
+
+    /**
+     * Kandidati iz ingest transakcije ulaze tek posle commit-a - alarm nikad ne pokazuje na
+     * dogadjaj koji je rollback-ovan. Van transakcije se prihvataju odmah.
+     */
+    public void submitAfterCommit(List<AlertCandidate> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(batch);
+                }
+            });
+        } else {
+            submit(batch);
+        }
+    }
+
+    public void submit(List<AlertCandidate> batch) {
+        long now = System.currentTimeMillis();
+        for (AlertCandidate candidate : batch) {
+            String fingerprint = candidate.fingerprint();
+            AlertKey key = new AlertKey(candidate.ruleId(), candidate.sourceId(), fingerprint);
+            while (true) {
+                boolean[] created = new boolean[1];
+                PendingAlert pending = open.computeIfAbsent(key, k -> {
+                    created[0] = true;
+                    return new PendingAlert(candidate, fingerprint, now);
+                });
+                if (pending.add(candidate)) {
+                    if (!created[0]) {
+                        suppressed.increment();
+                    }
+                    break;
+                }
+                open.remove(key, pending);  // upravo zatvoren - otvori novi
+            }
+        }
+        candidates.increment(batch.size());
+    }
+
+    // ==================== UPIS ====================
+
+    @Scheduled(fixedDelayString = "${aurora.alerts.dedup.flush-interval:PT2S}")
+    public void scheduledFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Flushing aggregated alerts failed, will retry", e);
+        }
+    }
+
+    /**
+     * Jedan flush = jedna transakcija. Ako upis padne zbog baze, ponavljanja se vracaju u PendingAlert
+     * i ulaze u sledeci flush; ako padne zbog podataka, alarmi se upisuju jedan po jedan.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushLocked();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushLocked() {
+        List<PendingAlert.Delta> inserts = new ArrayList<>();
+        List<PendingAlert.Delta> updates = new ArrayList<>();
+        for (PendingAlert pending : open.values()) {
+            PendingAlert.Delta delta = pending.drain();
+            if (delta != null) {
+                (delta.alertId() == null ? inserts : updates).add(delta);
+            }
+        }
+
+        if (!inserts.isEmpty() || !updates.isEmpty()) {
+            try {
+                AlertWriter.Written written = flushTimer.record(() -> alertWriter.write(inserts, updates));
+                assignIds(inserts, written);
+            } catch (RuntimeException e) {
+                flushFailed.increment();
+                if (IngestQueue.transientFailure(e)) {
+                    inserts.forEach(delta -> delta.pending().restore(delta));
+                    updates.forEach(delta -> delta.pending().restore(delta));
+                    throw e;
+                }
+                log.warn("Alert flush of {} new and {} updated alerts failed, retrying alert by alert: {}",
+                    inserts.size(), updates.size(), e.getMessage());
+                inserts.forEach(this::writeOne);
+                updates.forEach(this::writeOne);
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        open.entrySet().removeIf(entry -> entry.getValue().isClosed()
+            || entry.getValue().closeIfExpired(now, windowMillis));
+    }
+
+    // Alarm sam u svojoj transakciji; odbijen zbog podataka -> dead letter, zbog baze -> sledeci flush
+    private void writeOne(PendingAlert.Delta delta) {
+        boolean insert = delta.alertId() == null;
+        try {
+            List<PendingAlert.Delta> inserts = insert ? List.of(delta) : List.of();
+            assignIds(inserts, alertWriter.write(inserts, insert ? List.of() : List.of(delta)));
+        } catch (RuntimeException e) {
+            if (IngestQueue.transientFailure(e)) {
+                delta.pending().restore(delta);
+                log.error("Writing alert for rule {} failed, will retry", delta.first().ruleId(), e);
+                return;
+            }
+            long count = delta.count() + delta.pending().discard();
+            deadLettered.increment(count);
+            log.error("Dead-lettering alert for rule {} / source {} ({} occurrences): {}",
+                delta.first().ruleId(), delta.first().sourceId(), count, e.getMessage());
+            try {
+                alertWriter.deadLetter(delta, count, String.valueOf(e.getMessage()));
+            } catch (RuntimeException deadLetterFailure) {
+                log.error("Writing alert dead letter failed, {} occurrences lost", count, deadLetterFailure);
+            }
+        }
+    }
+
+    // Novi alarmi i alarmi upisani ponovo (postojeci je u medjuvremenu obrisan ili razresen) dobijaju ID
+    private void assignIds(List<PendingAlert.Delta> inserts, AlertWriter.Written written) {
+        for (int i = 0; i < inserts.size(); i++) {
+            inserts.get(i).pending().assignId(written.ids().get(i));
+        }
+        written.reopened().forEach(PendingAlert::assignId);
+        reopened.increment(written.reopened().size());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Final alert flush failed, {} open alerts lost", open.size(), e);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package rs.igapp.aurora.server.detection;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * Poklapanje pravila i dogadjaja koje treba da postane Alert
+ */
+public record AlertCandidate(Long ruleId,
+                             Long logEventId,
+                             Long sourceId,
+                             Long severityId,
+                             String message,
+                             LocalDateTime timestamp) {
+
+    private static final Pattern DIGITS = Pattern.compile("\\d+");
+
+    /**
+     * Otisak poruke za deduplikaciju: brojevi (PID-ovi, portovi, trajanja, brojaci) se zamenjuju sa #,
+     * pa "failed login #3" i "failed login #4" postaju isti alarm.
+     */
+    public String fingerprint() {
+        String normalized = message == null ? "" : DIGITS.matcher(message).replaceAll("#");
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(normalized.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
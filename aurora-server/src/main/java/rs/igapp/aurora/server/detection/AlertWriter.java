@@ -0,0 +1,180 @@
+package rs.igapp.aurora.server.detection;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.EntityManager;
+import rs.igapp.aurora.domain.entity.Alert;
+import rs.igapp.aurora.domain.entity.AlertStatus;
+import rs.igapp.aurora.domain.entity.LogEvent;
+import rs.igapp.aurora.domain.entity.Rule;
+import rs.igapp.aurora.domain.entity.Severity;
+import rs.igapp.aurora.domain.entity.Source;
+import rs.igapp.aurora.persistence.repository.AlertStatusRepository;
+import rs.igapp.aurora.server.rollup.RollupCounters;
+
+/**
+ * AlertWriter - Upisuje deduplikovane alarme iz AlertAggregator-a
+ *
+ * Novi alarmi: INSERT sa brojem ponavljanja i first/last seen. Sve veze (pravilo, dogadjaj, izvor,
+ * bitnost, status) se postavljaju kao reference po ID-ju (getReference) - bez ijednog SELECT-a.
+ * Postojeci alarmi: JEDAN JDBC batch UPDATE occurrence_count = occurrence_count + n za sve, samo ako je
+ * alarm i dalje otvoren. Alarm koji je u medjuvremenu obrisan ili razresen (UPDATE menja 0 redova) se
+ * upisuje ponovo kao NOV alarm u istoj transakciji - ponavljanja se ne gube, a razresen alarm ne raste.
+ * Za takav alarm first_seen = last_seen ponavljanja (pocetak ovih ponavljanja se ne cuva).
+ * Rollup brojaci (pogoci po pravilu, alarmi po statusu) se azuriraju posle commit-a.
+ * Alert koristi SEQUENCE sa pooled optimizerom (alerts_seq), pa se INSERT-i salju kao JDBC batch.
+ *
+ * deadLetter: alarm koji baza odbija i sam (u svojoj transakciji) ide u alert_dead_letters,
+ * tabelu bez stranih kljuceva - jedan los alarm ne blokira flush ostalih.
+ */
+@Component
+public class AlertWriter {
+
+    static final String NEW_STATUS = "NEW";
+
+    private static final String INCREMENT_SQL =
+        "UPDATE alerts SET occurrence_count = occurrence_count + ?, "
+      + "last_seen = GREATEST(last_seen, ?), updated_at = now() WHERE id = ? AND resolved_at IS NULL";
+
+    private static final String DEAD_LETTER_SQL =
+        "INSERT INTO alert_dead_letters (alert_id, rule_id, source_id, severity_id, log_event_id, fingerprint, "
+      + "message, occurrence_count, first_seen, last_seen, error) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final AlertStatusRepository alertStatusRepository;
+    private final RollupCounters rollupCounters;
+
+    private volatile Long newStatusId;
+
+    public AlertWriter(EntityManager entityManager,
+                       JdbcTemplate jdbcTemplate,
+                       AlertStatusRepository alertStatusRepository,
+                       RollupCounters rollupCounters) {
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.alertStatusRepository = alertStatusRepository;
+        this.rollupCounters = rollupCounters;
+    }
+
+    /**
+     * Rezultat flush-a: ID-jevi novih alarma (istim redom kao inserts) i novi ID-jevi alarma koji su
+     * upisani ponovo jer postojeci vise nije otvoren.
+     */
+    public record Written(List<Long> ids, Map<PendingAlert, Long> reopened) {
+    }
+
+    /**
+     * Jedna transakcija po flush-u.
+     */
+    @Transactional
+    public Written write(List<PendingAlert.Delta> inserts, List<PendingAlert.Delta> updates) {
+        List<PendingAlert.Delta> reopen = increment(updates);
+        List<PendingAlert.Delta> all = new ArrayList<>(inserts.size() + reopen.size());
+        all.addAll(inserts);
+        all.addAll(reopen);
+        List<Long> ids = insert(all);
+
+        Map<PendingAlert, Long> reopened = new IdentityHashMap<>();
+        for (int i = 0; i < reopen.size(); i++) {
+            reopened.put(reopen.get(i).pending(), ids.get(inserts.size() + i));
+        }
+        inserts.forEach(this::recordMatches);
+        updates.forEach(this::recordMatches);
+        return new Written(ids.subList(0, inserts.size()), reopened);
+    }
+
+    private List<Long> insert(List<PendingAlert.Delta> inserts) {
+        List<Long> ids = new ArrayList<>(inserts.size());
+        if (!inserts.isEmpty()) {
+            AlertStatus status = entityManager.getReference(AlertStatus.class, newStatusId());
+            List<Alert> alerts = new ArrayList<>(inserts.size());
+            for (PendingAlert.Delta delta : inserts) {
+                AlertCandidate first = delta.first();
+                Alert alert = Alert.builder()
+                    .rule(entityManager.getReference(Rule.class, first.ruleId()))
+                    .triggeringLogEvent(entityManager.getReference(LogEvent.class, first.logEventId()))
+                    .source(entityManager.getReference(Source.class, first.sourceId()))
+                    .severity(entityManager.getReference(Severity.class, first.severityId()))
+                    .status(status)
+                    .message(first.message())
+                    .fingerprint(delta.fingerprint())
+                    .occurrenceCount(delta.count())
+                    .firstSeen(delta.firstSeen())
+                    .lastSeen(delta.lastSeen())
+                    .build();
+                entityManager.persist(alert);
+                alerts.add(alert);
+            }
+            entityManager.flush();
+            alerts.forEach(alert -> ids.add(alert.getId()));
+            entityManager.clear();
+            rollupCounters.adjustAlertStatus(newStatusId(), inserts.size());
+        }
+        return ids;
+    }
+
+    // Vraca alarme koje UPDATE nije nasao otvorene, kao nove (alertId == null, first_seen = last_seen)
+    private List<PendingAlert.Delta> increment(List<PendingAlert.Delta> updates) {
+        List<PendingAlert.Delta> reopen = new ArrayList<>();
+        if (updates.isEmpty()) {
+            return reopen;
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(INCREMENT_SQL, updates, updates.size(), (ps, delta) -> {
+            ps.setLong(1, delta.count());
+            ps.setTimestamp(2, delta.lastSeen() != null ? Timestamp.valueOf(delta.lastSeen()) : null);
+            ps.setLong(3, delta.alertId());
+        });
+        for (int i = 0; i < updates.size(); i++) {
+            if (counts[0][i] == 0) {
+                PendingAlert.Delta delta = updates.get(i);
+                reopen.add(new PendingAlert.Delta(delta.pending(), null, delta.first(), delta.fingerprint(),
+                    delta.count(), delta.lastSeen(), delta.lastSeen()));
+            }
+        }
+        return reopen;
+    }
+
+    /**
+     * Van transakcije flush-a (ona je vec rollback-ovana); count = sva neupisana ponavljanja.
+     */
+    public void deadLetter(PendingAlert.Delta delta, long count, String error) {
+        AlertCandidate first = delta.first();
+        jdbcTemplate.update(DEAD_LETTER_SQL, ps -> {
+            ps.setObject(1, delta.alertId());
+            ps.setObject(2, first.ruleId());
+            ps.setObject(3, first.sourceId());
+            ps.setObject(4, first.severityId());
+            ps.setObject(5, first.logEventId());
+            ps.setString(6, delta.fingerprint());
+            ps.setString(7, first.message());
+            ps.setLong(8, count);
+            ps.setTimestamp(9, delta.firstSeen() != null ? Timestamp.valueOf(delta.firstSeen()) : null);
+            ps.setTimestamp(10, delta.lastSeen() != null ? Timestamp.valueOf(delta.lastSeen()) : null);
+            ps.setString(11, error);
+        });
+    }
+
+    private void recordMatches(PendingAlert.Delta delta) {
+        rollupCounters.recordRuleMatches(delta.first().ruleId(), delta.lastSeen(), delta.count());
+    }
+
+    private Long newStatusId() {
+        Long id = newStatusId;
+        if (id == null) {
+            id = alertStatusRepository.findByName(NEW_STATUS)
+                .orElseThrow(() -> new RuntimeException("Alert status not found: " + NEW_STATUS))
+                .getId();
+            newStatusId = id;
+        }
+        return id;
+    }
+}
@@ -0,0 +1,61 @@
+package rs.igapp.aurora.server.detection;
+
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/**
+ * Pravilo spremno za izvrsavanje: uslov je kompajliran jednom, pri ucitavanju
+ *
+ * requiredLiteral     - tekst koji mora biti u poruci (null = nema prefiltera, uslov se uvek proverava)
+ * literalSufficient   - pogodak literala je dovoljan (cist keyword), uslov se ne poziva
+ * window              - null za pravila nad jednim dogadjajem; inace uslov je filter, a alarm nastaje
+ *                       tek kad prozor (count / distinct / sequence) prijavi da je prag dostignut
+ * alertTemplate podrzava {message}, {source} i {rule}.
+ */
+public record CompiledRule(Long ruleId,
+                           String name,
+                           Long severityId,
+                           String alertTemplate,
+                           RuleCondition condition,
+                           String requiredLiteral,
+                           boolean literalSufficient,
+                           SlidingWindow<?> window,
+                           LocalDateTime updatedAt) {
+
+    /**
+     * Poziva se za dogadjaj koji je prosao uslov. Pravilo nad jednim dogadjajem odmah daje kandidata;
+     * prozorsko azurira stanje prozora i daje kandidata za svaki dogadjaj kojim je prag dostignut
+     * (moze i za raniji dogadjaj iz bafera kasnjenja, vidi SlidingWindow).
+     */
+    public void observe(DetectionEvent event, Consumer<AlertCandidate> candidates) {
+        if (window == null) {
+            candidates.accept(toCandidate(event));
+        } else {
+            window.observe(event, fired -> candidates.accept(toCandidate(fired)));
+        }
+    }
+
+    /**
+     * Kandidati za dogadjaje koje je prozor pustio iz bafera po isteku kasnjenja.
+     */
+    public void release(Consumer<AlertCandidate> candidates) {
+        if (window != null) {
+            window.release(fired -> candidates.accept(toCandidate(fired)));
+        }
+    }
+
+    public AlertCandidate toCandidate(DetectionEvent event) {
+        return new AlertCandidate(ruleId, event.logEventId(), event.sourceId(), severityId,
+            renderMessage(event), event.timestamp());
+    }
+
+    private String renderMessage(DetectionEvent event) {
+        if (alertTemplate == null || alertTemplate.isBlank()) {
+            return "Rule " + name + " matched: " + event.message();
+        }
+        return alertTemplate
+            .replace("{message}", event.message())
+            .replace("{source}", event.agentId())
+            .replace("{rule}", name);
+    }
+}
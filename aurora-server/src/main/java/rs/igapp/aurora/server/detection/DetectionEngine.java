@@ -0,0 +1,311 @@
+package rs.igapp.aurora.server.detection;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import rs.igapp.aurora.domain.entity.LogEvent;
+import rs.igapp.aurora.domain.entity.Rule;
+import rs.igapp.aurora.persistence.projection.RuleVersion;
+import rs.igapp.aurora.persistence.repository.RuleRepository;
+import rs.igapp.aurora.persistence.repository.RuleStatusRepository;
+import rs.igapp.aurora.server.payload.RawPayloadStore;
+
+/**
+ * DetectionEngine - Izvrsava pravila detekcije nad svakim ingest-ovanim dogadjajem
+ *
+ * Svrha:
+ * Rule.condition je postojao, ali ga niko nije izvrsavao - nijedan Alert nije nastajao iz LogEvent-a.
+ * Engine ucitava ukljucena pravila (findByEnabledAndStatus_Id), kompajlira svaki uslov JEDNOM
+ * (RuleCompiler) i svaki dogadjaj proverava protiv svih pravila u memoriji, bez odlaska u bazu.
+ * Keyword pravila i literali regex-a su u jednom Aho-Corasick automatu (RuleSet), pa jedan prolaz
+ * kroz poruku pronalazi sva kandidat-pravila.
+ *
+ * TOK:
+ * LogEventIngestService sacuva batch -> evaluate(batch) -> AlertCandidate lista -> AlertAggregator (posle commit-a)
+ *
+ * OSVEZAVANJE (hot reload):
+ * Svakih par sekundi se porede (id, updatedAt) parovi iz baze sa aktivnim skupom. Samo izmenjena
+ * pravila se ponovo kompajliraju, novi verzionisani RuleSet (i automat) se gradi u pozadinskoj niti
+ * i postavlja jednim upisom AtomicReference-a. Nit koja upravo proverava dogadjaje zavrsava sa
+ * starim skupom - ingest se nikad ne zakljucava i server se ne restartuje.
+ *
+ * PROZORSKA PRAVILA (window:count / distinct / sequence):
+ * Uslov pravila je filter i proverava se u evaluate(), kao i keyword/regex pravila. Stanje prozora po
+ * kljucu (CompiledRule.window) se azurira tek POSLE commit-a ingest transakcije: dogadjaj iz vracene
+ * transakcije (ili iz ponovljenog pokusaja u IngestQueue) se ne broji, a prozor nikad ne okine alarm
+ * za log_event_id koji nije u bazi. Bez aktivne transakcije prozor se azurira odmah.
+ * Memorija je ogranicena (aurora.detection.window.max-keys po pravilu), a neaktivni kljucevi se
+ * periodicno brisu (expireWindows). Dogadjaji ulaze u prozor poredjani po vremenu posle kratkog bafera
+ * (aurora.detection.window.allowed-lateness); ono sto bafer pusti po satu (releaseWindows) ide
+ * direktno u AlertAggregator - ti dogadjaji su vec commit-ovani.
+ *
+ * METRIKE: aurora.detection.ruleset.version, aurora.detection.ruleset.compile (trajanje),
+ * aurora.detection.rules.recompiled, aurora.detection.rules, aurora.detection.patterns,
+ * aurora.detection.window.keys, aurora.detection.window.pending, aurora.detection.window.expired,
+ * aurora.detection.window.evicted, aurora.detection.window.clamped
+ */
+@Slf4j
+@Component
+public class DetectionEngine {
+
+    static final String ACTIVE_STATUS = "ACTIVE";
+
+    private final RuleRepository ruleRepository;
+    private final RuleStatusRepository ruleStatusRepository;
+    private final RuleCompiler ruleCompiler;
+    private final ObjectMapper objectMapper;
+    private final RawPayloadStore rawPayloadStore;
+    private final AlertAggregator alertAggregator;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final AtomicLong versionSequence = new AtomicLong();
+    private final AtomicReference<RuleSet> ruleSet = new AtomicReference<>(RuleSet.EMPTY);
+    // Pravila cija trenutna verzija ne moze da se kompajlira (id -> updatedAt)
+    private final Map<Long, LocalDateTime> failedVersions = new HashMap<>();
+
+    private final Counter evaluated;
+    private final Counter matched;
+    private final Counter recompiled;
+    private final Counter windowExpired;
+    private final Timer compileTimer;
+
+    public DetectionEngine(RuleRepository ruleRepository,
+                           RuleStatusRepository ruleStatusRepository,
+                           RuleCompiler ruleCompiler,
+                           ObjectMapper objectMapper,
+                           RawPayloadStore rawPayloadStore,
+                           AlertAggregator alertAggregator,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry) {
+        this.ruleRepository = ruleRepository;
+        this.ruleStatusRepository = ruleStatusRepository;
+        this.ruleCompiler = ruleCompiler;
+        this.objectMapper = objectMapper;
+        this.rawPayloadStore = rawPayloadStore;
+        this.alertAggregator = alertAggregator;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        this.evaluated = meterRegistry.counter("aurora.detection.events");
+        this.matched = meterRegistry.counter("aurora.detection.matches");
+        this.recompiled = meterRegistry.counter("aurora.detection.rules.recompiled");
+        this.compileTimer = meterRegistry.timer("aurora.detection.ruleset.compile");
+        this.windowExpired = meterRegistry.counter("aurora.detection.window.expired");
+        Gauge.builder("aurora.detection.rules", () -> ruleSet.get().rules().size()).register(meterRegistry);
+        Gauge.builder("aurora.detection.patterns", () -> ruleSet.get().patternCount()).register(meterRegistry);
+        Gauge.builder("aurora.detection.ruleset.version", () -> ruleSet.get().version()).register(meterRegistry);
+        Gauge.builder("aurora.detection.window.keys", this::windowKeyCount).register(meterRegistry);
+        Gauge.builder("aurora.detection.window.pending", this::windowPendingCount).register(meterRegistry);
+    }
+
+    // ==================== UCITAVANJE PRAVILA ====================
+
+    /**
+     * Inkrementalno osvezavanje: iz baze se citaju samo (id, updatedAt) parovi, a puna pravila
+     * se ucitavaju i kompajliraju SAMO za nova/izmenjena. Nepromenjena pravila se prenose iz
+     * prethodnog skupa (copy-on-write), pa se automat gradi i skup menja jednim upisom reference.
+     */
+    @Scheduled(fixedDelayString = "${aurora.detection.reload-interval:PT5S}")
+    public void reload() {
+        try {
+            Map<Long, LocalDateTime> versions = readOnlyTransaction.execute(status -> loadEnabledVersions());
+            RuleSet current = ruleSet.get();
+            Map<Long, CompiledRule> compiled = current.byId();
+
+            List<Long> changed = new ArrayList<>();
+            for (Map.Entry<Long, LocalDateTime> version : versions.entrySet()) {
+                CompiledRule existing = compiled.get(version.getKey());
+                boolean upToDate = existing != null && Objects.equals(existing.updatedAt(), version.getValue());
+                boolean knownBroken = Objects.equals(failedVersions.get(version.getKey()), version.getValue());
+                if (!upToDate && !knownBroken) {
+                    changed.add(version.getKey());
+                }
+            }
+            boolean removed = compiled.keySet().stream().anyMatch(id -> !versions.containsKey(id));
+            failedVersions.keySet().retainAll(versions.keySet());
+
+            if (changed.isEmpty() && !removed) {
+                return;  // nista novo, verzija ostaje ista
+            }
+            ruleSet.set(compileTimer.record(() -> rebuild(current, versions, changed)));
+            recompiled.increment(changed.size());
+            log.info("Detection rule set v{} active: {} rules, {} recompiled",
+                ruleSet.get().version(), ruleSet.get().rules().size(), changed.size());
+        } catch (RuntimeException e) {
+            log.error("Reloading detection rules failed, keeping rule set v{}", ruleSet.get().version(), e);
+        }
+    }
+
+    private RuleSet rebuild(RuleSet current, Map<Long, LocalDateTime> versions, List<Long> changed) {
+        Map<Long, CompiledRule> next = new HashMap<>(current.byId());
+        next.keySet().retainAll(versions.keySet());
+
+        if (!changed.isEmpty()) {
+            List<Rule> rules = readOnlyTransaction.execute(status -> ruleRepository.findAllById(changed));
+            for (Rule rule : rules) {
+                try {
+                    next.put(rule.getId(), ruleCompiler.compile(rule));
+                    failedVersions.remove(rule.getId());
+                } catch (RuleCompilationException e) {
+                    // Neispravna izmena iskljucuje pravilo dok se ne ispravi (ne proveravamo ga ponovo do sledece izmene)
+                    next.remove(rule.getId());
+                    failedVersions.put(rule.getId(), rule.getUpdatedAt());
+                    log.warn("Skipping rule that does not compile: {}", e.getMessage());
+                }
+            }
+        }
+        return RuleSet.of(versionSequence.incrementAndGet(), new ArrayList<>(next.values()));
+    }
+
+    // Ukljucena pravila u statusu ACTIVE; ako status ne postoji u bazi, sva ukljucena
+    private Map<Long, LocalDateTime> loadEnabledVersions() {
+        List<RuleVersion> versions = ruleStatusRepository.findByName(ACTIVE_STATUS)
+            .map(status -> ruleRepository.findVersionsByEnabledAndStatus_Id(true, status.getId()))
+            .orElseGet(() -> ruleRepository.findVersionsByEnabled(true));
+
+        Map<Long, LocalDateTime> byId = new HashMap<>(versions.size() * 2);
+        for (RuleVersion version : versions) {
+            byId.put(version.getId(), version.getUpdatedAt());
+        }
+        return byId;
+    }
+
+    /**
+     * Brise kljuceve prozorskih pravila bez aktivnosti u poslednjoj sirini prozora.
+     * Bez ovoga bi jednokratni kljucevi (npr. IP adrese) ostajali u memoriji do LRU izbacivanja.
+     */
+    @Scheduled(fixedDelayString = "${aurora.detection.window.expire-interval:PT10S}")
+    public void expireWindows() {
+        int removed = 0;
+        for (CompiledRule rule : ruleSet.get().rules()) {
+            if (rule.window() != null) {
+                removed += rule.window().expire();
+            }
+        }
+        windowExpired.increment(removed);
+    }
+
+    /**
+     * Pusta dogadjaje koji su u baferu prozora cekali allowed-lateness. Bez ovoga bi alarm za poslednje
+     * dogadjaje mirnog toka kasnio do sledeceg dogadjaja tog pravila.
+     */
+    @Scheduled(fixedDelayString = "${aurora.detection.window.release-interval:PT1S}")
+    public void releaseWindows() {
+        List<AlertCandidate> candidates = new ArrayList<>();
+        for (CompiledRule rule : ruleSet.get().rules()) {
+            rule.release(candidates::add);
+        }
+        matched.increment(candidates.size());
+        alertAggregator.submit(candidates);
+    }
+
+    public RuleSet currentRuleSet() {
+        return ruleSet.get();
+    }
+
+    // ==================== IZVRSAVANJE ====================
+
+    /**
+     * Proverava sacuvane dogadjaje (moraju imati ID) protiv aktivnog skupa pravila.
+     * Jedan dogadjaj moze okinuti vise pravila.
+     */
+    public List<AlertCandidate> evaluate(List<LogEvent> events) {
+        RuleSet current = ruleSet.get();  // jedan skup za ceo batch
+        if (current.rules().isEmpty() || events.isEmpty()) {
+            return List.of();
+        }
+
+        List<AlertCandidate> candidates = new ArrayList<>();
+        List<WindowObservation> observations = new ArrayList<>();
+        int[] seen = new int[current.patternCount()];
+        int stamp = 0;
+        for (LogEvent logEvent : events) {
+            DetectionEvent event = new DetectionEvent(logEvent, objectMapper, rawPayloadStore);
+            current.match(event, seen, ++stamp, rule -> {
+                if (rule.window() == null) {
+                    rule.observe(event, candidates::add);
+                } else {
+                    observations.add(new WindowObservation(rule, event));
+                }
+            });
+        }
+
+        evaluated.increment(events.size());
+        matched.increment(candidates.size());
+        observeAfterCommit(observations);
+        return candidates;
+    }
+
+    /**
+     * Prozorska pravila vide samo commit-ovane dogadjaje. Alarmi koje prozor okine idu direktno
+     * u AlertAggregator, kao i oni iz releaseWindows - transakcija je tada vec zavrsena.
+     */
+    private void observeAfterCommit(List<WindowObservation> observations) {
+        if (observations.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    observeWindows(observations);
+                }
+            });
+        } else {
+            observeWindows(observations);
+        }
+    }
+
+    private void observeWindows(List<WindowObservation> observations) {
+        List<AlertCandidate> candidates = new ArrayList<>();
+        for (WindowObservation observation : observations) {
+            observation.rule().observe(observation.event(), candidates::add);
+        }
+        matched.increment(candidates.size());
+        alertAggregator.submit(candidates);
+    }
+
+    // Dogadjaj koji je prosao filter prozorskog pravila, ceka commit
+    private record WindowObservation(CompiledRule rule, DetectionEvent event) {
+    }
+
+    private int windowKeyCount() {
+        int keys = 0;
+        for (CompiledRule rule : ruleSet.get().rules()) {
+            if (rule.window() != null) {
+                keys += rule.window().keyCount();
+            }
+        }
+        return keys;
+    }
+
+    private int windowPendingCount() {
+        int pending = 0;
+        for (CompiledRule rule : ruleSet.get().rules()) {
+            if (rule.window() != null) {
+                pending += rule.window().pendingCount();
+            }
+        }
+        return pending;
+    }
+}
@@ -0,0 +1,71 @@
+package rs.igapp.aurora.server.detection;
+
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import rs.igapp.aurora.domain.entity.LogEvent;
+import rs.igapp.aurora.server.payload.RawPayloadStore;
+
+/**
+ * DetectionEvent - Pogled na sacuvan LogEvent kakav vide pravila detekcije
+ *
+ * rawData (JSON) se parsira NAJVISE jednom po dogadjaju i samo ako ga neko pravilo trazi
+ * (field predikati). U COMPACT modu je rawData vec u raw_payloads - cvor dolazi gotov iz RawPayloadStore kesa.
+ * Nije thread-safe - jedan dogadjaj obradjuje jedna nit.
+ */
+public final class DetectionEvent {
+
+    private final LogEvent logEvent;
+    private final ObjectMapper objectMapper;
+    private final RawPayloadStore rawPayloadStore;
+
+    private JsonNode rawDataNode;
+    private boolean rawDataParsed;
+
+    public DetectionEvent(LogEvent logEvent, ObjectMapper objectMapper, RawPayloadStore rawPayloadStore) {
+        this.logEvent = logEvent;
+        this.objectMapper = objectMapper;
+        this.rawPayloadStore = rawPayloadStore;
+    }
+
+    public Long logEventId() {
+        return logEvent.getId();
+    }
+
+    public Long sourceId() {
+        return logEvent.getSource().getId();
+    }
+
+    public String agentId() {
+        return logEvent.getSource().getAgentId();
+    }
+
+    public String message() {
+        return logEvent.getMessage();
+    }
+
+    public LocalDateTime timestamp() {
+        return logEvent.getTimestamp();
+    }
+
+    // null ako rawData ne postoji ili nije validan JSON
+    public JsonNode rawData() {
+        if (!rawDataParsed) {
+            rawDataParsed = true;
+            String raw = logEvent.getRawData();
+            if (raw == null && logEvent.getRawPayloadId() != null) {
+                rawDataNode = rawPayloadStore.node(logEvent.getRawPayloadId());
+            } else if (raw != null && !raw.isBlank()) {
+                try {
+                    rawDataNode = objectMapper.readTree(raw);
+                } catch (JsonProcessingException e) {
+                    rawDataNode = null;
+                }
+            }
+        }
+        return rawDataNode;
+    }
+}
@@ -0,0 +1,104 @@
+package rs.igapp.aurora.server.detection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Otvoren (deduplikovan) alarm u AlertAggregator-u: prvo pojavljivanje + brojac ponavljanja
+ * koji jos nisu upisani u bazu.
+ *
+ * Dok alertId == null alarm jos ne postoji u bazi (sledeci flush ga INSERT-uje),
+ * posle toga flush samo dodaje novi broj ponavljanja (UPDATE).
+ * Sve metode su sinhronizovane - ingest niti dodaju, flush nit prazni.
+ */
+final class PendingAlert {
+
+    private final AlertCandidate first;
+    private final String fingerprint;
+    private final long openedAtMillis;
+
+    private Long alertId;
+    private long unflushedCount;
+    private LocalDateTime firstSeen;
+    private LocalDateTime lastSeen;
+    private boolean closed;
+
+    PendingAlert(AlertCandidate first, String fingerprint, long openedAtMillis) {
+        this.first = first;
+        this.fingerprint = fingerprint;
+        this.openedAtMillis = openedAtMillis;
+        this.firstSeen = first.timestamp();
+        this.lastSeen = first.timestamp();
+    }
+
+    /**
+     * Vraca false ako je alarm u medjuvremenu zatvoren - pozivalac tada otvara novi.
+     */
+    synchronized boolean add(AlertCandidate candidate) {
+        if (closed) {
+            return false;
+        }
+        unflushedCount++;
+        if (candidate.timestamp() != null && (lastSeen == null || candidate.timestamp().isAfter(lastSeen))) {
+            lastSeen = candidate.timestamp();
+        }
+        return true;
+    }
+
+    // Uzima sve sto nije upisano (null ako nema nista novo)
+    synchronized Delta drain() {
+        if (unflushedCount == 0) {
+            return null;
+        }
+        Delta delta = new Delta(this, alertId, first, fingerprint, unflushedCount, firstSeen, lastSeen);
+        unflushedCount = 0;
+        return delta;
+    }
+
+    // Upis nije uspeo - ponavljanja se vracaju za sledeci flush
+    synchronized void restore(Delta delta) {
+        unflushedCount += delta.count();
+    }
+
+    /**
+     * Baza je odbila alarm i pojedinacno (dead letter) - zatvara ga; sledece pojavljivanje otvara novi.
+     * Vraca ponavljanja dodata posle drain-a, da bi pozivalac i njih prijavio.
+     */
+    synchronized long discard() {
+        closed = true;
+        long leftover = unflushedCount;
+        unflushedCount = 0;
+        return leftover;
+    }
+
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    synchronized void assignId(Long id) {
+        this.alertId = id;
+    }
+
+    /**
+     * Zatvara alarm ako je prozor potiskivanja istekao i sve je upisano.
+     * Sledece pojavljivanje istog kljuca otvara NOVI alarm.
+     */
+    synchronized boolean closeIfExpired(long nowMillis, long windowMillis) {
+        if (nowMillis - openedAtMillis < windowMillis || unflushedCount > 0 || alertId == null) {
+            return false;
+        }
+        closed = true;
+        return true;
+    }
+
+    /**
+     * Snimak za jedan flush: alertId == null -> INSERT, inace UPDATE occurrence_count += count.
+     */
+    record Delta(PendingAlert pending,
+                 Long alertId,
+                 AlertCandidate first,
+                 String fingerprint,
+                 long count,
+                 LocalDateTime firstSeen,
+                 LocalDateTime lastSeen) {
+    }
+}
@@ -0,0 +1,145 @@
+package rs.igapp.aurora.server.detection;
+
+/**
+ * RegexLiterals - Izvlaci literal koji MORA da se pojavi u svakom pogotku regex-a (prefilter)
+ *
+ * Primer: "user \w+ locked out" -> "locked out" (najduzi obavezni niz obicnih znakova).
+ * Ako poruka ne sadrzi taj literal, regex sigurno ne prolazi i ne mora se izvrsavati.
+ *
+ * Konzervativno: alternacija (|), \Q..\E, inline flag-ovi ((?i), (?ix), (?i:...) - menjaju poredjenje),
+ * escape-ovi koji nisu jedan znak (\x.., unicode \ + u...., \0.., \p{..}, \k<..>, \c., \N{..}) ili literal kraci
+ * od MIN_LENGTH -> null (regex se tada uvek izvrsava). Sadrzaj grupa i klasa znakova se preskace.
+ */
+final class RegexLiterals {
+
+    static final int MIN_LENGTH = 3;
+
+    // Posle '\' pocinju viseznakovni escape-ovi - njihov tekst nije literal poruke
+    private static final String MULTI_CHAR_ESCAPES = "xu0pPkcN";
+    private static final String INLINE_FLAGS = "idmsuxU-";
+
+    private RegexLiterals() {
+    }
+
+    static String requiredLiteral(String regex) {
+        if (regex.indexOf('|') >= 0 || regex.contains("\\Q")) {
+            return null;
+        }
+
+        String best = "";
+        StringBuilder run = new StringBuilder();
+        int depth = 0;
+
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+
+            if (c == '(') {
+                if (isInlineFlags(regex, i)) {
+                    return null;
+                }
+                depth++;
+                best = longer(best, run);
+                run.setLength(0);
+                continue;
+            }
+            if (c == ')') {
+                depth = Math.max(0, depth - 1);
+                continue;
+            }
+            if (c == '\\' && i + 1 < regex.length() && MULTI_CHAR_ESCAPES.indexOf(regex.charAt(i + 1)) >= 0) {
+                return null;
+            }
+            if (depth > 0) {
+                if (c == '\\') {
+                    i++;  // preskoci escape-ovan znak unutar grupe
+                }
+                continue;
+            }
+
+            switch (c) {
+                case '[' -> {
+                    best = longer(best, run);
+                    run.setLength(0);
+                    i = skipCharacterClass(regex, i);
+                }
+                case '\\' -> {
+                    char next = i + 1 < regex.length() ? regex.charAt(i + 1) : 0;
+                    i++;
+                    if (isEscapedLiteral(next)) {
+                        run.append(next);
+                    } else {
+                        // \w, \d, \s, \b ... nisu literal
+                        best = longer(best, run);
+                        run.setLength(0);
+                    }
+                }
+                case '?', '*', '{' -> {
+                    // prethodni znak je opcion (ili ponovljen nepoznat broj puta) - izbaci ga iz niza
+                    if (run.length() > 0) {
+                        run.setLength(run.length() - 1);
+                    }
+                    best = longer(best, run);
+                    run.setLength(0);
+                    if (c == '{') {
+                        int close = regex.indexOf('}', i);
+                        i = close < 0 ? regex.length() : close;
+                    }
+                }
+                case '+' -> {
+                    // prethodni znak se pojavljuje bar jednom, ali niz se posle njega prekida
+                    best = longer(best, run);
+                    run.setLength(0);
+                }
+                case '.', '^', '$' -> {
+                    best = longer(best, run);
+                    run.setLength(0);
+                }
+                default -> run.append(c);
+            }
+        }
+        best = longer(best, run);
+
+        // Bez vodecih/zavrsnih razmaka - oni cesto nastaju oko opcionih delova
+        best = best.strip();
+        return best.length() >= MIN_LENGTH ? best : null;
+    }
+
+    // (?i) (?ix) (?-i) (?i:...) - flag-ovi vaze do kraja grupe ili regex-a
+    private static boolean isInlineFlags(String regex, int open) {
+        if (!regex.startsWith("(?", open)) {
+            return false;
+        }
+        int i = open + 2;
+        while (i < regex.length() && INLINE_FLAGS.indexOf(regex.charAt(i)) >= 0) {
+            i++;
+        }
+        return i > open + 2 && i < regex.length() && (regex.charAt(i) == ')' || regex.charAt(i) == ':');
+    }
+
+    private static boolean isEscapedLiteral(char c) {
+        return c != 0 && !Character.isLetterOrDigit(c);
+    }
+
+    private static int skipCharacterClass(String regex, int start) {
+        int i = start + 1;
+        if (i < regex.length() && regex.charAt(i) == '^') {
+            i++;
+        }
+        if (i < regex.length() && regex.charAt(i) == ']') {
+            i++;  // ']' na pocetku klase je literal
+        }
+        for (; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == ']') {
+                return i;
+            }
+        }
+        return regex.length();
+    }
+
+    private static String longer(String best, CharSequence candidate) {
+        return candidate.length() > best.length() ? candidate.toString() : best;
+    }
+}
@@ -0,0 +1,12 @@
+package rs.igapp.aurora.server.detection;
+
+public class RuleCompilationException extends RuntimeException {
+
+    public RuleCompilationException(String message) {
+        super(message);
+    }
+
+    public RuleCompilationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,342 @@
+package rs.igapp.aurora.server.detection;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import rs.igapp.aurora.domain.entity.Rule;
+
+/**
+ * RuleCompiler - Pretvara tekst Rule.condition u izvrsni RuleCondition (jednom, pri ucitavanju pravila)
+ *
+ * SINTAKSA USLOVA:
+ *   keyword:failed login        -> poruka sadrzi tekst (bez obzira na velika/mala slova)
+ *   regex:user \w+ locked        -> Java regex nad porukom (find, ne ceo string)
+ *   field:user.name = root       -> predikat nad rawData JSON-om (tacka = ugnjezdeno polje)
+ *       operatori: =  !=  ~ (regex)  >  >=  <  <=  exists
+ *   A && B                      -> svi delovi moraju da vaze
+ *   tekst bez prefiksa          -> isto kao keyword:
+ *
+ * PROZORSKA PRAVILA (agregacija vise dogadjaja po kljucu, vidi SlidingWindow):
+ *   window:count >= 5 in 60s by source | keyword:failed login
+ *   window:distinct dst.port >= 20 in 1m by src.ip | field:action = deny
+ *   window:sequence in 5m by user.name | keyword:failed login -> keyword:login succeeded
+ *       kljuc: source (ID izvora) ili putanja u rawData; trajanje: ms, s, m, h
+ *       deo posle | je obican uslov (filter) - samo dogadjaji koji ga prodju ulaze u prozor
+ *
+ * Neispravan uslov baca RuleCompilationException - engine preskace to pravilo i nastavlja sa ostalima.
+ *
+ * PREFILTER:
+ * Za svako pravilo se pamti literal koji MORA biti u poruci (keyword, obavezni deo regex-a).
+ * RuleSet sve te literale stavlja u jedan Aho-Corasick automat, pa se regex izvrsava samo kada
+ * je njegov literal nadjen, a keyword pravila se uopste ne izvrsavaju pojedinacno.
+ */
+@Component
+public class RuleCompiler {
+
+    static final String KEYWORD_PREFIX = "keyword:";
+    static final String REGEX_PREFIX = "regex:";
+    static final String FIELD_PREFIX = "field:";
+    static final String WINDOW_PREFIX = "window:";
+    static final String SOURCE_KEY = "source";
+    // Gornja granica praga - stanje jednog kljuca raste sa pragom
+    static final int MAX_THRESHOLD = 10_000;
+
+    private static final Pattern AND_SPLIT = Pattern.compile("\\s+&&\\s+");
+    private static final Pattern FIELD_EXPRESSION =
+        Pattern.compile("^([\\w.\\-]+)\\s*(exists|!=|>=|<=|=|~|>|<)\\s*(.*)$");
+    private static final Pattern WINDOW_EXPRESSION = Pattern.compile(
+        "^(count|distinct\\s+([\\w.\\-]+)|sequence)\\s*(?:>=\\s*(\\d{1,9})\\s+)?in\\s+(\\d{1,9})(ms|s|m|h)\\s+by\\s+([\\w.\\-]+)$");
+    private static final Pattern SEQUENCE_SPLIT = Pattern.compile("\\s+->\\s+");
+
+    private final SlidingWindow.Limits windowLimits;
+
+    public RuleCompiler(@Value("${aurora.detection.window.max-keys:100000}") int maxKeysPerWindow,
+                        @Value("${aurora.detection.window.max-clock-skew:PT1M}") Duration maxClockSkew,
+                        @Value("${aurora.detection.window.allowed-lateness:PT5S}") Duration allowedLateness,
+                        MeterRegistry meterRegistry) {
+        this.windowLimits = new SlidingWindow.Limits(
+            maxKeysPerWindow,
+            maxClockSkew.toMillis(),
+            allowedLateness.toMillis(),
+            meterRegistry.counter("aurora.detection.window.evicted"),
+            meterRegistry.counter("aurora.detection.window.clamped"));
+    }
+
+    public CompiledRule compile(Rule rule) {
+        try {
+            String text = rule.getCondition() == null ? "" : rule.getCondition().trim();
+            if (text.startsWith(WINDOW_PREFIX)) {
+                return compileWindowed(rule, text.substring(WINDOW_PREFIX.length()));
+            }
+            Term condition = compileCondition(text);
+            return new CompiledRule(
+                rule.getId(),
+                rule.getName(),
+                rule.getDefaultSeverity().getId(),
+                rule.getAlertMessage(),
+                condition.condition(),
+                condition.literal(),
+                condition.literalSufficient(),
+                null,
+                rule.getUpdatedAt());
+        } catch (RuleCompilationException e) {
+            throw new RuleCompilationException("Rule " + rule.getId() + " (" + rule.getName() + "): " + e.getMessage(), e);
+        }
+    }
+
+    // "<vrsta> in <trajanje> by <kljuc> | <filter>"
+    private CompiledRule compileWindowed(Rule rule, String text) {
+        int bar = text.indexOf('|');
+        if (bar < 0) {
+            throw new RuleCompilationException("window rule needs '| condition': " + text);
+        }
+        Matcher m = WINDOW_EXPRESSION.matcher(text.substring(0, bar).trim());
+        if (!m.matches()) {
+            throw new RuleCompilationException("invalid window: " + text.substring(0, bar).trim());
+        }
+        long width = durationMillis(Long.parseLong(m.group(4)), m.group(5));
+        Function<DetectionEvent, String> key = keyExtractor(m.group(6));
+        String kind = m.group(1);
+        String filter = text.substring(bar + 1).trim();
+
+        Term condition;
+        SlidingWindow<?> window;
+        if (kind.equals("sequence")) {
+            String[] steps = SEQUENCE_SPLIT.split(filter);
+            if (steps.length != 2) {
+                throw new RuleCompilationException("sequence needs exactly 'A -> B': " + filter);
+            }
+            RuleCondition first = compileCondition(steps[0]).condition();
+            RuleCondition then = compileCondition(steps[1]).condition();
+            // Prozor vidi dogadjaje koji prolaze A ili B, bez prefiltera (literal nije obavezan)
+            condition = new Term(event -> first.matches(event) || then.matches(event), null, false);
+            window = new SlidingWindow.Sequence(first, then, width, key, windowLimits);
+        } else {
+            int threshold = threshold(m.group(3));
+            condition = compileCondition(filter);
+            window = kind.equals("count")
+                ? new SlidingWindow.Count(threshold, width, key, windowLimits)
+                : new SlidingWindow.Distinct(threshold, keyExtractor(m.group(2)), width, key, windowLimits);
+        }
+
+        return new CompiledRule(
+            rule.getId(),
+            rule.getName(),
+            rule.getDefaultSeverity().getId(),
+            rule.getAlertMessage(),
+            condition.condition(),
+            condition.literal(),
+            condition.literalSufficient(),
+            window,
+            rule.getUpdatedAt());
+    }
+
+    /**
+     * Kompajliran deo uslova + literal koji mora biti u poruci da bi deo prosao (prefilter za Aho-Corasick).
+     * literalSufficient = pogodak literala JE pogodak uslova (cist keyword), pa se uslov ne mora ni pozivati.
+     */
+    record Term(RuleCondition condition, String literal, boolean literalSufficient) {
+    }
+
+    Term compileCondition(String condition) {
+        if (condition == null || condition.isBlank()) {
+            throw new RuleCompilationException("empty condition");
+        }
+        String[] parts = AND_SPLIT.split(condition.trim());
+        if (parts.length == 1) {
+            return compileTerm(parts[0]);
+        }
+
+        List<Term> terms = new ArrayList<>(parts.length);
+        for (String part : parts) {
+            terms.add(compileTerm(part));
+        }
+        RuleCondition[] conditions = terms.stream().map(Term::condition).toArray(RuleCondition[]::new);
+        // Svi delovi su obavezni, pa je bilo koji njihov literal obavezan - uzmi najduzi (najselektivniji)
+        String literal = terms.stream()
+            .map(Term::literal)
+            .filter(Objects::nonNull)
+            .max(Comparator.comparingInt(String::length))
+            .orElse(null);
+
+        return new Term(event -> {
+            for (RuleCondition c : conditions) {
+                if (!c.matches(event)) {
+                    return false;
+                }
+            }
+            return true;
+        }, literal, false);
+    }
+
+    private Term compileTerm(String term) {
+        if (term.startsWith(REGEX_PREFIX)) {
+            return regex(term.substring(REGEX_PREFIX.length()));
+        }
+        if (term.startsWith(FIELD_PREFIX)) {
+            return new Term(field(term.substring(FIELD_PREFIX.length()).trim()), null, false);
+        }
+        if (term.startsWith(KEYWORD_PREFIX)) {
+            return keyword(term.substring(KEYWORD_PREFIX.length()));
+        }
+        return keyword(term);
+    }
+
+    // ==================== TIPOVI USLOVA ====================
+
+    private Term keyword(String keyword) {
+        String needle = keyword.trim();
+        if (needle.isEmpty()) {
+            throw new RuleCompilationException("empty keyword");
+        }
+        return new Term(event -> containsIgnoreCase(event.message(), needle), needle, true);
+    }
+
+    // Regex se izvrsava samo ako je njegov obavezni literal nadjen u poruci
+    private Term regex(String expression) {
+        Pattern pattern = compilePattern(expression);
+        return new Term(event -> pattern.matcher(event.message()).find(),
+            RegexLiterals.requiredLiteral(expression), false);
+    }
+
+    private RuleCondition field(String expression) {
+        Matcher m = FIELD_EXPRESSION.matcher(expression);
+        if (!m.matches()) {
+            throw new RuleCompilationException("invalid field predicate: " + expression);
+        }
+        JsonPointer pointer = JsonPointer.compile("/" + m.group(1).replace('.', '/'));
+        String operator = m.group(2);
+        String value = unquote(m.group(3).trim());
+
+        return switch (operator) {
+            case "exists" -> event -> node(event, pointer) != null;
+            case "=" -> event -> {
+                JsonNode node = node(event, pointer);
+                return node != null && node.asText().equals(value);
+            };
+            case "!=" -> event -> {
+                JsonNode node = node(event, pointer);
+                return node == null || !node.asText().equals(value);
+            };
+            case "~" -> {
+                Pattern pattern = compilePattern(value);
+                yield event -> {
+                    JsonNode node = node(event, pointer);
+                    return node != null && pattern.matcher(node.asText()).find();
+                };
+            }
+            default -> numeric(pointer, operator, value);
+        };
+    }
+
+    private RuleCondition numeric(JsonPointer pointer, String operator, String value) {
+        double threshold;
+        try {
+            threshold = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new RuleCompilationException("operator " + operator + " needs a number, got: " + value);
+        }
+        return event -> {
+            JsonNode node = node(event, pointer);
+            if (node == null || !(node.isNumber() || node.isTextual())) {
+                return false;
+            }
+            double actual = node.asDouble(Double.NaN);
+            return switch (operator) {
+                case ">" -> actual > threshold;
+                case ">=" -> actual >= threshold;
+                case "<" -> actual < threshold;
+                default -> actual <= threshold;
+            };
+        };
+    }
+
+    // ==================== POMOCNE METODE ====================
+
+    private static JsonNode node(DetectionEvent event, JsonPointer pointer) {
+        JsonNode root = event.rawData();
+        if (root == null) {
+            return null;
+        }
+        JsonNode node = root.at(pointer);
+        return node.isMissingNode() || node.isNull() ? null : node;
+    }
+
+    // "source" = ID izvora, sve ostalo je putanja u rawData (null = dogadjaj nema kljuc)
+    private static Function<DetectionEvent, String> keyExtractor(String path) {
+        if (path.equals(SOURCE_KEY)) {
+            return event -> String.valueOf(event.sourceId());
+        }
+        JsonPointer pointer = JsonPointer.compile("/" + path.replace('.', '/'));
+        return event -> {
+            JsonNode node = node(event, pointer);
+            return node != null ? node.asText() : null;
+        };
+    }
+
+    private static int threshold(String value) {
+        if (value == null) {
+            throw new RuleCompilationException("window needs '>= N'");
+        }
+        int threshold = Integer.parseInt(value);
+        if (threshold < 1 || threshold > MAX_THRESHOLD) {
+            throw new RuleCompilationException("threshold must be between 1 and " + MAX_THRESHOLD + ": " + value);
+        }
+        return threshold;
+    }
+
+    private static long durationMillis(long amount, String unit) {
+        long millis = switch (unit) {
+            case "ms" -> amount;
+            case "s" -> amount * 1_000;
+            case "m" -> amount * 60_000;
+            default -> amount * 3_600_000;
+        };
+        if (millis <= 0) {
+            throw new RuleCompilationException("window must be longer than 0");
+        }
+        return millis;
+    }
+
+    private static Pattern compilePattern(String expression) {
+        try {
+            return Pattern.compile(expression);
+        } catch (PatternSyntaxException e) {
+            throw new RuleCompilationException("invalid regex: " + expression, e);
+        }
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    // Bez toLowerCase() kopije poruke - poredi direktno po regionima
+    static boolean containsIgnoreCase(String haystack, String needle) {
+        int max = haystack.length() - needle.length();
+        for (int i = 0; i <= max; i++) {
+            if (haystack.regionMatches(true, i, needle, 0, needle.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,10 @@
+package rs.igapp.aurora.server.detection;
+
+/**
+ * Kompajliran uslov pravila - poziva se za svaki dogadjaj, mora biti brz i bez pristupa bazi.
+ */
+@FunctionalInterface
+public interface RuleCondition {
+
+    boolean matches(DetectionEvent event);
+}
@@ -0,0 +1,113 @@
+package rs.igapp.aurora.server.detection;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Nepromenljiv skup kompajliranih pravila. Engine ga menja u celosti (volatile referenca),
+ * pa citaoci nikad ne vide polu-ucitan skup i ne treba im zakljucavanje.
+ *
+ * Pri izgradnji se svi obavezni literali pravila spajaju u JEDAN Aho-Corasick automat:
+ * - prefiltered[i] = pravila ciji je literal i (keyword pravila i regex-i sa obaveznim literalom)
+ * - unfiltered     = pravila bez literala (field predikati, regex bez literala) - uvek se proveravaju
+ */
+public final class RuleSet {
+
+    public static final RuleSet EMPTY = of(0, List.of());
+
+    private final long version;
+    private final List<CompiledRule> rules;
+    private final Map<Long, CompiledRule> byId;
+    private final LocalDateTime loadedAt;
+
+    private final AhoCorasickMatcher matcher;
+    private final CompiledRule[][] prefiltered;
+    private final CompiledRule[] unfiltered;
+
+    private RuleSet(long version, List<CompiledRule> rules, AhoCorasickMatcher matcher,
+                    CompiledRule[][] prefiltered, CompiledRule[] unfiltered) {
+        this.version = version;
+        this.rules = rules;
+        this.byId = new LinkedHashMap<>();
+        rules.forEach(rule -> byId.put(rule.ruleId(), rule));
+        this.loadedAt = LocalDateTime.now();
+        this.matcher = matcher;
+        this.prefiltered = prefiltered;
+        this.unfiltered = unfiltered;
+    }
+
+    public static RuleSet of(long version, List<CompiledRule> rules) {
+        AhoCorasickMatcher.PatternRegistry registry = new AhoCorasickMatcher.PatternRegistry();
+        List<List<CompiledRule>> byPattern = new ArrayList<>();
+        List<CompiledRule> unfiltered = new ArrayList<>();
+
+        for (CompiledRule rule : rules) {
+            if (rule.requiredLiteral() == null) {
+                unfiltered.add(rule);
+                continue;
+            }
+            int id = registry.register(rule.requiredLiteral());
+            if (id == byPattern.size()) {
+                byPattern.add(new ArrayList<>());
+            }
+            byPattern.get(id).add(rule);
+        }
+
+        CompiledRule[][] prefiltered = byPattern.stream()
+            .map(list -> list.toArray(CompiledRule[]::new))
+            .toArray(CompiledRule[][]::new);
+        return new RuleSet(version, List.copyOf(rules), AhoCorasickMatcher.build(registry.patterns()),
+            prefiltered, unfiltered.toArray(CompiledRule[]::new));
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public List<CompiledRule> rules() {
+        return rules;
+    }
+
+    // Osnova za sledecu verziju: nepromenjena pravila se prenose bez ponovnog kompajliranja
+    public Map<Long, CompiledRule> byId() {
+        return Collections.unmodifiableMap(byId);
+    }
+
+    public LocalDateTime loadedAt() {
+        return loadedAt;
+    }
+
+    public int patternCount() {
+        return matcher.patternCount();
+    }
+
+    /**
+     * Jedan prolaz automata kroz poruku, pa provera samo onih pravila ciji je literal nadjen.
+     *
+     * @param seen pomocni niz duzine >= patternCount(), deli se izmedju dogadjaja jednog batch-a
+     * @param stamp jedinstvena vrednost po dogadjaju (da se seen ne mora brisati)
+     */
+    void match(DetectionEvent event, int[] seen, int stamp, Consumer<CompiledRule> onMatch) {
+        matcher.scan(event.message(), patternId -> {
+            if (seen[patternId] == stamp) {
+                return;  // isti literal vise puta u poruci
+            }
+            seen[patternId] = stamp;
+            for (CompiledRule rule : prefiltered[patternId]) {
+                if (rule.literalSufficient() || rule.condition().matches(event)) {
+                    onMatch.accept(rule);
+                }
+            }
+        });
+        for (CompiledRule rule : unfiltered) {
+            if (rule.condition().matches(event)) {
+                onMatch.accept(rule);
+            }
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package rs.igapp.aurora.server.detection;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import io.micrometer.core.instrument.Counter;
+
+/**
+ * SlidingWindow - Stanje vremenskog prozora jednog pravila, po kljucu (izvor, korisnik, IP...)
+ *
+ * Svrha:
+ * Pojedinacan dogadjaj ne govori mnogo - brute force, port scan i skokovi se vide tek u zbiru.
+ * Prozor se azurira inkrementalno, dogadjaj po dogadjaj, bez ijednog upita nad log_events.
+ *
+ * MEMORIJA (fiksni budzet):
+ * - Najvise maxKeys kljuceva po pravilu; LRU mapa izbacuje najduze neaktivan kljuc (evicted metrika)
+ * - Stanje jednog kljuca je ograniceno pragom pravila (npr. najvise N vremena za count >= N), a prsten
+ *   se alocira mali i raste tek kad kljuc zaista ima toliko dogadjaja
+ * - expire() uklanja kljuceve cija je poslednja aktivnost starija od sirine prozora
+ *
+ * VREME:
+ * Vreme je vreme dogadjaja (LogEvent.timestamp), ne vreme prijema - kasni batch se broji ispravno.
+ * - Vreme dalje od sada + maxSkew (pogresan sat agenta) se spusta na sada + maxSkew (clamped metrika).
+ *   Inace bi jedan dogadjaj "iz buducnosti" pomerio watermark i expire() bi obrisao sve kljuceve.
+ * - Dogadjaji cekaju u baferu do allowedLateness i ulaze u prozor poredjani po vremenu: dogadjaj se pusta
+ *   kad je najkasnije vidjeno vreme odmaklo za allowedLateness, ili kad je toliko cekao na sat (release()).
+ *   Watermark za expire() je vreme poslednjeg pustenog dogadjaja. Kasniji od toga se i dalje broje, ali
+ *   bez garancije redosleda.
+ *
+ * Kad pravilo okine, stanje tog kljuca se brise (sledeci alarm trazi novih N dogadjaja).
+ *
+ * Instanca zivi u CompiledRule, pa nepromenjeno pravilo zadrzava stanje kroz hot reload,
+ * a izmenjeno pravilo krece od praznog prozora. Pristup je sinhronizovan po pravilu.
+ */
+public abstract class SlidingWindow<S> {
+
+    /**
+     * Zajednicka ogranicenja svih prozora (aurora.detection.window.*).
+     *
+     * maxKeys          - kljucevi po pravilu (LRU), ujedno i najvise dogadjaja u baferu
+     * maxSkewMillis    - koliko vreme dogadjaja sme da bude ispred sata servera
+     * latenessMillis   - koliko dugo se ceka dogadjaj koji kasni (0 = bez bafera)
+     */
+    record Limits(int maxKeys, long maxSkewMillis, long latenessMillis, Counter evicted, Counter clamped) {
+    }
+
+    private final long widthMillis;
+    private final Function<DetectionEvent, String> keyExtractor;
+    private final Limits limits;
+    private final LinkedHashMap<String, Entry<S>> states;
+    private final PriorityQueue<Pending> pending = new PriorityQueue<>();
+
+    // Najkasnije vreme dogadjaja koje je stiglo (osnova za pustanje iz bafera)
+    private long latest = Long.MIN_VALUE;
+    // Najkasnije vreme pustenog dogadjaja (osnova za expire)
+    private long watermark = Long.MIN_VALUE;
+    private long arrivals;
+
+    protected SlidingWindow(long widthMillis, Function<DetectionEvent, String> keyExtractor, Limits limits) {
+        this.widthMillis = widthMillis;
+        this.keyExtractor = keyExtractor;
+        this.limits = limits;
+        this.states = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<S>> eldest) {
+                if (size() > limits.maxKeys()) {
+                    limits.evicted().increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Dogadjaj koji je prosao filter pravila. fired dobija svaki dogadjaj kojim je prag dostignut -
+     * to moze biti i raniji dogadjaj iz bafera, ne samo ovaj. Dogadjaj bez kljuca (npr. nema polja
+     * u rawData) se ne broji.
+     */
+    public synchronized void observe(DetectionEvent event, Consumer<DetectionEvent> fired) {
+        String key = keyExtractor.apply(event);
+        if (key == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long time = eventTime(event.timestamp());
+        latest = Math.max(latest, time);
+        pending.add(new Pending(time, arrivals++, now, key, event));
+        drain(now, fired);
+    }
+
+    /**
+     * Pusta dogadjaje koji su u baferu cekali allowedLateness po satu servera (periodicno, iz
+     * DetectionEngine-a) - bez ovoga bi poslednji dogadjaji mirnog toka cekali sledeci dogadjaj.
+     */
+    public synchronized void release(Consumer<DetectionEvent> fired) {
+        drain(System.currentTimeMillis(), fired);
+    }
+
+    private void drain(long now, Consumer<DetectionEvent> fired) {
+        long lateness = limits.latenessMillis();
+        while (!pending.isEmpty()) {
+            Pending next = pending.peek();
+            boolean due = next.time() <= latest - lateness
+                || next.arrivedAt() <= now - lateness
+                || pending.size() > limits.maxKeys();
+            if (!due) {
+                return;
+            }
+            pending.poll();
+            apply(next.key(), next.time(), next.event(), fired);
+        }
+    }
+
+    private void apply(String key, long time, DetectionEvent event, Consumer<DetectionEvent> fired) {
+        watermark = Math.max(watermark, time);
+
+        Entry<S> entry = states.get(key);
+        if (entry == null) {
+            entry = new Entry<>(newState());
+            states.put(key, entry);
+        }
+        entry.lastSeen = Math.max(entry.lastSeen, time);
+
+        if (update(entry.state, event, time, time - widthMillis)) {
+            states.remove(key);
+            fired.accept(event);
+        }
+    }
+
+    /**
+     * Uklanja kljuceve bez aktivnosti u poslednjoj sirini prozora (periodicno, iz DetectionEngine-a).
+     * LRU redosled = redosled poslednje aktivnosti, pa se staje na prvom zivom kljucu.
+     */
+    public synchronized int expire() {
+        long cutoff = watermark - widthMillis;
+        int removed = 0;
+        Iterator<Entry<S>> it = states.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().lastSeen >= cutoff) {
+                break;
+            }
+            it.remove();
+            removed++;
+        }
+        return removed;
+    }
+
+    public synchronized int keyCount() {
+        return states.size();
+    }
+
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    protected long widthMillis() {
+        return widthMillis;
+    }
+
+    protected abstract S newState();
+
+    /**
+     * Azurira stanje kljuca dogadjajem u trenutku time. Sve starije od cutoff je van prozora.
+     *
+     * @return true ako je uslov prozora ispunjen (pravilo okida)
+     */
+    protected abstract boolean update(S state, DetectionEvent event, long time, long cutoff);
+
+    // Vreme dogadjaja u istom (lokalnom) okviru kao LocalDateTime.now(); buducnost se spusta na now + maxSkew
+    private long eventTime(LocalDateTime timestamp) {
+        long now = epochMillis(LocalDateTime.now());
+        if (timestamp == null) {
+            return now;
+        }
+        long time = epochMillis(timestamp);
+        long limit = now + limits.maxSkewMillis();
+        if (time > limit) {
+            limits.clamped().increment();
+            return limit;
+        }
+        return time;
+    }
+
+    private static long epochMillis(LocalDateTime timestamp) {
+        return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private record Pending(long time, long sequence, long arrivedAt, String key, DetectionEvent event)
+            implements Comparable<Pending> {
+
+        @Override
+        public int compareTo(Pending other) {
+            int byTime = Long.compare(time, other.time);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static final class Entry<S> {
+
+        private final S state;
+        private long lastSeen = Long.MIN_VALUE;
+
+        private Entry(S state) {
+            this.state = state;
+        }
+    }
+
+    // ==================== VRSTE PROZORA ====================
+
+    /**
+     * count >= N: pamti najvise N poslednjih vremena (rastuci prsten), okida kad je svih N unutar prozora.
+     */
+    static final class Count extends SlidingWindow<Count.Times> {
+
+        private final int threshold;
+
+        Count(int threshold, long widthMillis, Function<DetectionEvent, String> keyExtractor, Limits limits) {
+            super(widthMillis, keyExtractor, limits);
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Times newState() {
+            return new Times(threshold);
+        }
+
+        @Override
+        protected boolean update(Times times, DetectionEvent event, long time, long cutoff) {
+            times.add(time);
+            times.dropBefore(times.newest() - widthMillis());
+            return times.size == threshold;
+        }
+
+        /**
+         * Vremena jednog kljuca, rastuce. Prsten pocinje sa INITIAL_CAPACITY mesta i duplira se do praga -
+         * kljuc sa jednim dogadjajem ne drzi niz od N vremena.
+         */
+        static final class Times {
+
+            static final int INITIAL_CAPACITY = 4;
+
+            private final int capacity;
+            private long[] ring;
+            private int head;
+            private int size;
+
+            Times(int capacity) {
+                this.capacity = capacity;
+                this.ring = new long[Math.min(capacity, INITIAL_CAPACITY)];
+            }
+
+            void add(long time) {
+                if (size == capacity) {
+                    if (time <= ring[head]) {
+                        return;  // pun prsten, a vreme je starije od svih sacuvanih
+                    }
+                    head = (head + 1) % ring.length;  // najstarije vreme ispada
+                    size--;
+                } else if (size == ring.length) {
+                    grow();
+                }
+                // Umetanje na mesto po vremenu; u redu stigli dogadjaji idu na kraj bez pomeranja
+                int position = size;
+                while (position > 0 && at(position - 1) > time) {
+                    ring[(head + position) % ring.length] = at(position - 1);
+                    position--;
+                }
+                ring[(head + position) % ring.length] = time;
+                size++;
+            }
+
+            void dropBefore(long cutoff) {
+                while (size > 0 && ring[head] < cutoff) {
+                    head = (head + 1) % ring.length;
+                    size--;
+                }
+            }
+
+            long newest() {
+                return at(size - 1);
+            }
+
+            int capacity() {
+                return ring.length;
+            }
+
+            private long at(int index) {
+                return ring[(head + index) % ring.length];
+            }
+
+            private void grow() {
+                long[] grown = new long[Math.min(capacity, ring.length * 2)];
+                for (int i = 0; i < size; i++) {
+                    grown[i] = at(i);
+                }
+                ring = grown;
+                head = 0;
+            }
+        }
+    }
+
+    /**
+     * distinct(polje) >= N: razlicite vrednosti polja u prozoru (npr. portovi po IP adresi).
+     * Pamti vrednosti sa vremenom poslednjeg pojavljivanja, manje od N (na N pravilo okida).
+     */
+    static final class Distinct extends SlidingWindow<LinkedHashMap<String, Long>> {
+
+        private final int threshold;
+        private final Function<DetectionEvent, String> valueExtractor;
+
+        Distinct(int threshold, Function<DetectionEvent, String> valueExtractor, long widthMillis,
+                 Function<DetectionEvent, String> keyExtractor, Limits limits) {
+            super(widthMillis, keyExtractor, limits);
+            this.threshold = threshold;
+            this.valueExtractor = valueExtractor;
+        }
+
+        @Override
+        protected LinkedHashMap<String, Long> newState() {
+            return new LinkedHashMap<>();
+        }
+
+        @Override
+        protected boolean update(LinkedHashMap<String, Long> values, DetectionEvent event, long time, long cutoff) {
+            String value = valueExtractor.apply(event);
+            if (value == null) {
+                return false;
+            }
+            Long previous = values.remove(value);  // ponovno umetanje = pomeranje na kraj (najsvezije)
+            values.put(value, previous != null ? Math.max(previous, time) : time);
+
+            Iterator<Long> it = values.values().iterator();
+            while (it.hasNext() && it.next() < cutoff) {
+                it.remove();
+            }
+            if (values.size() < threshold) {
+                return false;
+            }
+            // Kasni dogadjaj remeti redosled mape - pre okidanja tacno prebrojavanje
+            long newest = values.values().stream().mapToLong(Long::longValue).max().orElse(time);
+            values.values().removeIf(seen -> seen < newest - widthMillis());
+            return values.size() >= threshold;
+        }
+    }
+
+    /**
+     * sequence A -> B: B se desio unutar prozora posle A, za isti kljuc (npr. neuspesne prijave pa uspesna).
+     * Stanje je samo vreme poslednjeg A.
+     */
+    static final class Sequence extends SlidingWindow<long[]> {
+
+        private final RuleCondition first;
+        private final RuleCondition then;
+
+        Sequence(RuleCondition first, RuleCondition then, long widthMillis,
+                 Function<DetectionEvent, String> keyExtractor, Limits limits) {
+            super(widthMillis, keyExtractor, limits);
+            this.first = first;
+            this.then = then;
+        }
+
+        @Override
+        protected long[] newState() {
+            return new long[] {Long.MIN_VALUE};
+        }
+
+        @Override
+        protected boolean update(long[] lastFirst, DetectionEvent event, long time, long cutoff) {
+            if (lastFirst[0] != Long.MIN_VALUE && lastFirst[0] >= cutoff && lastFirst[0] <= time
+                    && then.matches(event)) {
+                return true;
+            }
+            if (first.matches(event)) {
+                lastFirst[0] = Math.max(lastFirst[0], time);
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package rs.igapp.aurora.server.diagnostics;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * VirtualThreadPinningMonitor - Prijavljuje virtuelne niti koje su blokirale zakacene za carrier nit
+ *
+ * Svrha:
+ * Zakacena (pinned) virtuelna nit koja blokira (JDBC socket, lock) drzi i svoju carrier nit, a carrier-a
+ * ima koliko i jezgara - par takvih poziva pod opterecenjem zaustavi sve HTTP zahteve. Od Jave 24
+ * synchronized vise ne kaci nit; ostaju native metode (JNI, neki driver-i), static inicijalizatori
+ * i pozivi kroz foreign funkcije. jdk.tracePinnedThreads vise ne postoji, pa se koristi JFR.
+ *
+ * TOK:
+ * - JFR RecordingStream u procesu prati dogadjaj jdk.VirtualThreadPinned duzi od pinned-threshold
+ * - svako kacenje se broji i meri; svako novo mesto se loguje jednom, sa stack-om
+ *   (mesto = prvi frame van JDK-a; vrh stack-a je uvek park u java.lang.VirtualThread)
+ *
+ * METRIKE:
+ * - aurora.threads.virtual.pinned   trajanje blokiranja zakacene niti (count = broj dogadjaja)
+ * - aurora.threads.virtual.pinned.sites   broj razlicitih mesta koja kace niti
+ *
+ * Radi samo sa spring.threads.virtual.enabled=true. Za detaljnu analizu: jcmd <pid> JFR.start
+ * pa u JDK Mission Control filtrirati jdk.VirtualThreadPinned.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int MAX_LOGGED_SITES = 1_000;
+    private static final int LOGGED_FRAMES = 12;
+
+    private final Duration threshold;
+    private final Timer pinned;
+    private final Counter sites;
+    private final Set<String> loggedSites = ConcurrentHashMap.newKeySet();
+
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry,
+                                       @Value("${aurora.threads.pinned-threshold:PT0.02S}") Duration threshold) {
+        this.threshold = threshold;
+        this.pinned = meterRegistry.timer("aurora.threads.virtual.pinned");
+        this.sites = meterRegistry.counter("aurora.threads.virtual.pinned.sites");
+    }
+
+    @PostConstruct
+    void start() {
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+        log.info("Watching virtual thread pinning longer than {}", threshold);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinned.record(event.getDuration());
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return;
+        }
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        String site = site(frames);
+        if (loggedSites.size() >= MAX_LOGGED_SITES || !loggedSites.add(site)) {
+            return;
+        }
+        sites.increment();
+        StringBuilder trace = new StringBuilder();
+        for (int i = 0; i < Math.min(frames.size(), LOGGED_FRAMES); i++) {
+            trace.append(System.lineSeparator()).append("\tat ").append(frame(frames.get(i)));
+        }
+        log.warn("Virtual thread {} pinned its carrier for {} ms at {}{}",
+            event.getThread() != null ? event.getThread().getJavaName() : "?",
+            event.getDuration().toMillis(), site, trace);
+    }
+
+    private static String site(List<RecordedFrame> frames) {
+        for (RecordedFrame frame : frames) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return frame(frame);
+            }
+        }
+        return frame(frames.get(0));
+    }
+
+    private static String frame(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+            + (frame.getLineNumber() > 0 ? ":" + frame.getLineNumber() : "");
+    }
+}
@@ -0,0 +1,323 @@
+package rs.igapp.aurora.server.heartbeat;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import rs.igapp.aurora.server.cache.ReferenceDataCache;
+
+/**
+ * HeartbeatTracker - Heartbeat-ovi izvora u memoriji, u bazu periodicno jednim bulk UPDATE-om
+ *
+ * Svrha:
+ * Hiljade agenata javlja se na par sekundi. Upis Source.lastHeartbeat red po red (save + @PreUpdate
+ * koji pomera updatedAt) je pravio stalan tok UPDATE-a i mrtvih verzija redova u sources.
+ * Sada heartbeat samo upise vreme u ConcurrentHashMap, a flush jednom u flush-interval salje
+ * JEDAN UPDATE ... FROM unnest(...) za sve izvore koji su se javili ili promenili stanje.
+ *
+ * HEARTBEAT JE:
+ * - svaki upisan dogadjaj izvora (LogEventIngestService - REST, binarni ingest, syslog), tek posle commit-a
+ *   batch-a: batch koji se vrati (rollback) nije dokaz da je izvor ziv
+ * - HELLO agenta na binarnom ingest-u (i periodicni HELLO kad agent nema sta da salje)
+ * Isti izvor u istoj sekundi se belezi samo jednom (jedno volatile citanje po dogadjaju).
+ *
+ * STANJE:
+ * - Na startu se ucitaju svi izvori (agent_id, last_heartbeat, is_active) - memorija je potpun pogled
+ * - Izvor bez heartbeat-a duze od stale-after postaje neaktivan (flush), prvi sledeci ga vraca u aktivne
+ * - Posle restarta servera (i posle create / update) aktivan izvor ima stale-after da se javi
+ *   (restart ne gasi sve izvore odjednom)
+ * - findByIsActive cita iz memorije; kolone u bazi kasne najvise flush-interval
+ * - Izmene kroz SourceService (create / update / delete) se primenjuju ovde posle commit-a
+ *
+ * Nepoznat agentId (nema ga u ReferenceDataCache) se ne pamti - HELLO sa izmisljenim id-em ne puni mapu,
+ * a ReferenceDataCache kratko pamti i da ne postoji, pa ponovljen HELLO ne ide u bazu.
+ * UPDATE ne dira updated_at: heartbeat nije izmena izvora.
+ */
+@Slf4j
+@Component
+public class HeartbeatTracker {
+
+    private static final String LOAD_SQL = "SELECT agent_id, last_heartbeat, is_active FROM sources";
+
+    // IS DISTINCT FROM: red koji vec ima iste vrednosti se ne prepisuje (nema nove verzije reda)
+    private static final String UPDATE_SQL =
+        "UPDATE sources AS s SET last_heartbeat = v.last_heartbeat, is_active = v.is_active "
+      + "FROM unnest(?, ?, ?) AS v (agent_id, last_heartbeat, is_active) "
+      + "WHERE s.agent_id = v.agent_id "
+      + "AND (s.last_heartbeat IS DISTINCT FROM v.last_heartbeat OR s.is_active IS DISTINCT FROM v.is_active)";
+
+    private static final int FLUSH_CHUNK = 5_000;
+    private static final long RESOLUTION_MILLIS = 1_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataCache referenceDataCache;
+    private final long staleAfterMillis;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final Map<String, Heartbeat> sources = new ConcurrentHashMap<>();
+    // Flush drzi lock dok ceka bazu - ReentrantLock ne kaci @Scheduled virtuelnu nit kao synchronized
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final Counter flushedRows;
+    private final Counter staleFlips;
+
+    public HeartbeatTracker(JdbcTemplate jdbcTemplate,
+                            ReferenceDataCache referenceDataCache,
+                            MeterRegistry meterRegistry,
+                            @Value("${aurora.heartbeat.stale-after:PT90S}") Duration staleAfter) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.referenceDataCache = referenceDataCache;
+        this.staleAfterMillis = staleAfter.toMillis();
+
+        this.flushedRows = meterRegistry.counter("aurora.heartbeat.flushed");
+        this.staleFlips = meterRegistry.counter("aurora.heartbeat.stale");
+        Gauge.builder("aurora.heartbeat.tracked", sources, Map::size).register(meterRegistry);
+        Gauge.builder("aurora.heartbeat.active", this, tracker -> tracker.count(true)).register(meterRegistry);
+    }
+
+    /**
+     * Stanje izvora kako ga vidi memorija (SourceService.findByIsActive preklapa njime podatke iz kesa).
+     */
+    public record SourceHeartbeat(String agentId, boolean active, LocalDateTime lastHeartbeat) {
+    }
+
+    // Menja se samo pod lock-om objekta; lastBeat je volatile da record moze da preskoci lock u istoj sekundi
+    private static final class Heartbeat {
+
+        private volatile long lastBeat;  // epoch millis, 0 = nikad
+        private boolean active;
+        private boolean dirty;
+        private long trackedSince = System.currentTimeMillis();  // stale-after se racuna najranije odavde
+
+        Heartbeat(long lastBeat, boolean active) {
+            this.lastBeat = lastBeat;
+            this.active = active;
+        }
+    }
+
+    @PostConstruct
+    void load() {
+        jdbcTemplate.query(LOAD_SQL, rs -> {
+            Timestamp lastHeartbeat = rs.getTimestamp("last_heartbeat");
+            sources.put(rs.getString("agent_id"),
+                new Heartbeat(lastHeartbeat != null ? lastHeartbeat.getTime() : 0, rs.getBoolean("is_active")));
+        });
+        log.info("Tracking heartbeats of {} sources ({} active)", sources.size(), count(true));
+    }
+
+    // ==================== BELEZENJE ====================
+
+    public void record(String agentId) {
+        if (agentId == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Heartbeat heartbeat = sources.get(agentId);
+        if (heartbeat == null) {
+            if (referenceDataCache.findSource(agentId).isEmpty()) {
+                return;
+            }
+            heartbeat = sources.computeIfAbsent(agentId, id -> new Heartbeat(0, false));
+        }
+        if (now - heartbeat.lastBeat < RESOLUTION_MILLIS) {
+            return;
+        }
+        synchronized (heartbeat) {
+            heartbeat.lastBeat = now;
+            heartbeat.active = true;
+            heartbeat.dirty = true;
+        }
+    }
+
+    /**
+     * Heartbeat-ovi izvora ciji su dogadjaji upisani u tekucoj transakciji - belezi ih tek posle commit-a.
+     */
+    public void recordAfterCommit(Collection<String> agentIds) {
+        if (!agentIds.isEmpty()) {
+            afterCommit(() -> agentIds.forEach(this::record));
+        }
+    }
+
+    /**
+     * Izvor napravljen ili izmenjen kroz SourceService - primenjuje se posle commit-a.
+     */
+    public void track(String agentId, Boolean active, LocalDateTime lastHeartbeat) {
+        afterCommit(() -> {
+            long lastBeat = lastHeartbeat != null ? lastHeartbeat.atZone(zone).toInstant().toEpochMilli() : 0;
+            Heartbeat heartbeat = sources.computeIfAbsent(agentId, id -> new Heartbeat(lastBeat, false));
+            synchronized (heartbeat) {
+                heartbeat.active = Boolean.TRUE.equals(active);
+                heartbeat.lastBeat = Math.max(heartbeat.lastBeat, lastBeat);
+                heartbeat.trackedSince = System.currentTimeMillis();
+            }
+        });
+    }
+
+    public void forget(String agentId) {
+        afterCommit(() -> sources.remove(agentId));
+    }
+
+    // ==================== CITANJE ====================
+
+    public List<SourceHeartbeat> findByIsActive(boolean active) {
+        List<SourceHeartbeat> result = new ArrayList<>();
+        sources.forEach((agentId, heartbeat) -> {
+            synchronized (heartbeat) {
+                if (heartbeat.active == active) {
+                    result.add(new SourceHeartbeat(agentId, active, toDateTime(heartbeat.lastBeat)));
+                }
+            }
+        });
+        return result;
+    }
+
+    private long count(boolean active) {
+        long count = 0;
+        for (Heartbeat heartbeat : sources.values()) {
+            synchronized (heartbeat) {
+                if (heartbeat.active == active) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    // ==================== FLUSH ====================
+
+    @Scheduled(fixedDelayString = "${aurora.heartbeat.flush-interval:PT15S}")
+    public void scheduledFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Flushing heartbeats failed, will retry", e);
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        scheduledFlush();
+    }
+
+    /**
+     * Gasi izvore koji se nisu javili u stale-after i upisuje sve promenjene u bazu.
+     * Ako upis padne, izvori ostaju oznaceni za sledeci flush.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushLocked();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushLocked() {
+        long now = System.currentTimeMillis();
+        long cutoff = now - staleAfterMillis;
+        List<String> agentIds = new ArrayList<>();
+        List<Timestamp> lastBeats = new ArrayList<>();
+        List<Boolean> active = new ArrayList<>();
+        int stale = 0;
+
+        for (Map.Entry<String, Heartbeat> entry : sources.entrySet()) {
+            Heartbeat heartbeat = entry.getValue();
+            synchronized (heartbeat) {
+                if (heartbeat.active && Math.max(heartbeat.lastBeat, heartbeat.trackedSince) < cutoff) {
+                    heartbeat.active = false;
+                    heartbeat.dirty = true;
+                    stale++;
+                }
+                if (heartbeat.dirty) {
+                    heartbeat.dirty = false;
+                    agentIds.add(entry.getKey());
+                    lastBeats.add(heartbeat.lastBeat > 0 ? new Timestamp(heartbeat.lastBeat) : null);
+                    active.add(heartbeat.active);
+                }
+            }
+        }
+        staleFlips.increment(stale);
+        if (stale > 0) {
+            log.info("{} sources went stale (no heartbeat for {} ms)", stale, staleAfterMillis);
+        }
+
+        for (int from = 0; from < agentIds.size(); from += FLUSH_CHUNK) {
+            int to = Math.min(from + FLUSH_CHUNK, agentIds.size());
+            try {
+                update(agentIds.subList(from, to), lastBeats.subList(from, to), active.subList(from, to));
+                flushedRows.increment(to - from);
+            } catch (RuntimeException e) {
+                markDirty(agentIds.subList(from, agentIds.size()));
+                throw e;
+            }
+        }
+    }
+
+    private void update(List<String> agentIds, List<Timestamp> lastBeats, List<Boolean> active) {
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(UPDATE_SQL);
+            statement.setArray(1, array(connection, "varchar", agentIds.toArray()));
+            statement.setArray(2, array(connection, "timestamp", lastBeats.toArray()));
+            statement.setArray(3, array(connection, "bool", active.toArray()));
+            return statement;
+        });
+    }
+
+    private void markDirty(List<String> agentIds) {
+        for (String agentId : agentIds) {
+            Heartbeat heartbeat = sources.get(agentId);
+            if (heartbeat != null) {
+                synchronized (heartbeat) {
+                    heartbeat.dirty = true;
+                }
+            }
+        }
+    }
+
+    // ==================== POMOCNE METODE ====================
+
+    private static Array array(Connection connection, String type, Object[] values) throws SQLException {
+        return connection.createArrayOf(type, values);
+    }
+
+    private LocalDateTime toDateTime(long epochMillis) {
+        return epochMillis > 0 ? LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), zone) : null;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
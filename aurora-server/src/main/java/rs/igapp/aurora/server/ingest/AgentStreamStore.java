@@ -0,0 +1,44 @@
+package rs.igapp.aurora.server.ingest;
+
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * AgentStreamStore - Trajna pozicija agenata binarnog ingest-a (tabela agent_streams)
+ *
+ * save se poziva iz IngestTicket.beforeCommit, u transakciji u kojoj su i dogadjaji batch-a
+ * (JdbcTemplate koristi istu konekciju kao JPA transakcija), pa pozicija i dogadjaji postaju vidljivi
+ * zajedno. loadAll cita sve pozicije na startu BinaryIngestServer-a.
+ */
+@Component
+public class AgentStreamStore {
+
+    private static final String LOAD_SQL = "SELECT agent_id, stream_id, last_seq, last_accepted FROM agent_streams";
+
+    private static final String SAVE_SQL =
+        "INSERT INTO agent_streams (agent_id, stream_id, last_seq, last_accepted, updated_at) VALUES (?, ?, ?, ?, now()) "
+      + "ON CONFLICT (agent_id) DO UPDATE SET stream_id = EXCLUDED.stream_id, last_seq = EXCLUDED.last_seq, "
+      + "last_accepted = EXCLUDED.last_accepted, updated_at = EXCLUDED.updated_at";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AgentStreamStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public record Position(String agentId, long streamId, long lastSeq, int lastAccepted) {
+    }
+
+    public List<Position> loadAll() {
+        return jdbcTemplate.query(LOAD_SQL, (rs, row) -> new Position(
+            rs.getString("agent_id"), rs.getLong("stream_id"), rs.getLong("last_seq"), rs.getInt("last_accepted")));
+    }
+
+    // U transakciji pozivaoca
+    public void save(Position position) {
+        jdbcTemplate.update(SAVE_SQL,
+            position.agentId(), position.streamId(), position.lastSeq(), position.lastAccepted());
+    }
+}
@@ -0,0 +1,657 @@
+package rs.igapp.aurora.server.ingest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Inflater;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import rs.igapp.aurora.api.dto.request.LogEventRequest;
+import rs.igapp.aurora.api.protocol.IngestAck;
+import rs.igapp.aurora.api.protocol.IngestProtocol;
+import rs.igapp.aurora.api.protocol.IngestProtocol.FrameHeader;
+import rs.igapp.aurora.api.protocol.IngestProtocolException;
+import rs.igapp.aurora.server.cache.ReferenceDataCache;
+import rs.igapp.aurora.server.heartbeat.HeartbeatTracker;
+
+/**
+ * BinaryIngestServer - TCP ulaz za agente (IngestProtocol preko neblokirajuceg NIO-a)
+ *
+ * Svrha:
+ * REST prima JSON preko Spring MVC-a, jedan HTTP zahtev po pozivu. Agent ovde drzi jednu konekciju
+ * i salje batch-eve kao binarne frame-ove (opciono Deflate); dogadjaji idu u isti IngestQueue
+ * kao POST /api/log-events/async, pa su upis, detekcija i rollup-i isti za oba ulaza.
+ *
+ * NITI:
+ * Jedna acceptor nit prima konekcije i deli ih round-robin na io-threads petlji; svaka petlja ima
+ * svoj Selector, svoj Inflater i svoj bafer za raspakivanje. Citanje, dekodiranje i offer u red
+ * rade na niti petlje - nema predaje izmedju niti po frame-u. Radna nit IngestQueue-a posle commit-a
+ * predaje potvrdu petlji (red + selector.wakeup), a ACK salje petlja.
+ *
+ * BAFERI:
+ * Header se cita u mali bafer konekcije, payload u bafer iz BufferPool-a (najvise max-frame-size).
+ * Dekoder cita direktno iz tog bafera (IngestProtocol.decodeEvents) i vraca ga u pool odmah posle offer-a.
+ *
+ * KONTROLA TOKA (po konekciji):
+ * - Dok batch nije commit-ovan i ACK poslat, sa konekcije se ne cita - agent koji ne cita odgovore
+ *   ne moze da gomila frame-ove
+ * - Kad red prihvati samo deo batch-a: ACK THROTTLED + accepted, pa konekcija ne cita retry-after
+ * - Kad je red popunjen iznad high-watermark, nijedna konekcija ne cita: TCP prozor se puni
+ *   i agentu blokira write (backpressure bez odbacivanja)
+ * - Kad je pool prazan, konekcija ceka slobodan bafer umesto da alocira
+ * Neispravan frame: ACK REJECTED pa zatvaranje konekcije.
+ *
+ * PROVERE:
+ * - dekodirani dogadjaji prolaze IngestRequestValidator (Bean Validation + izvor / bitnost postoje),
+ *   kao i REST - neispravan batch je REJECTED, ne gubi se tek na radnoj niti
+ * - HELLO sa agentId-em koji nije izvor u bazi je REJECTED - stanje agenata raste najvise do broja izvora
+ *   (ReferenceDataCache pamti i nepoznate id-eve, pa ponovljen HELLO ne ide u bazu)
+ * - neocekivana greska pri obradi jedne konekcije zatvara samo tu konekciju, petlja nastavlja
+ *
+ * ACK POSLE COMMIT-A:
+ * Batch ide u IngestQueue sa IngestTicket-om i ACK se salje tek kad je transakcija sa njegovim dogadjajima
+ * commit-ovana - agent oslobadja zapis u spool-u tek tada, pa pad servera ili greska upisa ne gube
+ * potvrdjene dogadjaje. Prolazna greska baze: THROTTLED sa brojem vec upisanih, agent ponavlja isti frame.
+ *
+ * PONAVLJANJE BEZ DUPLIKATA:
+ * Agent se predstavlja HELLO frame-om, a server po agentu pamti poslednji commit-ovan batchSeq i koliko je
+ * dogadjaja iz njega upisano. Stariji ili vec upisan batch se potvrdjuje bez ubacivanja, delimicno upisan
+ * (THROTTLED) nastavlja od prvog neupisanog dogadjaja. Odgovor na HELLO kaze agentu dokle je stigao,
+ * pa spool posle prekida salje samo ono sto server nije upisao. Batch koji agent ponovo posalje dok
+ * prethodno slanje jos ceka commit (nova konekcija) dobija THROTTLED - ne ubacuje se dvaput.
+ * Novi streamId u HELLO (agent sa novim spool-om krece od batchSeq 1) ponistava stanje agenta.
+ * Pozicija se upisuje u agent_streams u istoj transakciji kao dogadjaji (AgentStreamStore) i ucitava
+ * na startu, pa dedup vazi i posle restarta servera.
+ * HELLO je i heartbeat agenta (HeartbeatTracker): agent bez dogadjaja ga salje na heartbeat-interval.
+ * Agent cija je max-frame-size (opciono u HELLO) veca od serverove dobija REJECTED sa serverovom granicom.
+ *
+ * METRIKE:
+ * - aurora.ingest.binary.connections       otvorene konekcije
+ * - aurora.ingest.binary.frames            obradjeni EVENTS frame-ovi
+ * - aurora.ingest.binary.events            upisani dogadjaji (commit-ovani, potvrdjeni agentu)
+ * - aurora.ingest.binary.bytes             primljeni bajtovi (header + payload, pre raspakivanja)
+ * - aurora.ingest.binary.throttled         dogadjaji vraceni agentu (pun red ili neuspeo upis)
+ * - aurora.ingest.binary.rejected          neispravni frame-ovi
+ * - aurora.ingest.binary.duplicates        dogadjaji iz ponovo poslatih batch-eva (potvrdjeni, nisu ubaceni)
+ * - aurora.ingest.binary.buffers.available slobodni baferi u pool-u
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "aurora.ingest.binary.enabled", havingValue = "true")
+public class BinaryIngestServer {
+
+    private static final long TICK_MILLIS = 50;
+    private static final int MAX_FRAMES_PER_READ = 16;
+
+    private final IngestQueue ingestQueue;
+    private final IngestRequestValidator ingestRequestValidator;
+    private final AgentStreamStore agentStreamStore;
+    private final ReferenceDataCache referenceDataCache;
+    private final HeartbeatTracker heartbeatTracker;
+    private final int port;
+    private final int ioThreads;
+    private final int maxFrameSize;
+    private final double highWatermark;
+    private final long retryAfterNanos;
+    private final BufferPool bufferPool;
+
+    private final AtomicInteger connections = new AtomicInteger();
+    private final Counter frames;
+    private final Counter events;
+    private final Counter bytes;
+    private final Counter throttled;
+    private final Counter rejected;
+    private final Counter duplicates;
+    private final Map<String, AgentState> agents = new ConcurrentHashMap<>();
+
+    private ServerSocketChannel serverChannel;
+    private Thread acceptor;
+    private final List<IoLoop> loops = new ArrayList<>();
+    private volatile boolean running;
+    private int pauseDepth;
+
+    public BinaryIngestServer(IngestQueue ingestQueue,
+                              IngestRequestValidator ingestRequestValidator,
+                              AgentStreamStore agentStreamStore,
+                              ReferenceDataCache referenceDataCache,
+                              HeartbeatTracker heartbeatTracker,
+                              MeterRegistry meterRegistry,
+                              @Value("${aurora.ingest.binary.port:5170}") int port,
+                              @Value("${aurora.ingest.binary.io-threads:2}") int ioThreads,
+                              @Value("${aurora.ingest.binary.max-frame-size:1048576}") int maxFrameSize,
+                              @Value("${aurora.ingest.binary.buffers:64}") int buffers,
+                              @Value("${aurora.ingest.binary.high-watermark:0.9}") double highWatermark,
+                              @Value("${aurora.ingest.queue.retry-after-seconds:1}") long retryAfterSeconds) {
+        this.ingestQueue = ingestQueue;
+        this.ingestRequestValidator = ingestRequestValidator;
+        this.agentStreamStore = agentStreamStore;
+        this.referenceDataCache = referenceDataCache;
+        this.heartbeatTracker = heartbeatTracker;
+        this.port = port;
+        this.ioThreads = ioThreads;
+        this.maxFrameSize = maxFrameSize;
+        this.highWatermark = highWatermark;
+        this.retryAfterNanos = TimeUnit.SECONDS.toNanos(retryAfterSeconds);
+        this.bufferPool = new BufferPool(buffers, maxFrameSize);
+
+        Gauge.builder("aurora.ingest.binary.connections", connections, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("aurora.ingest.binary.buffers.available", bufferPool, BufferPool::available).register(meterRegistry);
+        this.frames = meterRegistry.counter("aurora.ingest.binary.frames");
+        this.events = meterRegistry.counter("aurora.ingest.binary.events");
+        this.bytes = meterRegistry.counter("aurora.ingest.binary.bytes");
+        this.throttled = meterRegistry.counter("aurora.ingest.binary.throttled");
+        this.rejected = meterRegistry.counter("aurora.ingest.binary.rejected");
+        this.duplicates = meterRegistry.counter("aurora.ingest.binary.duplicates");
+    }
+
+    @PostConstruct
+    void start() {
+        for (AgentStreamStore.Position position : agentStreamStore.loadAll()) {
+            AgentState agent = new AgentState(position.agentId());
+            agent.streamId = position.streamId();
+            agent.lastSeq = position.lastSeq();
+            agent.lastAccepted = position.lastAccepted();
+            agents.put(position.agentId(), agent);
+        }
+        pauseDepth = (int) ((ingestQueue.depth() + ingestQueue.remainingCapacity()) * highWatermark);
+        try {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            serverChannel.bind(new InetSocketAddress(port), 1024);
+            for (int i = 0; i < ioThreads; i++) {
+                loops.add(new IoLoop(Selector.open()));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot start binary ingest on port " + port, e);
+        }
+
+        running = true;
+        for (int i = 0; i < loops.size(); i++) {
+            Thread thread = new Thread(loops.get(i), "aurora-binary-ingest-io-" + i);
+            thread.setDaemon(true);
+            loops.get(i).thread = thread;
+            thread.start();
+        }
+        acceptor = new Thread(this::acceptLoop, "aurora-binary-ingest-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("Binary ingest listening on port {} ({} io threads, max frame {} bytes)", port, ioThreads, maxFrameSize);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            log.warn("Closing binary ingest listener failed", e);
+        }
+        acceptor.join(TimeUnit.SECONDS.toMillis(5));
+        for (IoLoop loop : loops) {
+            loop.selector.wakeup();
+            loop.thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    // ==================== PRIHVATANJE ====================
+
+    private void acceptLoop() {
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                loops.get(next++ % loops.size()).register(channel);
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                log.warn("Accepting binary ingest connection failed", e);
+            }
+        }
+    }
+
+    private boolean saturated() {
+        return ingestQueue.depth() >= pauseDepth;
+    }
+
+    // Poslednji commit-ovan batch agenta; menja se samo pod lock-om (agent moze imati staru i novu konekciju)
+    private static final class AgentState {
+
+        private final String agentId;
+        private long streamId;
+        private long lastSeq;
+        private int lastAccepted;
+        private long inFlightSeq;  // batch koji ceka commit, 0 = nijedan
+
+        AgentState(String agentId) {
+            this.agentId = agentId;
+        }
+    }
+
+    // ==================== IO PETLJA ====================
+
+    private final class IoLoop implements Runnable {
+
+        private final Selector selector;
+        private final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<>();
+        private final Queue<Runnable> commits = new ConcurrentLinkedQueue<>();
+        private final Inflater inflater = new Inflater(true);
+        private final ByteBuffer inflated = ByteBuffer.allocate(maxFrameSize);
+        private Thread thread;
+
+        IoLoop(Selector selector) {
+            this.selector = selector;
+        }
+
+        void register(SocketChannel channel) {
+            pending.add(channel);
+            selector.wakeup();
+        }
+
+        // Sa radne niti IngestQueue-a: potvrda se obradjuje (i ACK salje) na niti petlje
+        void committed(Runnable completion) {
+            commits.add(completion);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    registerPending();
+                    runCommits();
+                    updateInterest();
+                    selector.select(TICK_MILLIS);
+                    Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                    while (selected.hasNext()) {
+                        SelectionKey key = selected.next();
+                        selected.remove();
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isValid() && key.isWritable()) {
+                                connection.flush();
+                            }
+                            if (key.isValid() && key.isReadable()) {
+                                connection.read(this);
+                            }
+                        } catch (IngestProtocolException | InvalidIngestRequestException e) {
+                            connection.reject(e);
+                        } catch (IOException e) {
+                            log.debug("Binary ingest connection {} failed", connection.remote, e);
+                            connection.close();
+                        } catch (RuntimeException e) {
+                            log.error("Binary ingest connection {} failed unexpectedly, closing it", connection.remote, e);
+                            connection.close();
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.error("Binary ingest selector failed", e);
+                }
+            }
+            for (SelectionKey key : selector.keys()) {
+                ((Connection) key.attachment()).close();
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                log.warn("Closing binary ingest selector failed", e);
+            }
+            inflater.end();
+        }
+
+        private void registerPending() {
+            SocketChannel channel;
+            while ((channel = pending.poll()) != null) {
+                try {
+                    Connection connection = new Connection(channel);
+                    connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                    connections.incrementAndGet();
+                    log.debug("Binary ingest connection from {}", connection.remote);
+                } catch (IOException e) {
+                    log.warn("Registering binary ingest connection failed", e);
+                    try {
+                        channel.close();
+                    } catch (IOException ignored) {
+                        // vec zatvorena
+                    }
+                }
+            }
+        }
+
+        private void runCommits() {
+            Runnable completion;
+            while ((completion = commits.poll()) != null) {
+                try {
+                    completion.run();
+                } catch (RuntimeException e) {
+                    log.error("Completing binary ingest batch failed", e);
+                }
+            }
+        }
+
+        // Kontrola toka: interest set svake konekcije prati stanje reda, ACK-a i pauze
+        private void updateInterest() {
+            boolean saturated = saturated();
+            long now = System.nanoTime();
+            for (SelectionKey key : selector.keys()) {
+                if (key.isValid()) {
+                    int ops = ((Connection) key.attachment()).interestOps(saturated, now);
+                    if (key.interestOps() != ops) {
+                        key.interestOps(ops);
+                    }
+                }
+            }
+        }
+    }
+
+    // ==================== KONEKCIJA ====================
+
+    private final class Connection {
+
+        private final SocketChannel channel;
+        private final String remote;
+        private final ByteBuffer header = ByteBuffer.allocate(IngestProtocol.HEADER_SIZE);
+        private final ByteBuffer ack = ByteBuffer.allocate(IngestProtocol.ACK_FRAME_SIZE).limit(0);
+        private SelectionKey key;
+
+        private FrameHeader frame;
+        private ByteBuffer body;
+        private AgentState agent;
+        private long batchSeq;
+        private long resumeAt;
+        private boolean awaitingCommit;
+        private boolean closing;
+        private boolean closed;
+
+        Connection(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            this.remote = String.valueOf(channel.getRemoteAddress());
+            this.resumeAt = System.nanoTime();
+        }
+
+        int interestOps(boolean saturated, long now) {
+            if (ack.hasRemaining()) {
+                return SelectionKey.OP_WRITE;
+            }
+            if (awaitingCommit || closing || saturated || now - resumeAt < 0) {
+                return 0;
+            }
+            if (frame != null && body == null && bufferPool.available() == 0) {
+                return 0;
+            }
+            return SelectionKey.OP_READ;
+        }
+
+        void read(IoLoop loop) throws IOException {
+            for (int i = 0; i < MAX_FRAMES_PER_READ; i++) {
+                if (frame == null) {
+                    if (channel.read(header) < 0) {
+                        close();
+                        return;
+                    }
+                    if (header.hasRemaining()) {
+                        return;
+                    }
+                    header.flip();
+                    frame = IngestProtocol.readHeader(header, maxFrameSize);
+                    batchSeq = frame.batchSeq();
+                    header.clear();
+                    if (frame.type() == IngestProtocol.TYPE_ACK) {
+                        throw new IngestProtocolException("Unexpected ACK frame from client");
+                    }
+                }
+                if (body == null) {
+                    body = bufferPool.acquire();
+                    if (body == null) {
+                        return;
+                    }
+                    body.limit(frame.length());
+                }
+                if (channel.read(body) < 0) {
+                    close();
+                    return;
+                }
+                if (body.hasRemaining()) {
+                    return;
+                }
+                body.flip();
+                process(loop);
+                if (ack.hasRemaining() || awaitingCommit || closing || System.nanoTime() - resumeAt < 0 || saturated()) {
+                    return;
+                }
+            }
+        }
+
+        private void process(IoLoop loop) throws IOException {
+            try {
+                bytes.increment(IngestProtocol.HEADER_SIZE + frame.length());
+                if (frame.type() == IngestProtocol.TYPE_HELLO) {
+                    hello(IngestProtocol.decodeHello(body));
+                    return;
+                }
+                ByteBuffer payload = frame.deflated() ? IngestProtocol.inflate(loop.inflater, body, loop.inflated) : body;
+                List<LogEventRequest> batch = IngestProtocol.decodeEvents(payload);
+                ingestRequestValidator.validate(batch);
+                frames.increment();
+                offer(loop, batch);
+            } finally {
+                bufferPool.release(body);
+                body = null;
+                frame = null;
+            }
+        }
+
+        private void hello(IngestProtocol.Hello hello) throws IOException {
+            if (referenceDataCache.findSource(hello.agentId()).isEmpty()) {
+                throw new IngestProtocolException("Unknown agent " + hello.agentId() + " - register it as a source first");
+            }
+            if (hello.maxFrameSize() > maxFrameSize) {
+                // Agent bi slao frame-ove koje server odbija - REJECTED nosi serverovu granicu
+                rejected.increment();
+                log.warn("Agent {} from {} has max frame size {}, server accepts {}",
+                    hello.agentId(), remote, hello.maxFrameSize(), maxFrameSize);
+                closing = true;
+                sendAck(0, IngestAck.Status.REJECTED, maxFrameSize);
+                return;
+            }
+            agent = agents.computeIfAbsent(hello.agentId(), AgentState::new);
+            long lastSeq;
+            int lastAccepted;
+            synchronized (agent) {
+                if (agent.streamId != hello.streamId()) {
+                    agent.streamId = hello.streamId();
+                    agent.lastSeq = 0;
+                    agent.lastAccepted = 0;
+                    agent.inFlightSeq = 0;
+                }
+                lastSeq = agent.lastSeq;
+                lastAccepted = agent.lastAccepted;
+            }
+            heartbeatTracker.record(hello.agentId());
+            log.debug("Agent {} {} hello from {}, last batch {}", hello.agentId(), hello.agentVersion(), remote, lastSeq);
+            sendAck(lastSeq, IngestAck.Status.ACCEPTED, lastAccepted);
+        }
+
+        // Ubacuje samo dogadjaje koje server za ovaj batchSeq jos nije upisao; ACK salje tek posle commit-a
+        private void offer(IoLoop loop, List<LogEventRequest> batch) throws IOException {
+            int skip = 0;
+            long streamId = 0;
+            if (agent != null) {
+                synchronized (agent) {
+                    if (batchSeq < agent.lastSeq || (batchSeq == agent.lastSeq && agent.lastAccepted >= batch.size())) {
+                        duplicates.increment(batch.size());
+                        sendAck(batchSeq, IngestAck.Status.ACCEPTED, batch.size());
+                        return;
+                    }
+                    skip = batchSeq == agent.lastSeq ? agent.lastAccepted : 0;
+                    if (agent.inFlightSeq != 0) {
+                        // Prethodno slanje (stara konekcija) jos ceka commit - agent ponavlja posle retry-after
+                        throttle(batchSeq, batch.size(), skip);
+                        return;
+                    }
+                    agent.inFlightSeq = batchSeq;
+                    streamId = agent.streamId;
+                }
+            }
+            duplicates.increment(skip);
+            Commit commit = new Commit(loop, this, agent, streamId, batchSeq, skip, batch.size());
+            if (ingestQueue.offerAll(skip == 0 ? batch : batch.subList(skip, batch.size()), commit) == 0) {
+                commit.finish(0, false);
+                return;
+            }
+            awaitingCommit = true;
+        }
+
+        // Na niti petlje, posle commit-a (ili neuspeha) batch-a; stanje agenta se menja i kad je konekcija zatvorena
+        void committed(Commit commit, int written, boolean ok) {
+            int accepted = commit.skip + (ok ? written : 0);
+            if (commit.agent != null) {
+                synchronized (commit.agent) {
+                    boolean sameStream = commit.agent.streamId == commit.streamId;
+                    if (sameStream && commit.agent.inFlightSeq == commit.batchSeq) {
+                        commit.agent.inFlightSeq = 0;
+                    }
+                    if (sameStream && ok) {
+                        commit.agent.lastSeq = commit.batchSeq;
+                        commit.agent.lastAccepted = accepted;
+                    }
+                }
+            }
+            if (ok) {
+                events.increment(written);
+            }
+            awaitingCommit = false;
+            if (closed) {
+                return;
+            }
+            try {
+                if (accepted < commit.batchSize) {
+                    throttle(commit.batchSeq, commit.batchSize, accepted);
+                } else {
+                    sendAck(commit.batchSeq, IngestAck.Status.ACCEPTED, accepted);
+                }
+            } catch (IOException e) {
+                log.debug("Binary ingest connection {} failed", remote, e);
+                close();
+            }
+        }
+
+        private void throttle(long batchSeq, int batchSize, int accepted) throws IOException {
+            throttled.increment(batchSize - accepted);
+            resumeAt = System.nanoTime() + retryAfterNanos;
+            sendAck(batchSeq, IngestAck.Status.THROTTLED, accepted);
+        }
+
+        void reject(RuntimeException e) {
+            rejected.increment();
+            log.warn("Rejected binary ingest frame from {}: {}", remote, e.getMessage());
+            bufferPool.release(body);
+            body = null;
+            frame = null;
+            closing = true;
+            try {
+                sendAck(batchSeq, IngestAck.Status.REJECTED, 0);
+            } catch (IOException ex) {
+                close();
+            }
+        }
+
+        private void sendAck(long batchSeq, IngestAck.Status status, int accepted) throws IOException {
+            ack.clear();
+            IngestProtocol.writeAck(ack, batchSeq, status, accepted);
+            ack.flip();
+            flush();
+        }
+
+        void flush() throws IOException {
+            channel.write(ack);
+            if (!ack.hasRemaining() && closing) {
+                close();
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (key != null) {
+                key.cancel();
+            }
+            bufferPool.release(body);
+            body = null;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Closing binary ingest connection {} failed", remote, e);
+            }
+            connections.decrementAndGet();
+        }
+    }
+
+    // ==================== POTVRDA COMMIT-A ====================
+
+    // Ticket jednog EVENTS frame-a: pozicija agenta u transakciji batch-a, ACK na niti petlje posle nje
+    private final class Commit implements IngestTicket {
+
+        private final IoLoop loop;
+        private final Connection connection;
+        private final AgentState agent;
+        private final long streamId;
+        private final long batchSeq;
+        private final int skip;
+        private final int batchSize;
+
+        Commit(IoLoop loop, Connection connection, AgentState agent, long streamId, long batchSeq, int skip, int batchSize) {
+            this.loop = loop;
+            this.connection = connection;
+            this.agent = agent;
+            this.streamId = streamId;
+            this.batchSeq = batchSeq;
+            this.skip = skip;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public void beforeCommit(int events) {
+            if (agent != null) {
+                agentStreamStore.save(new AgentStreamStore.Position(agent.agentId, streamId, batchSeq, skip + events));
+            }
+        }
+
+        @Override
+        public void completed(int events, boolean committed) {
+            loop.committed(() -> finish(events, committed));
+        }
+
+        void finish(int events, boolean committed) {
+            connection.committed(this, events, committed);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package rs.igapp.aurora.server.ingest;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BufferPool - Ograniceni skup bafera iste velicine za payload-e binarnog ingest-a
+ *
+ * Baferi se alociraju lenjo, najvise maxBuffers, i posle release-a se ponovo koriste - nema
+ * alokacije po frame-u i ukupna memorija je ogranicena (maxBuffers x bufferSize).
+ * Kad je pool prazan, acquire vraca null i konekcija prestaje da cita dok se bafer ne oslobodi.
+ *
+ * Heap (ne direct) baferi: dekoder pravi stringove direktno iz backing niza, bez medjukopije.
+ */
+public class BufferPool {
+
+    private final ArrayBlockingQueue<ByteBuffer> free;
+    private final AtomicInteger allocated = new AtomicInteger();
+    private final int maxBuffers;
+    private final int bufferSize;
+
+    public BufferPool(int maxBuffers, int bufferSize) {
+        this.free = new ArrayBlockingQueue<>(maxBuffers);
+        this.maxBuffers = maxBuffers;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Clear-ovan bafer, ili null ako su svi zauzeti.
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        if (buffer != null) {
+            return buffer;
+        }
+        if (allocated.incrementAndGet() <= maxBuffers) {
+            return ByteBuffer.allocate(bufferSize);
+        }
+        allocated.decrementAndGet();
+        return null;
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer != null) {
+            free.offer(buffer.clear());
+        }
+    }
+
+    public int available() {
+        return free.size() + maxBuffers - allocated.get();
+    }
+}
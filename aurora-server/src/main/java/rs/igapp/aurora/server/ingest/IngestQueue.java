@@ -0,0 +1,364 @@
+package rs.igapp.aurora.server.ingest;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import rs.igapp.aurora.api.dto.request.LogEventRequest;
+import rs.igapp.aurora.server.service.LogEventIngestService;
+
+/**
+ * IngestQueue - Asinhroni ulaz izmedju REST-a i baze
+ *
+ * Svrha:
+ * Spor commit u Postgres-u je blokirao HTTP nit tokom celog LogEventService.create poziva.
+ * Sada REST samo ubaci zahtev u ograniceni red i odmah odgovori, a radne niti prazne red
+ * u batch-eve i upisuju ih preko LogEventIngestService.
+ *
+ * RED:
+ * Stavka reda je lista dogadjaja koja se upisuje u istoj transakciji (jedan offerAll), opciono sa
+ * IngestTicket-om. Kapacitet se broji u dogadjajima, ne u stavkama. Radna nit uzima stavke dok ne skupi
+ * batch-size dogadjaja - stavka se nikad ne deli, pa batch moze biti veci od batch-size za jednu stavku.
+ *
+ * POTVRDA UPISA (IngestTicket):
+ * Binarni ingest ne potvrdjuje batch agentu kad je u redu, vec tek kad je commit-ovan: ticket.beforeCommit
+ * se izvrsava u transakciji batch-a (pozicija agenta ide u isti commit), a ticket.completed posle nje.
+ * REST i syslog ubacuju bez ticket-a (202 znaci "u redu", kao i ranije).
+ *
+ * BACKPRESSURE:
+ * Kada je red pun, offer NE ceka - vraca false i kontroler vraca 429 + Retry-After.
+ * Latencija ostaje ogranicena, klijent (agent) sam odlucuje kada da pokusa ponovo.
+ *
+ * GRESKA PRI UPISU:
+ * Neispravni dogadjaji se odbijaju vec na ulazu (IngestRequestValidator), ali red koji baza ipak odbije
+ * (npr. izvor obrisan dok je dogadjaj cekao) ne sme da povuce ceo batch. Batch koji padne zbog podataka
+ * se upisuje ponovo stavka po stavka, a stavka koja i sama padne - dogadjaj po dogadjaj: prolaze svi osim
+ * losih, a losi se loguju i broje (rejected). Prolazna greska baze (konekcija, timeout) se ne ponavlja:
+ * dogadjaji se broje kao failed, a ticket dobija completed(false) pa agent salje batch ponovo. Kod upisa
+ * dogadjaj po dogadjaj pozicija ticket-a ide u transakciju svakog dogadjaja, pa ticket posle prolazne
+ * greske dobija completed(upisano, true) - agent ponavlja samo neupisani ostatak.
+ *
+ * NITI:
+ * Sa spring.threads.virtual.enabled=true radne niti su virtuelne (kao i Tomcat niti). Broj radnih niti
+ * ostaje workers - svaka drzi JDBC konekciju tokom upisa, pa vise niti od pool-a ne bi upisalo brze.
+ *
+ * METRIKE:
+ * - aurora.ingest.queue.depth      trenutni broj dogadjaja u redu
+ * - aurora.ingest.queue.enqueued   primljeno u red
+ * - aurora.ingest.queue.dropped    odbijeno (pun red)
+ * - aurora.ingest.queue.drained    upisano u bazu (stopa = drain rate)
+ * - aurora.ingest.queue.failed     nije upisano zbog prolazne greske baze
+ * - aurora.ingest.queue.rejected   dogadjaji koje baza odbija i pojedinacno
+ * - aurora.ingest.queue.batch      trajanje upisa jednog batch-a
+ */
+@Slf4j
+@Component
+public class IngestQueue {
+
+    private final LogEventIngestService logEventIngestService;
+    private final LinkedBlockingQueue<Entry> buffer = new LinkedBlockingQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final int capacity;
+    private final int workerCount;
+    private final int batchSize;
+    private final boolean virtualThreads;
+
+    private final Counter enqueued;
+    private final Counter dropped;
+    private final Counter drained;
+    private final Counter failed;
+    private final Counter rejected;
+    private final Timer batchTimer;
+
+    private ExecutorService workers;
+    private volatile boolean running;
+
+    public IngestQueue(LogEventIngestService logEventIngestService,
+                       MeterRegistry meterRegistry,
+                       @Value("${aurora.ingest.queue.capacity:100000}") int capacity,
+                       @Value("${aurora.ingest.queue.workers:4}") int workerCount,
+                       @Value("${aurora.ingest.batch-size:500}") int batchSize,
+                       @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.logEventIngestService = logEventIngestService;
+        this.capacity = capacity;
+        this.workerCount = workerCount;
+        this.batchSize = batchSize;
+        this.virtualThreads = virtualThreads;
+
+        Gauge.builder("aurora.ingest.queue.depth", depth, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("aurora.ingest.queue.capacity", () -> capacity).register(meterRegistry);
+        this.enqueued = meterRegistry.counter("aurora.ingest.queue.enqueued");
+        this.dropped = meterRegistry.counter("aurora.ingest.queue.dropped");
+        this.drained = meterRegistry.counter("aurora.ingest.queue.drained");
+        this.failed = meterRegistry.counter("aurora.ingest.queue.failed");
+        this.rejected = meterRegistry.counter("aurora.ingest.queue.rejected");
+        this.batchTimer = meterRegistry.timer("aurora.ingest.queue.batch");
+    }
+
+    // Dogadjaji jednog offerAll poziva - upisuju se u istoj transakciji; ticket je null za REST / syslog
+    private record Entry(List<LogEventRequest> events, IngestTicket ticket) {
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        ThreadFactory threadFactory = virtualThreads
+            ? Thread.ofVirtual().name("aurora-ingest-", 0).factory()
+            : Thread.ofPlatform().name("aurora-ingest-", 0).daemon(true).factory();
+        workers = Executors.newFixedThreadPool(workerCount, threadFactory);
+        for (int i = 0; i < workerCount; i++) {
+            workers.submit(this::drainLoop);
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        workers.shutdown();
+        workers.awaitTermination(30, TimeUnit.SECONDS);
+
+        // Upisi sve sto je ostalo u redu pre gasenja
+        List<Entry> batch = new ArrayList<>();
+        Entry next;
+        while ((next = buffer.poll()) != null) {
+            batch.add(next);
+            collect(batch, next.events().size());
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    // ==================== ULAZ ====================
+
+    /**
+     * Ne blokira. Vraca false ako je red pun (pozivalac treba da vrati 429).
+     */
+    public boolean offer(LogEventRequest request) {
+        return offerAll(List.of(request)) == 1;
+    }
+
+    /**
+     * Ubacuje redom dok ima mesta. Vraca broj prihvacenih - ostatak liste (od tog indeksa) je odbijen.
+     */
+    public int offerAll(List<LogEventRequest> requests) {
+        return offerAll(requests, null);
+    }
+
+    /**
+     * Kao offerAll, a prihvaceni deo se upisuje u jednoj transakciji i prijavljuje ticket-u posle commit-a.
+     * Ako nije prihvacen nijedan dogadjaj, ticket se ne poziva.
+     */
+    public int offerAll(List<LogEventRequest> requests, IngestTicket ticket) {
+        int accepted = reserve(requests.size());
+        if (accepted > 0) {
+            // Kopija: pozivaoci (syslog) ponovo koriste svoju listu odmah posle offerAll
+            buffer.add(new Entry(List.copyOf(requests.subList(0, accepted)), ticket));
+        }
+        enqueued.increment(accepted);
+        dropped.increment(requests.size() - accepted);
+        return accepted;
+    }
+
+    public int depth() {
+        return depth.get();
+    }
+
+    public int remainingCapacity() {
+        return Math.max(0, capacity - depth.get());
+    }
+
+    // Zauzima do wanted mesta u redu; vraca koliko je dobijeno
+    private int reserve(int wanted) {
+        while (true) {
+            int current = depth.get();
+            int granted = Math.min(wanted, capacity - current);
+            if (granted <= 0) {
+                return 0;
+            }
+            if (depth.compareAndSet(current, current + granted)) {
+                return granted;
+            }
+        }
+    }
+
+    // ==================== RADNE NITI ====================
+
+    private void drainLoop() {
+        List<Entry> batch = new ArrayList<>();
+        while (running) {
+            try {
+                // Cekaj prvu stavku, pa pokupi ostatak batch-a bez cekanja
+                Entry first = buffer.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                collect(batch, first.events().size());
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Dodaje stavke koje vec cekaju dok batch ne dostigne batch-size dogadjaja; oslobadja njihova mesta u redu
+    private void collect(List<Entry> batch, int events) {
+        Entry next;
+        while (events < batchSize && (next = buffer.poll()) != null) {
+            batch.add(next);
+            events += next.events().size();
+        }
+        depth.addAndGet(-events);
+    }
+
+    private void write(List<Entry> batch) {
+        List<LogEventRequest> events = batch.size() == 1 ? batch.get(0).events() : flatten(batch);
+        try {
+            batchTimer.record(() -> logEventIngestService.ingestInOneTransaction(events, () -> beforeCommit(batch)));
+            drained.increment(events.size());
+            batch.forEach(entry -> complete(entry, true));
+        } catch (RuntimeException e) {
+            if (transientFailure(e)) {
+                failed.increment(events.size());
+                log.error("Ingest batch of {} events failed", events.size(), e);
+                batch.forEach(entry -> complete(entry, false));
+                return;
+            }
+            log.warn("Ingest batch of {} events failed, retrying entry by entry: {}", events.size(), e.getMessage());
+            for (Entry entry : batch) {
+                writeEntry(entry, batch.size() > 1);
+            }
+        }
+    }
+
+    // Stavka sama u svojoj transakciji; ako i ona padne zbog podataka - dogadjaj po dogadjaj
+    private void writeEntry(Entry entry, boolean tryWhole) {
+        List<LogEventRequest> events = entry.events();
+        if (tryWhole) {
+            try {
+                logEventIngestService.ingestInOneTransaction(events, () -> beforeCommit(List.of(entry)));
+                drained.increment(events.size());
+                complete(entry, true);
+                return;
+            } catch (RuntimeException e) {
+                if (transientFailure(e)) {
+                    failed.increment(events.size());
+                    log.error("Ingest of {} events failed", events.size(), e);
+                    complete(entry, false);
+                    return;
+                }
+            }
+        }
+        // Dogadjaj po dogadjaj, svaki u svojoj transakciji zajedno sa pozicijom ticket-a posle njega:
+        // ako baza padne na dogadjaju i, commit-ovan je tacno prefiks 0..i-1 i posiljalac ponavlja samo ostatak
+        int saved = 0;
+        for (int i = 0; i < events.size(); i++) {
+            LogEventRequest request = events.get(i);
+            int position = i + 1;
+            try {
+                logEventIngestService.ingestInOneTransaction(List.of(request), () -> beforeCommit(entry, position));
+                drained.increment();
+                saved = position;
+            } catch (RuntimeException e) {
+                if (transientFailure(e)) {
+                    // Baza je nedostupna - ostatak stavke se ne pokusava (svaki pokusaj bi cekao na konekciju)
+                    failed.increment(events.size() - i);
+                    log.error("Ingest of {} events failed", events.size() - i, e);
+                    complete(entry, saved, saved > 0);
+                    return;
+                }
+                rejected.increment();
+                log.error("Dropping event from source {} ({} chars): {}", request.getSourceId(),
+                    request.getMessage() != null ? request.getMessage().length() : 0, e.getMessage());
+            }
+        }
+        // Odbijeni dogadjaji na kraju stavke nemaju svoj commit - pozicija posle njih u zasebnoj transakciji
+        if (saved < events.size() && entry.ticket() != null) {
+            try {
+                logEventIngestService.ingestInOneTransaction(List.of(), () -> beforeCommit(entry, events.size()));
+                saved = events.size();
+            } catch (RuntimeException e) {
+                log.error("Saving ingest position after event-by-event retry failed", e);
+            }
+        }
+        complete(entry, saved, saved > 0);
+    }
+
+    private static void beforeCommit(List<Entry> batch) {
+        for (Entry entry : batch) {
+            beforeCommit(entry, entry.events().size());
+        }
+    }
+
+    private static void beforeCommit(Entry entry, int events) {
+        if (entry.ticket() != null) {
+            entry.ticket().beforeCommit(events);
+        }
+    }
+
+    private static void complete(Entry entry, boolean committed) {
+        complete(entry, entry.events().size(), committed);
+    }
+
+    private static void complete(Entry entry, int events, boolean committed) {
+        if (entry.ticket() == null) {
+            return;
+        }
+        try {
+            entry.ticket().completed(events, committed);
+        } catch (RuntimeException e) {
+            log.error("Ingest ticket callback failed", e);
+        }
+    }
+
+    private static List<LogEventRequest> flatten(List<Entry> batch) {
+        List<LogEventRequest> events = new ArrayList<>();
+        for (Entry entry : batch) {
+            events.addAll(entry.events());
+        }
+        return events;
+    }
+
+    // Baza nedostupna / preopterecena: ponavljanje po dogadjaju bi samo cekalo na svaku konekciju.
+    // Uzrok se trazi kroz ceo lanac (npr. neuspeo rollback na prekinutoj konekciji, SQLState 08xxx).
+    // Isto pravilo koristi i AlertAggregator za svoj fallback red po red.
+    public static boolean transientFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException
+                    || cause instanceof DataAccessResourceFailureException
+                    || cause instanceof CannotCreateTransactionException
+                    || cause instanceof SQLTransientException
+                    || cause instanceof SQLRecoverableException) {
+                return true;
+            }
+            if (cause instanceof SQLException sql && sql.getSQLState() != null && sql.getSQLState().startsWith("08")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,60 @@
+package rs.igapp.aurora.server.ingest;
+
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.stereotype.Component;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import rs.igapp.aurora.api.dto.request.LogEventRequest;
+import rs.igapp.aurora.server.cache.ReferenceDataCache;
+
+/**
+ * IngestRequestValidator - Provera dogadjaja PRE nego sto udju u IngestQueue / batch upis
+ *
+ * Svrha:
+ * Dogadjaj sa nepoznatim sourceId-em pada tek u LogEventService.mapToEntity, na radnoj niti,
+ * kad klijent vec ima 202 - i obara ceo batch u kome je. Ovde se isti uslovi proveravaju na ulazu,
+ * pa klijent dobija 400 (REST) ili REJECTED (binarni ingest) i zna da ponovno slanje nema smisla.
+ *
+ * PROVERAVA:
+ * - Bean Validation ogranicenja LogEventRequest-a (binarni ingest ne prolazi kroz @Valid kontrolera)
+ * - sourceId postoji (ReferenceDataCache - bez upita u stabilnom radu, nepoznat id se kratko pamti)
+ * - severityId, ako je poslat, postoji (inace bi dogadjaj tiho bio upisan bez bitnosti)
+ *
+ * Lista se odbija cela, sa indeksom prvog neispravnog dogadjaja.
+ */
+@Component
+public class IngestRequestValidator {
+
+    private final Validator validator;
+    private final ReferenceDataCache referenceDataCache;
+
+    public IngestRequestValidator(Validator validator, ReferenceDataCache referenceDataCache) {
+        this.validator = validator;
+        this.referenceDataCache = referenceDataCache;
+    }
+
+    public void validate(List<LogEventRequest> requests) {
+        String lastSourceId = null;
+        for (int i = 0; i < requests.size(); i++) {
+            LogEventRequest request = requests.get(i);
+            Set<ConstraintViolation<LogEventRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                ConstraintViolation<LogEventRequest> violation = violations.iterator().next();
+                throw new InvalidIngestRequestException(i, violation.getPropertyPath() + " " + violation.getMessage());
+            }
+            // Batch je obicno od jednog izvora - kes se pita samo kad se izvor promeni
+            if (!request.getSourceId().equals(lastSourceId)) {
+                if (referenceDataCache.findSource(request.getSourceId()).isEmpty()) {
+                    throw new InvalidIngestRequestException(i, "source not found: " + request.getSourceId());
+                }
+                lastSourceId = request.getSourceId();
+            }
+            if (request.getSeverityId() != null && referenceDataCache.findSeverity(request.getSeverityId()).isEmpty()) {
+                throw new InvalidIngestRequestException(i, "severity not found: " + request.getSeverityId());
+            }
+        }
+    }
+}
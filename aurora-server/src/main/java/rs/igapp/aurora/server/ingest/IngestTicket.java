@@ -0,0 +1,26 @@
+package rs.igapp.aurora.server.ingest;
+
+/**
+ * IngestTicket - Potvrda upisa za dogadjaje ubacene kroz IngestQueue.offerAll(requests, ticket)
+ *
+ * Dogadjaji jednog ticket-a se upisuju u istoj transakciji (ne dele se izmedju batch-eva).
+ * Oba poziva stizu sa radne niti IngestQueue-a; events = broj dogadjaja koje je red prihvatio za ticket.
+ */
+public interface IngestTicket {
+
+    /**
+     * U transakciji upisa, posle INSERT-a dogadjaja - ono sto mora da se commit-uje zajedno sa njima.
+     * events = koliko je dogadjaja ticket-a (od pocetka) obradjeno posle ovog commit-a; kod ponavljanja
+     * dogadjaj po dogadjaj poziva se u transakciji svakog dogadjaja.
+     */
+    default void beforeCommit(int events) {
+    }
+
+    /**
+     * committed = true: prvih events dogadjaja je u bazi (osim onih koje je baza odbila i pojedinacno - ti se
+     * ne ponavljaju). Manje od prihvacenog broja znaci da je prolazna greska prekinula upis - posiljalac
+     * ponavlja samo ostatak.
+     * committed = false: prolazna greska baze, nista od ovog ticket-a nije upisano - posiljalac ponavlja.
+     */
+    void completed(int events, boolean committed);
+}
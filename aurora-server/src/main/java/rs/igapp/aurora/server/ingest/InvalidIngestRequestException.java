@@ -0,0 +1,12 @@
+package rs.igapp.aurora.server.ingest;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidIngestRequestException extends RuntimeException {
+
+    public InvalidIngestRequestException(int index, String reason) {
+        super("Invalid event at index " + index + ": " + reason);
+    }
+}
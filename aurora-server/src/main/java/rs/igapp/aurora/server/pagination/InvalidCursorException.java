@@ -0,0 +1,12 @@
+package rs.igapp.aurora.server.pagination;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String token) {
+        super("Invalid page cursor: " + token);
+    }
+}
@@ -0,0 +1,38 @@
+package rs.igapp.aurora.server.pagination;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * KeysetCursor - Pozicija u keyset (seek) paginaciji: (vreme, id) poslednjeg reda sa prethodne strane
+ *
+ * Klijent dobija token kao neprozirni base64url string i samo ga vraca u sledecem zahtevu.
+ * Sledeca strana je "svi redovi strogo POSLE (vreme, id)" u DESC redosledu, pa baza ide direktno
+ * kroz indeks na (vreme, id) - bez OFFSET-a i bez count(*), strana 10.000 kosta isto kao strana 1.
+ */
+public record KeysetCursor(LocalDateTime timestamp, Long id) {
+
+    private static final char SEPARATOR = '|';
+
+    public String encode() {
+        String raw = timestamp.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // null ili prazan token = prva strana
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int split = raw.lastIndexOf(SEPARATOR);
+            return new KeysetCursor(LocalDateTime.parse(raw.substring(0, split)),
+                                    Long.parseLong(raw.substring(split + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new InvalidCursorException(token);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package rs.igapp.aurora.server.pagination;
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import rs.igapp.aurora.api.dto.response.CursorPageResponse;
+
+/**
+ * KeysetPages - Zajednicka logika za keyset strane
+ *
+ * Trik: iz baze se trazi size + 1 red. Ako stigne vise od size, postoji sledeca strana
+ * (bez count(*) upita), a cursor se pravi od poslednjeg VRACENOG reda.
+ */
+public final class KeysetPages {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private KeysetPages() {
+    }
+
+    public static int clampSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    // Pageable bez sortiranja - redosled je u samom upitu (ORDER BY vreme DESC, id DESC)
+    public static Pageable probe(int size) {
+        return PageRequest.ofSize(size + 1);
+    }
+
+    public static <E, R> CursorPageResponse<R> toPage(List<E> rows, int size,
+                                                       Function<E, KeysetCursor> cursorOf,
+                                                       Function<E, R> mapper) {
+        boolean hasNext = rows.size() > size;
+        List<E> page = hasNext ? rows.subList(0, size) : rows;
+
+        return CursorPageResponse.<R>builder()
+            .items(page.stream().map(mapper).toList())
+            .hasNext(hasNext)
+            .nextCursor(hasNext ? cursorOf.apply(page.get(page.size() - 1)).encode() : null)
+            .build();
+    }
+}
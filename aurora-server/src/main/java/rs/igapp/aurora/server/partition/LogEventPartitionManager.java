@@ -0,0 +1,277 @@
+package rs.igapp.aurora.server.partition;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+import rs.igapp.aurora.server.archive.LogEventArchive;
+
+/**
+ * LogEventPartitionManager - Zivotni ciklus vremenskih particija log_events tabele
+ *
+ * Svrha:
+ * Jedna tabela koja stalno raste = sve sporiji upiti po opsegu, vacuum i brisanje starih podataka.
+ * log_events je particionisana po timestamp-u (db/log-events-partitioning.sql), a ovaj posao:
+ * 1. Unapred pravi particije za narednih N dana/sati (ingest nikad ne ceka na DDL) i popunjava rupe
+ *    (npr. posle zastoja odrzavanja) od najstarije postojece particije, ali ne pre retention granice
+ * 2. Particije starije od retention perioda odvaja (DETACH) i po potrebi brise (DROP),
+ *    ili ih pre brisanja prepisuje u kompresovanu arhivu na disku (ARCHIVE, vidi LogEventArchive)
+ *
+ * DEFAULT PARTICIJA:
+ * Redovi bez particije (rupa u opsegu, agent sa pogresnim satom, kasni dogadjaj posle DETACH-a) zavrse
+ * u log_events_default. CREATE ... PARTITION OF za opseg koji ima redove u DEFAULT-u pada, pa se takva
+ * particija pravi u jednoj transakciji: obicna tabela -> premestanje redova iz DEFAULT-a -> ATTACH.
+ * Istekli redovi iz DEFAULT-a (stariji od retention-a) premestaju se isto tako u particiju
+ * log_events_p<opseg>_d<vreme> i izlaze kroz obican retention (arhiva/DROP) - DEFAULT ne raste zauvek,
+ * a arhiva ne prepisuje fajl ranije arhivirane particije istog opsega.
+ * Svaka particija ima svoj try blok - greska jedne ne zaustavlja ostale, sledece odrzavanje je ponavlja.
+ *
+ * ARCHIVE redosled: DETACH -> arhiviranje odvojene tabele -> DROP. Posle DETACH-a u tabelu vise ne moze
+ * da stigne kasni dogadjaj, pa arhiva sadrzi tacno ono sto se brise. Ako arhiviranje ili DROP padne,
+ * odvojena tabela ostaje i sledece odrzavanje je zavrsava (trazi istekle log_events_p* tabele koje vise
+ * nisu particije). Zato se uz DETACH akciju ovo ne radi - tamo su odvojene tabele namerno sacuvane.
+ *
+ * Brisanje starih podataka je DDL nad celom particijom - NIKAD DELETE red po red.
+ * Upiti sa uslovom na timestamp (findByTimestampRange, keyset strane) citaju samo particije iz opsega
+ * (partition pruning).
+ */
+@Slf4j
+@Component
+public class LogEventPartitionManager {
+
+    static final String PARENT_TABLE = "log_events";
+    static final String PARTITION_PREFIX = PARENT_TABLE + "_p";
+    static final String DEFAULT_PARTITION = PARENT_TABLE + "_default";
+
+    // Sufiks particije istih redova iz DEFAULT-a: vreme premestanja, da se ime (i arhivski fajl) ne ponavlja
+    private static final DateTimeFormatter MOVED_SUFFIX = DateTimeFormatter.ofPattern("'_d'yyyyMMddHHmmss");
+
+    // Sve particije roditeljske tabele osim DEFAULT
+    private static final String LIST_PARTITIONS_SQL =
+        "SELECT c.relname FROM pg_inherits i "
+      + "JOIN pg_class c ON c.oid = i.inhrelid "
+      + "WHERE i.inhparent = '" + PARENT_TABLE + "'::regclass AND c.relname LIKE '" + PARTITION_PREFIX + "%'";
+
+    // Odvojene (DETACH), a jos neobrisane particije u istoj semi
+    private static final String LIST_DETACHED_SQL =
+        "SELECT c.relname FROM pg_class c "
+      + "WHERE c.relkind = 'r' AND NOT c.relispartition AND c.relnamespace = current_schema()::regnamespace "
+      + "AND c.relname LIKE '" + PARTITION_PREFIX + "%'";
+
+    // Kolone koje se kopiraju iz DEFAULT-a (generisane, npr. message_tsv, racuna baza)
+    private static final String INSERTABLE_COLUMNS_SQL =
+        "SELECT string_agg(quote_ident(column_name), ', ' ORDER BY ordinal_position) FROM information_schema.columns "
+      + "WHERE table_schema = current_schema() AND table_name = '" + PARENT_TABLE + "' AND is_generated = 'NEVER'";
+
+    public enum RetentionAction { DROP, DETACH, ARCHIVE }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PartitionGranularity granularity;
+    private final int precreate;
+    private final Duration retention;
+    private final RetentionAction retentionAction;
+    private final LogEventArchive logEventArchive;
+    private final TransactionTemplate transactionTemplate;
+
+    public LogEventPartitionManager(JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    LogEventArchive logEventArchive,
+                                    @Value("${aurora.partitions.granularity:DAILY}") PartitionGranularity granularity,
+                                    @Value("${aurora.partitions.precreate:7}") int precreate,
+                                    @Value("${aurora.partitions.retention:P30D}") Duration retention,
+                                    @Value("${aurora.partitions.retention-action:DROP}") RetentionAction retentionAction) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.granularity = granularity;
+        this.precreate = precreate;
+        this.retention = retention;
+        this.retentionAction = retentionAction;
+        this.logEventArchive = logEventArchive;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Prvo pokretanje odmah po startu, zatim periodicno
+    @Scheduled(fixedDelayString = "${aurora.partitions.maintenance-interval:PT1H}")
+    public void maintain() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            createUpcomingPartitions(now);
+            pruneDefaultPartition(now);
+            expirePartitions(now);
+        } catch (RuntimeException e) {
+            log.error("Partition maintenance for {} failed", PARENT_TABLE, e);
+        }
+    }
+
+    // ==================== KREIRANJE ====================
+
+    void createUpcomingPartitions(LocalDateTime now) {
+        LocalDateTime horizon = granularity.floor(now);
+        for (int i = 0; i <= precreate; i++) {
+            horizon = granularity.next(horizon);
+        }
+        LocalDateTime retained = granularity.floor(now.minus(retention));
+
+        Set<LocalDateTime> existing = new HashSet<>();
+        LocalDateTime oldest = null;
+        for (String name : jdbcTemplate.queryForList(LIST_PARTITIONS_SQL, String.class)) {
+            LocalDateTime start = rangeStart(name);
+            if (start != null) {
+                existing.add(start);
+                oldest = oldest == null || start.isBefore(oldest) ? start : oldest;
+            }
+        }
+
+        // Od najstarije particije (rupe), bez particija od sada; nikad pre retention granice
+        TreeSet<LocalDateTime> wanted = new TreeSet<>();
+        LocalDateTime first = oldest != null && oldest.isBefore(granularity.floor(now)) ? oldest : granularity.floor(now);
+        if (first.isBefore(retained)) {
+            first = retained;
+        }
+        for (LocalDateTime start = first; start.isBefore(horizon); start = granularity.next(start)) {
+            wanted.add(start);
+        }
+        // Opsezi sa redovima u DEFAULT-u (npr. pre prve particije)
+        wanted.addAll(defaultRanges(retained, horizon));
+        wanted.removeAll(existing);
+
+        for (LocalDateTime rangeStart : wanted) {
+            String name = PARTITION_PREFIX + granularity.suffix(rangeStart);
+            try {
+                createPartition(name, rangeStart, granularity.next(rangeStart));
+            } catch (RuntimeException e) {
+                log.error("Creating partition {} failed, will retry", name, e);
+            }
+        }
+    }
+
+    // Bez redova u DEFAULT-u: obican CREATE PARTITION OF; inace premestanje pa ATTACH, sve u jednoj transakciji
+    private void createPartition(String name, LocalDateTime start, LocalDateTime end) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Boolean hasDefaultRows = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION + " WHERE timestamp >= ? AND timestamp < ?)",
+                Boolean.class, Timestamp.valueOf(start), Timestamp.valueOf(end));
+            if (!Boolean.TRUE.equals(hasDefaultRows)) {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name
+                    + " PARTITION OF " + PARENT_TABLE
+                    + " FOR VALUES FROM ('" + start + "') TO ('" + end + "')");
+                return;
+            }
+            int moved = moveFromDefault(name, start, end);
+            log.info("Created partition {} with {} rows moved from {}", name, moved, DEFAULT_PARTITION);
+        });
+    }
+
+    /**
+     * Nova tabela sa strukturom roditelja, redovi opsega iz DEFAULT-a u nju, pa ATTACH (pozivalac drzi transakciju).
+     * ATTACH proverava DEFAULT - red upisan u opseg u meduvremenu obara transakciju i sledece odrzavanje ponavlja.
+     */
+    private int moveFromDefault(String name, LocalDateTime start, LocalDateTime end) {
+        String columns = jdbcTemplate.queryForObject(INSERTABLE_COLUMNS_SQL, String.class);
+        jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE " + PARENT_TABLE
+            + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS INCLUDING GENERATED)");
+        int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION
+            + " WHERE timestamp >= ? AND timestamp < ? RETURNING " + columns + ") "
+            + "INSERT INTO " + name + " (" + columns + ") SELECT " + columns + " FROM moved",
+            Timestamp.valueOf(start), Timestamp.valueOf(end));
+        jdbcTemplate.execute("ALTER TABLE " + PARENT_TABLE + " ATTACH PARTITION " + name
+            + " FOR VALUES FROM ('" + start + "') TO ('" + end + "')");
+        return moved;
+    }
+
+    // Pocetci particija (po granularnosti) za redove iz DEFAULT-a u [from, to)
+    private List<LocalDateTime> defaultRanges(LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.queryForList(
+            "SELECT DISTINCT date_trunc('" + granularity.sqlUnit() + "', timestamp) FROM " + DEFAULT_PARTITION
+                + " WHERE timestamp >= ? AND timestamp < ?",
+            Timestamp.class, Timestamp.valueOf(from), Timestamp.valueOf(to))
+            .stream().map(Timestamp::toLocalDateTime).toList();
+    }
+
+    // ==================== RETENTION ====================
+
+    /**
+     * Istekli redovi iz DEFAULT-a (ceo opseg stariji od retention-a) -> particija log_events_p<opseg>_d<sada>,
+     * koju expirePartitions odmah odvaja i zavrsava kao svaku drugu (arhiva/DROP).
+     */
+    void pruneDefaultPartition(LocalDateTime now) {
+        LocalDateTime retained = granularity.floor(now.minus(retention));
+        for (LocalDateTime start : defaultRanges(LocalDateTime.of(1, 1, 1, 0, 0), retained)) {
+            String name = PARTITION_PREFIX + granularity.suffix(start) + now.format(MOVED_SUFFIX);
+            try {
+                int moved = transactionTemplate.execute(status -> moveFromDefault(name, start, granularity.next(start)));
+                log.info("Moved {} expired rows from {} to {}", moved, DEFAULT_PARTITION, name);
+            } catch (RuntimeException e) {
+                log.error("Pruning {} into {} failed, will retry", DEFAULT_PARTITION, name, e);
+            }
+        }
+    }
+
+    void expirePartitions(LocalDateTime now) {
+        LocalDateTime cutoff = now.minus(retention);
+
+        // Zaostale odvojene tabele iz prethodnog odrzavanja (arhiviranje ili DROP je pao)
+        if (retentionAction != RetentionAction.DETACH) {
+            for (String name : jdbcTemplate.queryForList(LIST_DETACHED_SQL, String.class)) {
+                if (expired(name, cutoff)) {
+                    finish(name);
+                }
+            }
+        }
+
+        for (String name : jdbcTemplate.queryForList(LIST_PARTITIONS_SQL, String.class)) {
+            if (!expired(name, cutoff)) {
+                continue;
+            }
+            try {
+                jdbcTemplate.execute("ALTER TABLE " + PARENT_TABLE + " DETACH PARTITION " + name);
+            } catch (RuntimeException e) {
+                log.error("Detaching partition {} failed, will retry", name, e);
+                continue;
+            }
+            if (retentionAction == RetentionAction.DETACH) {
+                log.info("Expired partition {} (DETACH)", name);
+            } else {
+                finish(name);
+            }
+        }
+    }
+
+    // Particija istice tek kad je CEO njen opseg stariji od cutoff-a
+    private boolean expired(String name, LocalDateTime cutoff) {
+        LocalDateTime start = rangeStart(name);
+        return start != null && !granularity.next(start).isAfter(cutoff);
+    }
+
+    // log_events_p20261017 i log_events_p20261017_d... -> pocetak opsega; null za ime druge granularnosti
+    private LocalDateTime rangeStart(String name) {
+        String suffix = name.substring(PARTITION_PREFIX.length());
+        int marker = suffix.indexOf('_');
+        return granularity.parseSuffix(marker < 0 ? suffix : suffix.substring(0, marker));
+    }
+
+    // Odvojena tabela: arhiva (ako treba) pa DROP; greska ostavlja tabelu za sledece odrzavanje
+    private void finish(String name) {
+        try {
+            if (retentionAction == RetentionAction.ARCHIVE) {
+                logEventArchive.archivePartition(name);
+            }
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + name);
+            log.info("Expired partition {} ({})", name, retentionAction);
+        } catch (RuntimeException e) {
+            log.error("Expiring detached partition {} failed, will retry", name, e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package rs.igapp.aurora.server.partition;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Velicina jedne particije log_events tabele i format sufiksa u imenu (log_events_p20261017, log_events_p2026101714)
+ */
+public enum PartitionGranularity {
+
+    DAILY(ChronoUnit.DAYS, "yyyyMMdd", "day"),
+    HOURLY(ChronoUnit.HOURS, "yyyyMMddHH", "hour");
+
+    private final ChronoUnit unit;
+    private final DateTimeFormatter suffixFormat;
+    private final String sqlUnit;
+
+    PartitionGranularity(ChronoUnit unit, String suffixPattern, String sqlUnit) {
+        this.unit = unit;
+        this.suffixFormat = DateTimeFormatter.ofPattern(suffixPattern);
+        this.sqlUnit = sqlUnit;
+    }
+
+    // Jedinica za date_trunc - isti pocetak particije kao floor
+    public String sqlUnit() {
+        return sqlUnit;
+    }
+
+    public LocalDateTime floor(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    public LocalDateTime next(LocalDateTime start) {
+        return start.plus(1, unit);
+    }
+
+    public String suffix(LocalDateTime start) {
+        return start.format(suffixFormat);
+    }
+
+    // Vraca pocetak particije iz sufiksa, ili null ako ime ne odgovara ovoj granularnosti
+    public LocalDateTime parseSuffix(String suffix) {
+        try {
+            return this == DAILY
+                ? LocalDate.parse(suffix, suffixFormat).atStartOfDay()
+                : LocalDateTime.parse(suffix, suffixFormat);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package rs.igapp.aurora.server.payload;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recnik kljuceva JSON objekata jednog izvora: ime kljuca <-> mali ceo broj (raw_data_keys).
+ * Samo raste - jednom dodeljen ID se nikad ne menja, pa ga svi cvorovi mogu kesirati zauvek.
+ */
+final class KeyDictionary {
+
+    private final Long sourceId;
+    private final Map<String, Integer> idsByKey = new ConcurrentHashMap<>();
+    private final Map<Integer, String> keysById = new ConcurrentHashMap<>();
+
+    KeyDictionary(Long sourceId) {
+        this.sourceId = sourceId;
+    }
+
+    Long sourceId() {
+        return sourceId;
+    }
+
+    Integer id(String key) {
+        return idsByKey.get(key);
+    }
+
+    String key(int id) {
+        return keysById.get(id);
+    }
+
+    void put(int id, String key) {
+        idsByKey.put(key, id);
+        keysById.put(id, key);
+    }
+}
@@ -0,0 +1,203 @@
+package rs.igapp.aurora.server.payload;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.DecimalNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * RawDataCodec - Binarni zapis rawData JSON-a sa kljucevima iz recnika izvora
+ *
+ * Vrednost = tag (1 bajt) + sadrzaj:
+ *   NULL, FALSE, TRUE          - bez sadrzaja
+ *   LONG                       - zigzag varint (mali brojevi = 1-2 bajta)
+ *   DECIMAL, BIG_INTEGER       - tekst broja (bez gubitka preciznosti, kao JSONB numeric)
+ *   STRING                     - varint duzina + UTF-8
+ *   ARRAY                      - varint broj elemenata + vrednosti
+ *   OBJECT                     - varint broj polja + (varint ID kljuca + vrednost)
+ *
+ * Ponovljeni kljucevi ("hostname", "process.pid", ...) postaju 1-2 bajta umesto teksta u svakom redu.
+ */
+final class RawDataCodec {
+
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte LONG = 3;
+    private static final byte DECIMAL = 4;
+    private static final byte STRING = 5;
+    private static final byte ARRAY = 6;
+    private static final byte OBJECT = 7;
+    private static final byte BIG_INTEGER = 8;
+
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    private RawDataCodec() {
+    }
+
+    // Svi kljucevi objekata na svim nivoima (za dopunu recnika pre kodiranja)
+    static void collectKeys(JsonNode node, Set<String> keys) {
+        if (node.isObject()) {
+            for (Iterator<Map.Entry<String, JsonNode>> fields = node.fields(); fields.hasNext(); ) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                keys.add(field.getKey());
+                collectKeys(field.getValue(), keys);
+            }
+        } else if (node.isArray()) {
+            node.forEach(element -> collectKeys(element, keys));
+        }
+    }
+
+    // Recnik mora vec sadrzati sve kljuceve (collectKeys + RawPayloadStore.ensureKeys)
+    static byte[] encode(JsonNode node, KeyDictionary dictionary) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        write(node, dictionary, out);
+        return out.toByteArray();
+    }
+
+    static JsonNode decode(byte[] bytes, KeyDictionary dictionary) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        JsonNode node = read(in, dictionary);
+        if (in.hasRemaining()) {
+            throw new IllegalStateException("Trailing bytes in raw payload");
+        }
+        return node;
+    }
+
+    // ==================== KODIRANJE ====================
+
+    private static void write(JsonNode node, KeyDictionary dictionary, ByteArrayOutputStream out) {
+        if (node == null || node.isNull() || node.isMissingNode()) {
+            out.write(NULL);
+        } else if (node.isBoolean()) {
+            out.write(node.booleanValue() ? TRUE : FALSE);
+        } else if (node.isIntegralNumber() && node.canConvertToLong()) {
+            out.write(LONG);
+            long value = node.longValue();
+            writeVarint(out, (value << 1) ^ (value >> 63));
+        } else if (node.isIntegralNumber()) {
+            out.write(BIG_INTEGER);
+            writeText(out, node.bigIntegerValue().toString());
+        } else if (node.isNumber()) {
+            out.write(DECIMAL);
+            writeText(out, node.decimalValue().toString());
+        } else if (node.isTextual()) {
+            out.write(STRING);
+            writeText(out, node.textValue());
+        } else if (node.isArray()) {
+            out.write(ARRAY);
+            writeVarint(out, node.size());
+            node.forEach(element -> write(element, dictionary, out));
+        } else if (node.isObject()) {
+            out.write(OBJECT);
+            writeVarint(out, node.size());
+            for (Iterator<Map.Entry<String, JsonNode>> fields = node.fields(); fields.hasNext(); ) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                Integer keyId = dictionary.id(field.getKey());
+                if (keyId == null) {
+                    throw new IllegalStateException("Key not in dictionary of source " + dictionary.sourceId());
+                }
+                writeVarint(out, keyId);
+                write(field.getValue(), dictionary, out);
+            }
+        } else {
+            // binarni/POJO cvorovi ne nastaju iz parsiranog JSON-a
+            out.write(STRING);
+            writeText(out, node.asText());
+        }
+    }
+
+    private static void writeText(ByteArrayOutputStream out, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    // ==================== DEKODIRANJE ====================
+
+    private static JsonNode read(ByteBuffer in, KeyDictionary dictionary) {
+        byte tag = in.get();
+        return switch (tag) {
+            case NULL -> NODES.nullNode();
+            case FALSE -> NODES.booleanNode(false);
+            case TRUE -> NODES.booleanNode(true);
+            case LONG -> {
+                long encoded = readVarint(in);
+                long value = (encoded >>> 1) ^ -(encoded & 1);
+                yield value == (int) value ? NODES.numberNode((int) value) : NODES.numberNode(value);
+            }
+            case BIG_INTEGER -> NODES.numberNode(new BigInteger(readText(in)));
+            case DECIMAL -> DecimalNode.valueOf(new BigDecimal(readText(in)));  // bez skracivanja nula (1.50 ostaje 1.50)
+            case STRING -> NODES.textNode(readText(in));
+            case ARRAY -> {
+                int size = (int) readVarint(in);
+                ArrayNode array = NODES.arrayNode(size);
+                for (int i = 0; i < size; i++) {
+                    array.add(read(in, dictionary));
+                }
+                yield array;
+            }
+            case OBJECT -> {
+                int size = (int) readVarint(in);
+                ObjectNode object = NODES.objectNode();
+                for (int i = 0; i < size; i++) {
+                    int keyId = (int) readVarint(in);
+                    String key = dictionary.key(keyId);
+                    if (key == null) {
+                        throw new UnknownKeyException(keyId);
+                    }
+                    object.set(key, read(in, dictionary));
+                }
+                yield object;
+            }
+            default -> throw new IllegalStateException("Unknown raw payload tag " + tag);
+        };
+    }
+
+    private static String readText(ByteBuffer in) {
+        int length = (int) readVarint(in);
+        String text = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return text;
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint in raw payload");
+    }
+
+    /**
+     * Kljuc je dodao drugi cvor posle poslednjeg ucitavanja recnika - pozivalac osvezava recnik i pokusava ponovo.
+     */
+    static final class UnknownKeyException extends IllegalStateException {
+
+        UnknownKeyException(int keyId) {
+            super("Unknown dictionary key " + keyId);
+        }
+    }
+}
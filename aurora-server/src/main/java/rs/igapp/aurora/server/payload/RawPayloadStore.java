@@ -0,0 +1,381 @@
+package rs.igapp.aurora.server.payload;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.cfg.JsonNodeFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import rs.igapp.aurora.domain.entity.LogEvent;
+
+/**
+ * RawPayloadStore - Kompaktan zapis rawData (aurora.raw-data.encoding=COMPACT)
+ *
+ * Svrha:
+ * rawData je slobodan JSONB po redu, a dogadjaji jednog agenta ponavljaju iste kljuceve i cesto
+ * iste vrednosti (isti proces, isti host, ista poruka sa drugim vremenom u tekstu poruke).
+ * U COMPACT modu log_events.raw_data ostaje NULL, a red pokazuje na raw_payloads.id:
+ * - kljucevi objekata se zamenjuju ID-jem iz recnika izvora (raw_data_keys)
+ * - vrednosti se pisu binarno (RawDataCodec)
+ * - isti binarni sadrzaj istog izvora se cuva JEDNOM (SHA-256, UNIQUE (source_id, hash))
+ * Red log_events je uzi za ceo JSONB (TOAST) - vise redova po stranici, brzi sekvencijalni scan.
+ *
+ * TOK (compact, pre persist-a, za ceo batch):
+ * 1. parsiranje JSON-a, dopuna recnika novim kljucevima (retko - samo novi kljucevi)
+ * 2. kodiranje + hash; poznati hash-evi iz kesa, ostali JEDNIM INSERT ... unnest ... ON CONFLICT upitom
+ * 3. dogadjaj dobija rawPayloadId, rawData = null
+ * Recnik i payload-i se upisuju u SOPSTVENOJ transakciji (REQUIRES_NEW) - rollback batch-a ne sme
+ * da ponisti ID-jeve koji su vec u kesu. Pozivalac zove compact PRE svoje transakcije (inace nit drzi
+ * dve konekcije). Payload bez ijednog dogadjaja je bezopasan i brise ga prune.
+ *
+ * CITANJE:
+ * json/node dekodiraju payload po ID-ju (kes po ID-ju), pa LogEventResponse.rawData ostaje obican JSON,
+ * a pravila detekcije dobijaju gotov JsonNode bez parsiranja.
+ *
+ * RETENTION:
+ * last_used se osvezava najvise jednom dnevno po payload-u; brisu se payload-i nekorisceni duze od
+ * aurora.raw-data.retention NA KOJE VISE NE POKAZUJE NIJEDAN red log_events NI odvojene (DETACH), jos
+ * neobrisane particije (NOT EXISTS preko idx_log_events_raw_payload_id i njegove kopije u odvojenoj tabeli).
+ * Kratak retention zato ne moze da ostavi dogadjaj ili arhiviranje particije (ni ponovljeno, posle
+ * neuspelog pokusaja) bez rawData - samo odlaze brisanje dok particija ne bude obrisana.
+ */
+@Slf4j
+@Component
+public class RawPayloadStore {
+
+    public enum Encoding { JSON, COMPACT }
+
+    private static final String LOAD_KEYS_SQL =
+        "SELECT key_id, key_name FROM raw_data_keys WHERE source_id = ?";
+
+    // Sledeci ID u recniku izvora; trka dva cvora za isti ID se zavrsi sa DO NOTHING i novim pokusajem
+    private static final String INSERT_KEY_SQL =
+        "INSERT INTO raw_data_keys (source_id, key_id, key_name) "
+      + "SELECT ?, COALESCE(MAX(key_id), 0) + 1, ? FROM raw_data_keys WHERE source_id = ? "
+      + "ON CONFLICT DO NOTHING";
+
+    // Vraca ID i za nove i za postojece payload-e; xmax = 0 znaci da je red upravo upisan
+    private static final String UPSERT_PAYLOADS_SQL =
+        "INSERT INTO raw_payloads (source_id, hash, payload) "
+      + "SELECT * FROM unnest(?::bigint[], ?::bytea[], ?::bytea[]) "
+      + "ON CONFLICT (source_id, hash) DO UPDATE SET last_used = CURRENT_DATE "
+      + "RETURNING id, source_id, hash, (xmax = 0) AS inserted";
+
+    private static final String LOAD_PAYLOAD_SQL =
+        "SELECT source_id, payload FROM raw_payloads WHERE id = ?";
+
+    // Samo payload-i bez ijednog dogadjaja - last_used je samo predfilter (ne osvezava se pri citanju).
+    // Za svaku odvojenu particiju se dodaje NOT EXISTS nad njom (pruneSql).
+    private static final String PRUNE_SQL =
+        "DELETE FROM raw_payloads p WHERE p.last_used < ? "
+      + "AND NOT EXISTS (SELECT 1 FROM log_events l WHERE l.raw_payload_id = p.id)";
+
+    // DETACH bez CONCURRENTLY trazi ACCESS EXCLUSIVE nad log_events: dok prune drzi ovaj lock, nijedna
+    // particija ne moze da se odvoji izmedju citanja liste odvojenih i DELETE-a
+    private static final String LOCK_LOG_EVENTS_SQL = "LOCK TABLE log_events IN ACCESS SHARE MODE";
+
+    // Odvojene, a jos neobrisane particije (isti upit kao u LogEventPartitionManager)
+    private static final String LIST_DETACHED_SQL =
+        "SELECT c.relname FROM pg_class c "
+      + "WHERE c.relkind = 'r' AND NOT c.relispartition AND c.relnamespace = current_schema()::regnamespace "
+      + "AND c.relname LIKE 'log_events_p%'";
+
+    private static final int MAX_KEY_ATTEMPTS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate requiresNew;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader reader;
+    private final Encoding encoding;
+    private final Duration retention;
+
+    private final Map<Long, KeyDictionary> dictionaries = new ConcurrentHashMap<>();
+    private final Cache<PayloadKey, KnownPayload> payloadIds;
+    private final Cache<Long, JsonNode> payloads;
+
+    private final Counter stored;
+    private final Counter deduplicated;
+
+    public RawPayloadStore(JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry,
+                           @Value("${aurora.raw-data.encoding:JSON}") Encoding encoding,
+                           @Value("${aurora.raw-data.cache-size:100000}") long cacheSize,
+                           @Value("${aurora.raw-data.retention:P30D}") Duration retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.objectMapper = objectMapper;
+        // Decimale bez gubitka preciznosti (kao numeric u JSONB)
+        this.reader = objectMapper.reader()
+            .with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+            .without(JsonNodeFeature.STRIP_TRAILING_BIGDECIMAL_ZEROES);
+        this.encoding = encoding;
+        this.retention = retention;
+
+        this.payloadIds = Caffeine.newBuilder().maximumSize(cacheSize).recordStats().build();
+        this.payloads = Caffeine.newBuilder().maximumSize(cacheSize).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, payloadIds, "aurora.payload.ids");
+        CaffeineCacheMetrics.monitor(meterRegistry, payloads, "aurora.payload.contents");
+        this.stored = meterRegistry.counter("aurora.payloads.stored");
+        this.deduplicated = meterRegistry.counter("aurora.payloads.deduplicated");
+    }
+
+    record PayloadKey(Long sourceId, String hash) {
+    }
+
+    // touched = dan kada je last_used poslednji put osvezen
+    record KnownPayload(long id, LocalDate touched) {
+    }
+
+    private record Pending(LogEvent event, JsonNode node, PayloadKey key, byte[] bytes) {
+    }
+
+    public boolean isCompact() {
+        return encoding == Encoding.COMPACT;
+    }
+
+    // ==================== UPIS ====================
+
+    /**
+     * U COMPACT modu prebacuje rawData dogadjaja u raw_payloads (vidi opis klase). Poziva se pre persist-a.
+     * Dogadjaji bez rawData ili sa nevalidnim JSON-om ostaju nepromenjeni (JSONB kolona ih odbija kao i ranije).
+     */
+    public void compact(List<LogEvent> events) {
+        if (!isCompact()) {
+            return;
+        }
+        Map<Long, List<LogEvent>> bySource = new LinkedHashMap<>();
+        Map<LogEvent, JsonNode> parsed = new IdentityHashMap<>();  // LogEvent.equals poredi sadrzaj
+        for (LogEvent event : events) {
+            if (event.getRawData() == null || event.getRawData().isBlank() || event.getSource() == null) {
+                continue;
+            }
+            try {
+                parsed.put(event, reader.readTree(event.getRawData()));
+                bySource.computeIfAbsent(event.getSource().getId(), id -> new ArrayList<>()).add(event);
+            } catch (IOException e) {
+                // ostaje u raw_data
+            }
+        }
+        if (parsed.isEmpty()) {
+            return;
+        }
+
+        LocalDate today = LocalDate.now();
+        List<Pending> pending = new ArrayList<>(parsed.size());
+        Map<PayloadKey, Long> ids = new HashMap<>();
+        Map<PayloadKey, Pending> missing = new LinkedHashMap<>();
+        for (Map.Entry<Long, List<LogEvent>> entry : bySource.entrySet()) {
+            KeyDictionary dictionary = dictionary(entry.getKey());
+            Set<String> keys = new HashSet<>();
+            entry.getValue().forEach(event -> RawDataCodec.collectKeys(parsed.get(event), keys));
+            ensureKeys(dictionary, keys);
+
+            for (LogEvent event : entry.getValue()) {
+                JsonNode node = parsed.get(event);
+                byte[] bytes = RawDataCodec.encode(node, dictionary);
+                Pending item = new Pending(event, node, new PayloadKey(entry.getKey(), hash(bytes)), bytes);
+                pending.add(item);
+                KnownPayload known = payloadIds.getIfPresent(item.key());
+                if (known != null && known.touched().equals(today)) {
+                    ids.put(item.key(), known.id());
+                    deduplicated.increment();
+                } else {
+                    missing.putIfAbsent(item.key(), item);
+                }
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            ids.putAll(upsert(missing.values(), today));
+        }
+        for (Pending item : pending) {
+            Long id = ids.get(item.key());
+            item.event().setRawPayloadId(id);
+            item.event().setRawData(null);
+            payloads.put(id, item.node());
+        }
+    }
+
+    private Map<PayloadKey, Long> upsert(Iterable<Pending> items, LocalDate today) {
+        List<Long> sourceIds = new ArrayList<>();
+        List<byte[]> hashes = new ArrayList<>();
+        List<byte[]> contents = new ArrayList<>();
+        for (Pending item : items) {
+            sourceIds.add(item.key().sourceId());
+            hashes.add(HexFormat.of().parseHex(item.key().hash()));
+            contents.add(item.bytes());
+        }
+        Map<PayloadKey, Long> ids = new HashMap<>();
+        requiresNew.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+            PreparedStatement statement = con.prepareStatement(UPSERT_PAYLOADS_SQL);
+            Array sourceArray = con.createArrayOf("bigint", sourceIds.toArray());
+            Array hashArray = con.createArrayOf("bytea", hashes.toArray(byte[][]::new));
+            Array contentArray = con.createArrayOf("bytea", contents.toArray(byte[][]::new));
+            statement.setArray(1, sourceArray);
+            statement.setArray(2, hashArray);
+            statement.setArray(3, contentArray);
+            return statement;
+        }, rs -> {
+            PayloadKey key = new PayloadKey(rs.getLong("source_id"), HexFormat.of().formatHex(rs.getBytes("hash")));
+            long id = rs.getLong("id");
+            ids.put(key, id);
+            payloadIds.put(key, new KnownPayload(id, today));
+            (rs.getBoolean("inserted") ? stored : deduplicated).increment();
+        }));
+        return ids;
+    }
+
+    // ==================== CITANJE ====================
+
+    // rawData kao JSON tekst, bez obzira kako je sacuvan
+    public String json(LogEvent event) {
+        if (event.getRawData() != null || event.getRawPayloadId() == null) {
+            return event.getRawData();
+        }
+        return json(event.getRawPayloadId());
+    }
+
+    public String json(Long payloadId) {
+        JsonNode node = node(payloadId);
+        if (node == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(node);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Serializing raw payload " + payloadId + " failed", e);
+        }
+    }
+
+    // null ako payload ne postoji (npr. obrisan posle retention-a)
+    public JsonNode node(Long payloadId) {
+        return payloads.get(payloadId, this::load);
+    }
+
+    private JsonNode load(Long payloadId) {
+        List<JsonNode> nodes = jdbcTemplate.query(LOAD_PAYLOAD_SQL, (rs, row) -> {
+            KeyDictionary dictionary = dictionary(rs.getLong("source_id"));
+            byte[] bytes = rs.getBytes("payload");
+            try {
+                return RawDataCodec.decode(bytes, dictionary);
+            } catch (RawDataCodec.UnknownKeyException e) {
+                reload(dictionary);  // kljuc je dodao drugi cvor
+                return RawDataCodec.decode(bytes, dictionary);
+            }
+        }, payloadId);
+        if (nodes.isEmpty()) {
+            log.warn("Raw payload {} not found", payloadId);
+            return null;
+        }
+        return nodes.get(0);
+    }
+
+    // ==================== RECNIK ====================
+
+    private KeyDictionary dictionary(Long sourceId) {
+        return dictionaries.computeIfAbsent(sourceId, id -> {
+            KeyDictionary dictionary = new KeyDictionary(id);
+            reload(dictionary);
+            return dictionary;
+        });
+    }
+
+    private void reload(KeyDictionary dictionary) {
+        jdbcTemplate.query(LOAD_KEYS_SQL,
+            rs -> { dictionary.put(rs.getInt("key_id"), rs.getString("key_name")); },
+            dictionary.sourceId());
+    }
+
+    private void ensureKeys(KeyDictionary dictionary, Set<String> keys) {
+        if (keys.stream().allMatch(key -> dictionary.id(key) != null)) {
+            return;
+        }
+        synchronized (dictionary) {
+            for (int attempt = 0; attempt < MAX_KEY_ATTEMPTS; attempt++) {
+                List<String> missing = keys.stream().filter(key -> dictionary.id(key) == null).toList();
+                if (missing.isEmpty()) {
+                    return;
+                }
+                requiresNew.executeWithoutResult(status -> missing.forEach(key ->
+                    jdbcTemplate.update(INSERT_KEY_SQL, dictionary.sourceId(), key, dictionary.sourceId())));
+                reload(dictionary);
+            }
+            if (keys.stream().anyMatch(key -> dictionary.id(key) == null)) {
+                throw new IllegalStateException("Could not extend key dictionary of source " + dictionary.sourceId());
+            }
+        }
+    }
+
+    // ==================== RETENTION ====================
+
+    @Scheduled(fixedDelayString = "${aurora.partitions.maintenance-interval:PT1H}")
+    public void prune() {
+        try {
+            LocalDate cutoff = LocalDate.now().minusDays(retention.toDays());
+            int deleted = requiresNew.execute(status -> {
+                jdbcTemplate.execute(LOCK_LOG_EVENTS_SQL);
+                return jdbcTemplate.update(pruneSql(jdbcTemplate.queryForList(LIST_DETACHED_SQL, String.class)), cutoff);
+            });
+            if (deleted > 0) {
+                log.info("Deleted {} unused raw payloads", deleted);
+            }
+        } catch (RuntimeException e) {
+            log.error("Pruning raw payloads failed", e);
+        }
+    }
+
+    // Odvojena particija koja ceka arhiviranje (ARCHIVE posle neuspelog pokusaja) ili je namerno sacuvana
+    // (DETACH) i dalje pokazuje na svoje payload-e - LogEventArchive ih dekodira pri arhiviranju
+    static String pruneSql(List<String> detached) {
+        StringBuilder sql = new StringBuilder(PRUNE_SQL);
+        for (String table : detached) {
+            sql.append(" AND NOT EXISTS (SELECT 1 FROM \"").append(table)
+                .append("\" d WHERE d.raw_payload_id = p.id)");
+        }
+        return sql.toString();
+    }
+
+    private static String hash(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package rs.igapp.aurora.server.rollup;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidAggregationException extends RuntimeException {
+
+    public InvalidAggregationException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,248 @@
+package rs.igapp.aurora.server.rollup;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import rs.igapp.aurora.domain.entity.EventRollup.Dimension;
+import rs.igapp.aurora.domain.entity.EventRollup.Granularity;
+import rs.igapp.aurora.domain.entity.LogEvent;
+import rs.igapp.aurora.persistence.repository.EventRollupRepository;
+
+/**
+ * RollupCounters - Brojaci po minutu/satu/danu za dashboard-e, bez count(*) nad log_events i alerts
+ *
+ * Svrha:
+ * Svako osvezavanje dashboard-a je pokretalo count(*) nad celom tabelom. Umesto toga, ingest u memoriji
+ * uvecava brojace (ConcurrentHashMap.merge), a flush ih periodicno upisuje u event_rollups jednim JDBC
+ * batch upsert-om. Upiti citaju par bucket-a (RollupQueryService).
+ *
+ * TOK:
+ * - U memoriji se drze samo MINUTNI bucket-i; satni i dnevni se izvode pri flush-u (zbir minuta)
+ * - Batch se prvo sabere lokalno (HashMap), pa se posle commit-a doda u deljene brojace - rollback-ovan
+ *   batch se ne broji, a broj merge poziva je broj razlicitih kljuceva, ne broj dogadjaja
+ * - flush uzima brojac jednim remove(key): merge posle toga pravi novi brojac za sledeci flush, pa se
+ *   nijedno uvecanje ne gubi
+ * - TOTAL/ALERT_STATUS je trenutno stanje (+1 novi alarm, -1/+1 promena statusa), ne vremenska serija
+ *
+ * Podaci u bazi kasne najvise aurora.rollups.flush-interval. Minutni i satni bucket-i se brisu posle
+ * svog retention-a, dnevni ostaju.
+ */
+@Slf4j
+@Component
+public class RollupCounters {
+
+    static final LocalDateTime TOTAL_BUCKET = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private static final String UPSERT_SQL =
+        "INSERT INTO event_rollups (granularity, dimension, dimension_id, bucket_start, event_count) "
+      + "VALUES (?, ?, ?, ?, ?) "
+      + "ON CONFLICT (granularity, dimension, dimension_id, bucket_start) "
+      + "DO UPDATE SET event_count = event_rollups.event_count + EXCLUDED.event_count";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EventRollupRepository eventRollupRepository;
+    private final Duration minuteRetention;
+    private final Duration hourRetention;
+
+    private final ConcurrentHashMap<RollupKey, Long> pending = new ConcurrentHashMap<>();
+    private volatile LocalDateTime lastPrune = LocalDateTime.MIN;
+    // Lock, ne synchronized: flush ceka JDBC konekciju, a monitor na JDK < 24 kaci virtuelnu nit za carrier
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final Counter flushedRows;
+
+    public RollupCounters(JdbcTemplate jdbcTemplate,
+                          PlatformTransactionManager transactionManager,
+                          EventRollupRepository eventRollupRepository,
+                          MeterRegistry meterRegistry,
+                          @Value("${aurora.rollups.minute-retention:P30D}") Duration minuteRetention,
+                          @Value("${aurora.rollups.hour-retention:P365D}") Duration hourRetention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventRollupRepository = eventRollupRepository;
+        this.minuteRetention = minuteRetention;
+        this.hourRetention = hourRetention;
+
+        this.flushedRows = meterRegistry.counter("aurora.rollups.flushed");
+        Gauge.builder("aurora.rollups.pending", pending, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Kljuc brojaca. Za MINUTE/TOTAL granularnost bucketStart je pocetak minuta / TOTAL_BUCKET.
+     */
+    record RollupKey(Granularity granularity, Dimension dimension, Long dimensionId, LocalDateTime bucketStart) {
+    }
+
+    // ==================== BELEZENJE ====================
+
+    /**
+     * Sacuvani dogadjaji: po bitnosti i po izvoru, u minutu njihovog timestamp-a.
+     */
+    public void recordEvents(List<LogEvent> events) {
+        adjustEvents(events, 1);
+    }
+
+    /**
+     * Izmena ili brisanje dogadjaja: -1 za trenutne vrednosti (bitnost, izvor, minut) pre izmene/brisanja,
+     * +1 za nove posle izmene. Iznosi se racunaju odmah, a primenjuju posle commit-a.
+     */
+    public void adjustEvent(LogEvent event, long delta) {
+        adjustEvents(List.of(event), delta);
+    }
+
+    private void adjustEvents(List<LogEvent> events, long delta) {
+        Map<RollupKey, Long> batch = new HashMap<>();
+        for (LogEvent event : events) {
+            LocalDateTime minute = minute(event.getTimestamp());
+            if (event.getSeverity() != null) {
+                batch.merge(new RollupKey(Granularity.MINUTE, Dimension.SEVERITY, event.getSeverity().getId(), minute), delta, Long::sum);
+            }
+            if (event.getSource() != null) {
+                batch.merge(new RollupKey(Granularity.MINUTE, Dimension.SOURCE, event.getSource().getId(), minute), delta, Long::sum);
+            }
+        }
+        applyAfterCommit(batch);
+    }
+
+    // Pogoci pravila (ukljucujuci deduplikovana ponavljanja) u minutu poslednjeg pojavljivanja
+    public void recordRuleMatches(Long ruleId, LocalDateTime timestamp, long matches) {
+        applyAfterCommit(Map.of(new RollupKey(Granularity.MINUTE, Dimension.RULE, ruleId, minute(timestamp)), matches));
+    }
+
+    // Trenutni broj alarma po statusu: +1 / -1
+    public void adjustAlertStatus(Long statusId, long delta) {
+        if (statusId != null && delta != 0) {
+            applyAfterCommit(Map.of(new RollupKey(Granularity.TOTAL, Dimension.ALERT_STATUS, statusId, TOTAL_BUCKET), delta));
+        }
+    }
+
+    private void applyAfterCommit(Map<RollupKey, Long> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(batch);
+                }
+            });
+        } else {
+            apply(batch);
+        }
+    }
+
+    private void apply(Map<RollupKey, Long> batch) {
+        batch.forEach((key, delta) -> pending.merge(key, delta, Long::sum));
+    }
+
+    // ==================== FLUSH ====================
+
+    @Scheduled(fixedDelayString = "${aurora.rollups.flush-interval:PT5S}")
+    public void scheduledFlush() {
+        try {
+            flush();
+            prune(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            log.error("Flushing rollup counters failed, will retry", e);
+        }
+    }
+
+    /**
+     * Prazni brojace i upisuje minut + izvedeni sat + dan u JEDNOJ transakciji.
+     * Ako upis padne, iznosi se vracaju u brojace.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushLocked();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushLocked() {
+        Map<RollupKey, Long> drained = new HashMap<>();
+        for (RollupKey key : pending.keySet()) {
+            // Atomicno: vrednost i uklanjanje kljuca su jedna operacija, apply posle toga pocinje od nule
+            Long value = pending.remove(key);
+            if (value != null && value != 0) {
+                drained.merge(key, value, Long::sum);
+            }
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+
+        Map<RollupKey, Long> rows = new HashMap<>(drained);
+        for (Map.Entry<RollupKey, Long> entry : drained.entrySet()) {
+            RollupKey key = entry.getKey();
+            if (key.granularity() == Granularity.MINUTE) {
+                rows.merge(new RollupKey(Granularity.HOUR, key.dimension(), key.dimensionId(),
+                    key.bucketStart().truncatedTo(ChronoUnit.HOURS)), entry.getValue(), Long::sum);
+                rows.merge(new RollupKey(Granularity.DAY, key.dimension(), key.dimensionId(),
+                    key.bucketStart().truncatedTo(ChronoUnit.DAYS)), entry.getValue(), Long::sum);
+            }
+        }
+
+        List<Object[]> batch = new ArrayList<>(rows.size());
+        rows.forEach((key, count) -> batch.add(new Object[] {
+            key.granularity().name(), key.dimension().name(), key.dimensionId(),
+            Timestamp.valueOf(key.bucketStart()), count}));
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPSERT_SQL, batch));
+            flushedRows.increment(batch.size());
+        } catch (RuntimeException e) {
+            apply(drained);
+            throw e;
+        }
+    }
+
+    // Najvise jednom na sat
+    void prune(LocalDateTime now) {
+        if (lastPrune.plusHours(1).isAfter(now)) {
+            return;
+        }
+        lastPrune = now;
+        transactionTemplate.executeWithoutResult(status -> {
+            eventRollupRepository.deleteOlderThan(Granularity.MINUTE, now.minus(minuteRetention));
+            eventRollupRepository.deleteOlderThan(Granularity.HOUR, now.minus(hourRetention));
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Final rollup flush failed, {} counters lost", pending.size(), e);
+        }
+    }
+
+    static LocalDateTime minute(LocalDateTime timestamp) {
+        return (timestamp != null ? timestamp : LocalDateTime.now()).truncatedTo(ChronoUnit.MINUTES);
+    }
+}
@@ -0,0 +1,390 @@
+package rs.igapp.aurora.server.rollup;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import rs.igapp.aurora.api.dto.response.HistogramBucket;
+import rs.igapp.aurora.api.dto.response.HistogramResponse;
+import rs.igapp.aurora.api.dto.response.TopNEntry;
+import rs.igapp.aurora.api.dto.response.TopNResponse;
+import rs.igapp.aurora.domain.entity.EventRollup.Dimension;
+import rs.igapp.aurora.domain.entity.EventRollup.Granularity;
+import rs.igapp.aurora.domain.entity.Rule;
+import rs.igapp.aurora.domain.entity.Source;
+import rs.igapp.aurora.persistence.projection.BinnedTotal;
+import rs.igapp.aurora.persistence.projection.DimensionTotal;
+import rs.igapp.aurora.persistence.repository.EventRollupRepository;
+import rs.igapp.aurora.persistence.repository.RuleRepository;
+import rs.igapp.aurora.persistence.repository.SourceRepository;
+import rs.igapp.aurora.server.cache.ReferenceDataCache;
+
+/**
+ * RollupQueryService - Brojanja, histogrami i top-N za dashboard iz event_rollups
+ *
+ * Nijedan upit ne cita log_events - cena zavisi od broja bucket-a i vrednosti dimenzije,
+ * ne od broja dogadjaja (milijarde dogadjaja = isti broj redova u rollup-u).
+ *
+ * OPSEG (count, topN):
+ * [start, end] se deli na najkrupnije cele bucket-e:
+ *   minuti do prvog punog sata | sati do prvog punog dana | celi dani | sati | minuti do kraja
+ * Najvise 5 upita po primarnom kljucu. Preciznost je minut: start se zaokruzuje nadole,
+ * end se ukljucuje ceo (do kraja svog minuta). Ivica starija od minutnog (satnog) retention-a
+ * se cita iz celog sata (dana) i rezultat je oznacen kao priblizan.
+ *
+ * HISTOGRAM:
+ * Baza sabira bucket-e najkrupnije granularnosti koja deli interval (5m -> minuti, 6h -> sati, 1d -> dani)
+ * u intervale (date_bin + GROUP BY), uz gornju granicu broja vrednosti dimenzije (MAX_GROUPS), pa rezultat
+ * ima najvise intervali x (MAX_GROUPS + 1) redova. Gde finiji redovi vise ne postoje (retention), koriste se
+ * satni/dnevni i ti intervali su oznaceni kao approximate. Bez groupBy, ukupno = zbir po bitnosti
+ * (svaki dogadjaj ima tacno jednu bitnost).
+ */
+@Service
+@Transactional(readOnly = true)
+public class RollupQueryService {
+
+    static final int MAX_BUCKETS = 2000;
+    static final int MAX_TOP_N = 100;
+    // Najvise vrednosti dimenzije u histogramu; ostale se sabiraju u OTHER_GROUP
+    static final int MAX_GROUPS = 20;
+    static final String OTHER_GROUP = "OTHER";
+
+    private final EventRollupRepository eventRollupRepository;
+    private final SourceRepository sourceRepository;
+    private final RuleRepository ruleRepository;
+    private final ReferenceDataCache referenceDataCache;
+
+    public RollupQueryService(EventRollupRepository eventRollupRepository,
+                              SourceRepository sourceRepository,
+                              RuleRepository ruleRepository,
+                              ReferenceDataCache referenceDataCache) {
+        this.eventRollupRepository = eventRollupRepository;
+        this.sourceRepository = sourceRepository;
+        this.ruleRepository = ruleRepository;
+        this.referenceDataCache = referenceDataCache;
+    }
+
+    // ==================== BROJANJE ====================
+
+    /**
+     * Broj u opsegu i da li je priblizan (bar jedna ivica je procitana iz krupnijeg bucket-a).
+     */
+    public record RangeCount(long count, boolean approximate) {
+    }
+
+    public RangeCount count(Dimension dimension, Long dimensionId, LocalDateTime start, LocalDateTime end) {
+        List<Segment> segments = segments(start, end);
+        List<Segment> resolved = withFallback(segments, dimension);
+        long total = 0;
+        for (Segment segment : resolved) {
+            total += eventRollupRepository.sumCount(segment.granularity(), dimension, dimensionId,
+                segment.start(), segment.end());
+        }
+        return new RangeCount(total, !resolved.equals(segments));
+    }
+
+    // Svi dogadjaji za koje postoje dnevni bucket-i
+    public long countAll(Dimension dimension, Long dimensionId) {
+        return eventRollupRepository.sumCount(Granularity.DAY, dimension, dimensionId);
+    }
+
+    // Trenutno stanje (npr. broj alarma u statusu)
+    public long current(Dimension dimension, Long dimensionId) {
+        return eventRollupRepository.sumCount(Granularity.TOTAL, dimension, dimensionId);
+    }
+
+    // ==================== HISTOGRAM ====================
+
+    /**
+     * Broj dogadjaja po intervalu (npr. PT5M) u opsegu, opciono razdvojen po dimenziji.
+     * Vraca i prazne intervale, da grafik nema rupa. Sa groupBy se vraca najvise MAX_GROUPS vrednosti
+     * sa najvise dogadjaja u opsegu, a ostale su zbirno pod OTHER_GROUP.
+     */
+    public HistogramResponse histogram(LocalDateTime start, LocalDateTime end, Duration interval, Dimension groupBy) {
+        validateRange(start, end);
+        validateDimension(groupBy);
+        long step = interval.getSeconds();
+        if (step < 60 || step % 60 != 0) {
+            throw new InvalidAggregationException("Interval must be a whole number of minutes: " + interval);
+        }
+        LocalDateTime from = alignDown(start, step);
+        LocalDateTime to = alignDown(end, step).plusSeconds(step);
+        long bucketCount = Duration.between(from, to).getSeconds() / step;
+        if (bucketCount > MAX_BUCKETS) {
+            throw new InvalidAggregationException(
+                "Too many buckets (" + bucketCount + "), max is " + MAX_BUCKETS + " - use a larger interval");
+        }
+
+        Dimension dimension = groupBy != null ? groupBy : Dimension.SEVERITY;
+        Granularity base = step % 86_400 == 0 ? Granularity.DAY : step % 3_600 == 0 ? Granularity.HOUR : Granularity.MINUTE;
+        Map<Granularity, Segment> ranges = histogramRanges(base, dimension, from, to);
+        // Intervali pre ovoga su sabrani iz krupnijih bucket-a
+        LocalDateTime exactFrom = ranges.get(base).start();
+
+        List<BinnedTotal> rows = eventRollupRepository.binTotals(dimension.name(), step,
+            ranges.get(Granularity.MINUTE).start(), ranges.get(Granularity.MINUTE).end(),
+            ranges.get(Granularity.HOUR).start(), ranges.get(Granularity.HOUR).end(),
+            ranges.get(Granularity.DAY).start(), ranges.get(Granularity.DAY).end(),
+            groupBy != null ? MAX_GROUPS : 0);
+
+        // interval -> (vrednost dimenzije, null = ostale -> broj)
+        Map<LocalDateTime, Map<Long, Long>> binned = new TreeMap<>();
+        for (BinnedTotal row : rows) {
+            // Krupniji bucket moze poceti pre opsega - pripada prvom intervalu
+            LocalDateTime bin = row.getBin().isBefore(from) ? from : row.getBin();
+            binned.computeIfAbsent(bin, key -> new HashMap<>())
+                .merge(row.getDimensionId(), row.getTotal(), Long::sum);
+        }
+        Map<Long, String> names = groupBy == null ? Map.of()
+            : resolveNames(groupBy, rows.stream().map(BinnedTotal::getDimensionId).filter(Objects::nonNull).distinct().toList());
+
+        List<HistogramBucket> buckets = new ArrayList<>((int) bucketCount);
+        for (LocalDateTime bucket = from; bucket.isBefore(to); bucket = bucket.plusSeconds(step)) {
+            Map<Long, Long> counts = binned.getOrDefault(bucket, Map.of());
+            buckets.add(HistogramBucket.builder()
+                .start(bucket)
+                .total(counts.values().stream().mapToLong(Long::longValue).sum())
+                .groups(groupBy == null ? null : counts.entrySet().stream().collect(Collectors.toMap(
+                    entry -> entry.getKey() == null ? OTHER_GROUP
+                        : names.getOrDefault(entry.getKey(), String.valueOf(entry.getKey())),
+                    Map.Entry::getValue, Long::sum, LinkedHashMap::new)))
+                .approximate(bucket.isBefore(exactFrom))
+                .build());
+        }
+
+        return HistogramResponse.builder()
+            .start(from)
+            .end(to)
+            .intervalSeconds(step)
+            .groupBy(groupBy != null ? groupBy.name() : null)
+            .buckets(buckets)
+            .build();
+    }
+
+    /**
+     * Opseg [from, to) po granularnosti, od najnovijeg ka najstarijem: base dok ima redova, pa sat, pa dan.
+     * Minutni i satni redovi se brisu posle retention-a (a minutni se ne pune unazad), pa bi bez ovoga stariji
+     * deo grafika bio prazan. Granica izmedju delova je poravnata na krupniju jedinicu - isti dogadjaj se ne
+     * broji dva puta. Neiskoriscena granularnost dobija prazan opseg (start = end).
+     */
+    private Map<Granularity, Segment> histogramRanges(Granularity base, Dimension dimension,
+                                                     LocalDateTime from, LocalDateTime to) {
+        Map<Granularity, Segment> ranges = new EnumMap<>(Granularity.class);
+        LocalDateTime partEnd = to;
+        for (Granularity granularity : List.of(Granularity.MINUTE, Granularity.HOUR, Granularity.DAY)) {
+            if (granularity.compareTo(base) < 0 || !partEnd.isAfter(from)) {
+                ranges.put(granularity, new Segment(granularity, partEnd, partEnd));
+                continue;
+            }
+            LocalDateTime partStart = from;
+            if (granularity != Granularity.DAY) {
+                LocalDateTime first = eventRollupRepository.findFirstBucketStart(granularity, dimension);
+                if (first == null) {
+                    partStart = partEnd;
+                } else if (first.isAfter(from)) {
+                    ChronoUnit coarser = granularity == Granularity.MINUTE ? ChronoUnit.HOURS : ChronoUnit.DAYS;
+                    partStart = min(alignUp(first, coarser), partEnd);
+                }
+            }
+            // Krupniji bucket koji pocinje pre from pokriva i pocetak opsega
+            LocalDateTime rangeStart = granularity != base && partStart.equals(from)
+                ? from.truncatedTo(unit(granularity)) : partStart;
+            ranges.put(granularity, new Segment(granularity, rangeStart, partEnd));
+            partEnd = partStart;
+        }
+        return ranges;
+    }
+
+    // ==================== TOP-N ====================
+
+    /**
+     * Vrednosti dimenzije sa najvise dogadjaja u opsegu (npr. top 20 izvora).
+     * Grupisanje radi baza, po segmentu opsega; Java samo spaja najvise 5 rezultata.
+     */
+    public TopNResponse topN(Dimension dimension, LocalDateTime start, LocalDateTime end, int limit) {
+        validateRange(start, end);
+        validateDimension(dimension);
+        if (dimension == null) {
+            throw new InvalidAggregationException("Dimension is required");
+        }
+        int size = Math.max(1, Math.min(limit, MAX_TOP_N));
+
+        List<Segment> segments = segments(start, end);
+        List<Segment> resolved = withFallback(segments, dimension);
+        Map<Long, Long> totals = new HashMap<>();
+        for (Segment segment : resolved) {
+            for (DimensionTotal row : eventRollupRepository.sumByDimension(segment.granularity(), dimension,
+                    segment.start(), segment.end())) {
+                totals.merge(row.dimensionId(), row.total(), Long::sum);
+            }
+        }
+
+        List<Map.Entry<Long, Long>> top = totals.entrySet().stream()
+            .sorted(Map.Entry.<Long, Long>comparingByValue(Comparator.reverseOrder()))
+            .limit(size)
+            .toList();
+        Map<Long, String> names = resolveNames(dimension, top.stream().map(Map.Entry::getKey).toList());
+
+        return TopNResponse.builder()
+            .dimension(dimension.name())
+            .start(start)
+            .end(end)
+            .approximate(!resolved.equals(segments))
+            .entries(top.stream()
+                .map(entry -> TopNEntry.builder()
+                    .id(entry.getKey())
+                    .name(names.get(entry.getKey()))
+                    .count(entry.getValue())
+                    .build())
+                .toList())
+            .build();
+    }
+
+    // ==================== POMOCNE METODE ====================
+
+    record Segment(Granularity granularity, LocalDateTime start, LocalDateTime end) {
+
+        boolean covers(Segment other) {
+            return !other.start().isBefore(start) && !other.end().isAfter(end);
+        }
+    }
+
+    /**
+     * Ivice opsega citaju minutne (i satne) bucket-e, a njih vise nema posle retention-a - za stari opseg
+     * bi zbir bio premali. Segment ciji finiji redovi ne postoje cita ceo krupniji bucket (sat umesto minuta,
+     * dan umesto sata): broj tada ukljucuje i dogadjaje van ivice, pa je rezultat priblizan. Segment koji
+     * pokriva vec izabrani krupniji bucket se preskace - nista se ne broji dva puta.
+     */
+    private List<Segment> withFallback(List<Segment> segments, Dimension dimension) {
+        LocalDateTime minuteFloor = null;
+        LocalDateTime hourFloor = null;
+        List<Segment> resolved = new ArrayList<>(segments.size());
+        for (Segment segment : segments) {
+            Segment effective = segment;
+            if (effective.granularity() == Granularity.MINUTE) {
+                minuteFloor = minuteFloor != null ? minuteFloor : floor(Granularity.MINUTE, dimension, ChronoUnit.HOURS);
+                if (effective.start().isBefore(minuteFloor)) {
+                    LocalDateTime hour = effective.start().truncatedTo(ChronoUnit.HOURS);
+                    effective = new Segment(Granularity.HOUR, hour, hour.plusHours(1));
+                }
+            }
+            if (effective.granularity() == Granularity.HOUR) {
+                hourFloor = hourFloor != null ? hourFloor : floor(Granularity.HOUR, dimension, ChronoUnit.DAYS);
+                if (effective.start().isBefore(hourFloor)) {
+                    effective = new Segment(Granularity.DAY, effective.start().truncatedTo(ChronoUnit.DAYS),
+                        alignUp(effective.end(), ChronoUnit.DAYS));
+                }
+            }
+            Segment candidate = effective;
+            if (resolved.stream().noneMatch(existing -> existing.covers(candidate))) {
+                resolved.removeIf(candidate::covers);
+                resolved.add(candidate);
+            }
+        }
+        return resolved;
+    }
+
+    // Pocetak prve cele krupnije jedinice od koje postoje redovi granularnosti (MAX = nema nijednog)
+    private LocalDateTime floor(Granularity granularity, Dimension dimension, ChronoUnit coarser) {
+        LocalDateTime first = eventRollupRepository.findFirstBucketStart(granularity, dimension);
+        return first != null ? alignUp(first, coarser) : LocalDateTime.MAX;
+    }
+
+    // Deli [start, end] na najkrupnije cele bucket-e (vidi opis klase)
+    static List<Segment> segments(LocalDateTime start, LocalDateTime end) {
+        List<Segment> segments = new ArrayList<>(5);
+        LocalDateTime cursor = start.truncatedTo(ChronoUnit.MINUTES);
+        LocalDateTime limit = end.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+
+        while (cursor.isBefore(limit)) {
+            LocalDateTime next;
+            Granularity granularity;
+            if (isAligned(cursor, ChronoUnit.DAYS) && !cursor.plusDays(1).isAfter(limit)) {
+                granularity = Granularity.DAY;
+                next = limit.truncatedTo(ChronoUnit.DAYS);
+            } else if (isAligned(cursor, ChronoUnit.HOURS) && !cursor.plusHours(1).isAfter(limit)) {
+                granularity = Granularity.HOUR;
+                next = min(cursor.truncatedTo(ChronoUnit.DAYS).plusDays(1), limit.truncatedTo(ChronoUnit.HOURS));
+            } else {
+                granularity = Granularity.MINUTE;
+                next = min(cursor.truncatedTo(ChronoUnit.HOURS).plusHours(1), limit);
+            }
+            segments.add(new Segment(granularity, cursor, next));
+            cursor = next;
+        }
+        return segments;
+    }
+
+    // ID -> citljiv naziv (bitnost iz kesa, izvori i pravila jednim upitom)
+    private Map<Long, String> resolveNames(Dimension dimension, List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return switch (dimension) {
+            case SEVERITY -> {
+                Map<Long, String> names = new HashMap<>();
+                ids.forEach(id -> referenceDataCache.findSeverity(id).ifPresent(severity -> names.put(id, severity.getName())));
+                yield names;
+            }
+            case SOURCE -> sourceRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Source::getId, Source::getAgentId));
+            case RULE -> ruleRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Rule::getId, Rule::getName));
+            case ALERT_STATUS -> Map.of();
+        };
+    }
+
+    private static void validateRange(LocalDateTime start, LocalDateTime end) {
+        if (start == null || end == null || !end.isAfter(start)) {
+            throw new InvalidAggregationException("Range end must be after start");
+        }
+    }
+
+    // ALERT_STATUS nije vremenska serija (samo trenutno stanje)
+    private static void validateDimension(Dimension dimension) {
+        if (dimension == Dimension.ALERT_STATUS) {
+            throw new InvalidAggregationException("ALERT_STATUS is not a time series");
+        }
+    }
+
+    // Intervali su poravnati od epohe (5m -> :00, :05, ...; 1d -> ponoc)
+    private static LocalDateTime alignDown(LocalDateTime time, long stepSeconds) {
+        long epoch = time.toEpochSecond(ZoneOffset.UTC);
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epoch, stepSeconds) * stepSeconds, 0, ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime alignUp(LocalDateTime time, ChronoUnit unit) {
+        LocalDateTime truncated = time.truncatedTo(unit);
+        return truncated.equals(time) ? time : truncated.plus(1, unit);
+    }
+
+    private static ChronoUnit unit(Granularity granularity) {
+        return switch (granularity) {
+            case MINUTE -> ChronoUnit.MINUTES;
+            case HOUR -> ChronoUnit.HOURS;
+            case DAY, TOTAL -> ChronoUnit.DAYS;
+        };
+    }
+
+    private static boolean isAligned(LocalDateTime time, ChronoUnit unit) {
+        return time.truncatedTo(unit).equals(time);
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+}
@@ -0,0 +1,78 @@
+package rs.igapp.aurora.server.routing;
+
+import java.time.Duration;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import rs.igapp.aurora.server.routing.ReplicaRoutingDataSource.Replica;
+
+/**
+ * ReplicaLagMonitor - Periodicno meri zaostatak replika i ukljucuje/iskljucuje ih iz rutiranja
+ *
+ * Zaostatak = vreme od poslednje primenjene transakcije, ali 0 kad je replika primila i primenila sav WAL
+ * (inace bi replika mirnog primary-ja izgledala kao da zaostaje). Instanca koja nije u recovery-ju
+ * (npr. druga lokalna baza za testiranje) se smatra sinhronom.
+ *
+ * Replika se koristi samo dok je zaostatak <= aurora.datasource.replicas.max-lag. Greska pri merenju
+ * (replika pala, mreza) je iskljucuje do sledece uspesne provere i izbacuje konekcije iz njenog pool-a,
+ * pa sledeca provera (i citanja posle nje) otvara nove. Do prve provere sve ide na primary.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private static final String LAG_SQL =
+        "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0 "
+      + "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+      + "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    private final ReplicaRoutingDataSource routingDataSource;
+    private final Duration maxLag;
+
+    public ReplicaLagMonitor(ReplicaRoutingDataSource routingDataSource, Duration maxLag, MeterRegistry meterRegistry) {
+        this.routingDataSource = routingDataSource;
+        this.maxLag = maxLag;
+        for (Replica replica : routingDataSource.replicas()) {
+            Gauge.builder("aurora.datasource.replica.lag", replica, Replica::lagSeconds)
+                .tag("replica", replica.name())
+                .baseUnit("seconds")
+                .register(meterRegistry);
+            Gauge.builder("aurora.datasource.replica.available", replica, r -> r.available() ? 1 : 0)
+                .tag("replica", replica.name())
+                .register(meterRegistry);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${aurora.datasource.replicas.check-interval:PT5S}")
+    public void check() {
+        for (Replica replica : routingDataSource.replicas()) {
+            boolean wasAvailable = replica.available();
+            try {
+                Double lag = new JdbcTemplate(replica.dataSource()).queryForObject(LAG_SQL, Double.class);
+                double seconds = lag != null ? lag : 0;
+                boolean available = seconds * 1000 <= maxLag.toMillis();
+                replica.update(available, seconds);
+                if (wasAvailable && !available) {
+                    log.warn("Replica {} is {}s behind (max {}), reads go elsewhere", replica.name(), seconds, maxLag);
+                } else if (!wasAvailable && available) {
+                    log.info("Replica {} is back in rotation ({}s behind)", replica.name(), seconds);
+                }
+            } catch (RuntimeException e) {
+                replica.update(false, Double.NaN);
+                // Posle restarta replike pool je pun prekinutih konekcija - svaka provera bi potrosila jednu
+                HikariPoolMXBean pool = replica.dataSource().getHikariPoolMXBean();
+                if (pool != null) {
+                    pool.softEvictConnections();
+                }
+                if (wasAvailable) {
+                    log.warn("Replica {} is unreachable, reads go elsewhere", replica.name(), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package rs.igapp.aurora.server.routing;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * ReplicaRoutingDataSource - Bira repliku za read-only konekciju
+ *
+ * LazyConnectionDataSourceProxy (ReadReplicaConfig) ovde salje samo konekcije read-only transakcija.
+ * Replike se biraju round-robin, preskacu se one koje ReplicaLagMonitor oznaci kao nedostupne ili
+ * previse zaostale. Ako nijedna nije dostupna, citanje ide na primary - sporije, ali nikad zastarelo.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    static final String PRIMARY = "primary";
+
+    private final List<Replica> replicas;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter replicaReads;
+    private final Counter primaryFallbacks;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<Replica> replicas, MeterRegistry meterRegistry) {
+        this.replicas = List.copyOf(replicas);
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        this.replicas.forEach(replica -> targets.put(replica.name(), replica.dataSource()));
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+
+        this.replicaReads = meterRegistry.counter("aurora.datasource.reads", "target", "replica");
+        this.primaryFallbacks = meterRegistry.counter("aurora.datasource.reads", "target", "primary");
+    }
+
+    /**
+     * Jedna replika (ime = kljuc rutiranja). Stanje menja samo ReplicaLagMonitor.
+     */
+    public static class Replica {
+
+        private final String name;
+        private final HikariDataSource dataSource;
+        private volatile boolean available;
+        private volatile double lagSeconds = Double.NaN;
+
+        public Replica(String name, HikariDataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public HikariDataSource dataSource() {
+            return dataSource;
+        }
+
+        public boolean available() {
+            return available;
+        }
+
+        public double lagSeconds() {
+            return lagSeconds;
+        }
+
+        void update(boolean available, double lagSeconds) {
+            this.available = available;
+            this.lagSeconds = lagSeconds;
+        }
+    }
+
+    public List<Replica> replicas() {
+        return replicas;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.available()) {
+                replicaReads.increment();
+                return replica.name();
+            }
+        }
+        primaryFallbacks.increment();
+        return PRIMARY;
+    }
+
+    // Primary pool zatvara Spring (poseban bean), ovde samo pool-ovi replika
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.dataSource().close());
+    }
+}
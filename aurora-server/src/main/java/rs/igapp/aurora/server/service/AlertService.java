@@ -0,0 +1,183 @@
+package rs.igapp.aurora.server.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import rs.igapp.aurora.api.dto.request.AlertRequest;
+import rs.igapp.aurora.api.dto.response.AlertResponse;
+import rs.igapp.aurora.api.dto.response.CursorPageResponse;
+import rs.igapp.aurora.domain.entity.Alert;
+import rs.igapp.aurora.domain.entity.AlertStatus;
+import rs.igapp.aurora.domain.entity.EventRollup;
+import rs.igapp.aurora.persistence.projection.AlertSummary;
+import rs.igapp.aurora.persistence.repository.AlertRepository;
+import rs.igapp.aurora.persistence.repository.AlertStatusRepository;
+import rs.igapp.aurora.persistence.repository.LogEventRepository;
+import rs.igapp.aurora.persistence.repository.RuleRepository;
+import rs.igapp.aurora.persistence.repository.SourceRepository;
+import rs.igapp.aurora.server.cache.ReferenceDataCache;
+import rs.igapp.aurora.server.pagination.KeysetCursor;
+import rs.igapp.aurora.server.pagination.KeysetPages;
+import rs.igapp.aurora.server.rollup.RollupCounters;
+import rs.igapp.aurora.server.rollup.RollupQueryService;
+
+/**
+ * AlertService - Poslovna logika za alarme (alert) koje proizvode pravila detekcije
+ *
+ * Pored CRUD operacija nudi keyset listanje po (createdAt, id) - bez OFFSET-a i count(*) upita.
+ * Lista cita AlertSummary projekciju (samo kolone reda liste), entitet se ucitava samo za detalj i izmenu.
+ */
+@Service
+public class AlertService extends CrudService<Alert, AlertRequest, AlertResponse, Long> {
+
+    private static final String RESOLVED = "RESOLVED";
+
+    private final AlertRepository alertRepository;
+    private final RuleRepository ruleRepository;
+    private final LogEventRepository logEventRepository;
+    private final SourceRepository sourceRepository;
+    private final AlertStatusRepository alertStatusRepository;
+    private final ReferenceDataCache referenceDataCache;
+    private final RollupCounters rollupCounters;
+    private final RollupQueryService rollupQueryService;
+
+    public AlertService(AlertRepository alertRepository,
+                        RuleRepository ruleRepository,
+                        LogEventRepository logEventRepository,
+                        SourceRepository sourceRepository,
+                        AlertStatusRepository alertStatusRepository,
+                        ReferenceDataCache referenceDataCache,
+                        RollupCounters rollupCounters,
+                        RollupQueryService rollupQueryService) {
+        super(alertRepository);
+        this.alertRepository = alertRepository;
+        this.ruleRepository = ruleRepository;
+        this.logEventRepository = logEventRepository;
+        this.sourceRepository = sourceRepository;
+        this.alertStatusRepository = alertStatusRepository;
+        this.referenceDataCache = referenceDataCache;
+        this.rollupCounters = rollupCounters;
+        this.rollupQueryService = rollupQueryService;
+    }
+
+    // ==================== BROJACI ====================
+
+    // Broj alarma u statusu - iz rollup-a (azurira se pri upisu i promeni statusa), bez count(*) nad alerts
+    public long countByStatus(Long statusId) {
+        return rollupQueryService.current(EventRollup.Dimension.ALERT_STATUS, statusId);
+    }
+
+    @Override
+    public AlertResponse create(AlertRequest request) {
+        AlertResponse response = super.create(request);
+        rollupCounters.adjustAlertStatus(request.getStatusId(), 1);
+        return response;
+    }
+
+    @Override
+    public void delete(Long id) {
+        alertRepository.findById(id).ifPresent(alert -> {
+            alertRepository.delete(alert);
+            rollupCounters.adjustAlertStatus(alert.getStatus().getId(), -1);
+        });
+    }
+
+    // ==================== KEYSET LISTANJE ====================
+
+    @Transactional(readOnly = true) // najnoviji alarmi prvi, cursor = null za prvu stranu
+    public CursorPageResponse<AlertResponse> getPage(String cursor, int size) {
+        int pageSize = KeysetPages.clampSize(size);
+        KeysetCursor position = KeysetCursor.decode(cursor);
+
+        List<AlertSummary> rows = position == null
+            ? alertRepository.findFirstKeysetPage(KeysetPages.probe(pageSize))
+            : alertRepository.findKeysetPageAfter(position.timestamp(), position.id(), KeysetPages.probe(pageSize));
+
+        return KeysetPages.toPage(rows, pageSize,
+            alert -> new KeysetCursor(alert.createdAt(), alert.id()),
+            this::mapToListResponse);
+    }
+
+    // Red liste: bez investigationNotes (samo GET /api/alerts/{id})
+    private AlertResponse mapToListResponse(AlertSummary alert) {
+        return AlertResponse.builder()
+            .id(alert.id())
+            .ruleName(alert.ruleName())
+            .sourceId(alert.sourceAgentId())
+            .severity(alert.severityName())
+            .status(alert.statusName())
+            .message(alert.message())
+            .occurrenceCount(alert.occurrenceCount())
+            .firstSeen(alert.firstSeen())
+            .lastSeen(alert.lastSeen())
+            .assignedTo(alert.assignedTo())
+            .createdAt(alert.createdAt())
+            .resolvedAt(alert.resolvedAt())
+            .build();
+    }
+
+    // ==================== IMPLEMENTACIJA APSTRAKTNIH METODA ====================
+
+    @Override
+    protected Alert mapToEntity(AlertRequest request) {
+        return Alert.builder()
+            .rule(ruleRepository.findById(request.getRuleId())
+                .orElseThrow(() -> new RuntimeException("Rule not found: " + request.getRuleId())))
+            // LogEvent se ne ucitava (TEXT + JSONB), dovoljna je referenca za FK
+            .triggeringLogEvent(logEventRepository.getReferenceById(request.getLogEventId()))
+            .source(sourceRepository.findById(request.getSourceId())
+                .orElseThrow(() -> new RuntimeException("Source not found: " + request.getSourceId())))
+            .severity(referenceDataCache.findSeverity(request.getSeverityId())
+                .orElseThrow(() -> new RuntimeException("Severity not found: " + request.getSeverityId())))
+            .status(findStatus(request.getStatusId()))
+            .message(request.getMessage())
+            .assignedTo(request.getAssignedTo())
+            .investigationNotes(request.getInvestigationNotes())
+            .build();
+    }
+
+    @Override
+    protected AlertResponse mapToResponse(Alert alert) {
+        return AlertResponse.builder()
+            .id(alert.getId())
+            .ruleName(alert.getRule() != null ? alert.getRule().getName() : null)
+            .sourceId(alert.getSource() != null ? alert.getSource().getAgentId() : null)
+            .severity(alert.getSeverity() != null ? alert.getSeverity().getName() : null)
+            .status(alert.getStatus() != null ? alert.getStatus().getName() : null)
+            .message(alert.getMessage())
+            .occurrenceCount(alert.getOccurrenceCount())
+            .firstSeen(alert.getFirstSeen())
+            .lastSeen(alert.getLastSeen())
+            .assignedTo(alert.getAssignedTo())
+            .investigationNotes(alert.getInvestigationNotes())
+            .createdAt(alert.getCreatedAt())
+            .resolvedAt(alert.getResolvedAt())
+            .build();
+    }
+
+    // Analiticar menja status, dodelu i beleske; pravilo i dogadjaj koji je okinuo alarm se ne menjaju
+    @Override
+    protected void updateEntity(Alert entity, AlertRequest request) {
+        if (request.getStatusId() != null && !request.getStatusId().equals(entity.getStatus().getId())) {
+            AlertStatus status = findStatus(request.getStatusId());
+            rollupCounters.adjustAlertStatus(entity.getStatus().getId(), -1);
+            rollupCounters.adjustAlertStatus(status.getId(), 1);
+            entity.setStatus(status);
+            entity.setResolvedAt(RESOLVED.equals(status.getName()) ? LocalDateTime.now() : null);
+        }
+        if (request.getSeverityId() != null) {
+            referenceDataCache.findSeverity(request.getSeverityId()).ifPresent(entity::setSeverity);
+        }
+        entity.setMessage(request.getMessage());
+        entity.setAssignedTo(request.getAssignedTo());
+        entity.setInvestigationNotes(request.getInvestigationNotes());
+    }
+
+    private AlertStatus findStatus(Long statusId) {
+        return alertStatusRepository.findById(statusId)
+            .orElseThrow(() -> new RuntimeException("Alert status not found: " + statusId));
+    }
+}
@@ -0,0 +1,162 @@
+package rs.igapp.aurora.server.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import rs.igapp.aurora.api.dto.request.IncidentRequest;
+import rs.igapp.aurora.api.dto.response.CursorPageResponse;
+import rs.igapp.aurora.api.dto.response.IncidentResponse;
+import rs.igapp.aurora.domain.entity.AlertStatus;
+import rs.igapp.aurora.domain.entity.Incident;
+import rs.igapp.aurora.domain.entity.Severity;
+import rs.igapp.aurora.persistence.projection.IncidentAlertLink;
+import rs.igapp.aurora.persistence.repository.AlertStatusRepository;
+import rs.igapp.aurora.persistence.repository.IncidentRepository;
+import rs.igapp.aurora.server.cache.ReferenceDataCache;
+import rs.igapp.aurora.server.pagination.KeysetCursor;
+import rs.igapp.aurora.server.pagination.KeysetPages;
+
+/**
+ * IncidentService - Poslovna logika za incidente (grupe povezanih alarma)
+ *
+ * Pored CRUD operacija nudi keyset listanje po (createdAt, id) - bez OFFSET-a i count(*) upita.
+ *
+ * Liste se mapiraju bez N+1: bitnost i status dolaze u istom upitu (entity graph / JOIN FETCH),
+ * a ID-jevi alarma cele strane jednim upitom nad incident_alerts (findAlertLinks) -
+ * kolekcija incident.alerts se nikad ne ucitava radi odgovora.
+ */
+@Service
+public class IncidentService extends CrudService<Incident, IncidentRequest, IncidentResponse, Long> {
+
+    private static final String RESOLVED = "RESOLVED";
+
+    private final IncidentRepository incidentRepository;
+    private final AlertStatusRepository alertStatusRepository;
+    private final ReferenceDataCache referenceDataCache;
+
+    public IncidentService(IncidentRepository incidentRepository,
+                           AlertStatusRepository alertStatusRepository,
+                           ReferenceDataCache referenceDataCache) {
+        super(incidentRepository);
+        this.incidentRepository = incidentRepository;
+        this.alertStatusRepository = alertStatusRepository;
+        this.referenceDataCache = referenceDataCache;
+    }
+
+    // ==================== KEYSET LISTANJE ====================
+
+    @Transactional(readOnly = true) // najnoviji incidenti prvi, cursor = null za prvu stranu
+    public CursorPageResponse<IncidentResponse> getPage(String cursor, int size) {
+        int pageSize = KeysetPages.clampSize(size);
+        KeysetCursor position = KeysetCursor.decode(cursor);
+
+        List<Incident> rows = position == null
+            ? incidentRepository.findFirstKeysetPage(KeysetPages.probe(pageSize))
+            : incidentRepository.findKeysetPageAfter(position.timestamp(), position.id(), KeysetPages.probe(pageSize));
+
+        return KeysetPages.toPage(rows, pageSize,
+            incident -> new KeysetCursor(incident.getCreatedAt(), incident.getId()),
+            mapper(rows));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<IncidentResponse> getAll(Pageable pageable) {
+        Page<Incident> page = incidentRepository.findAll(pageable);
+        return page.map(mapper(page.getContent()));
+    }
+
+    // ==================== IMPLEMENTACIJA APSTRAKTNIH METODA ====================
+
+    @Override
+    protected Incident mapToEntity(IncidentRequest request) {
+        return Incident.builder()
+            .title(request.getTitle())
+            .description(request.getDescription())
+            .severity(findSeverity(request.getSeverityId()))
+            .status(findStatus(request.getStatusId()))
+            .assignedTo(request.getAssignedTo())
+            .timeline(request.getTimeline())
+            .build();
+    }
+
+    @Override
+    protected IncidentResponse mapToResponse(Incident incident) {
+        return mapToResponse(incident, loadAlertIds(List.of(incident)).getOrDefault(incident.getId(), Set.of()));
+    }
+
+    private IncidentResponse mapToResponse(Incident incident, Set<Long> alertIds) {
+        return IncidentResponse.builder()
+            .id(incident.getId())
+            .title(incident.getTitle())
+            .description(incident.getDescription())
+            .severity(incident.getSeverity() != null ? incident.getSeverity().getName() : null)
+            .status(incident.getStatus() != null ? incident.getStatus().getName() : null)
+            .assignedTo(incident.getAssignedTo())
+            .timeline(incident.getTimeline())
+            .alertIds(alertIds)
+            .createdAt(incident.getCreatedAt())
+            .resolvedAt(incident.getResolvedAt())
+            .build();
+    }
+
+    @Override
+    protected void updateEntity(Incident entity, IncidentRequest request) {
+        entity.setTitle(request.getTitle());
+        entity.setDescription(request.getDescription());
+        if (request.getSeverityId() != null) {
+            referenceDataCache.findSeverity(request.getSeverityId()).ifPresent(entity::setSeverity);
+        }
+        if (request.getStatusId() != null) {
+            AlertStatus status = findStatus(request.getStatusId());
+            entity.setStatus(status);
+            entity.setResolvedAt(RESOLVED.equals(status.getName()) ? LocalDateTime.now() : null);
+        }
+        entity.setAssignedTo(request.getAssignedTo());
+        entity.setTimeline(request.getTimeline());
+    }
+
+    // ==================== POMOCNE METODE ====================
+
+    // Mapper za celu stranu: ID-jevi alarma se ucitaju jednom, pre mapiranja
+    private Function<Incident, IncidentResponse> mapper(List<Incident> incidents) {
+        Map<Long, Set<Long>> alertIds = loadAlertIds(incidents);
+        return incident -> mapToResponse(incident, alertIds.getOrDefault(incident.getId(), Set.of()));
+    }
+
+    private Map<Long, Set<Long>> loadAlertIds(List<Incident> incidents) {
+        List<Long> ids = incidents.stream().map(Incident::getId).filter(Objects::nonNull).toList();
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return incidentRepository.findAlertLinks(ids).stream()
+            .collect(Collectors.groupingBy(IncidentAlertLink::getIncidentId,
+                Collectors.mapping(IncidentAlertLink::getAlertId, Collectors.toSet())));
+    }
+
+    private Severity findSeverity(Long severityId) {
+        if (severityId == null) {
+            throw new RuntimeException("Severity is required");
+        }
+        return referenceDataCache.findSeverity(severityId)
+            .orElseThrow(() -> new RuntimeException("Severity not found: " + severityId));
+    }
+
+    private AlertStatus findStatus(Long statusId) {
+        if (statusId == null) {
+            throw new RuntimeException("Alert status is required");
+        }
+        return alertStatusRepository.findById(statusId)
+            .orElseThrow(() -> new RuntimeException("Alert status not found: " + statusId));
+    }
+}
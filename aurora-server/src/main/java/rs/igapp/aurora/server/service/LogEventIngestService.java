@@ -0,0 +1,161 @@
+package rs.igapp.aurora.server.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+import rs.igapp.aurora.api.dto.request.LogEventRequest;
+import rs.igapp.aurora.api.dto.response.BulkIngestResponse;
+import rs.igapp.aurora.domain.entity.LogEvent;
+import rs.igapp.aurora.server.detection.AlertAggregator;
+import rs.igapp.aurora.server.detection.DetectionEngine;
+import rs.igapp.aurora.server.heartbeat.HeartbeatTracker;
+import rs.igapp.aurora.server.payload.RawPayloadStore;
+import rs.igapp.aurora.server.rollup.RollupCounters;
+
+/**
+ * LogEventIngestService - Bulk upis log dogadjaja (ingest pipeline)
+ *
+ * Svrha:
+ * CrudService.create cuva jedan red po pozivu (jedan INSERT + jedna transakcija po dogadjaju).
+ * Agenti salju desetine hiljada dogadjaja u sekundi, pa ovaj servis prima listu zahteva,
+ * deli je na batch-eve i svaki batch upisuje u JEDNOJ transakciji preko JDBC batch INSERT-a.
+ *
+ * ZASTO RADI BRZO:
+ * - LogEvent koristi SEQUENCE sa pooled optimizerom (allocationSize = 50), Hibernate ne mora da ceka
+ *   na bazu za svaki ID pa moze da grupise INSERT-e (IDENTITY iskljucuje batching)
+ * - persist -> flush -> clear po batch-u drzi persistence context malim
+ *
+ * HEARTBEAT:
+ * Dogadjaj od izvora je i dokaz da je ziv - HeartbeatTracker belezi izvore batch-a posle commit-a
+ * (u memoriji, bez upisa u bazu).
+ *
+ * DETEKCIJA:
+ * Posle upisa batch-a, DetectionEngine proverava dogadjaje protiv pravila u memoriji,
+ * a kandidati za alarme idu u AlertAggregator tek kad batch commit-uje (deduplikacija + batch upis).
+ *
+ * RAW PAYLOAD (COMPACT):
+ * Mapiranje i RawPayloadStore.compact idu PRE otvaranja transakcije batch-a. compact pise u sopstvenoj
+ * (REQUIRES_NEW) transakciji - unutar batch-a bi svaka ingest nit drzala dve konekcije, a pun pool
+ * niti koje cekaju drugu konekciju je deadlock do connection-timeout-a.
+ *
+ * NAPOMENA: Servis namerno NIJE @Transactional, granica transakcije je jedan batch (TransactionTemplate).
+ */
+@Service
+public class LogEventIngestService {
+
+    private final LogEventService logEventService;
+    private final DetectionEngine detectionEngine;
+    private final AlertAggregator alertAggregator;
+    private final RollupCounters rollupCounters;
+    private final RawPayloadStore rawPayloadStore;
+    private final HeartbeatTracker heartbeatTracker;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public LogEventIngestService(LogEventService logEventService,
+                                 DetectionEngine detectionEngine,
+                                 AlertAggregator alertAggregator,
+                                 RollupCounters rollupCounters,
+                                 RawPayloadStore rawPayloadStore,
+                                 HeartbeatTracker heartbeatTracker,
+                                 EntityManager entityManager,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${aurora.ingest.batch-size:500}") int batchSize) {
+        this.logEventService = logEventService;
+        this.detectionEngine = detectionEngine;
+        this.alertAggregator = alertAggregator;
+        this.rollupCounters = rollupCounters;
+        this.rawPayloadStore = rawPayloadStore;
+        this.heartbeatTracker = heartbeatTracker;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Upisuje sve zahteve, batch po batch. Ako jedan batch padne, prethodni batch-evi ostaju sacuvani.
+     */
+    public BulkIngestResponse ingest(List<LogEventRequest> requests) {
+        long start = System.nanoTime();
+        int accepted = 0;
+        int batches = 0;
+
+        for (int from = 0; from < requests.size(); from += batchSize) {
+            Prepared batch = prepare(requests.subList(from, Math.min(from + batchSize, requests.size())));
+            accepted += transactionTemplate.execute(status -> writeBatch(batch));
+            batches++;
+        }
+
+        return BulkIngestResponse.builder()
+            .received(requests.size())
+            .accepted(accepted)
+            .batches(batches)
+            .elapsedMillis((System.nanoTime() - start) / 1_000_000)
+            .build();
+    }
+
+    /**
+     * Upisuje sve zahteve u JEDNOJ transakciji (po batchSize u JDBC batch-u), pa u istoj transakciji
+     * izvrsava beforeCommit. IngestQueue ovako upisuje batch agenta zajedno sa njegovom pozicijom -
+     * ili je upisano sve, ili nista.
+     */
+    public int ingestInOneTransaction(List<LogEventRequest> requests, Runnable beforeCommit) {
+        List<Prepared> batches = new ArrayList<>();
+        for (int from = 0; from < requests.size(); from += batchSize) {
+            batches.add(prepare(requests.subList(from, Math.min(from + batchSize, requests.size()))));
+        }
+        return transactionTemplate.execute(status -> {
+            int written = 0;
+            for (Prepared batch : batches) {
+                written += writeBatch(batch);
+            }
+            beforeCommit.run();
+            return written;
+        });
+    }
+
+    // Batch spreman za upis: entiteti (rawData vec prebacen u raw_payloads) i agentId-jevi izvora
+    private record Prepared(List<LogEvent> events, Set<String> sourceIds) {
+    }
+
+    // Van transakcije: izvori/bitnosti iz ReferenceDataCache-a (odvojeni entiteti), pa compact
+    private Prepared prepare(List<LogEventRequest> batch) {
+        List<LogEvent> events = new ArrayList<>(batch.size());
+        Set<String> sourceIds = new HashSet<>();
+        String lastSourceId = null;
+        for (LogEventRequest request : batch) {
+            events.add(logEventService.mapToEntity(request));
+            if (!request.getSourceId().equals(lastSourceId)) {  // batch je obicno od jednog izvora
+                lastSourceId = request.getSourceId();
+                sourceIds.add(lastSourceId);
+            }
+        }
+        rawPayloadStore.compact(events);  // COMPACT mod: rawData -> raw_payloads, jedan upit za ceo batch
+        return new Prepared(events, sourceIds);
+    }
+
+    // Poziva se unutar transakcije, svi INSERT-i jednog batch-a idu kao jedan JDBC batch
+    private int writeBatch(Prepared batch) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+
+        List<LogEvent> persisted = batch.events();
+        heartbeatTracker.recordAfterCommit(batch.sourceIds());
+        persisted.forEach(entityManager::persist);
+        alertAggregator.submitAfterCommit(detectionEngine.evaluate(persisted));
+        rollupCounters.recordEvents(persisted);  // dashboard brojaci, primenjuju se posle commit-a
+
+        entityManager.flush();
+        entityManager.clear();  // oslobodi memoriju pre sledeceg batch-a
+        return persisted.size();
+    }
+}
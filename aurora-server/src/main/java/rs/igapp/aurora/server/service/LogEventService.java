@@ -1,20 +1,42 @@
 package rs.igapp.aurora.server.service;
 
 import rs.igapp.aurora.api.dto.request.LogEventRequest;
+import rs.igapp.aurora.api.dto.response.CursorPageResponse;
 import rs.igapp.aurora.api.dto.response.LogEventResponse;
+import rs.igapp.aurora.domain.entity.EventRollup;
 import rs.igapp.aurora.domain.entity.LogEvent;
 import rs.igapp.aurora.domain.entity.Severity;
 import rs.igapp.aurora.domain.entity.Source;
+import rs.igapp.aurora.persistence.projection.LogEventSearchHit;
+import rs.igapp.aurora.persistence.projection.LogEventSummary;
 import rs.igapp.aurora.persistence.repository.LogEventRepository;
-import rs.igapp.aurora.persistence.repository.SeverityRepository;
-import rs.igapp.aurora.persistence.repository.SourceRepository;
+import rs.igapp.aurora.server.archive.ArchivedEvent;
+import rs.igapp.aurora.server.archive.LogEventArchive;
+import rs.igapp.aurora.server.cache.ReferenceDataCache;
+import rs.igapp.aurora.server.detection.AlertAggregator;
+import rs.igapp.aurora.server.detection.DetectionEngine;
+import rs.igapp.aurora.server.pagination.KeysetCursor;
+import rs.igapp.aurora.server.pagination.KeysetPages;
+import rs.igapp.aurora.server.payload.RawPayloadStore;
+import rs.igapp.aurora.server.rollup.RollupCounters;
+import rs.igapp.aurora.server.rollup.RollupQueryService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * LogEventService - Poslovna logika za menadzment sigurnostnih log dogadjaja u SIEM sistemu
@@ -42,16 +64,91 @@ import java.util.List;
 public class LogEventService extends CrudService<LogEvent, LogEventRequest, LogEventResponse, Long> {
 
     private final LogEventRepository logEventRepository;  
-    private final SeverityRepository severityRepository; 
-    private final SourceRepository sourceRepository;  
+    private final ReferenceDataCache referenceDataCache;  // Source/Severity bez SELECT-a po dogadjaju
+    private final EntityManager entityManager;
+    private final DetectionEngine detectionEngine;
+    private final AlertAggregator alertAggregator;
+    private final RollupCounters rollupCounters;
+    private final RollupQueryService rollupQueryService;
+    private final LogEventArchive logEventArchive;
+    private final RawPayloadStore rawPayloadStore;
+    private final TransactionTemplate transactionTemplate;
 
     public LogEventService(LogEventRepository logEventRepository, 
-                          SeverityRepository severityRepository,
-                          SourceRepository sourceRepository) {
+                          ReferenceDataCache referenceDataCache,
+                          EntityManager entityManager,
+                          DetectionEngine detectionEngine,
+                          AlertAggregator alertAggregator,
+                          RollupCounters rollupCounters,
+                          RollupQueryService rollupQueryService,
+                          LogEventArchive logEventArchive,
+                          RawPayloadStore rawPayloadStore,
+                          PlatformTransactionManager transactionManager) {
         super(logEventRepository); 
         this.logEventRepository = logEventRepository;
-        this.severityRepository = severityRepository;
-        this.sourceRepository = sourceRepository;
+        this.referenceDataCache = referenceDataCache;
+        this.entityManager = entityManager;
+        this.detectionEngine = detectionEngine;
+        this.alertAggregator = alertAggregator;
+        this.rollupCounters = rollupCounters;
+        this.rollupQueryService = rollupQueryService;
+        this.logEventArchive = logEventArchive;
+        this.rawPayloadStore = rawPayloadStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Pojedinacni upis prolazi kroz istu detekciju kao i bulk ingest (LogEventIngestService).
+     * compact (REQUIRES_NEW) ide pre transakcije upisa, kao i u bulk ingest-u - zahtev nikad ne drzi
+     * dve konekcije iz pool-a istovremeno.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public LogEventResponse create(LogEventRequest request) {
+        LogEvent logEvent = mapToEntity(request);
+        rawPayloadStore.compact(List.of(logEvent));
+        return transactionTemplate.execute(status -> {
+            LogEvent saved = logEventRepository.saveAndFlush(logEvent);
+            rollupCounters.recordEvents(List.of(saved));
+            alertAggregator.submitAfterCommit(detectionEngine.evaluate(List.of(saved)));
+            return mapToResponse(saved);
+        });
+    }
+
+    /**
+     * Izmena: novi rawData se kompaktuje (REQUIRES_NEW) PRE transakcije izmene, kao u create - izmena
+     * nikad ne drzi dve konekcije iz pool-a istovremeno.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public LogEventResponse update(Long id, LogEventRequest request) {
+        LogEvent compacted = compactRawData(id, request);
+        return transactionTemplate.execute(status -> logEventRepository.findById(id)
+            .map(entity -> {
+                updateEntity(entity, request);
+                if (compacted != null) {
+                    entity.setRawData(compacted.getRawData());
+                    entity.setRawPayloadId(compacted.getRawPayloadId());
+                }
+                return mapToResponse(logEventRepository.save(entity));
+            })
+            .orElse(null));
+    }
+
+    // Nosac novog rawData sa izvorom koji ce dogadjaj imati posle izmene; null ako nema sta da se kompaktuje
+    private LogEvent compactRawData(Long id, LogEventRequest request) {
+        if (!rawPayloadStore.isCompact() || request.getRawData() == null) {
+            return null;
+        }
+        Source source = request.getSourceId() != null
+            ? referenceDataCache.findSource(request.getSourceId()).orElse(null)
+            : null;
+        if (source == null) {
+            source = logEventRepository.findById(id).map(LogEvent::getSource).orElse(null);
+        }
+        LogEvent compacted = LogEvent.builder().source(source).rawData(request.getRawData()).build();
+        rawPayloadStore.compact(List.of(compacted));
+        return compacted;
     }
 
     // ==================== METODE PRETRAGE ====================
@@ -63,6 +160,27 @@ public class LogEventService extends CrudService<LogEvent, LogEventRequest, LogE
             .map(this::mapToResponse);  
     }
 
+    /**
+     * Keyset (seek) listanje - najnoviji dogadjaji prvi, po (timestamp, id)
+     * 
+     * OFFSET paging na log_events usporava linearno sa dubinom strane, a count(*) skenira celu tabelu.
+     * Ovde baza trazi "sve posle poslednjeg (timestamp, id)" direktno kroz indeks, bez brojanja.
+     * cursor = null za prvu stranu, nextCursor iz odgovora za sledecu.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<LogEventResponse> getPage(String cursor, int size) {
+        int pageSize = KeysetPages.clampSize(size);
+        KeysetCursor position = KeysetCursor.decode(cursor);
+
+        List<LogEventSummary> rows = position == null
+            ? logEventRepository.findFirstKeysetPage(KeysetPages.probe(pageSize))
+            : logEventRepository.findKeysetPageAfter(position.timestamp(), position.id(), KeysetPages.probe(pageSize));
+
+        return KeysetPages.toPage(rows, pageSize,
+            logEvent -> new KeysetCursor(logEvent.timestamp(), logEvent.id()),
+            this::mapToListResponse);
+    }
+
     @Transactional(readOnly = true) // pretraga po bitnosti (severity)
     public Page<LogEventResponse> getBySeverity(Long severityId, Pageable pageable) {
         return logEventRepository.findBySeverity_Id(severityId, pageable)
@@ -70,23 +188,115 @@ public class LogEventService extends CrudService<LogEvent, LogEventRequest, LogE
     }
 
 
-    @Transactional(readOnly = true) // preetraga po vremenskom opsegu
-    public List<LogEventResponse> getByTimeRange(LocalDateTime startTime, LocalDateTime endTime) {
-        return logEventRepository.findByTimestampRange(startTime, endTime).stream()
-            .map(this::mapToResponse)  // Convert each entity to response format
-            .toList();  // Collect stream back into a list
+    /**
+     * Pretraga po vremenskom opsegu - STREAMING (export)
+     * 
+     * Jedan dan je milionima redova, pa se rezultat NE skuplja u listu.
+     * Repozitorijum otvara server-side kursor (fetch size 1000), svaki red se pretvori u odgovor,
+     * odvoji (detach) iz persistence context-a i preda "sink"-u (npr. NDJSON writer na HTTP odgovor).
+     * Memorija je konstantna bez obzira na velicinu opsega.
+     * Deo opsega koji je stariji od vruceg sloja se cita iz arhive (LogEventArchive) - on je uvek
+     * pre dogadjaja iz baze, pa redosled po vremenu ostaje isti.
+     * 
+     * @return broj poslatih dogadjaja
+     */
+    @Transactional(readOnly = true)
+    public long getByTimeRange(LocalDateTime startTime, LocalDateTime endTime, Consumer<LogEventResponse> sink) {
+        long count = logEventArchive.stream(startTime, endTime, event -> sink.accept(mapArchived(event, true)));
+        try (Stream<LogEvent> events = logEventRepository.findByTimestampRange(startTime, endTime)) {
+            for (LogEvent logEvent : (Iterable<LogEvent>) events::iterator) {
+                LogEventResponse response = mapToResponse(logEvent);
+                entityManager.detach(logEvent);  // bez ovoga persistence context raste sa svakim redom
+                sink.accept(response);
+                count++;
+            }
+        }
+        return count;
     }
 
-    @Transactional(readOnly = true) // pretraga po kljucnoj reci
-    public Page<LogEventResponse> search(String keyword, Pageable pageable) {
-        return logEventRepository.searchByKeyword(keyword, pageable)
-            .map(this::mapToResponse);
-    }
+    /**
+     * Full-text pretraga poruka (Postgres tsvector + GIN indeks, rangirano po ts_rank)
+     * 
+     * Ranije: message LIKE '%kljucna rec%' - nijedan indeks ne moze da pomogne, uvek full scan.
+     * Sada: reci, fraze ("failed login"), iskljucivanje (-debug) i OR, sve preko GIN indeksa.
+     * Vraca Slice (bez count(*)), sledeca strana postoji ako je hasNext().
+     * Jedan upit po strani: rangirani pogoci odmah kao projekcije reda liste (izvor i bitnost u JOIN-u, bez rawData).
+     *
+     * Sa opsegom [startTime, endTime] koji zalazi u arhivu: prvo idu pogoci iz baze (po rangu), a kad se
+     * oni potrose, strane se nastavljaju pogocima iz arhive (od najnovijeg). Arhiva nema indeks - blokovi
+     * iz opsega se citaju redom, pa je uzi opseg brza pretraga.
+     */
+    @Transactional(readOnly = true)
+    public Slice<LogEventResponse> search(String query, LocalDateTime startTime, LocalDateTime endTime, Pageable pageable) {
+        if (startTime == null) {
+            return logEventRepository.searchByKeyword(query, pageable).map(this::mapToListResponse);
+        }
+        LocalDateTime end = endTime != null ? endTime : LocalDateTime.now();
+        Slice<LogEventResponse> hot = logEventRepository.searchByKeywordBetween(query, startTime, end, pageable)
+            .map(this::mapToListResponse);
+        if (hot.hasNext() || !logEventArchive.overlaps(startTime, end)) {
+            return hot;
+        }
+
+        // Pogoci iz baze su se zavrsili na ovoj strani (ili ranije) - ostatak strane iz arhive
+        long hotTotal = hot.hasContent()
+            ? pageable.getOffset() + hot.getNumberOfElements()
+            : logEventRepository.countByKeywordBetween(query, startTime, end);
+        long archiveOffset = Math.max(0, pageable.getOffset() + hot.getNumberOfElements() - hotTotal);
+        int needed = pageable.getPageSize() - hot.getNumberOfElements();
+        List<ArchivedEvent> archived = logEventArchive.search(logEventArchive.query(query), startTime, end,
+            archiveOffset, needed + 1);
 
+        List<LogEventResponse> items = new ArrayList<>(hot.getContent());
+        archived.stream().limit(needed).forEach(event -> items.add(mapArchived(event, false)));
+        return new SliceImpl<>(items, pageable, archived.size() > needed);
+    }
 
-    @Transactional(readOnly = true) //broj sigurnosnih rizika po bitnosti
+    // broj sigurnosnih rizika po bitnosti - iz dnevnih rollup-a, bez count(*) nad log_events
     public long countBySeverity(Long severityId) {
-        return logEventRepository.countBySeverity_Id(severityId);
+        return rollupQueryService.countAll(EventRollup.Dimension.SEVERITY, severityId);
+    }
+
+    // broj po bitnosti u opsegu (preciznost minut) - par zbirova nad rollup bucket-ima;
+    // approximate = ivica starija od minutnog retention-a, brojana po celom satu
+    public RollupQueryService.RangeCount countBySeverity(Long severityId, LocalDateTime startTime, LocalDateTime endTime) {
+        return rollupQueryService.count(EventRollup.Dimension.SEVERITY, severityId, startTime, endTime);
+    }
+
+    // Red liste: bez rawData (JSONB se cita samo za detalj, GET /api/log-events/{id})
+    private LogEventResponse mapToListResponse(LogEventSummary logEvent) {
+        return LogEventResponse.builder()
+            .id(logEvent.id())
+            .sourceId(logEvent.sourceAgentId())
+            .message(logEvent.message())
+            .severity(logEvent.severityName())
+            .timestamp(logEvent.timestamp())
+            .createdAt(logEvent.createdAt())
+            .build();
+    }
+
+    private LogEventResponse mapToListResponse(LogEventSearchHit hit) {
+        return LogEventResponse.builder()
+            .id(hit.getId())
+            .sourceId(hit.getSourceAgentId())
+            .message(hit.getMessage())
+            .severity(hit.getSeverityName())
+            .timestamp(hit.getTimestamp())
+            .createdAt(hit.getCreatedAt())
+            .build();
+    }
+
+    // Arhivirani dogadjaj: rawData samo za export (kao i za bazu, liste ga nemaju)
+    private LogEventResponse mapArchived(ArchivedEvent event, boolean withRawData) {
+        return LogEventResponse.builder()
+            .id(event.id())
+            .sourceId(event.sourceAgentId())
+            .message(event.message())
+            .severity(event.severityName())
+            .rawData(withRawData ? event.rawData() : null)
+            .timestamp(event.timestamp())
+            .createdAt(event.createdAt())
+            .build();
     }
 
     // ==================== IMPLEMENTACIJA APSTRAKTNIH METODA ====================
@@ -95,12 +305,12 @@ public class LogEventService extends CrudService<LogEvent, LogEventRequest, LogE
     protected LogEvent mapToEntity(LogEventRequest request) {
     	// korak 1: Pronadji izvor po agentId
     	// Ako izvor ne postoji, baca gresku (ne mozemo praviti log ako ne postoji izvor)
-        Source source = sourceRepository.findByAgentId(request.getSourceId())
+        Source source = referenceDataCache.findSource(request.getSourceId())
             .orElseThrow(() -> new RuntimeException("Source not found: " + request.getSourceId()));
         //KORAK 2: Pronaci bitnost ako je prilozena (opcionalno)
         // Ako je severityID null, onda bitnost(ozbiljnost) ostaje null (npr. informacioni log)
         Severity severity = request.getSeverityId() != null 
-            ? severityRepository.findById(request.getSeverityId()).orElse(null)
+            ? referenceDataCache.findSeverity(request.getSeverityId()).orElse(null)
             : null;
         // Korak 3: Sagraditi LogEvent entity 
         return LogEvent.builder()
@@ -135,7 +345,7 @@ public class LogEventService extends CrudService<LogEvent, LogEventRequest, LogE
             .message(logEvent.getMessage())  // Kopira poruku
             // Pretvara Severity entitet u obican name string 
             .severity(logEvent.getSeverity() != null ? logEvent.getSeverity().getName() : null)
-            .rawData(logEvent.getRawData())  // kopira raw JSON	
+            .rawData(rawPayloadStore.json(logEvent))  // kopira raw JSON (dekodiran ako je u raw_payloads)
             .timestamp(logEvent.getTimestamp())  // Kopira vreme
             .createdAt(logEvent.getCreatedAt())  // Kopira vreme kreacije
             .build();
@@ -157,10 +367,12 @@ public class LogEventService extends CrudService<LogEvent, LogEventRequest, LogE
      */
     @Override
     protected void updateEntity(LogEvent entity, LogEventRequest request) {
+        // Rollup brojaci: stari izvor/bitnost/minut -1 ovde, novi +1 na kraju
+        rollupCounters.adjustEvent(entity, -1);
     	// Korak 1: Azurirati izvor ako je prilozen
         if (request.getSourceId() != null) {
             // Pokusati pronaci novi izvor, ako ga nema zadrzavamo stari
-            Source source = sourceRepository.findByAgentId(request.getSourceId())
+            Source source = referenceDataCache.findSource(request.getSourceId())
                 .orElse(entity.getSource());
             entity.setSource(source);
         }
@@ -168,16 +380,26 @@ public class LogEventService extends CrudService<LogEvent, LogEventRequest, LogE
 
         entity.setMessage(request.getMessage());
         // Korak 3: Azurirati raw podatke (uvek azurirati, moze biti null)
+        // (u COMPACT modu update posle ovoga postavlja payload kompaktovan pre transakcije)
         entity.setRawData(request.getRawData());
+        entity.setRawPayloadId(null);
         // KORAK 4: Azurirati ozbiljnost ako je prilozena
         if (request.getSeverityId() != null) {
-            entity.setSeverity(severityRepository.findById(request.getSeverityId()).orElse(null));
+            entity.setSeverity(referenceDataCache.findSeverity(request.getSeverityId()).orElse(null));
         }
         // Korak 5: Azurirati vreme ako je prilozeno
         if (request.getTimestamp() != null) {
             entity.setTimestamp(request.getTimestamp());
         }
-        
+        rollupCounters.adjustEvent(entity, 1);
+    }
 
+    // Obrisan dogadjaj se skida i sa rollup brojaca (countBySeverity), kao i obrisan alarm u AlertService
+    @Override
+    public void delete(Long id) {
+        logEventRepository.findById(id).ifPresent(logEvent -> {
+            logEventRepository.delete(logEvent);
+            rollupCounters.adjustEvent(logEvent, -1);
+        });
     }
 }
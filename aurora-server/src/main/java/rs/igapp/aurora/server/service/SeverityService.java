@@ -0,0 +1,62 @@
+package rs.igapp.aurora.server.service;
+
+import org.springframework.stereotype.Service;
+
+import rs.igapp.aurora.api.dto.request.SeverityRequest;
+import rs.igapp.aurora.api.dto.response.SeverityResponse;
+import rs.igapp.aurora.domain.entity.Severity;
+import rs.igapp.aurora.persistence.repository.SeverityRepository;
+import rs.igapp.aurora.server.cache.ReferenceDataCache;
+
+/**
+ * SeverityService - CRUD za nivoe bitnosti (CRITICAL, HIGH, ...)
+ *
+ * Izmena ili brisanje bitnosti izbacuje je iz ReferenceDataCache-a.
+ */
+@Service
+public class SeverityService extends CrudService<Severity, SeverityRequest, SeverityResponse, Long> {
+
+    private final ReferenceDataCache referenceDataCache;
+
+    public SeverityService(SeverityRepository severityRepository,
+                           ReferenceDataCache referenceDataCache) {
+        super(severityRepository);
+        this.referenceDataCache = referenceDataCache;
+    }
+
+    @Override
+    public void delete(Long id) {
+        referenceDataCache.evictSeverity(id);
+        super.delete(id);
+    }
+
+    // ==================== IMPLEMENTACIJA APSTRAKTNIH METODA ====================
+
+    @Override
+    protected Severity mapToEntity(SeverityRequest request) {
+        return Severity.builder()
+            .name(request.getName())
+            .level(request.getLevel())
+            .description(request.getDescription())
+            .build();
+    }
+
+    @Override
+    protected SeverityResponse mapToResponse(Severity severity) {
+        return SeverityResponse.builder()
+            .id(severity.getId())
+            .name(severity.getName())
+            .level(severity.getLevel())
+            .description(severity.getDescription())
+            .build();
+    }
+
+    @Override
+    protected void updateEntity(Severity entity, SeverityRequest request) {
+        referenceDataCache.evictSeverity(entity.getId());
+
+        entity.setName(request.getName());
+        entity.setLevel(request.getLevel());
+        entity.setDescription(request.getDescription());
+    }
+}
@@ -0,0 +1,159 @@
+package rs.igapp.aurora.server.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import rs.igapp.aurora.api.dto.request.SourceRequest;
+import rs.igapp.aurora.api.dto.response.SourceResponse;
+import rs.igapp.aurora.domain.entity.Source;
+import rs.igapp.aurora.persistence.repository.SourceRepository;
+import rs.igapp.aurora.server.cache.ReferenceDataCache;
+import rs.igapp.aurora.server.heartbeat.HeartbeatTracker;
+import rs.igapp.aurora.server.heartbeat.HeartbeatTracker.SourceHeartbeat;
+
+/**
+ * SourceService - CRUD za izvore (agente)
+ *
+ * Svaka izmena ili brisanje izvora izbacuje ga iz ReferenceDataCache-a,
+ * da ingest ne bi vezivao nove dogadjaje za zastarele podatke o agentu.
+ *
+ * isActive / lastHeartbeat vodi HeartbeatTracker u memoriji (u bazu ih upisuje periodicno),
+ * pa mu se ovde javlja svaki nov, izmenjen ili obrisan izvor, a findByIsActive cita iz njega.
+ */
+@Service
+public class SourceService extends CrudService<Source, SourceRequest, SourceResponse, Long> {
+
+    private final SourceRepository sourceRepository;
+    private final ReferenceDataCache referenceDataCache;
+    private final HeartbeatTracker heartbeatTracker;
+
+    public SourceService(SourceRepository sourceRepository,
+                         ReferenceDataCache referenceDataCache,
+                         HeartbeatTracker heartbeatTracker) {
+        super(sourceRepository);
+        this.sourceRepository = sourceRepository;
+        this.referenceDataCache = referenceDataCache;
+        this.heartbeatTracker = heartbeatTracker;
+    }
+
+    @Override
+    public SourceResponse create(SourceRequest request) {
+        SourceResponse created = super.create(request);
+        referenceDataCache.evictSource(created.getAgentId());  // moguca oznaka "ne postoji" iz ingest-a
+        heartbeatTracker.track(created.getAgentId(), created.getIsActive(), created.getLastHeartbeat());
+        return created;
+    }
+
+    /**
+     * Vraca izvor sa datim agentId ili ga pravi (izvori koji se ne registruju sami, npr. syslog uredjaji).
+     * Dve instance servera koje istovremeno registruju isti izvor: jedna dobija DataIntegrityViolationException
+     * (unique agent_id) - pozivalac tada zna da izvor postoji.
+     */
+    public Source registerIfAbsent(String agentId, String hostname, String ipAddress) {
+        return sourceRepository.findByAgentId(agentId)
+            .orElseGet(() -> {
+                Source source = sourceRepository.saveAndFlush(Source.builder()
+                    .agentId(agentId)
+                    .hostname(hostname)
+                    .ipAddress(ipAddress)
+                    .isActive(Boolean.TRUE)
+                    .build());
+                referenceDataCache.evictSource(agentId);
+                heartbeatTracker.track(agentId, source.getIsActive(), null);
+                return source;
+            });
+    }
+
+    /**
+     * Izvor procitan iz baze, mimo ReferenceDataCache-a (npr. posle DataIntegrityViolationException iz
+     * registerIfAbsent); izbacuje ga i iz kesa, da ingest ne bi drzao oznaku "ne postoji".
+     */
+    @Transactional(readOnly = true)
+    public Optional<Source> reloadByAgentId(String agentId) {
+        referenceDataCache.evictSource(agentId);
+        return sourceRepository.findByAgentId(agentId);
+    }
+
+    /**
+     * Aktivni / neaktivni izvori iz stanja HeartbeatTracker-a (bez upita nad sources po is_active);
+     * ostala polja iz ReferenceDataCache-a, isActive i lastHeartbeat iz memorije.
+     */
+    @Transactional(readOnly = true)
+    public List<SourceResponse> findByIsActive(Boolean isActive) {
+        List<SourceResponse> sources = new ArrayList<>();
+        for (SourceHeartbeat heartbeat : heartbeatTracker.findByIsActive(Boolean.TRUE.equals(isActive))) {
+            referenceDataCache.findSource(heartbeat.agentId()).ifPresent(source -> {
+                SourceResponse response = mapToResponse(source);
+                response.setIsActive(heartbeat.active());
+                response.setLastHeartbeat(heartbeat.lastHeartbeat());
+                sources.add(response);
+            });
+        }
+        return sources;
+    }
+
+    @Override
+    public void delete(Long id) {
+        repository.findById(id).ifPresent(source -> {
+            referenceDataCache.evictSource(source.getAgentId());
+            heartbeatTracker.forget(source.getAgentId());
+        });
+        super.delete(id);
+    }
+
+    // ==================== IMPLEMENTACIJA APSTRAKTNIH METODA ====================
+
+    @Override
+    protected Source mapToEntity(SourceRequest request) {
+        return Source.builder()
+            .agentId(request.getAgentId())
+            .hostname(request.getHostname())
+            .ipAddress(request.getIpAddress())
+            .osType(request.getOsType())
+            .agentVersion(request.getAgentVersion())
+            .isActive(request.getIsActive() != null ? request.getIsActive() : Boolean.TRUE)
+            .build();
+    }
+
+    @Override
+    protected SourceResponse mapToResponse(Source source) {
+        return SourceResponse.builder()
+            .id(source.getId())
+            .agentId(source.getAgentId())
+            .hostname(source.getHostname())
+            .ipAddress(source.getIpAddress())
+            .osType(source.getOsType())
+            .agentVersion(source.getAgentVersion())
+            .isActive(source.getIsActive())
+            .lastHeartbeat(source.getLastHeartbeat())
+            .createdAt(source.getCreatedAt())
+            .build();
+    }
+
+    @Override
+    protected void updateEntity(Source entity, SourceRequest request) {
+        // agentId je kljuc kesa - izbaci i staru i novu vrednost
+        referenceDataCache.evictSource(entity.getAgentId());
+        referenceDataCache.evictSource(request.getAgentId());
+
+        String oldAgentId = entity.getAgentId();
+        entity.setAgentId(request.getAgentId());
+        entity.setHostname(request.getHostname());
+        entity.setIpAddress(request.getIpAddress());
+        entity.setOsType(request.getOsType());
+        entity.setAgentVersion(request.getAgentVersion());
+        if (request.getIsActive() != null) {
+            entity.setIsActive(request.getIsActive());
+        }
+
+        if (!Objects.equals(oldAgentId, entity.getAgentId())) {
+            heartbeatTracker.forget(oldAgentId);
+        }
+        heartbeatTracker.track(entity.getAgentId(), entity.getIsActive(), entity.getLastHeartbeat());
+    }
+}
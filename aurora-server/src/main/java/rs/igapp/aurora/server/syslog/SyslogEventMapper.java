@@ -0,0 +1,196 @@
+package rs.igapp.aurora.server.syslog;
+
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import rs.igapp.aurora.api.dto.request.LogEventRequest;
+
+/**
+ * SyslogEventMapper - Pravi LogEventRequest iz parsirane syslog poruke
+ *
+ * MAPIRANJE:
+ * - sourceId   = agentId iz SyslogSourceRegistry (HOSTNAME iz poruke, a bez njega IP posiljaoca)
+ * - severityId = syslog severity -> Severity (0-2 CRITICAL, 3 HIGH, 4 MEDIUM, 5 LOW, 6-7 INFO)
+ * - timestamp  = vreme iz zaglavlja u lokalnoj zoni servera; bez vremena (ili neispravno) vreme prijema
+ * - rawData    = {"facility":"auth","app":"sshd","procid":"4123","msgid":"ID47"} (samo polja koja postoje)
+ * - message    = MSG deo poruke
+ *
+ * ALOKACIJE:
+ * Po poruci nastaju samo message String, rawData String, LocalDateTime i sam LogEventRequest.
+ * Hostname -> agentId ide kroz kes po niti koji poredi bajtove (bez pravljenja String-a za host),
+ * severityId su unapred napravljeni Long-ovi, a rawData se gradi u jednom StringBuilder-u po niti.
+ *
+ * NAPOMENA: Nije thread-safe, svaka nit prijemnika ima svoj mapper.
+ */
+final class SyslogEventMapper {
+
+    private static final String[] FACILITIES = {
+        "kern", "user", "mail", "daemon", "auth", "syslog", "lpr", "news",
+        "uucp", "cron", "authpriv", "ftp", "ntp", "security", "console", "solaris-cron",
+        "local0", "local1", "local2", "local3", "local4", "local5", "local6", "local7"
+    };
+
+    // Indeks = syslog severity (0 emerg .. 7 debug)
+    static final String[] SEVERITY_NAMES = {
+        "CRITICAL", "CRITICAL", "CRITICAL", "HIGH", "MEDIUM", "LOW", "INFO", "INFO"
+    };
+
+    private static final int HOST_CACHE_SIZE = 1024;
+    private static final int MAX_SENDER_CACHE = 4096;
+
+    private final SyslogSourceRegistry sourceRegistry;
+    private final Long[] severityIds;
+    private final ZoneId zone;
+
+    private final byte[][] hostKeys = new byte[HOST_CACHE_SIZE][];
+    private final String[] hostAgentIds = new String[HOST_CACHE_SIZE];
+    private final Map<InetAddress, String> senderAgentIds = new HashMap<>();
+    private final StringBuilder rawData = new StringBuilder(128);
+
+    private LocalDateTime receivedAt;
+    private ZoneOffset offset;
+    private int currentYear;
+
+    SyslogEventMapper(SyslogSourceRegistry sourceRegistry, Long[] severityIds, ZoneId zone) {
+        this.sourceRegistry = sourceRegistry;
+        this.severityIds = severityIds;
+        this.zone = zone;
+        tick();
+    }
+
+    /**
+     * Osvezava vreme prijema - zove se jednom po prijemnom ciklusu, ne po poruci.
+     */
+    void tick() {
+        receivedAt = LocalDateTime.now(zone);
+        offset = zone.getRules().getOffset(receivedAt);
+        currentYear = receivedAt.getYear();
+    }
+
+    /**
+     * Vraca null ako izvor ne moze da se registruje (pozivalac broji kao odbacenu poruku).
+     */
+    LogEventRequest map(byte[] buf, SyslogMessage message, InetAddress sender) {
+        String agentId = message.hasHost()
+            ? agentIdForHost(buf, message.hostStart, message.hostEnd, sender)
+            : agentIdForSender(sender);
+        if (agentId == null) {
+            return null;
+        }
+        return LogEventRequest.builder()
+            .sourceId(agentId)
+            .message(new String(buf, message.msgStart, message.msgEnd - message.msgStart, StandardCharsets.UTF_8))
+            .severityId(severityIds[message.severity])
+            .rawData(rawData(buf, message))
+            .timestamp(timestamp(message))
+            .build();
+    }
+
+    // ==================== IZVOR ====================
+
+    private String agentIdForHost(byte[] buf, int start, int end, InetAddress sender) {
+        int hash = 1;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + buf[i];
+        }
+        int slot = (hash ^ (hash >>> 16)) & (HOST_CACHE_SIZE - 1);
+        byte[] key = hostKeys[slot];
+        if (key != null && Arrays.equals(key, 0, key.length, buf, start, end)) {
+            return hostAgentIds[slot];
+        }
+        String agentId = sourceRegistry.agentIdFor(new String(buf, start, end - start, StandardCharsets.UTF_8), sender);
+        if (agentId != null) {
+            hostKeys[slot] = Arrays.copyOfRange(buf, start, end);
+            hostAgentIds[slot] = agentId;
+        }
+        return agentId;
+    }
+
+    private String agentIdForSender(InetAddress sender) {
+        if (sender == null) {
+            return null;
+        }
+        String agentId = senderAgentIds.get(sender);
+        if (agentId == null) {
+            agentId = sourceRegistry.agentIdFor(sender.getHostAddress(), sender);
+            if (agentId != null) {
+                if (senderAgentIds.size() >= MAX_SENDER_CACHE) {
+                    senderAgentIds.clear();
+                }
+                senderAgentIds.put(sender, agentId);
+            }
+        }
+        return agentId;
+    }
+
+    // ==================== VREME ====================
+
+    private LocalDateTime timestamp(SyslogMessage message) {
+        if (!message.hasTimestamp) {
+            return receivedAt;
+        }
+        try {
+            if (message.hasOffset) {
+                long epochSecond = epochDay(message.year, message.month, message.day) * 86_400L
+                    + message.hour * 3_600L + message.minute * 60L + message.second - message.offsetSeconds;
+                return LocalDateTime.ofEpochSecond(epochSecond, message.nanos, offset);
+            }
+            if (message.year != 0) {
+                return LocalDateTime.of(message.year, message.month, message.day,
+                    message.hour, message.minute, message.second, message.nanos);
+            }
+            // RFC 3164 nema godinu: tekuca, osim ako bi vreme bilo u buducnosti (decembarska poruka u januaru)
+            LocalDateTime timestamp = LocalDateTime.of(currentYear, message.month, message.day,
+                message.hour, message.minute, message.second, message.nanos);
+            return timestamp.isAfter(receivedAt.plusDays(1)) ? timestamp.minusYears(1) : timestamp;
+        } catch (DateTimeException e) {
+            return receivedAt;  // npr. 31. februar
+        }
+    }
+
+    // Broj dana od 1970-01-01 (proleptic Gregorian), bez pravljenja LocalDate objekta
+    private static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+
+    // ==================== RAW DATA ====================
+
+    private String rawData(byte[] buf, SyslogMessage message) {
+        StringBuilder json = rawData;
+        json.setLength(0);
+        json.append("{\"facility\":\"").append(FACILITIES[message.facility]).append('"');
+        appendField(json, "app", buf, message.appStart, message.appEnd);
+        appendField(json, "procid", buf, message.procIdStart, message.procIdEnd);
+        appendField(json, "msgid", buf, message.msgIdStart, message.msgIdEnd);
+        return json.append('}').toString();
+    }
+
+    // Polja zaglavlja su ASCII po RFC-u; sve van printable ASCII se preskace umesto da se escape-uje
+    private static void appendField(StringBuilder json, String name, byte[] buf, int start, int end) {
+        if (end <= start) {
+            return;
+        }
+        json.append(",\"").append(name).append("\":\"");
+        for (int i = start; i < end; i++) {
+            byte b = buf[i];
+            if (b == '"' || b == '\\') {
+                json.append('\\').append((char) b);
+            } else if (b >= 0x20 && b < 0x7F) {
+                json.append((char) b);
+            }
+        }
+        json.append('"');
+    }
+}
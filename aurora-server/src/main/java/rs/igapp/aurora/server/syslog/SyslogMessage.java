@@ -0,0 +1,58 @@
+package rs.igapp.aurora.server.syslog;
+
+/**
+ * SyslogMessage - Rezultat parsiranja jedne syslog poruke, kao offset-i u ulazni niz bajtova
+ *
+ * Jedan objekat po niti prijemnika, SyslogParser ga prepisuje za svaku poruku - parsiranje ne alocira.
+ * Polja koja nedostaju (NILVALUE "-" u RFC 5424, ili nema ih u RFC 3164) imaju start = end.
+ * Stringovi se prave tek u SyslogEventMapper-u, i samo za polja koja idu u LogEventRequest.
+ */
+final class SyslogMessage {
+
+    int facility;
+    int severity;
+    boolean rfc5424;
+
+    // Vreme iz zaglavlja; hasTimestamp = false -> koristi se vreme prijema
+    boolean hasTimestamp;
+    boolean hasOffset;
+    int year;
+    int month;
+    int day;
+    int hour;
+    int minute;
+    int second;
+    int nanos;
+    int offsetSeconds;
+
+    int hostStart;
+    int hostEnd;
+    int appStart;
+    int appEnd;
+    int procIdStart;
+    int procIdEnd;
+    int msgIdStart;
+    int msgIdEnd;
+    int msgStart;
+    int msgEnd;
+
+    void reset() {
+        facility = 0;
+        severity = 0;
+        rfc5424 = false;
+        hasTimestamp = false;
+        hasOffset = false;
+        year = 0;
+        nanos = 0;
+        offsetSeconds = 0;
+        hostStart = hostEnd = 0;
+        appStart = appEnd = 0;
+        procIdStart = procIdEnd = 0;
+        msgIdStart = msgIdEnd = 0;
+        msgStart = msgEnd = 0;
+    }
+
+    boolean hasHost() {
+        return hostEnd > hostStart;
+    }
+}
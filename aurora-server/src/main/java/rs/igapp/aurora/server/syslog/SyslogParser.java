@@ -0,0 +1,359 @@
+package rs.igapp.aurora.server.syslog;
+
+/**
+ * SyslogParser - Parser za RFC 5424 i RFC 3164 (BSD) syslog poruke, direktno nad nizom bajtova
+ *
+ * Svrha:
+ * Mrezna oprema salje stotine hiljada poruka u sekundi. Parser ne pravi String-ove, ne koristi regex
+ * i ne alocira: jedan prolaz kroz bajtove puni offset-e u SyslogMessage (jedan objekat po niti).
+ *
+ * RFC 5424:  <PRI>1 TIMESTAMP HOSTNAME APP-NAME PROCID MSGID STRUCTURED-DATA [BOM]MSG
+ * RFC 3164:  <PRI>Mmm dd hh:mm:ss HOSTNAME TAG[PID]: MSG
+ *
+ * TOLERANCIJA (stvarni uredjaji retko postuju RFC 3164):
+ * - PRI je obavezan; bez ispravnog PRI (0..191) ili bez teksta poruke (MSG) - greska parsiranja
+ * - vreme moze biti i RFC 3339 (rsyslog), sa milisekundama (Cisco) ili sa '*' / '.' ispred (Cisco bez NTP-a)
+ * - bez vremena nema ni hostname-a: ostatak je TAG/MSG
+ * - token posle vremena koji lici na TAG ("sshd[42]:", "kernel:") znaci da uredjaj ne salje hostname
+ * - neispravno vreme nije greska: koristi se vreme prijema
+ * STRUCTURED-DATA se preskace (postuje escape \] i \" unutar vrednosti); ne ide u LogEvent.
+ *
+ * NAPOMENA: Nije thread-safe, svaka nit prijemnika ima svoj parser.
+ */
+final class SyslogParser {
+
+    private static final int MAX_PRI = 191;
+    private static final int MAX_TAG_LENGTH = 48;
+
+    /**
+     * Parsira buf[offset, end). Vraca false ako poruka nema ispravan PRI ili tekst (greska parsiranja).
+     */
+    boolean parse(byte[] buf, int offset, int end, SyslogMessage out) {
+        out.reset();
+        while (end > offset && (buf[end - 1] == '\n' || buf[end - 1] == '\r' || buf[end - 1] == 0)) {
+            end--;
+        }
+
+        // ==================== PRI ====================
+        if (end - offset < 3 || buf[offset] != '<') {
+            return false;
+        }
+        int p = offset + 1;
+        int pri = 0;
+        int digits = 0;
+        while (p < end && isDigit(buf[p]) && digits < 3) {
+            pri = pri * 10 + (buf[p++] - '0');
+            digits++;
+        }
+        if (digits == 0 || p >= end || buf[p] != '>' || pri > MAX_PRI) {
+            return false;
+        }
+        p++;
+        out.facility = pri >> 3;
+        out.severity = pri & 7;
+
+        if (p + 1 < end && buf[p] >= '1' && buf[p] <= '9' && buf[p + 1] == ' ') {
+            parse5424(buf, p + 2, end, out);
+        } else {
+            parse3164(buf, p, end, out);
+        }
+        return out.msgEnd > out.msgStart;
+    }
+
+    // ==================== RFC 5424 ====================
+
+    private void parse5424(byte[] buf, int p, int end, SyslogMessage out) {
+        out.rfc5424 = true;
+
+        int tokenEnd = tokenEnd(buf, p, end);
+        if (!isNil(buf, p, tokenEnd) && parseRfc3339(buf, p, tokenEnd, out) != tokenEnd) {
+            out.hasTimestamp = false;
+        }
+        p = skipSpace(buf, tokenEnd, end);
+
+        tokenEnd = tokenEnd(buf, p, end);
+        if (!isNil(buf, p, tokenEnd)) {
+            out.hostStart = p;
+            out.hostEnd = tokenEnd;
+        }
+        p = skipSpace(buf, tokenEnd, end);
+
+        tokenEnd = tokenEnd(buf, p, end);
+        if (!isNil(buf, p, tokenEnd)) {
+            out.appStart = p;
+            out.appEnd = tokenEnd;
+        }
+        p = skipSpace(buf, tokenEnd, end);
+
+        tokenEnd = tokenEnd(buf, p, end);
+        if (!isNil(buf, p, tokenEnd)) {
+            out.procIdStart = p;
+            out.procIdEnd = tokenEnd;
+        }
+        p = skipSpace(buf, tokenEnd, end);
+
+        tokenEnd = tokenEnd(buf, p, end);
+        if (!isNil(buf, p, tokenEnd)) {
+            out.msgIdStart = p;
+            out.msgIdEnd = tokenEnd;
+        }
+        p = skipSpace(buf, tokenEnd, end);
+
+        p = skipStructuredData(buf, p, end);
+        if (p < end && buf[p] == ' ') {
+            p++;
+        }
+        // UTF-8 BOM ispred MSG (RFC 5424 6.4)
+        if (p + 2 < end && buf[p] == (byte) 0xEF && buf[p + 1] == (byte) 0xBB && buf[p + 2] == (byte) 0xBF) {
+            p += 3;
+        }
+        out.msgStart = p;
+        out.msgEnd = end;
+    }
+
+    private static int skipStructuredData(byte[] buf, int p, int end) {
+        if (p < end && buf[p] == '-') {
+            return p + 1;
+        }
+        while (p < end && buf[p] == '[') {
+            boolean quoted = false;
+            p++;
+            while (p < end) {
+                byte b = buf[p];
+                if (quoted && b == '\\') {
+                    p += 2;
+                    continue;
+                }
+                p++;
+                if (b == '"') {
+                    quoted = !quoted;
+                } else if (b == ']' && !quoted) {
+                    break;
+                }
+            }
+        }
+        return Math.min(p, end);
+    }
+
+    // ==================== RFC 3164 ====================
+
+    private void parse3164(byte[] buf, int p, int end, SyslogMessage out) {
+        if (p < end && (buf[p] == '*' || buf[p] == '.')) {
+            p++;
+        }
+        int afterTimestamp = parseBsdTimestamp(buf, p, end, out);
+        if (afterTimestamp < 0 && p < end && isDigit(buf[p])) {
+            int tokenEnd = tokenEnd(buf, p, end);
+            afterTimestamp = parseRfc3339(buf, p, tokenEnd, out) == tokenEnd ? tokenEnd : -1;
+            if (afterTimestamp < 0) {
+                out.hasTimestamp = false;
+            }
+        }
+
+        if (afterTimestamp >= 0) {
+            p = afterTimestamp;
+            if (p < end && buf[p] == ':') {
+                p++;  // Cisco: "Mar  1 00:01:02.345: %SYS-5-CONFIG_I: ..."
+            }
+            p = skipSpace(buf, p, end);
+            int tokenEnd = tokenEnd(buf, p, end);
+            if (tokenEnd > p && !looksLikeTag(buf, p, tokenEnd)) {
+                out.hostStart = p;
+                out.hostEnd = tokenEnd;
+                p = skipSpace(buf, tokenEnd, end);
+            }
+        }
+
+        p = parseTag(buf, p, end, out);
+        out.msgStart = p;
+        out.msgEnd = end;
+    }
+
+    /**
+     * "Mmm dd hh:mm:ss" (dan moze biti " 7" ili "07"), opciono ".fff" posle sekundi.
+     * Vraca poziciju posle vremena ili -1. Godina se ne salje - odredjuje je SyslogEventMapper.
+     */
+    private static int parseBsdTimestamp(byte[] buf, int p, int end, SyslogMessage out) {
+        if (end - p < 15 || buf[p + 3] != ' ' || buf[p + 6] != ' ' || buf[p + 9] != ':' || buf[p + 12] != ':') {
+            return -1;
+        }
+        int month = month(buf[p], buf[p + 1], buf[p + 2]);
+        int day = (buf[p + 4] == ' ' ? 0 : digit(buf[p + 4]) * 10) + digit(buf[p + 5]);
+        int hour = twoDigits(buf, p + 7);
+        int minute = twoDigits(buf, p + 10);
+        int second = twoDigits(buf, p + 13);
+        if (month == 0 || day < 1 || day > 31 || hour < 0 || hour > 23 || minute < 0 || minute > 59
+                || second < 0 || second > 60) {
+            return -1;
+        }
+        out.hasTimestamp = true;
+        out.month = month;
+        out.day = day;
+        out.hour = hour;
+        out.minute = minute;
+        out.second = Math.min(second, 59);
+        int q = p + 15;
+        if (q < end && buf[q] == '.') {
+            q = parseFraction(buf, q + 1, end, out);
+        }
+        return q;
+    }
+
+    // TAG[PID]: ili TAG: - ako nije prepoznat, ceo ostatak je poruka
+    private static int parseTag(byte[] buf, int p, int end, SyslogMessage out) {
+        int limit = Math.min(end, p + MAX_TAG_LENGTH);
+        for (int i = p; i < limit; i++) {
+            byte b = buf[i];
+            if (b == ':' || b == '[') {
+                if (i == p) {
+                    return p;
+                }
+                int q = i;
+                int pidStart = 0;
+                int pidEnd = 0;
+                if (b == '[') {
+                    pidStart = i + 1;
+                    while (q < end && buf[q] != ']') {
+                        q++;
+                    }
+                    if (q + 1 >= end || buf[q + 1] != ':') {
+                        return p;
+                    }
+                    pidEnd = q;
+                    q++;
+                }
+                out.appStart = p;
+                out.appEnd = i;
+                out.procIdStart = pidStart;
+                out.procIdEnd = pidEnd;
+                return skipSpace(buf, q + 1, end);
+            }
+            if (b == ' ') {
+                return p;
+            }
+        }
+        return p;
+    }
+
+    private static boolean looksLikeTag(byte[] buf, int start, int end) {
+        if (buf[end - 1] == ':') {
+            return true;
+        }
+        for (int i = start; i < end; i++) {
+            if (buf[i] == '[') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ==================== VREME ====================
+
+    /**
+     * YYYY-MM-DDThh:mm:ss[.frac](Z|+hh:mm|-hh:mm). Vraca poziciju posle vremena ili -1.
+     * Bez zone (neki rsyslog template-i) vreme se tumaci kao lokalno.
+     */
+    private static int parseRfc3339(byte[] buf, int p, int end, SyslogMessage out) {
+        if (end - p < 19 || buf[p + 4] != '-' || buf[p + 7] != '-' || (buf[p + 10] != 'T' && buf[p + 10] != ' ')
+                || buf[p + 13] != ':' || buf[p + 16] != ':') {
+            return -1;
+        }
+        int year = twoDigits(buf, p) * 100 + twoDigits(buf, p + 2);
+        int month = twoDigits(buf, p + 5);
+        int day = twoDigits(buf, p + 8);
+        int hour = twoDigits(buf, p + 11);
+        int minute = twoDigits(buf, p + 14);
+        int second = twoDigits(buf, p + 17);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || hour > 23
+                || minute < 0 || minute > 59 || second < 0 || second > 60) {
+            return -1;
+        }
+        out.hasTimestamp = true;
+        out.year = year;
+        out.month = month;
+        out.day = day;
+        out.hour = hour;
+        out.minute = minute;
+        out.second = Math.min(second, 59);
+
+        int q = p + 19;
+        if (q < end && buf[q] == '.') {
+            q = parseFraction(buf, q + 1, end, out);
+        }
+        if (q < end && (buf[q] == 'Z' || buf[q] == 'z')) {
+            out.hasOffset = true;
+            return q + 1;
+        }
+        if (q + 6 <= end && (buf[q] == '+' || buf[q] == '-') && buf[q + 3] == ':') {
+            int hours = twoDigits(buf, q + 1);
+            int minutes = twoDigits(buf, q + 4);
+            if (hours < 0 || hours > 18 || minutes < 0 || minutes > 59) {
+                return -1;
+            }
+            int offset = hours * 3600 + minutes * 60;
+            out.offsetSeconds = buf[q] == '-' ? -offset : offset;
+            out.hasOffset = true;
+            return q + 6;
+        }
+        return q;
+    }
+
+    private static int parseFraction(byte[] buf, int p, int end, SyslogMessage out) {
+        int nanos = 0;
+        int scale = 100_000_000;
+        while (p < end && isDigit(buf[p])) {
+            nanos += (buf[p++] - '0') * scale;
+            scale /= 10;
+        }
+        out.nanos = nanos;
+        return p;
+    }
+
+    private static int month(byte a, byte b, byte c) {
+        return switch ((a << 16) | (b << 8) | c) {
+            case ('J' << 16) | ('a' << 8) | 'n' -> 1;
+            case ('F' << 16) | ('e' << 8) | 'b' -> 2;
+            case ('M' << 16) | ('a' << 8) | 'r' -> 3;
+            case ('A' << 16) | ('p' << 8) | 'r' -> 4;
+            case ('M' << 16) | ('a' << 8) | 'y' -> 5;
+            case ('J' << 16) | ('u' << 8) | 'n' -> 6;
+            case ('J' << 16) | ('u' << 8) | 'l' -> 7;
+            case ('A' << 16) | ('u' << 8) | 'g' -> 8;
+            case ('S' << 16) | ('e' << 8) | 'p' -> 9;
+            case ('O' << 16) | ('c' << 8) | 't' -> 10;
+            case ('N' << 16) | ('o' << 8) | 'v' -> 11;
+            case ('D' << 16) | ('e' << 8) | 'c' -> 12;
+            default -> 0;
+        };
+    }
+
+    // ==================== POMOCNE METODE ====================
+
+    private static int tokenEnd(byte[] buf, int p, int end) {
+        while (p < end && buf[p] != ' ') {
+            p++;
+        }
+        return p;
+    }
+
+    private static int skipSpace(byte[] buf, int p, int end) {
+        return p < end && buf[p] == ' ' ? p + 1 : p;
+    }
+
+    private static boolean isNil(byte[] buf, int start, int end) {
+        return end - start == 1 && buf[start] == '-';
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    // Negativno ako bajt nije cifra - rezultat tada pada na proveri opsega kod pozivaoca
+    private static int digit(byte b) {
+        return isDigit(b) ? b - '0' : -100;
+    }
+
+    private static int twoDigits(byte[] buf, int p) {
+        return digit(buf[p]) * 10 + digit(buf[p + 1]);
+    }
+}
@@ -0,0 +1,507 @@
+package rs.igapp.aurora.server.syslog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import rs.igapp.aurora.api.dto.request.LogEventRequest;
+import rs.igapp.aurora.domain.entity.Severity;
+import rs.igapp.aurora.persistence.repository.SeverityRepository;
+import rs.igapp.aurora.server.ingest.IngestQueue;
+
+/**
+ * SyslogReceiver - Syslog ulaz (UDP i TCP) za mreznu opremu koja ne moze da pokrene agenta
+ *
+ * Svrha:
+ * Ruteri, switch-evi i firewall-i salju samo syslog. Poruke se parsiraju (SyslogParser, RFC 5424 i 3164),
+ * mapiraju u LogEventRequest (SyslogEventMapper) i idu u isti IngestQueue kao REST i binarni ingest,
+ * pa su batch upis, detekcija i rollup-i isti za sve ulaze.
+ *
+ * UDP (RFC 5426, jedna poruka po datagramu):
+ * udp-threads niti, svaka sa svojim DatagramChannel-om na istom portu (SO_REUSEPORT - kernel deli
+ * datagrame po posiljaocu); bez SO_REUSEPORT jedna nit. Nit cita do BATCH_SIZE datagrama bez blokiranja,
+ * pa ih jednim offerAll ubacuje u red. UDP nema backpressure: kad je red pun poruke se odbacuju i broje,
+ * a veliki receive-buffer upija kratke naleta dok radne niti IngestQueue-a sustizu.
+ *
+ * TCP (RFC 6587):
+ * Jedna nit sa Selector-om; okvir je octet-counting ("LEN <PRI>...") ili poruka zavrsena sa LF.
+ * Kad red ne primi ceo batch, ostatak ceka na konekciji i sa nje se ne cita - TCP prozor se puni
+ * i posiljalac usporava (bez odbacivanja), isto kao BinaryIngestServer.
+ *
+ * Parser, mapper i baferi su po niti: u stabilnom radu po poruci nastaju samo objekti koji idu u red.
+ *
+ * METRIKE:
+ * - aurora.syslog.received{transport}      primljene poruke
+ * - aurora.syslog.parse-errors{transport}  poruke bez ispravnog PRI ili teksta
+ * - aurora.syslog.dropped{reason}          queue-full (UDP, pun red) / unknown-source (izvor nije registrovan)
+ * - aurora.syslog.connections              otvorene TCP konekcije
+ * - aurora.syslog.sources                  registrovani uredjaji (SyslogSourceRegistry)
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "aurora.syslog.enabled", havingValue = "true")
+public class SyslogReceiver {
+
+    private static final int BATCH_SIZE = 256;
+    private static final long TICK_MILLIS = 50;
+    private static final int MAX_LENGTH_DIGITS = 6;
+
+    private final IngestQueue ingestQueue;
+    private final SyslogSourceRegistry sourceRegistry;
+    private final SeverityRepository severityRepository;
+    private final int udpPort;
+    private final int tcpPort;
+    private final int udpThreads;
+    private final int receiveBuffer;
+    private final int maxMessageSize;
+    private final double highWatermark;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private final AtomicInteger connections = new AtomicInteger();
+    private final Counter udpReceived;
+    private final Counter tcpReceived;
+    private final Counter udpParseErrors;
+    private final Counter tcpParseErrors;
+    private final Counter droppedQueueFull;
+    private final Counter droppedUnknownSource;
+
+    private final Long[] severityIds = new Long[SyslogEventMapper.SEVERITY_NAMES.length];
+    private final List<DatagramChannel> udpChannels = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private ServerSocketChannel tcpChannel;
+    private Selector tcpSelector;
+    private volatile boolean running;
+    private int pauseDepth;
+
+    public SyslogReceiver(IngestQueue ingestQueue,
+                          SyslogSourceRegistry sourceRegistry,
+                          SeverityRepository severityRepository,
+                          MeterRegistry meterRegistry,
+                          @Value("${aurora.syslog.udp-port:5514}") int udpPort,
+                          @Value("${aurora.syslog.tcp-port:5514}") int tcpPort,
+                          @Value("${aurora.syslog.udp-threads:2}") int udpThreads,
+                          @Value("${aurora.syslog.receive-buffer:8388608}") int receiveBuffer,
+                          @Value("${aurora.syslog.max-message-size:8192}") int maxMessageSize,
+                          @Value("${aurora.syslog.high-watermark:0.9}") double highWatermark) {
+        this.ingestQueue = ingestQueue;
+        this.sourceRegistry = sourceRegistry;
+        this.severityRepository = severityRepository;
+        this.udpPort = udpPort;
+        this.tcpPort = tcpPort;
+        this.udpThreads = udpThreads;
+        this.receiveBuffer = receiveBuffer;
+        this.maxMessageSize = maxMessageSize;
+        this.highWatermark = highWatermark;
+
+        Gauge.builder("aurora.syslog.connections", connections, AtomicInteger::get).register(meterRegistry);
+        this.udpReceived = meterRegistry.counter("aurora.syslog.received", "transport", "udp");
+        this.tcpReceived = meterRegistry.counter("aurora.syslog.received", "transport", "tcp");
+        this.udpParseErrors = meterRegistry.counter("aurora.syslog.parse-errors", "transport", "udp");
+        this.tcpParseErrors = meterRegistry.counter("aurora.syslog.parse-errors", "transport", "tcp");
+        this.droppedQueueFull = meterRegistry.counter("aurora.syslog.dropped", "reason", "queue-full");
+        this.droppedUnknownSource = meterRegistry.counter("aurora.syslog.dropped", "reason", "unknown-source");
+    }
+
+    @PostConstruct
+    void start() {
+        resolveSeverities();
+        pauseDepth = (int) ((ingestQueue.depth() + ingestQueue.remainingCapacity()) * highWatermark);
+        running = true;
+        try {
+            if (udpPort > 0) {
+                startUdp();
+            }
+            if (tcpPort > 0) {
+                startTcp();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot start syslog receiver", e);
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        if (tcpSelector != null) {
+            tcpSelector.wakeup();
+        }
+        for (DatagramChannel channel : udpChannels) {
+            closeQuietly(channel);
+        }
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    // Syslog severity -> id iz tabele severities (po imenu); bez reda u tabeli dogadjaj nema severity
+    private void resolveSeverities() {
+        for (int i = 0; i < severityIds.length; i++) {
+            severityIds[i] = severityRepository.findByName(SyslogEventMapper.SEVERITY_NAMES[i])
+                .map(Severity::getId)
+                .orElse(null);
+            if (severityIds[i] == null) {
+                log.warn("Severity {} not found, syslog severity {} events will have none",
+                    SyslogEventMapper.SEVERITY_NAMES[i], i);
+            }
+        }
+    }
+
+    // ==================== UDP ====================
+
+    private void startUdp() throws IOException {
+        boolean reusePort;
+        try (DatagramChannel probe = DatagramChannel.open()) {
+            reusePort = udpThreads > 1 && probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        }
+        int count = reusePort ? udpThreads : 1;
+        for (int i = 0; i < count; i++) {
+            DatagramChannel channel = DatagramChannel.open();
+            if (reusePort) {
+                channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            }
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, receiveBuffer);
+            channel.bind(new InetSocketAddress(udpPort));
+            channel.configureBlocking(false);
+            udpChannels.add(channel);
+
+            UdpLoop loop = new UdpLoop(channel, Selector.open());
+            startThread(loop, "aurora-syslog-udp-" + i);
+        }
+        log.info("Syslog UDP listening on port {} ({} threads, receive buffer {} bytes)",
+            udpPort, count, udpChannels.get(0).getOption(StandardSocketOptions.SO_RCVBUF));
+    }
+
+    private final class UdpLoop implements Runnable {
+
+        private final DatagramChannel channel;
+        private final Selector selector;
+        private final ByteBuffer datagram = ByteBuffer.allocate(65_535);
+        private final Handler handler = new Handler(udpReceived, udpParseErrors);
+
+        UdpLoop(DatagramChannel channel, Selector selector) throws IOException {
+            this.channel = channel;
+            this.selector = selector;
+            channel.register(selector, SelectionKey.OP_READ);
+        }
+
+        @Override
+        public void run() {
+            byte[] buf = datagram.array();
+            while (running) {
+                try {
+                    handler.mapper.tick();
+                    int received = 0;
+                    SocketAddress sender;
+                    while (received < BATCH_SIZE && (sender = channel.receive(datagram.clear())) != null) {
+                        int length = Math.min(datagram.position(), maxMessageSize);
+                        handler.handle(buf, 0, length, ((InetSocketAddress) sender).getAddress());
+                        received++;
+                    }
+                    List<LogEventRequest> batch = handler.drain();
+                    if (!batch.isEmpty()) {
+                        int accepted = ingestQueue.offerAll(batch);
+                        droppedQueueFull.increment(batch.size() - accepted);
+                        batch.clear();
+                    }
+                    if (received < BATCH_SIZE) {
+                        selector.select(TICK_MILLIS);
+                        selector.selectedKeys().clear();
+                    }
+                } catch (IOException e) {
+                    if (running) {
+                        log.error("Syslog UDP receive failed", e);
+                    }
+                } catch (RuntimeException e) {
+                    // Greska jedne poruke / batch-a ne sme da ugasi prijemnu nit
+                    log.error("Syslog UDP message handling failed", e);
+                }
+            }
+            closeQuietly(selector);
+        }
+    }
+
+    // ==================== TCP ====================
+
+    private void startTcp() throws IOException {
+        tcpSelector = Selector.open();
+        tcpChannel = ServerSocketChannel.open();
+        tcpChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        tcpChannel.bind(new InetSocketAddress(tcpPort), 1024);
+        tcpChannel.configureBlocking(false);
+        tcpChannel.register(tcpSelector, SelectionKey.OP_ACCEPT);
+        startThread(new TcpLoop(), "aurora-syslog-tcp");
+        log.info("Syslog TCP listening on port {}", tcpPort);
+    }
+
+    private final class TcpLoop implements Runnable {
+
+        private final Handler handler = new Handler(tcpReceived, tcpParseErrors);
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    handler.mapper.tick();
+                    updateInterest();
+                    tcpSelector.select(TICK_MILLIS);
+                    Iterator<SelectionKey> selected = tcpSelector.selectedKeys().iterator();
+                    while (selected.hasNext()) {
+                        SelectionKey key = selected.next();
+                        selected.remove();
+                        if (key.isValid() && key.isAcceptable()) {
+                            accept();
+                        } else if (key.isValid() && key.isReadable()) {
+                            TcpConnection connection = (TcpConnection) key.attachment();
+                            try {
+                                connection.read(handler);
+                            } catch (IOException e) {
+                                log.debug("Syslog TCP connection {} failed", connection.remote, e);
+                                connection.close();
+                            } catch (RuntimeException e) {
+                                log.error("Syslog TCP connection {} handling failed, closing", connection.remote, e);
+                                connection.close();
+                            }
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.error("Syslog TCP selector failed", e);
+                }
+            }
+            for (SelectionKey key : tcpSelector.keys()) {
+                if (key.attachment() instanceof TcpConnection connection) {
+                    connection.close();
+                }
+            }
+            closeQuietly(tcpChannel);
+            closeQuietly(tcpSelector);
+        }
+
+        private void accept() throws IOException {
+            SocketChannel channel = tcpChannel.accept();
+            if (channel == null) {
+                return;
+            }
+            channel.configureBlocking(false);
+            TcpConnection connection = new TcpConnection(channel);
+            connection.key = channel.register(tcpSelector, SelectionKey.OP_READ, connection);
+            connections.incrementAndGet();
+        }
+
+        // Konekcija sa neubacenim ostatkom ili pun red: ne citaj (TCP backpressure)
+        private void updateInterest() {
+            boolean saturated = ingestQueue.depth() >= pauseDepth;
+            for (SelectionKey key : tcpSelector.keys()) {
+                if (key.isValid() && key.attachment() instanceof TcpConnection connection) {
+                    int ops = connection.offerPending() && !saturated ? SelectionKey.OP_READ : 0;
+                    if (key.interestOps() != ops) {
+                        key.interestOps(ops);
+                    }
+                }
+            }
+        }
+    }
+
+    private final class TcpConnection {
+
+        private final SocketChannel channel;
+        private final InetAddress remote;
+        private final ByteBuffer in = ByteBuffer.allocate(maxMessageSize + MAX_LENGTH_DIGITS + 1);
+        private final List<LogEventRequest> pending = new ArrayList<>();
+        private SelectionKey key;
+        private boolean skipToNewline;
+        private boolean closed;
+
+        TcpConnection(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            this.remote = ((InetSocketAddress) channel.getRemoteAddress()).getAddress();
+        }
+
+        void read(Handler handler) throws IOException {
+            if (channel.read(in) < 0) {
+                close();
+                return;
+            }
+            byte[] buf = in.array();
+            int limit = in.position();
+            int position = frames(handler, buf, limit);
+            System.arraycopy(buf, position, buf, 0, limit - position);
+            in.position(limit - position);
+
+            // LF okvir duzi od bafera: prvih max-message-size bajtova je poruka, ostatak do LF se preskace
+            if (!in.hasRemaining()) {
+                handler.handle(buf, 0, maxMessageSize, remote);
+                in.clear();
+                skipToNewline = true;
+            }
+
+            List<LogEventRequest> batch = handler.drain();
+            if (!batch.isEmpty()) {
+                int accepted = ingestQueue.offerAll(batch);
+                if (accepted < batch.size()) {
+                    pending.addAll(batch.subList(accepted, batch.size()));
+                }
+                batch.clear();
+            }
+        }
+
+        // Obradjuje sve cele okvire u buf[0, limit), vraca poziciju prvog nedovrsenog
+        private int frames(Handler handler, byte[] buf, int limit) throws IOException {
+            int position = 0;
+            while (position < limit) {
+                if (skipToNewline) {
+                    int newline = indexOf(buf, position, limit, (byte) '\n');
+                    if (newline < 0) {
+                        return limit;
+                    }
+                    position = newline + 1;
+                    skipToNewline = false;
+                } else if (buf[position] >= '0' && buf[position] <= '9') {
+                    int length = 0;
+                    int p = position;
+                    while (p < limit && buf[p] >= '0' && buf[p] <= '9' && p - position < MAX_LENGTH_DIGITS) {
+                        length = length * 10 + (buf[p++] - '0');
+                    }
+                    if (p == limit) {
+                        return position;
+                    }
+                    if (buf[p] != ' ' || length > maxMessageSize) {
+                        throw new IOException("Invalid octet-counting frame length from " + remote);
+                    }
+                    if (p + 1 + length > limit) {
+                        return position;
+                    }
+                    handler.handle(buf, p + 1, p + 1 + length, remote);
+                    position = p + 1 + length;
+                } else {
+                    int newline = indexOf(buf, position, limit, (byte) '\n');
+                    if (newline < 0) {
+                        return position;
+                    }
+                    if (newline > position) {
+                        handler.handle(buf, position, newline, remote);
+                    }
+                    position = newline + 1;
+                }
+            }
+            return position;
+        }
+
+        // true kad nema ostatka koji ceka na red
+        boolean offerPending() {
+            if (!pending.isEmpty()) {
+                int accepted = ingestQueue.offerAll(pending);
+                pending.subList(0, accepted).clear();
+            }
+            return pending.isEmpty();
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            key.cancel();
+            closeQuietly(channel);
+            connections.decrementAndGet();
+        }
+    }
+
+    // ==================== OBRADA PORUKE ====================
+
+    // Parser + mapper jedne niti; brojaci se skupljaju lokalno i upisuju u metrike jednom po batch-u
+    private final class Handler {
+
+        private final SyslogParser parser = new SyslogParser();
+        private final SyslogMessage message = new SyslogMessage();
+        private final SyslogEventMapper mapper = new SyslogEventMapper(sourceRegistry, severityIds, zone);
+        private final List<LogEventRequest> batch = new ArrayList<>(BATCH_SIZE);
+        private final Counter receivedCounter;
+        private final Counter parseErrorCounter;
+        private long received;
+        private long parseErrors;
+        private long unknownSource;
+
+        Handler(Counter receivedCounter, Counter parseErrorCounter) {
+            this.receivedCounter = receivedCounter;
+            this.parseErrorCounter = parseErrorCounter;
+        }
+
+        void handle(byte[] buf, int offset, int end, InetAddress sender) {
+            received++;
+            if (!parser.parse(buf, offset, end, message)) {
+                parseErrors++;
+                return;
+            }
+            LogEventRequest event = mapper.map(buf, message, sender);
+            if (event == null) {
+                unknownSource++;
+                return;
+            }
+            batch.add(event);
+        }
+
+        List<LogEventRequest> drain() {
+            if (received > 0) {
+                receivedCounter.increment(received);
+                parseErrorCounter.increment(parseErrors);
+                droppedUnknownSource.increment(unknownSource);
+                received = 0;
+                parseErrors = 0;
+                unknownSource = 0;
+            }
+            return batch;
+        }
+    }
+
+    // ==================== POMOCNE METODE ====================
+
+    private void startThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        threads.add(thread);
+        thread.start();
+    }
+
+    private static int indexOf(byte[] buf, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (buf[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            log.debug("Closing syslog channel failed", e);
+        }
+    }
+}
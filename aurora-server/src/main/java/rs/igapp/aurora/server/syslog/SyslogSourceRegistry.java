@@ -0,0 +1,137 @@
+package rs.igapp.aurora.server.syslog;
+
+import java.net.InetAddress;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import rs.igapp.aurora.server.service.SourceService;
+
+/**
+ * SyslogSourceRegistry - Automatska registracija syslog uredjaja kao Source
+ *
+ * Svrha:
+ * Syslog uredjaj nema agenta koji bi se registrovao, a LogEventService.mapToEntity odbija dogadjaj
+ * bez postojeceg Source-a (i time ceo batch). Zato se host registruje PRE nego sto njegov prvi
+ * dogadjaj ude u IngestQueue: agentId = "syslog:" + hostname (mala slova), ipAddress = posiljalac.
+ *
+ * TOK:
+ * - poznat host: lookup u ConcurrentHashMap (bez baze)
+ * - nov host: SourceService.registerIfAbsent, jednom po hostu, serijalizovano (uredjaja je malo, poruka mnogo)
+ * - baza nedostupna: dogadjaji se odbacuju, nova registracija tek posle retry-pause (bez udaranja u bazu po poruci)
+ *
+ * max-sources ogranicava broj automatski registrovanih izvora - UDP posiljalac se lako lazira,
+ * pa poplava izmisljenih hostname-ova ne sme da napravi hiljade redova u sources.
+ * Host duzi od MAX_COLUMN_LENGTH (sa prefiksom) se ne registruje - agent_id i hostname su varchar(255),
+ * a INSERT bi pao na duzini, ne na jedinstvenosti.
+ *
+ * DataIntegrityViolationException se ne tumaci naslepo kao "registrovala ga je druga instanca":
+ * izvor se ponovo cita iz baze i kesira samo ako red stvarno postoji.
+ */
+@Slf4j
+@Component
+public class SyslogSourceRegistry {
+
+    static final String AGENT_ID_PREFIX = "syslog:";
+
+    static final int MAX_COLUMN_LENGTH = 255;
+
+    private static final long RETRY_PAUSE_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final SourceService sourceService;
+    private final int maxSources;
+    private final Map<String, String> agentIds = new ConcurrentHashMap<>();
+
+    private volatile long retryAt = System.nanoTime();
+    private boolean limitLogged;
+    // Registracija upisuje izvor u bazu pod lock-om; monitor bi na JDK < 24 blokirao i carrier nit
+    private final ReentrantLock registerLock = new ReentrantLock();
+
+    public SyslogSourceRegistry(SourceService sourceService,
+                                MeterRegistry meterRegistry,
+                                @Value("${aurora.syslog.max-sources:10000}") int maxSources) {
+        this.sourceService = sourceService;
+        this.maxSources = maxSources;
+        Gauge.builder("aurora.syslog.sources", agentIds, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * agentId registrovanog izvora za host, ili null ako izvor ne moze da se registruje (limit, duzina, baza).
+     */
+    public String agentIdFor(String host, InetAddress sender) {
+        String agentId = agentIds.get(host);
+        return agentId != null ? agentId : register(host, sender);
+    }
+
+    private String register(String host, InetAddress sender) {
+        registerLock.lock();
+        try {
+            return registerLocked(host, sender);
+        } finally {
+            registerLock.unlock();
+        }
+    }
+
+    private String registerLocked(String host, InetAddress sender) {
+        String agentId = agentIds.get(host);
+        if (agentId != null) {
+            return agentId;
+        }
+        if (agentIds.size() >= maxSources) {
+            if (!limitLogged) {
+                log.warn("Syslog source limit of {} reached, dropping messages from new hosts", maxSources);
+                limitLogged = true;
+            }
+            return null;
+        }
+        if (System.nanoTime() - retryAt < 0) {
+            return null;
+        }
+
+        agentId = AGENT_ID_PREFIX + host.toLowerCase(Locale.ROOT);
+        if (host.isBlank() || agentId.length() > MAX_COLUMN_LENGTH) {
+            log.debug("Syslog host of length {} cannot be registered as a source", host.length());
+            return null;
+        }
+        String ipAddress = sender != null ? sender.getHostAddress() : null;
+        try {
+            sourceService.registerIfAbsent(agentId, host, ipAddress);
+            log.info("Registered syslog source {} ({})", agentId, ipAddress);
+        } catch (DataIntegrityViolationException e) {
+            // Unique agent_id (druga instanca) ili neka druga povreda ogranicenja - odlucuje red u bazi
+            if (!registeredConcurrently(agentId)) {
+                return retryLater(agentId, e);
+            }
+            log.debug("Syslog source {} registered concurrently", agentId);
+        } catch (RuntimeException e) {
+            return retryLater(agentId, e);
+        }
+        agentIds.put(host, agentId);
+        return agentId;
+    }
+
+    private boolean registeredConcurrently(String agentId) {
+        try {
+            return sourceService.reloadByAgentId(agentId).isPresent();
+        } catch (RuntimeException e) {
+            log.debug("Re-reading syslog source {} failed", agentId, e);
+            return false;
+        }
+    }
+
+    private String retryLater(String agentId, RuntimeException e) {
+        retryAt = System.nanoTime() + RETRY_PAUSE_NANOS;
+        log.warn("Registering syslog source {} failed, retrying in {}s", agentId,
+            TimeUnit.NANOSECONDS.toSeconds(RETRY_PAUSE_NANOS), e);
+        return null;
+    }
+}
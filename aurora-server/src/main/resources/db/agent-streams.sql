@@ -0,0 +1,14 @@
+-- Pozicija agenata na binarnom ingest-u (BinaryIngestServer / AgentStreamStore)
+--
+-- Poslednji commit-ovan batchSeq po agentu i koliko je dogadjaja iz njega upisano. Red se upisuje u ISTOJ
+-- transakciji kao dogadjaji batch-a, pa posle restarta servera HELLO vraca tacno ono sto je u bazi:
+-- agent ne salje ponovo vec upisan batch, a server ne potvrdjuje batch koji nije upisan.
+--
+-- fillfactor 80: red se menja posle svakog batch-a agenta, kolone koje se menjaju nisu indeksirane (HOT update).
+CREATE TABLE IF NOT EXISTS agent_streams (
+    agent_id      VARCHAR(255) PRIMARY KEY,
+    stream_id     BIGINT       NOT NULL,
+    last_seq      BIGINT       NOT NULL,
+    last_accepted INTEGER      NOT NULL,
+    updated_at    TIMESTAMP    NOT NULL DEFAULT now()
+) WITH (fillfactor = 80);
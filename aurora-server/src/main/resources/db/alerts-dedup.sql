@@ -0,0 +1,31 @@
+-- Deduplikacija alarma: jedan red po (pravilo, izvor, otisak) u prozoru potiskivanja, sa brojem ponavljanja
+ALTER TABLE alerts ADD COLUMN IF NOT EXISTS fingerprint VARCHAR(64);
+ALTER TABLE alerts ADD COLUMN IF NOT EXISTS occurrence_count BIGINT NOT NULL DEFAULT 1;
+ALTER TABLE alerts ADD COLUMN IF NOT EXISTS first_seen TIMESTAMP;
+ALTER TABLE alerts ADD COLUMN IF NOT EXISTS last_seen TIMESTAMP;
+
+CREATE INDEX IF NOT EXISTS idx_alerts_rule_source_fingerprint ON alerts (rule_id, source_id, fingerprint);
+
+-- Sekvenca za alerts.id (pooled optimizer, allocationSize = 50 u Alert) - IDENTITY bi iskljucio JDBC batch INSERT
+CREATE SEQUENCE IF NOT EXISTS alerts_seq START WITH 1 INCREMENT BY 50;
+SELECT setval('alerts_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM alerts) + 1,
+                                     (SELECT last_value FROM alerts_seq)));
+ALTER TABLE alerts ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+-- Alarmi koje baza odbija i pojedinacno (npr. obrisano pravilo ili dogadjaj) - bez stranih kljuceva,
+-- da bi upis uvek prosao; AlertAggregator ih ne ponavlja
+CREATE TABLE IF NOT EXISTS alert_dead_letters (
+    id               BIGSERIAL PRIMARY KEY,
+    alert_id         BIGINT,
+    rule_id          BIGINT,
+    source_id        BIGINT,
+    severity_id      BIGINT,
+    log_event_id     BIGINT,
+    fingerprint      VARCHAR(64),
+    message          TEXT,
+    occurrence_count BIGINT NOT NULL,
+    first_seen       TIMESTAMP,
+    last_seen        TIMESTAMP,
+    error            TEXT,
+    created_at       TIMESTAMP NOT NULL DEFAULT now()
+);
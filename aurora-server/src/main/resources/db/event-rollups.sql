@@ -0,0 +1,43 @@
+-- Pre-agregirani brojaci za dashboard-e (RollupCounters): minut / sat / dan po bitnosti, izvoru i pravilu,
+-- plus TOTAL = trenutni broj alarma po statusu. PK redosled omogucava zbir opsega bucket-a bez count(*) nad tabelama.
+CREATE TABLE IF NOT EXISTS event_rollups (
+    granularity   VARCHAR(16) NOT NULL,
+    dimension     VARCHAR(32) NOT NULL,
+    dimension_id  BIGINT      NOT NULL,
+    bucket_start  TIMESTAMP   NOT NULL,
+    event_count   BIGINT      NOT NULL,
+    PRIMARY KEY (granularity, dimension, dimension_id, bucket_start)
+);
+
+-- Jednokratno punjenje iz postojecih podataka (samo dok za tu granularnost/dimenziju nema nijednog reda).
+-- Minutni bucket-i se ne pune unazad - za stare podatke preciznost je sat.
+-- Dogadjaj bez bitnosti se ne broji po bitnosti (kao i u RollupCounters).
+INSERT INTO event_rollups (granularity, dimension, dimension_id, bucket_start, event_count)
+SELECT 'HOUR', 'SEVERITY', severity_id, date_trunc('hour', timestamp), count(*) FROM log_events
+WHERE severity_id IS NOT NULL
+  AND NOT EXISTS (SELECT 1 FROM event_rollups WHERE granularity = 'HOUR' AND dimension = 'SEVERITY')
+GROUP BY severity_id, date_trunc('hour', timestamp);
+
+INSERT INTO event_rollups (granularity, dimension, dimension_id, bucket_start, event_count)
+SELECT 'HOUR', 'SOURCE', source_id, date_trunc('hour', timestamp), count(*) FROM log_events
+WHERE NOT EXISTS (SELECT 1 FROM event_rollups WHERE granularity = 'HOUR' AND dimension = 'SOURCE')
+GROUP BY source_id, date_trunc('hour', timestamp);
+
+INSERT INTO event_rollups (granularity, dimension, dimension_id, bucket_start, event_count)
+SELECT 'HOUR', 'RULE', rule_id, date_trunc('hour', created_at), sum(occurrence_count) FROM alerts
+WHERE NOT EXISTS (SELECT 1 FROM event_rollups WHERE granularity = 'HOUR' AND dimension = 'RULE')
+GROUP BY rule_id, date_trunc('hour', created_at);
+
+INSERT INTO event_rollups (granularity, dimension, dimension_id, bucket_start, event_count)
+SELECT 'DAY', dimension, dimension_id, date_trunc('day', bucket_start), sum(event_count) FROM event_rollups
+WHERE granularity = 'HOUR'
+  AND NOT EXISTS (SELECT 1 FROM event_rollups WHERE granularity = 'DAY')
+GROUP BY dimension, dimension_id, date_trunc('day', bucket_start);
+
+INSERT INTO event_rollups (granularity, dimension, dimension_id, bucket_start, event_count)
+SELECT 'TOTAL', 'ALERT_STATUS', status_id, TIMESTAMP '1970-01-01 00:00:00', count(*) FROM alerts
+WHERE NOT EXISTS (SELECT 1 FROM event_rollups WHERE granularity = 'TOTAL' AND dimension = 'ALERT_STATUS')
+GROUP BY status_id;
+
+-- Histogram i top-N citaju sve vrednosti dimenzije u opsegu vremena
+CREATE INDEX IF NOT EXISTS idx_event_rollups_time ON event_rollups (granularity, dimension, bucket_start);
@@ -0,0 +1,11 @@
+-- Automatsko grupisanje alarma u incidente (AlertClusteringJob)
+ALTER TABLE incidents ADD COLUMN IF NOT EXISTS cluster_key VARCHAR(255);
+ALTER TABLE incidents ADD COLUMN IF NOT EXISTS last_alert_at TIMESTAMP;
+
+-- Otvoren incident za host, po vremenu poslednjeg alarma
+CREATE INDEX IF NOT EXISTS idx_incidents_cluster_key_open ON incidents (cluster_key, last_alert_at) WHERE resolved_at IS NULL;
+-- NOT EXISTS provera "alarm vec pripada incidentu" bez citanja cele join tabele
+CREATE INDEX IF NOT EXISTS idx_incident_alerts_alert_id ON incident_alerts (alert_id);
+
+-- Skeniranje negrupisanih alarma: samo otvoreni, redom ID-ja (bez trajnog watermark-a)
+CREATE INDEX IF NOT EXISTS idx_alerts_open_id ON alerts (id) WHERE resolved_at IS NULL;
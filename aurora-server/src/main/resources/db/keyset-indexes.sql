@@ -0,0 +1,5 @@
+-- Indeksi za keyset paginaciju (ORDER BY vreme DESC, id DESC + row-value poredjenje)
+-- B-tree se cita unazad, pa DESC indeks nije potreban
+CREATE INDEX IF NOT EXISTS idx_log_events_timestamp_id ON log_events (timestamp, id);
+CREATE INDEX IF NOT EXISTS idx_alerts_created_at_id ON alerts (created_at, id);
+CREATE INDEX IF NOT EXISTS idx_incidents_created_at_id ON incidents (created_at, id);
@@ -0,0 +1,7 @@
+-- Full-text pretraga za log_events.message (zamena za LIKE '%kljucna rec%')
+-- 'simple' konfiguracija: bez stemovanja i stop-reci, tokeni kao IP adrese, korisnicka imena i kodovi ostaju netaknuti
+ALTER TABLE log_events
+    ADD COLUMN IF NOT EXISTS message_tsv tsvector GENERATED ALWAYS AS (to_tsvector('simple', message)) STORED;
+
+-- fastupdate: novi redovi idu u pending listu i spajaju se u indeks u grupama (jeftiniji ingest)
+CREATE INDEX IF NOT EXISTS idx_log_events_message_tsv ON log_events USING GIN (message_tsv) WITH (fastupdate = on);
@@ -0,0 +1,24 @@
+-- log_events kao particionisana tabela po vremenu (RANGE na timestamp)
+--
+-- Particije (dnevne ili satne) pravi i brise LogEventPartitionManager, ovde se pravi samo roditelj
+-- i DEFAULT particija koja hvata redove van postojecih opsega (npr. agent sa pogresnim satom).
+--
+-- NAPOMENA:
+-- - Primarni kljuc particionisane tabele MORA da sadrzi kljuc particije, zato je PK (id, timestamp).
+--   Hibernate i dalje koristi samo id (jedinstven preko sekvence log_events_seq).
+-- - Zbog toga alerts.log_event_id ne moze imati FK na log_events(id) - integritet cuva aplikacija.
+-- - Ako log_events vec postoji kao obicna tabela, ovaj skript je ne dira. Migracija:
+--     ALTER TABLE log_events RENAME TO log_events_legacy;  -- restart servera pravi particionisanu tabelu
+--     ALTER TABLE log_events ATTACH PARTITION log_events_legacy FOR VALUES FROM (MINVALUE) TO ('<prva particija>');
+CREATE TABLE IF NOT EXISTS log_events (
+    id          BIGINT       NOT NULL,
+    source_id   BIGINT       NOT NULL REFERENCES sources (id),
+    message     TEXT         NOT NULL,
+    severity_id BIGINT       REFERENCES severities (id),
+    raw_data    JSONB,
+    timestamp   TIMESTAMP(6) NOT NULL,
+    created_at  TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+CREATE TABLE IF NOT EXISTS log_events_default PARTITION OF log_events DEFAULT;
@@ -0,0 +1,10 @@
+-- Sekvenca za log_events.id (Hibernate pooled optimizer, allocationSize = 50 u LogEvent)
+-- INCREMENT BY mora biti jednak allocationSize, inace ce se ID-jevi preklapati
+CREATE SEQUENCE IF NOT EXISTS log_events_seq START WITH 1 INCREMENT BY 50;
+
+-- Postojece tabele su punjene preko IDENTITY kolone, pomeri sekvencu iza najveceg postojeceg ID-ja
+SELECT setval('log_events_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM log_events) + 1,
+                                         (SELECT last_value FROM log_events_seq)));
+
+-- Hibernate sada sam dodeljuje ID, IDENTITY (GENERATED ALWAYS) bi odbio eksplicitnu vrednost
+ALTER TABLE log_events ALTER COLUMN id DROP IDENTITY IF EXISTS;
@@ -0,0 +1,32 @@
+-- Kompaktan rawData (aurora.raw-data.encoding=COMPACT, vidi RawPayloadStore)
+--
+-- raw_data_keys: recnik kljuceva JSON objekata po izvoru (ime kljuca -> mali ceo broj), samo raste
+-- raw_payloads:  binarno kodiran rawData, jednom po (izvor, SHA-256 sadrzaja)
+-- log_events.raw_payload_id: pokazivac na payload (raw_data je tada NULL)
+--
+-- NAPOMENA: log_events je particionisana, pa raw_payload_id nema FK - payload-e brise RawPayloadStore.prune
+-- po last_used (osvezava se najvise jednom dnevno po payload-u), i to samo one na koje ne pokazuje
+-- nijedan dogadjaj (NOT EXISTS preko idx_log_events_raw_payload_id).
+CREATE TABLE IF NOT EXISTS raw_data_keys (
+    source_id BIGINT  NOT NULL REFERENCES sources (id),
+    key_id    INTEGER NOT NULL,
+    key_name  TEXT    NOT NULL,
+    PRIMARY KEY (source_id, key_id),
+    UNIQUE (source_id, key_name)
+);
+
+CREATE TABLE IF NOT EXISTS raw_payloads (
+    id        BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    source_id BIGINT NOT NULL,
+    hash      BYTEA  NOT NULL,
+    payload   BYTEA  NOT NULL,
+    last_used DATE   NOT NULL DEFAULT CURRENT_DATE,
+    UNIQUE (source_id, hash)
+);
+
+CREATE INDEX IF NOT EXISTS idx_raw_payloads_last_used ON raw_payloads (last_used);
+
+ALTER TABLE log_events ADD COLUMN IF NOT EXISTS raw_payload_id BIGINT;
+
+-- Parcijalan: u JSON modu je raw_payload_id uvek NULL i indeks ne kosta nista pri ingest-u
+CREATE INDEX IF NOT EXISTS idx_log_events_raw_payload_id ON log_events (raw_payload_id) WHERE raw_payload_id IS NOT NULL;
@@ -0,0 +1,5 @@
+-- Heartbeat izvora (HeartbeatTracker): last_heartbeat / is_active se menjaju bulk UPDATE-om na flush-interval
+--
+-- fillfactor 80: ostavlja mesta na stranici da nova verzija reda ostane na istoj stranici (HOT update),
+-- pa UPDATE ne dira indekse sources (last_heartbeat i is_active nisu indeksirani).
+ALTER TABLE sources SET (fillfactor = 80);
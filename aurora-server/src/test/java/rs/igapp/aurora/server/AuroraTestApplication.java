@@ -0,0 +1,14 @@
+package rs.igapp.aurora.server;
+
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * Konfiguracija za @SpringBootTest - ceo server (svi moduli), kao u produkciji
+ */
+@SpringBootApplication(scanBasePackages = "rs.igapp.aurora")
+@EntityScan("rs.igapp.aurora.domain")
+@EnableJpaRepositories("rs.igapp.aurora.persistence")
+public class AuroraTestApplication {
+}
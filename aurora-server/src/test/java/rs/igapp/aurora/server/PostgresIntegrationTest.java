@@ -0,0 +1,82 @@
+package rs.igapp.aurora.server;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * Osnova za integracione testove nad pravim Postgres-om (particije, tsvector, date_bin - H2 ne moze)
+ *
+ * Podrazumevano se pokrece embedded Postgres (zonky) jednom po JVM-u. initdb odbija da radi kao root -
+ * tada (npr. u kontejneru) se zadaje postojeca baza:
+ *   mvn verify -Daurora.it.datasource.url=jdbc:postgresql://localhost:5432/aurora_it -Daurora.it.datasource.username=postgres
+ * Baza treba da bude namenjena testovima - testovi brisu svoje tabele.
+ *
+ * Sema: particionisani log_events (db/it-log-events.sql, pre konteksta), pa Hibernate pravi ostale tabele,
+ * pa se izvrsavaju db/*.sql skripte servera (defer-datasource-initialization).
+ * Scheduled poslovi rade kao u produkciji; testovi koji broje upite broje samo svoju nit (SqlStatementCounter).
+ */
+@SpringBootTest(
+    classes = AuroraTestApplication.class,
+    webEnvironment = SpringBootTest.WebEnvironment.NONE,
+    properties = {
+        "spring.jpa.hibernate.ddl-auto=update",
+        "spring.jpa.defer-datasource-initialization=true",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=rs.igapp.aurora.server.SqlStatementCounter"
+    })
+public abstract class PostgresIntegrationTest {
+
+    private static final String URL_PROPERTY = "aurora.it.datasource.url";
+
+    private static EmbeddedPostgres embedded;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        String url = System.getProperty(URL_PROPERTY);
+        String username;
+        String password;
+        if (url != null && !url.isBlank()) {
+            username = System.getProperty("aurora.it.datasource.username", "postgres");
+            password = System.getProperty("aurora.it.datasource.password", "");
+        } else {
+            url = embedded().getJdbcUrl("postgres", "postgres");
+            username = "postgres";
+            password = "";
+        }
+        prepareSchema(url, username, password);
+
+        String jdbcUrl = url;
+        registry.add("spring.datasource.url", () -> jdbcUrl);
+        registry.add("spring.datasource.username", () -> username);
+        registry.add("spring.datasource.password", () -> password);
+    }
+
+    private static void prepareSchema(String url, String username, String password) {
+        try (Connection connection = DriverManager.getConnection(url, username, password)) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/it-log-events.sql"));
+        } catch (SQLException e) {
+            throw new IllegalStateException("Preparing the integration test schema failed: " + url, e);
+        }
+    }
+
+    private static synchronized EmbeddedPostgres embedded() {
+        if (embedded == null) {
+            try {
+                embedded = EmbeddedPostgres.start();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Embedded Postgres did not start (as root set -D" + URL_PROPERTY + ")", e);
+            }
+        }
+        return embedded;
+    }
+}
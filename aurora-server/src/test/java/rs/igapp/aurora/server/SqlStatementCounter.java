@@ -0,0 +1,50 @@
+package rs.igapp.aurora.server;
+
+import java.util.function.Supplier;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Broji SQL naredbe koje Hibernate pripremi na tekucoj niti
+ *
+ * Statistics SessionFactory-ja je globalna - scheduled poslovi (reload pravila, flush-evi) bi menjali broj.
+ * Ovde se broji samo nit testa, izmedju count() poziva. Registruje se kroz
+ * hibernate.session_factory.statement_inspector (PostgresIntegrationTest).
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+
+    /**
+     * Izvrsava akciju i vraca broj naredbi koje je ona poslala bazi.
+     */
+    public static int count(Runnable action) {
+        return count(() -> {
+            action.run();
+            return null;
+        }).statements();
+    }
+
+    public static <T> Counted<T> count(Supplier<T> action) {
+        int[] count = new int[1];
+        COUNT.set(count);
+        try {
+            T result = action.get();
+            return new Counted<>(result, count[0]);
+        } finally {
+            COUNT.remove();
+        }
+    }
+
+    public record Counted<T>(T result, int statements) {
+    }
+}
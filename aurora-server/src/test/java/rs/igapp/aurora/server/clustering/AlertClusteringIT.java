@@ -0,0 +1,109 @@
+package rs.igapp.aurora.server.clustering;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import rs.igapp.aurora.persistence.repository.AlertStatusRepository;
+import rs.igapp.aurora.server.PostgresIntegrationTest;
+
+/**
+ * AlertClusteringJob: 100k otvorenih alarma u par sekundi po ciklusu, i alarm commit-ovan ispod
+ * vec skeniranog ID-ja (pooled alerts_seq) se grupise u sledecem ciklusu
+ *
+ * Posao se pravi rucno; zakazani bean je mock da ne grupise iste alarme u pozadini.
+ */
+class AlertClusteringIT extends PostgresIntegrationTest {
+
+    private static final int ALERTS = 100_000;
+    private static final int HOSTS = 1_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private AlertStatusRepository alertStatusRepository;
+
+    @MockitoBean
+    private AlertClusteringJob scheduledJob;
+
+    private AlertClusteringJob job;
+
+    @BeforeEach
+    void clean() {
+        job = new AlertClusteringJob(jdbcTemplate, transactionManager, alertStatusRepository, new SimpleMeterRegistry(),
+            Duration.ofMinutes(30), 5_000, 200_000);
+        jdbcTemplate.execute("TRUNCATE incident_alerts, incidents, alerts, rules, sources, "
+            + "severities, alert_statuses, rule_statuses CASCADE");
+        jdbcTemplate.update("INSERT INTO severities (id, name, level) VALUES "
+            + "(1, 'INFO', 1), (2, 'WARN', 2), (3, 'ERROR', 3), (4, 'CRITICAL', 4)");
+        jdbcTemplate.update("INSERT INTO alert_statuses (id, name) VALUES (1, 'NEW'), (2, 'RESOLVED')");
+        jdbcTemplate.update("INSERT INTO rule_statuses (id, name) VALUES (1, 'ACTIVE')");
+        jdbcTemplate.update("INSERT INTO rules (id, name, condition, severity_id, status_id, enabled, created_at) "
+            + "VALUES (1, 'brute-force', 'keyword:failed', 3, 1, false, now())");
+        jdbcTemplate.update("INSERT INTO sources (id, agent_id, hostname, ip_address, is_active, created_at) "
+            + "SELECT g, 'agent-' || g, 'host-' || g, '10.0.' || (g / 256) || '.' || (g % 256), true, now() "
+            + "FROM generate_series(1, ?) g", HOSTS);
+    }
+
+    @Test
+    void hundredThousandOpenAlertsClusterInSeconds() {
+        insertAlerts(1, ALERTS);
+        jdbcTemplate.execute("ANALYZE alerts");
+
+        long started = System.nanoTime();
+        job.runCycle();
+        double firstMillis = (System.nanoTime() - started) / 1e6;
+
+        started = System.nanoTime();
+        job.runCycle();
+        double idleMillis = (System.nanoTime() - started) / 1e6;
+
+        System.out.printf("Alert clustering, %d open alerts on %d hosts: first cycle %.0f ms, "
+            + "next cycle (nothing new) %.0f ms%n", ALERTS, HOSTS, firstMillis, idleMillis);
+
+        assertThat(count("incident_alerts")).isEqualTo(ALERTS);
+        assertThat(count("incidents")).isEqualTo(HOSTS);
+        assertThat(firstMillis).isLessThan(10_000);
+        assertThat(idleMillis).isLessThan(1_000);
+    }
+
+    @Test
+    void alertCommittedBelowScannedIdIsClusteredNextCycle() {
+        insertAlerts(100, 10);
+        job.runCycle();
+        assertThat(count("incident_alerts")).isEqualTo(10);
+
+        // Drugi cvor je ranije dobio blok ID-jeva iz alerts_seq i tek sada commit-uje
+        insertAlerts(5, 1);
+        job.runCycle();
+
+        assertThat(count("incident_alerts")).isEqualTo(11);
+        assertThat(jdbcTemplate.queryForObject(
+            "SELECT count(*) FROM incident_alerts WHERE alert_id = 5", Long.class)).isEqualTo(1);
+    }
+
+    // count alarma od ID-ja from, izvori redom, jedan alarm u sekundi (isti host - isti incident)
+    private void insertAlerts(long from, int count) {
+        jdbcTemplate.update("INSERT INTO alerts (id, rule_id, log_event_id, source_id, severity_id, status_id, message, "
+            + "occurrence_count, created_at, first_seen, last_seen) "
+            + "SELECT g, 1, g, 1 + g % ?, 1 + g % 4, 1, 'failed login ' || g, 1, "
+            + "localtimestamp - (? - g) * interval '1 second', now(), now() FROM generate_series(?, ?) g",
+            HOSTS, from + count, from, from + count - 1);
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM " + table, Long.class);
+    }
+}
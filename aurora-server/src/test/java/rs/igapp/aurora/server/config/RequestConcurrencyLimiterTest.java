@@ -0,0 +1,53 @@
+package rs.igapp.aurora.server.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * RequestConcurrencyLimiter: asinhroni zahtev drzi dozvolu dok se async obrada ne zavrsi
+ */
+class RequestConcurrencyLimiterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RequestConcurrencyLimiter limiter = new RequestConcurrencyLimiter(registry, 1, Duration.ofMillis(50));
+
+    @Test
+    void asyncRequestHoldsPermitUntilComplete() throws Exception {
+        MockHttpServletRequest export = request();
+        limiter.doFilter(export, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        limiter.doFilter(request(), rejected, (req, res) -> { });
+        assertThat(rejected.getStatus()).isEqualTo(503);
+
+        ((MockAsyncContext) export.getAsyncContext()).complete();
+
+        MockHttpServletResponse accepted = new MockHttpServletResponse();
+        limiter.doFilter(request(), accepted, (req, res) -> { });
+        assertThat(accepted.getStatus()).isEqualTo(200);
+        assertThat(registry.counter("aurora.http.rejected").count()).isEqualTo(1);
+    }
+
+    @Test
+    void syncRequestReleasesPermitOnReturn() throws Exception {
+        limiter.doFilter(request(), new MockHttpServletResponse(), (req, res) -> { });
+
+        MockHttpServletResponse next = new MockHttpServletResponse();
+        limiter.doFilter(request(), next, (req, res) -> { });
+        assertThat(next.getStatus()).isEqualTo(200);
+    }
+
+    private static MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/logs/export");
+        request.setAsyncSupported(true);
+        return request;
+    }
+}
@@ -0,0 +1,82 @@
+package rs.igapp.aurora.server.detection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import rs.igapp.aurora.server.PostgresIntegrationTest;
+
+/**
+ * AlertAggregator: ponavljanja alarma koji je u medjuvremenu razresen ili obrisan se ne gube,
+ * vec otvaraju nov alarm
+ *
+ * Aggregator se pravi rucno (sopstveni otvoreni alarmi), AlertWriter je iz konteksta.
+ */
+class AlertAggregatorIT extends PostgresIntegrationTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2030, 2, 1, 10, 0);
+
+    @Autowired
+    private AlertWriter alertWriter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private AlertAggregator aggregator;
+
+    @BeforeEach
+    void clean() {
+        aggregator = new AlertAggregator(alertWriter, Duration.ofMinutes(5), registry);
+        jdbcTemplate.execute("TRUNCATE incident_alerts, incidents, alerts, alert_dead_letters, rules, sources, "
+            + "severities, alert_statuses, rule_statuses CASCADE");
+        jdbcTemplate.update("INSERT INTO severities (id, name, level) VALUES (3, 'ERROR', 3)");
+        jdbcTemplate.update("INSERT INTO alert_statuses (id, name) VALUES (1, 'NEW'), (2, 'RESOLVED')");
+        jdbcTemplate.update("INSERT INTO rule_statuses (id, name) VALUES (1, 'ACTIVE')");
+        jdbcTemplate.update("INSERT INTO rules (id, name, condition, severity_id, status_id, enabled, created_at) "
+            + "VALUES (1, 'brute-force', 'keyword:failed', 3, 1, false, now())");
+        jdbcTemplate.update("INSERT INTO sources (id, agent_id, hostname, is_active, created_at) "
+            + "VALUES (1, 'agent-1', 'host-1', true, now())");
+    }
+
+    @Test
+    void occurrencesOfResolvedAlertOpenNewAlert() {
+        submitAndFlush(0);
+        jdbcTemplate.update("UPDATE alerts SET status_id = 2, resolved_at = now()");
+
+        submitAndFlush(1);
+        submitAndFlush(2);
+
+        assertThat(occurrences()).containsExactly(1L, 2L);
+        assertThat(registry.counter("aurora.alerts.reopened").count()).isEqualTo(1);
+    }
+
+    @Test
+    void occurrencesOfDeletedAlertOpenNewAlert() {
+        submitAndFlush(0);
+        jdbcTemplate.update("DELETE FROM alerts");
+
+        submitAndFlush(1);
+
+        assertThat(occurrences()).containsExactly(1L);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM alert_dead_letters", Long.class)).isZero();
+    }
+
+    private void submitAndFlush(int minute) {
+        aggregator.submit(List.of(new AlertCandidate(1L, 100L + minute, 1L, 3L, "failed login for root",
+            TIME.plusMinutes(minute))));
+        aggregator.flush();
+    }
+
+    private List<Long> occurrences() {
+        return jdbcTemplate.queryForList("SELECT occurrence_count FROM alerts ORDER BY id", Long.class);
+    }
+}
@@ -0,0 +1,87 @@
+package rs.igapp.aurora.server.detection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * RegexLiterals: izvuceni literal mora biti u svakom pogotku, a sumnjiv regex ne sme dobiti prefilter
+ */
+class RegexLiteralsTest {
+
+    @Test
+    void longestRequiredRunOutsideGroupsAndClasses() {
+        assertThat(RegexLiterals.requiredLiteral("user \\w+ locked out")).isEqualTo("locked out");
+        assertThat(RegexLiterals.requiredLiteral("Failed password for (invalid user )?\\S+")).isEqualTo("Failed password for");
+        assertThat(RegexLiterals.requiredLiteral("[0-9]+ connections? refused")).isEqualTo("connection");
+        assertThat(RegexLiterals.requiredLiteral("disk\\.full at [a-z]+")).isEqualTo("disk.full at");
+    }
+
+    @Test
+    void tooShortOrAlternationHasNoLiteral() {
+        assertThat(RegexLiterals.requiredLiteral("ab\\d+")).isNull();
+        assertThat(RegexLiterals.requiredLiteral("timeout|refused")).isNull();
+        assertThat(RegexLiterals.requiredLiteral("\\Qa.b\\E error")).isNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "\\x41BCDEF",             // \x41 = 'A', "BCDEF" nije ceo literal
+        "\\x{1F600} emoji sent",
+        "\\u0041dmin login",
+        "\\0101dmin login",
+        "\\p{Lu}ogin failed",
+        "\\P{L}ogin failed",
+        "(?<u>\\w+) then \\k<u> again",
+        "\\cJsession closed",
+        "\\N{LATIN SMALL LETTER A}ccess denied",
+        "(?i)error while reading",
+        "(?ix) error while reading",
+        "(?-i)Error while reading",
+        "(?i:error) while reading",
+        "error (?i)WHILE reading"
+    })
+    void multiCharEscapesAndInlineFlagsHaveNoLiteral(String regex) {
+        assertThat(RegexLiterals.requiredLiteral(regex)).isNull();
+    }
+
+    @Test
+    void escapedBackslashIsNotAnEscapeStart() {
+        assertThat(RegexLiterals.requiredLiteral("C:\\\\xfer\\\\upload")).isEqualTo("C:\\xfer\\upload");
+    }
+
+    @Test
+    void nonCapturingAndNamedGroupsKeepTheLiteral() {
+        assertThat(RegexLiterals.requiredLiteral("(?:GET|POST) /admin/login")).isNull();  // alternacija
+        assertThat(RegexLiterals.requiredLiteral("(?<ip>\\S+) banned by fail2ban")).isEqualTo("banned by fail2ban");
+        assertThat(RegexLiterals.requiredLiteral("(?=x)session opened")).isEqualTo("session opened");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "user \\w+ locked out|user \\w+ unlocked",
+        "user \\w+ locked out",
+        "Failed password for (invalid user )?\\S+ from \\S+",
+        "[0-9]+ connections? refused",
+        "(?<ip>\\S+) banned by fail2ban",
+        "C:\\\\xfer\\\\upload"
+    })
+    void literalOccursInEveryMatch(String regex) {
+        String literal = RegexLiterals.requiredLiteral(regex);
+        String[] samples = {
+            "user bob locked out", "Failed password for invalid user root from 10.0.0.1",
+            "Failed password for root from ::1", "12 connection refused", "3 connections refused",
+            "10.0.0.9 banned by fail2ban", "C:\\xfer\\upload"
+        };
+        Pattern pattern = Pattern.compile(regex);
+        for (String sample : samples) {
+            if (pattern.matcher(sample).find()) {
+                assertThat(literal == null || sample.contains(literal)).as("%s in %s", literal, sample).isTrue();
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package rs.igapp.aurora.server.detection;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import rs.igapp.aurora.domain.entity.LogEvent;
+import rs.igapp.aurora.domain.entity.Rule;
+import rs.igapp.aurora.domain.entity.Severity;
+import rs.igapp.aurora.domain.entity.Source;
+
+/**
+ * RuleSetBenchmark - Dogadjaji u sekundi kroz detekciju u zavisnosti od broja pravila (JMH)
+ *
+ * - ruleSet     RuleSet.match: jedan Aho-Corasick prolaz kroz poruku, pa samo pravila ciji je literal nadjen
+ * - linearScan  svako pravilo proverava svaki dogadjaj (stanje pre prefiltera), za poredjenje
+ * Mesavina pravila: 80% keyword, 15% regex sa obaveznim literalom, 5% field (bez prefiltera).
+ * 10% dogadjaja sadrzi literal nekog pravila, ostalo je obican saobracaj. DetectionEvent se pravi po
+ * dogadjaju, kao u DetectionEngine.evaluate (rawData se parsira samo kad ga field pravilo trazi).
+ *
+ * Pokretanje (posle mvn test-compile, classpath = test classpath aurora-server modula):
+ *   java -cp ... rs.igapp.aurora.server.detection.RuleSetBenchmark [JMH opcije, npr. -p ruleCount=1000]
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RuleSetBenchmark {
+
+    private static final int EVENTS = 1024;
+
+    private static final String[] TRAFFIC = {
+        "Accepted publickey for deploy from 10.0.%d.%d port 40022 ssh2",
+        "pam_unix(cron:session): session opened for user root by (uid=%d%d)",
+        "GET /api/health HTTP/1.1 200 upstream=10.1.%d.%d:8080 rt=0.004",
+        "kernel: [UFW ALLOW] IN=eth0 OUT= SRC=203.0.%d.%d DST=10.0.0.5 PROTO=TCP DPT=443",
+        "systemd[1]: Started Session %d%d of user backup."
+    };
+
+    @Param({"10", "100", "1000", "5000"})
+    public int ruleCount;
+
+    private RuleSet ruleSet;
+    private CompiledRule[] rules;
+    private LogEvent[] events;
+    private int[] seen;
+    private int stamp;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+            .parent(new CommandLineOptions(args))
+            .include(RuleSetBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+
+    @Setup
+    public void setUp() {
+        RuleCompiler compiler = new RuleCompiler(100_000, Duration.ofMinutes(1), Duration.ofSeconds(5),
+            new SimpleMeterRegistry());
+        Severity severity = Severity.builder().id(3L).name("ERROR").level(3).build();
+        List<CompiledRule> compiled = new ArrayList<>();
+        for (int i = 0; i < ruleCount; i++) {
+            compiled.add(compiler.compile(Rule.builder()
+                .id((long) i)
+                .name("rule-" + i)
+                .condition(condition(i))
+                .defaultSeverity(severity)
+                .enabled(true)
+                .build()));
+        }
+        ruleSet = RuleSet.of(1, compiled);
+        rules = compiled.toArray(CompiledRule[]::new);
+        seen = new int[ruleSet.patternCount()];
+
+        Source source = Source.builder().id(1L).agentId("bench-agent-1").build();
+        SplittableRandom random = new SplittableRandom(42);
+        events = new LogEvent[EVENTS];
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < EVENTS; i++) {
+            String message = random.nextInt(10) == 0
+                ? matching(random.nextInt(ruleCount), random)
+                : TRAFFIC[random.nextInt(TRAFFIC.length)].formatted(random.nextInt(256), random.nextInt(256));
+            events[i] = LogEvent.builder()
+                .id((long) i)
+                .source(source)
+                .message(message)
+                .rawData(i % 4 == 0 ? "{\"code\":" + random.nextInt(1000) + ",\"user\":{\"name\":\"deploy\"}}" : null)
+                .timestamp(now)
+                .build();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void ruleSet(Blackhole blackhole) {
+        for (LogEvent logEvent : events) {
+            DetectionEvent event = new DetectionEvent(logEvent, objectMapper, null);
+            ruleSet.match(event, seen, ++stamp, rule -> rule.observe(event, blackhole::consume));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void linearScan(Blackhole blackhole) {
+        for (LogEvent logEvent : events) {
+            DetectionEvent event = new DetectionEvent(logEvent, objectMapper, null);
+            for (CompiledRule rule : rules) {
+                if (rule.condition().matches(event)) {
+                    rule.observe(event, blackhole::consume);
+                }
+            }
+        }
+    }
+
+    private static String condition(int i) {
+        int kind = i % 20;
+        if (kind < 16) {
+            return "keyword:error code e%05d".formatted(i);
+        }
+        if (kind < 19) {
+            return "regex:user \\w+ locked out on node-%05d".formatted(i);
+        }
+        return "field:code = " + i;
+    }
+
+    private static String matching(int i, SplittableRandom random) {
+        int kind = i % 20;
+        if (kind < 16) {
+            return "app[%d]: error code E%05d while writing block".formatted(random.nextInt(9999), i);
+        }
+        if (kind < 19) {
+            return "sshd: user admin locked out on node-%05d after 5 attempts".formatted(i);
+        }
+        return "audit: code event %d".formatted(i);
+    }
+}
@@ -0,0 +1,227 @@
+package rs.igapp.aurora.server.detection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import rs.igapp.aurora.domain.entity.LogEvent;
+import rs.igapp.aurora.domain.entity.Source;
+
+/**
+ * SlidingWindow: count, distinct i sequence po vremenu dogadjaja, LRU budzet kljuceva, clamp buducih
+ * vremena i redosled kasnih dogadjaja kroz bafer
+ */
+class SlidingWindowTest {
+
+    private static final long WIDTH = 60_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Counter evicted = registry.counter("evicted");
+    private final Counter clamped = registry.counter("clamped");
+    private final List<String> fired = new ArrayList<>();
+    // Dovoljno u proslosti da nijedno vreme ne bude spusteno na now + maxSkew
+    private final LocalDateTime base = LocalDateTime.now().minusHours(1);
+
+    @Test
+    void countFiresWhenThresholdFitsInWindowAndResetsKey() {
+        SlidingWindow.Count window = count(3, limits(100, 0));
+
+        observe(window, "a", "m1", 0);
+        observe(window, "a", "m2", 10_000);
+        assertThat(fired).isEmpty();
+        observe(window, "a", "m3", 20_000);
+        assertThat(fired).containsExactly("m3");
+
+        observe(window, "a", "m4", 21_000);
+        assertThat(fired).containsExactly("m3");
+        assertThat(window.keyCount()).isEqualTo(1);
+    }
+
+    @Test
+    void countDropsTimesOutsideWindow() {
+        SlidingWindow.Count window = count(3, limits(100, 0));
+
+        observe(window, "a", "m1", 0);
+        observe(window, "a", "m2", 50_000);
+        observe(window, "a", "m3", 100_000);
+        assertThat(fired).isEmpty();
+
+        observe(window, "a", "m4", 101_000);
+        assertThat(fired).containsExactly("m4");
+    }
+
+    @Test
+    void keysAreCountedSeparately() {
+        SlidingWindow.Count window = count(2, limits(100, 0));
+
+        observe(window, "a", "a1", 0);
+        observe(window, "b", "b1", 1_000);
+        assertThat(fired).isEmpty();
+        observe(window, "b", "b2", 2_000);
+        assertThat(fired).containsExactly("b2");
+    }
+
+    @Test
+    void timesGrowLazilyAndStaySorted() {
+        SlidingWindow.Count.Times times = new SlidingWindow.Count.Times(1000);
+        assertThat(times.capacity()).isEqualTo(SlidingWindow.Count.Times.INITIAL_CAPACITY);
+
+        for (long time : new long[] {10, 50, 30, 20, 40}) {
+            times.add(time);
+        }
+        assertThat(times.capacity()).isEqualTo(8);
+        assertThat(times.newest()).isEqualTo(50);
+        times.dropBefore(35);
+        assertThat(times.newest()).isEqualTo(50);
+
+        SlidingWindow.Count.Times full = new SlidingWindow.Count.Times(2);
+        full.add(10);
+        full.add(20);
+        full.add(5);   // starije od svih u punom prstenu - ignorise se
+        full.dropBefore(15);
+        assertThat(full.newest()).isEqualTo(20);
+        full.add(30);
+        full.dropBefore(25);
+        assertThat(full.newest()).isEqualTo(30);
+    }
+
+    @Test
+    void distinctCountsDifferentValuesInWindow() {
+        SlidingWindow.Distinct window = new SlidingWindow.Distinct(3, DetectionEvent::message, WIDTH,
+            DetectionEvent::agentId, limits(100, 0));
+
+        observe(window, "10.0.0.1", "22", 0);
+        observe(window, "10.0.0.1", "22", 1_000);
+        observe(window, "10.0.0.1", "23", 2_000);
+        assertThat(fired).isEmpty();
+
+        // 22 i 23 su ispali iz prozora
+        observe(window, "10.0.0.1", "24", 70_000);
+        observe(window, "10.0.0.1", "25", 71_000);
+        assertThat(fired).isEmpty();
+        observe(window, "10.0.0.1", "26", 72_000);
+        assertThat(fired).containsExactly("26");
+    }
+
+    @Test
+    void sequenceNeedsFirstThenSecondWithinWindow() {
+        SlidingWindow.Sequence window = sequence(limits(100, 0));
+
+        observe(window, "u1", "login ok", 0);
+        observe(window, "u1", "login failed", 1_000);
+        assertThat(fired).isEmpty();
+        observe(window, "u1", "login ok", 2_000);
+        assertThat(fired).containsExactly("login ok");
+
+        observe(window, "u2", "login failed", 10_000);
+        observe(window, "u2", "login ok", 10_000 + WIDTH + 1);
+        assertThat(fired).containsExactly("login ok");
+    }
+
+    @Test
+    void lateEventsAreOrderedThroughBuffer() {
+        SlidingWindow.Sequence window = sequence(limits(100, 10_000));
+
+        // Uspesna prijava stize pre neuspesne koja joj po vremenu prethodi
+        observe(window, "u1", "login ok", 1_000);
+        observe(window, "u1", "login failed", 0);
+        assertThat(window.pendingCount()).isEqualTo(2);
+        assertThat(fired).isEmpty();
+
+        observe(window, "u1", "heartbeat", 20_000);
+        assertThat(fired).containsExactly("login ok");
+        assertThat(window.pendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    void releaseDrainsBufferByServerClock() throws InterruptedException {
+        SlidingWindow.Count window = count(2, limits(100, 50));
+
+        observe(window, "a", "m1", 0);
+        observe(window, "a", "m2", 1);
+        assertThat(fired).isEmpty();
+
+        Thread.sleep(100);
+        window.release(event -> fired.add(event.message()));
+        assertThat(fired).containsExactly("m2");
+        assertThat(window.pendingCount()).isZero();
+    }
+
+    @Test
+    void leastRecentlyUsedKeyIsEvicted() {
+        SlidingWindow.Count window = count(5, limits(2, 0));
+
+        observe(window, "a", "m", 0);
+        observe(window, "b", "m", 1_000);
+        observe(window, "a", "m", 2_000);
+        observe(window, "c", "m", 3_000);
+
+        assertThat(window.keyCount()).isEqualTo(2);
+        assertThat(evicted.count()).isEqualTo(1);
+        // "b" je izbacen, vraca se kao nov kljuc i izbacuje sledeci najduze neaktivan ("a")
+        observe(window, "b", "m", 4_000);
+        assertThat(evicted.count()).isEqualTo(2);
+    }
+
+    @Test
+    void futureTimestampIsClampedAndDoesNotExpireLiveKeys() {
+        SlidingWindow.Count window = new SlidingWindow.Count(10, WIDTH, DetectionEvent::agentId,
+            new SlidingWindow.Limits(100, 1_000, 0, evicted, clamped));
+        LocalDateTime now = LocalDateTime.now();
+
+        window.observe(event("live", "m", now.minusSeconds(10)), event -> fired.add(event.message()));
+        window.observe(event("broken-clock", "m", now.plusHours(1)), event -> fired.add(event.message()));
+
+        assertThat(clamped.count()).isEqualTo(1);
+        assertThat(window.expire()).isZero();
+        assertThat(window.keyCount()).isEqualTo(2);
+    }
+
+    @Test
+    void expireRemovesKeysIdleLongerThanWindow() {
+        SlidingWindow.Count window = count(10, limits(100, 0));
+
+        observe(window, "old", "m", 0);
+        observe(window, "fresh", "m", 100_000);
+
+        assertThat(window.expire()).isEqualTo(1);
+        assertThat(window.keyCount()).isEqualTo(1);
+    }
+
+    // ==================== POMOCNE METODE ====================
+
+    private SlidingWindow.Limits limits(int maxKeys, long latenessMillis) {
+        return new SlidingWindow.Limits(maxKeys, 60_000, latenessMillis, evicted, clamped);
+    }
+
+    private SlidingWindow.Count count(int threshold, SlidingWindow.Limits limits) {
+        return new SlidingWindow.Count(threshold, WIDTH, DetectionEvent::agentId, limits);
+    }
+
+    private SlidingWindow.Sequence sequence(SlidingWindow.Limits limits) {
+        return new SlidingWindow.Sequence(event -> event.message().equals("login failed"),
+            event -> event.message().equals("login ok"), WIDTH, DetectionEvent::agentId, limits);
+    }
+
+    private void observe(SlidingWindow<?> window, String key, String message, long offsetMillis) {
+        window.observe(event(key, message, base.plusNanos(offsetMillis * 1_000_000)), event -> fired.add(event.message()));
+    }
+
+    private DetectionEvent event(String key, String message, LocalDateTime timestamp) {
+        LogEvent logEvent = LogEvent.builder()
+            .source(Source.builder().id(1L).agentId(key).build())
+            .message(message)
+            .timestamp(timestamp)
+            .build();
+        return new DetectionEvent(logEvent, objectMapper, null);
+    }
+}
@@ -0,0 +1,165 @@
+package rs.igapp.aurora.server.heartbeat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import rs.igapp.aurora.domain.entity.Source;
+import rs.igapp.aurora.server.cache.ReferenceDataCache;
+
+/**
+ * HeartbeatTracker: flush salje samo promenjene izvore, gasi zastarele i posle neuspelog upisa ih ponavlja
+ */
+class HeartbeatTrackerTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ReferenceDataCache referenceDataCache = mock(ReferenceDataCache.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<Flush> flushes = new ArrayList<>();
+    private boolean failNextUpdate;
+
+    /**
+     * Jedan UPDATE ... FROM unnest(?, ?, ?) - nizovi kako su predati createArrayOf.
+     */
+    private record Flush(List<Object> agentIds, List<Object> lastBeats, List<Object> active) {
+    }
+
+    @Test
+    void recordedHeartbeatIsFlushedOnce() {
+        HeartbeatTracker tracker = tracker(Duration.ofMinutes(5));
+        tracker.track("agent-1", false, null);
+
+        tracker.record("agent-1");
+        tracker.record("agent-1");  // ista sekunda - ne belezi se ponovo
+        tracker.flush();
+        tracker.flush();
+
+        assertThat(flushes).hasSize(1);
+        assertThat(flushes.get(0).agentIds()).containsExactly("agent-1");
+        assertThat(flushes.get(0).lastBeats().get(0)).isInstanceOf(Timestamp.class);
+        assertThat(flushes.get(0).active()).containsExactly(true);
+        assertThat(tracker.findByIsActive(true)).extracting(HeartbeatTracker.SourceHeartbeat::agentId).containsExactly("agent-1");
+        assertThat(registry.counter("aurora.heartbeat.flushed").count()).isEqualTo(1);
+    }
+
+    @Test
+    void unknownAgentIsNotTracked() {
+        HeartbeatTracker tracker = tracker(Duration.ofMinutes(5));
+        when(referenceDataCache.findSource(anyString())).thenReturn(Optional.empty());
+
+        tracker.record("ghost");
+        tracker.flush();
+
+        assertThat(flushes).isEmpty();
+        assertThat(tracker.findByIsActive(true)).isEmpty();
+        assertThat(tracker.findByIsActive(false)).isEmpty();
+    }
+
+    @Test
+    void knownAgentMissingFromMemoryIsPickedUpFromCache() {
+        HeartbeatTracker tracker = tracker(Duration.ofMinutes(5));
+        when(referenceDataCache.findSource("agent-new")).thenReturn(Optional.of(Source.builder().agentId("agent-new").build()));
+
+        tracker.record("agent-new");
+        tracker.flush();
+
+        assertThat(flushes).hasSize(1);
+        assertThat(flushes.get(0).agentIds()).containsExactly("agent-new");
+    }
+
+    @Test
+    void silentActiveSourceGoesStale() throws Exception {
+        HeartbeatTracker tracker = tracker(Duration.ofMillis(50));
+        tracker.track("agent-1", true, null);
+        tracker.track("agent-2", false, null);
+
+        tracker.flush();
+        assertThat(flushes).isEmpty();
+
+        Thread.sleep(100);
+        tracker.flush();
+
+        assertThat(flushes).hasSize(1);
+        assertThat(flushes.get(0).agentIds()).containsExactly("agent-1");
+        assertThat(flushes.get(0).active()).containsExactly(false);
+        assertThat(flushes.get(0).lastBeats()).containsOnlyNulls();
+        assertThat(registry.counter("aurora.heartbeat.stale").count()).isEqualTo(1);
+        assertThat(tracker.findByIsActive(false)).hasSize(2);
+
+        // Prvi sledeci heartbeat ga vraca u aktivne
+        tracker.record("agent-1");
+        tracker.flush();
+        assertThat(flushes.get(1).active()).containsExactly(true);
+    }
+
+    @Test
+    void failedUpdateKeepsSourcesForNextFlush() {
+        HeartbeatTracker tracker = tracker(Duration.ofMinutes(5));
+        tracker.track("agent-1", false, null);
+        tracker.record("agent-1");
+
+        failNextUpdate = true;
+        assertThatThrownBy(tracker::flush).isInstanceOf(DataAccessResourceFailureException.class);
+        tracker.flush();
+
+        assertThat(flushes).hasSize(1);
+        assertThat(flushes.get(0).agentIds()).containsExactly("agent-1");
+        assertThat(registry.counter("aurora.heartbeat.flushed").count()).isEqualTo(1);
+    }
+
+    @Test
+    void manySourcesAreFlushedInChunks() {
+        HeartbeatTracker tracker = tracker(Duration.ofMinutes(5));
+        for (int i = 0; i < 5_001; i++) {
+            tracker.track("agent-" + i, false, null);
+            tracker.record("agent-" + i);
+        }
+
+        tracker.flush();
+
+        assertThat(flushes).extracting(flush -> flush.agentIds().size()).containsExactly(5_000, 1);
+        assertThat(registry.counter("aurora.heartbeat.flushed").count()).isEqualTo(5_001);
+    }
+
+    // ==================== POMOCNE METODE ====================
+
+    private HeartbeatTracker tracker(Duration staleAfter) {
+        when(jdbcTemplate.update(any(PreparedStatementCreator.class))).thenAnswer(invocation -> {
+            if (failNextUpdate) {
+                failNextUpdate = false;
+                throw new DataAccessResourceFailureException("database down");
+            }
+            List<List<Object>> arrays = new ArrayList<>();
+            Connection connection = mock(Connection.class);
+            when(connection.prepareStatement(anyString())).thenReturn(mock(PreparedStatement.class));
+            when(connection.createArrayOf(anyString(), any())).thenAnswer(call -> {
+                arrays.add(Arrays.asList((Object[]) call.getArgument(1)));
+                return null;
+            });
+            invocation.<PreparedStatementCreator>getArgument(0).createPreparedStatement(connection);
+            flushes.add(new Flush(arrays.get(0), arrays.get(1), arrays.get(2)));
+            return arrays.get(0).size();
+        });
+        HeartbeatTracker tracker = new HeartbeatTracker(jdbcTemplate, referenceDataCache, registry, staleAfter);
+        tracker.load();
+        return tracker;
+    }
+}
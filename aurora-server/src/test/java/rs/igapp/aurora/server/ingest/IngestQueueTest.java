@@ -0,0 +1,143 @@
+package rs.igapp.aurora.server.ingest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import rs.igapp.aurora.api.dto.request.LogEventRequest;
+import rs.igapp.aurora.server.service.LogEventIngestService;
+
+/**
+ * IngestQueue: posle upisa dogadjaj po dogadjaj ticket dobija tacno commit-ovan prefiks
+ */
+class IngestQueueTest {
+
+    private final LogEventIngestService ingestService = mock(LogEventIngestService.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<String> committedMessages = new CopyOnWriteArrayList<>();
+    private IngestQueue queue;
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        if (queue != null) {
+            queue.stop();
+        }
+    }
+
+    @Test
+    void transientFailureMidEntryReportsCommittedPrefix() throws Exception {
+        // batch pada zbog podataka (b), pa dogadjaj po dogadjaj: a prolazi, b je odbijen, c prolazi, d - baza pada
+        answer(List.of("b"), List.of("d"));
+        RecordingTicket ticket = new RecordingTicket();
+
+        queue().offerAll(requests("a", "b", "c", "d", "e"), ticket);
+
+        assertThat(ticket.done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(committedMessages).containsExactly("a", "c");
+        assertThat(ticket.positions).containsExactly(1, 3);
+        assertThat(ticket.events).isEqualTo(3);
+        assertThat(ticket.committed).isTrue();
+        assertThat(registry.counter("aurora.ingest.queue.failed").count()).isEqualTo(2);
+    }
+
+    @Test
+    void transientFailureOnFirstEventReportsNothingWritten() throws Exception {
+        answer(List.of("b"), List.of("a"));
+        RecordingTicket ticket = new RecordingTicket();
+
+        queue().offerAll(requests("a", "b"), ticket);
+
+        assertThat(ticket.done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(committedMessages).isEmpty();
+        assertThat(ticket.committed).isFalse();
+    }
+
+    @Test
+    void rejectedTailIsCoveredByPositionOnlyCommit() throws Exception {
+        answer(List.of("b"), List.of());
+        RecordingTicket ticket = new RecordingTicket();
+
+        queue().offerAll(requests("a", "b"), ticket);
+
+        assertThat(ticket.done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(committedMessages).containsExactly("a");
+        assertThat(ticket.positions).containsExactly(1, 2);
+        assertThat(ticket.events).isEqualTo(2);
+        assertThat(ticket.committed).isTrue();
+        assertThat(registry.counter("aurora.ingest.queue.rejected").count()).isEqualTo(1);
+    }
+
+    // ==================== POMOCNE METODE ====================
+
+    private IngestQueue queue() {
+        queue = new IngestQueue(ingestService, registry, 100, 1, 500, false);
+        queue.start();
+        return queue;
+    }
+
+    /**
+     * Transakcija pada zbog podataka ako sadrzi poruku iz bad, a prolazno ako je to upis samo poruke iz down
+     * (baza padne tek tokom ponavljanja dogadjaj po dogadjaj).
+     * Inace se beforeCommit izvrsava i poruke se beleze kao commit-ovane.
+     */
+    private void answer(List<String> bad, List<String> down) {
+        when(ingestService.ingestInOneTransaction(anyList(), any())).thenAnswer(invocation -> {
+            List<LogEventRequest> requests = invocation.getArgument(0);
+            List<String> messages = new ArrayList<>();
+            for (LogEventRequest request : requests) {
+                messages.add(request.getMessage());
+            }
+            if (messages.size() == 1 && down.contains(messages.get(0))) {
+                throw new DataAccessResourceFailureException("database down");
+            }
+            if (messages.stream().anyMatch(bad::contains)) {
+                throw new DataIntegrityViolationException("source deleted");
+            }
+            invocation.<Runnable>getArgument(1).run();
+            committedMessages.addAll(messages);
+            return messages.size();
+        });
+    }
+
+    private static List<LogEventRequest> requests(String... messages) {
+        List<LogEventRequest> requests = new ArrayList<>();
+        for (String message : messages) {
+            requests.add(LogEventRequest.builder().sourceId("agent-1").message(message).build());
+        }
+        return requests;
+    }
+
+    private static final class RecordingTicket implements IngestTicket {
+
+        private final List<Integer> positions = new CopyOnWriteArrayList<>();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile int events;
+        private volatile boolean committed;
+
+        @Override
+        public void beforeCommit(int events) {
+            positions.add(events);
+        }
+
+        @Override
+        public void completed(int events, boolean committed) {
+            this.events = events;
+            this.committed = committed;
+            done.countDown();
+        }
+    }
+}
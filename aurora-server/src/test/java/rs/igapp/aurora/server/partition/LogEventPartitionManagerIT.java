@@ -0,0 +1,161 @@
+package rs.igapp.aurora.server.partition;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import rs.igapp.aurora.server.PostgresIntegrationTest;
+import rs.igapp.aurora.server.archive.LogEventArchive;
+import rs.igapp.aurora.server.payload.RawPayloadStore;
+
+/**
+ * LogEventPartitionManager nad DEFAULT particijom: redovi se premestaju pre ATTACH-a, rupe se popunjavaju,
+ * istekli redovi izlaze kroz retention, a greska jedne particije ne zaustavlja ostale
+ *
+ * Vreme je u 2030. Pre svakog testa se brisu sve particije (najstarija particija odredjuje odakle se
+ * popunjavaju rupe), pa scheduled odrzavanje konteksta ne sme da radi: njegovo prvo pokretanje odmah po startu
+ * je DDL nad log_events u isto vreme kad i brisanje (deadlock), a particije oko stvarnog "sada" koje bi
+ * napravilo pomerile bi najstariju particiju. Zato je bean konteksta mock; test pravi svoj manager.
+ */
+class LogEventPartitionManagerIT extends PostgresIntegrationTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 1, 15, 12, 0);
+    private static final long SOURCE_ID = 9001;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private LogEventArchive logEventArchive;
+
+    @Autowired
+    private RawPayloadStore rawPayloadStore;
+
+    @MockitoBean
+    private LogEventPartitionManager scheduledManager;
+
+    private LogEventPartitionManager manager;
+    private long nextId = 1;
+
+    @BeforeEach
+    void clean() {
+        manager = new LogEventPartitionManager(jdbcTemplate, transactionManager, logEventArchive,
+            PartitionGranularity.DAILY, 2, Duration.ofDays(7), LogEventPartitionManager.RetentionAction.DROP);
+        for (String name : tables("log_events_p%")) {
+            if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT relispartition FROM pg_class WHERE relname = ?", Boolean.class, name))) {
+                jdbcTemplate.execute("ALTER TABLE log_events DETACH PARTITION " + name);
+            }
+            jdbcTemplate.execute("DROP TABLE " + name);
+        }
+        jdbcTemplate.update("DELETE FROM log_events_default");
+        jdbcTemplate.update("INSERT INTO sources (id, agent_id, hostname, is_active, created_at) "
+            + "VALUES (?, 'partition-it', 'partition-it', true, now()) ON CONFLICT (id) DO NOTHING", SOURCE_ID);
+    }
+
+    @Test
+    void defaultRowsMoveIntoTheirPartitionAndGapsAreBackfilled() {
+        jdbcTemplate.execute("CREATE TABLE log_events_p20300110 PARTITION OF log_events "
+            + "FOR VALUES FROM ('2030-01-10') TO ('2030-01-11')");
+        insert(LocalDateTime.of(2030, 1, 13, 10, 0), 5);
+        insert(LocalDateTime.of(2030, 1, 15, 8, 0), 3);
+
+        manager.createUpcomingPartitions(NOW);
+
+        // 10. postoji, 11-12 rupa, 13-15 sa redovima iz DEFAULT-a, 16-17 unapred
+        assertThat(partitions()).containsExactly("log_events_p20300110", "log_events_p20300111",
+            "log_events_p20300112", "log_events_p20300113", "log_events_p20300114", "log_events_p20300115",
+            "log_events_p20300116", "log_events_p20300117");
+        assertThat(count("log_events_default")).isZero();
+        assertThat(count("log_events_p20300113")).isEqualTo(5);
+        assertThat(count("log_events_p20300115")).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM log_events_p20300113 WHERE message_tsv IS NOT NULL",
+            Long.class)).isEqualTo(5);
+    }
+
+    @Test
+    void expiredDefaultRowsLeaveThroughRetention() {
+        insert(LocalDateTime.of(2030, 1, 2, 9, 30), 4);
+        insert(LocalDateTime.of(2030, 1, 14, 9, 30), 2);
+
+        manager.createUpcomingPartitions(NOW);
+        manager.pruneDefaultPartition(NOW);
+        manager.expirePartitions(NOW);
+
+        assertThat(count("log_events_default")).isZero();
+        assertThat(tables("log_events_p20300102%")).isEmpty();
+        assertThat(count("log_events_p20300114")).isEqualTo(2);
+    }
+
+    @Test
+    void failedPartitionDoesNotStopTheOthers() {
+        // Zauzeto ime: premestanje redova za 16. pada, ostale particije se ipak prave
+        jdbcTemplate.execute("CREATE TABLE log_events_p20300116 (id BIGINT)");
+        insert(LocalDateTime.of(2030, 1, 16, 1, 0), 2);
+
+        manager.createUpcomingPartitions(NOW);
+
+        assertThat(partitions()).containsExactly("log_events_p20300115", "log_events_p20300117");
+        assertThat(count("log_events_default")).isEqualTo(2);
+    }
+
+    @Test
+    void payloadOfDetachedPartitionSurvivesPruneUntilTheTableIsDropped() {
+        jdbcTemplate.execute("CREATE TABLE log_events_p20300110 PARTITION OF log_events "
+            + "FOR VALUES FROM ('2030-01-10') TO ('2030-01-11')");
+        jdbcTemplate.update("DELETE FROM raw_payloads WHERE source_id = ?", SOURCE_ID);
+        Long payloadId = jdbcTemplate.queryForObject("INSERT INTO raw_payloads (source_id, hash, payload, last_used) "
+            + "VALUES (?, decode('01', 'hex'), decode('02', 'hex'), DATE '2000-01-01') RETURNING id", Long.class, SOURCE_ID);
+        insert(LocalDateTime.of(2030, 1, 10, 9, 0), 1);
+        jdbcTemplate.update("UPDATE log_events SET raw_payload_id = ? WHERE source_id = ?", payloadId, SOURCE_ID);
+
+        // ARCHIVE koji nije uspeo: particija je odvojena, a tabela ceka sledeci pokusaj
+        jdbcTemplate.execute("ALTER TABLE log_events DETACH PARTITION log_events_p20300110");
+        rawPayloadStore.prune();
+        assertThat(payloads()).isEqualTo(1);
+
+        jdbcTemplate.execute("DROP TABLE log_events_p20300110");
+        rawPayloadStore.prune();
+        assertThat(payloads()).isZero();
+    }
+
+    // ==================== PODACI ====================
+
+    private void insert(LocalDateTime time, int rows) {
+        for (int i = 0; i < rows; i++) {
+            jdbcTemplate.update("INSERT INTO log_events (id, source_id, message, timestamp, created_at) "
+                + "VALUES (?, ?, 'partition test', ?, now())", nextId++, SOURCE_ID, Timestamp.valueOf(time.plusMinutes(i)));
+        }
+    }
+
+    private List<String> partitions() {
+        return jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+            + "WHERE i.inhparent = 'log_events'::regclass AND c.relname LIKE 'log_events_p2030%' ORDER BY 1", String.class);
+    }
+
+    private List<String> tables(String pattern) {
+        return jdbcTemplate.queryForList("SELECT relname FROM pg_class WHERE relkind IN ('r', 'p') "
+            + "AND relnamespace = current_schema()::regnamespace AND relname LIKE ?", String.class, pattern);
+    }
+
+    private long payloads() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM raw_payloads WHERE source_id = ?", Long.class, SOURCE_ID);
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM " + table + " WHERE timestamp >= '2029-01-01'", Long.class);
+    }
+}
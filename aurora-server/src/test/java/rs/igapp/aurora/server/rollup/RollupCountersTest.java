@@ -0,0 +1,103 @@
+package rs.igapp.aurora.server.rollup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import rs.igapp.aurora.domain.entity.LogEvent;
+import rs.igapp.aurora.domain.entity.Severity;
+import rs.igapp.aurora.persistence.repository.EventRollupRepository;
+
+/**
+ * RollupCounters: nijedno uvecanje se ne gubi kad flush radi istovremeno sa ingest-om
+ */
+class RollupCountersTest {
+
+    private static final LocalDateTime MINUTE = LocalDateTime.of(2026, 3, 1, 10, 17);
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    // Zbir upisanih MINUTE/SEVERITY redova
+    private final AtomicLong flushedMinutes = new AtomicLong();
+
+    @Test
+    void concurrentRecordAndFlushLoseNothing() throws Exception {
+        RollupCounters counters = counters();
+        List<LogEvent> batch = List.of(event(), event());
+        int threads = 4;
+        int batchesPerThread = 20_000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            writers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < batchesPerThread; i++) {
+                    counters.recordEvents(batch);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        while (writers.stream().anyMatch(writer -> !writer.isDone())) {
+            counters.flush();
+        }
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        executor.shutdown();
+        counters.flush();
+
+        assertThat(flushedMinutes.get()).isEqualTo((long) threads * batchesPerThread * batch.size());
+    }
+
+    @Test
+    void updateDeltasCancelOut() {
+        RollupCounters counters = counters();
+        LogEvent event = event();
+
+        counters.recordEvents(List.of(event));
+        counters.adjustEvent(event, -1);
+        counters.adjustEvent(event, 1);
+        counters.flush();
+
+        assertThat(flushedMinutes.get()).isEqualTo(1);
+    }
+
+    // ==================== POMOCNE METODE ====================
+
+    private RollupCounters counters() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            for (Object[] row : rows) {
+                if ("MINUTE".equals(row[0]) && "SEVERITY".equals(row[1])) {
+                    flushedMinutes.addAndGet((Long) row[4]);
+                }
+            }
+            return new int[rows.size()];
+        });
+        return new RollupCounters(jdbcTemplate, mock(PlatformTransactionManager.class), mock(EventRollupRepository.class),
+            new SimpleMeterRegistry(), Duration.ofDays(30), Duration.ofDays(365));
+    }
+
+    private static LogEvent event() {
+        return LogEvent.builder().severity(Severity.builder().id(3L).build()).timestamp(MINUTE).build();
+    }
+}
@@ -0,0 +1,137 @@
+package rs.igapp.aurora.server.rollup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import rs.igapp.aurora.domain.entity.EventRollup.Dimension;
+import rs.igapp.aurora.domain.entity.EventRollup.Granularity;
+import rs.igapp.aurora.persistence.repository.EventRollupRepository;
+import rs.igapp.aurora.server.rollup.RollupQueryService.RangeCount;
+import rs.igapp.aurora.server.rollup.RollupQueryService.Segment;
+
+/**
+ * Podela opsega na najkrupnije cele bucket-e i prelaz na krupniji bucket gde finijih vise nema (retention)
+ */
+class RollupSegmentsTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2026, 3, 1, 0, 0);
+
+    @Test
+    void rangeSplitsIntoMinutesHoursDaysHoursMinutes() {
+        List<Segment> segments = RollupQueryService.segments(DAY.plusHours(10).plusMinutes(17).plusSeconds(30),
+            DAY.plusDays(2).plusHours(5).plusMinutes(42).plusSeconds(10));
+
+        assertThat(segments).containsExactly(
+            new Segment(Granularity.MINUTE, at(0, 10, 17), at(0, 11, 0)),
+            new Segment(Granularity.HOUR, at(0, 11, 0), at(1, 0, 0)),
+            new Segment(Granularity.DAY, at(1, 0, 0), at(2, 0, 0)),
+            new Segment(Granularity.HOUR, at(2, 0, 0), at(2, 5, 0)),
+            new Segment(Granularity.MINUTE, at(2, 5, 0), at(2, 5, 43)));
+    }
+
+    @Test
+    void shortRangeIsMinutesOnly() {
+        assertThat(RollupQueryService.segments(at(0, 10, 17), at(0, 10, 42).plusSeconds(59)))
+            .containsExactly(new Segment(Granularity.MINUTE, at(0, 10, 17), at(0, 10, 43)));
+    }
+
+    @Test
+    void endMinuteIsIncludedWhole() {
+        assertThat(RollupQueryService.segments(at(0, 0, 0), at(0, 23, 59)))
+            .containsExactly(new Segment(Granularity.DAY, at(0, 0, 0), at(1, 0, 0)));
+        assertThat(RollupQueryService.segments(at(0, 10, 0), at(0, 12, 0))).containsExactly(
+            new Segment(Granularity.HOUR, at(0, 10, 0), at(0, 12, 0)),
+            new Segment(Granularity.MINUTE, at(0, 12, 0), at(0, 12, 1)));
+    }
+
+    @Test
+    void segmentsAreContiguousAlignedAndAtMostFive() {
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 10_000; i++) {
+            LocalDateTime start = DAY.plusSeconds(random.nextLong(0, 90L * 86_400));
+            LocalDateTime end = start.plusSeconds(random.nextLong(1, 40L * 86_400));
+
+            List<Segment> segments = RollupQueryService.segments(start, end);
+
+            assertThat(segments).hasSizeBetween(1, 5);
+            assertThat(segments.get(0).start()).isEqualTo(start.truncatedTo(ChronoUnit.MINUTES));
+            assertThat(segments.get(segments.size() - 1).end()).isEqualTo(end.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1));
+            for (int s = 0; s < segments.size(); s++) {
+                Segment segment = segments.get(s);
+                ChronoUnit unit = switch (segment.granularity()) {
+                    case MINUTE -> ChronoUnit.MINUTES;
+                    case HOUR -> ChronoUnit.HOURS;
+                    default -> ChronoUnit.DAYS;
+                };
+                assertThat(segment.end()).isAfter(segment.start());
+                assertThat(segment.start().truncatedTo(unit)).isEqualTo(segment.start());
+                assertThat(segment.end().truncatedTo(unit)).isEqualTo(segment.end());
+                if (s > 0) {
+                    assertThat(segment.start()).isEqualTo(segments.get(s - 1).end());
+                }
+            }
+        }
+    }
+
+    @Test
+    void edgeOlderThanMinuteRetentionReadsWholeHourAndIsApproximate() {
+        EventRollupRepository repository = mock(EventRollupRepository.class);
+        // Minutni redovi postoje od 03-02 08:30 (sat 09:00 je prvi ceo), satni od pocetka meseca
+        when(repository.findFirstBucketStart(Granularity.MINUTE, Dimension.SOURCE)).thenReturn(at(1, 8, 30));
+        when(repository.findFirstBucketStart(Granularity.HOUR, Dimension.SOURCE)).thenReturn(DAY.minusDays(28));
+        RollupQueryService service = new RollupQueryService(repository, null, null, null);
+
+        RangeCount count = service.count(Dimension.SOURCE, 1L, at(0, 10, 17), at(2, 5, 42));
+
+        assertThat(count.approximate()).isTrue();
+        verify(repository).sumCount(Granularity.HOUR, Dimension.SOURCE, 1L, at(0, 10, 0), at(0, 11, 0));
+        verify(repository).sumCount(Granularity.HOUR, Dimension.SOURCE, 1L, at(0, 11, 0), at(1, 0, 0));
+        verify(repository).sumCount(Granularity.DAY, Dimension.SOURCE, 1L, at(1, 0, 0), at(2, 0, 0));
+        verify(repository).sumCount(Granularity.HOUR, Dimension.SOURCE, 1L, at(2, 0, 0), at(2, 5, 0));
+        verify(repository).sumCount(Granularity.MINUTE, Dimension.SOURCE, 1L, at(2, 5, 0), at(2, 5, 43));
+    }
+
+    @Test
+    void edgeOlderThanHourRetentionReadsWholeDayOnce() {
+        EventRollupRepository repository = mock(EventRollupRepository.class);
+        // Ni minutnih ni satnih redova za 03-01: obe ivice prvog dana se citaju iz istog dnevnog bucket-a
+        when(repository.findFirstBucketStart(Granularity.MINUTE, Dimension.SOURCE)).thenReturn(at(2, 0, 0));
+        when(repository.findFirstBucketStart(Granularity.HOUR, Dimension.SOURCE)).thenReturn(at(1, 12, 0));
+        when(repository.sumCount(eq(Granularity.DAY), eq(Dimension.SOURCE), eq(1L), any(), any())).thenReturn(100L);
+        RollupQueryService service = new RollupQueryService(repository, null, null, null);
+
+        RangeCount count = service.count(Dimension.SOURCE, 1L, at(0, 10, 17), at(1, 5, 42));
+
+        assertThat(count.approximate()).isTrue();
+        assertThat(count.count()).isEqualTo(200);
+        verify(repository).sumCount(Granularity.DAY, Dimension.SOURCE, 1L, at(0, 0, 0), at(1, 0, 0));
+        verify(repository).sumCount(Granularity.DAY, Dimension.SOURCE, 1L, at(1, 0, 0), at(2, 0, 0));
+    }
+
+    @Test
+    void rangeInsideRetentionIsExact() {
+        EventRollupRepository repository = mock(EventRollupRepository.class);
+        when(repository.findFirstBucketStart(any(), any())).thenReturn(DAY.minusDays(1));
+        when(repository.sumCount(any(), any(), any(), any(), any())).thenReturn(3L);
+        RollupQueryService service = new RollupQueryService(repository, null, null, null);
+
+        RangeCount count = service.count(Dimension.SOURCE, 1L, at(0, 10, 17), at(2, 5, 42));
+
+        assertThat(count).isEqualTo(new RangeCount(15, false));
+    }
+
+    private static LocalDateTime at(int day, int hour, int minute) {
+        return DAY.plusDays(day).plusHours(hour).plusMinutes(minute);
+    }
+}
@@ -0,0 +1,144 @@
+package rs.igapp.aurora.server.routing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import rs.igapp.aurora.server.PostgresIntegrationTest;
+
+/**
+ * Rutiranje citanja nad dve lokalne Postgres instance: read-only transakcije idu na "repliku",
+ * ostalo na primary, a kad replika padne citanja se vracaju na primary.
+ *
+ * Replika je druga, nezavisna instanca (nije u recovery-ju, pa je ReplicaLagMonitor smatra sinhronom).
+ * Instanca se prepoznaje po portu (current_setting('port')). Podrazumevano je to drugi embedded Postgres;
+ * kao root se zadaje postojeca instanca (baza za administraciju, npr. postgres):
+ *   mvn verify -Daurora.it.datasource.url=jdbc:postgresql://localhost:5432/aurora_it
+ *              -Daurora.it.replica.url=jdbc:postgresql://localhost:5433/postgres
+ * Test na njoj pravi bazu REPLICA_DATABASE; "pad" replike = ALLOW_CONNECTIONS false + prekid postojecih
+ * konekcija (nove konekcije se odbijaju, pool replike ostaje bez ijedne).
+ */
+@TestPropertySource(properties = {
+    "aurora.datasource.replicas.enabled=true",
+    "aurora.datasource.replicas.check-interval=PT1H",
+    "spring.datasource.hikari.connection-timeout=2000"
+})
+class ReadReplicaRoutingIT extends PostgresIntegrationTest {
+
+    private static final String REPLICA_URL_PROPERTY = "aurora.it.replica.url";
+    private static final String REPLICA_DATABASE = "aurora_it_replica";
+    private static final String PORT_SQL = "SELECT current_setting('port')::int";
+
+    private static EmbeddedPostgres embeddedReplica;
+    private static String adminUrl;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @DynamicPropertySource
+    static void replica(DynamicPropertyRegistry registry) {
+        String url = System.getProperty(REPLICA_URL_PROPERTY);
+        adminUrl = url != null && !url.isBlank() ? url : embeddedReplica().getJdbcUrl("postgres", "postgres");
+        if (Boolean.FALSE.equals(queryAdmin("SELECT EXISTS (SELECT 1 FROM pg_database WHERE datname = '"
+                + REPLICA_DATABASE + "')"))) {
+            admin("CREATE DATABASE " + REPLICA_DATABASE);
+        }
+        String replicaUrl = adminUrl.replaceFirst("^(jdbc:postgresql://[^/]+/)[^?]*", "$1" + REPLICA_DATABASE);
+        registry.add("aurora.datasource.replicas.urls", () -> replicaUrl);
+        registry.add("aurora.datasource.replicas.username", () -> "postgres");
+    }
+
+    @AfterEach
+    void replicaUp() {
+        admin("ALTER DATABASE " + REPLICA_DATABASE + " ALLOW_CONNECTIONS true");
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplicaAndFallBackToThePrimary() {
+        int primaryPort = jdbcTemplate.queryForObject(PORT_SQL, Integer.class);
+        replicaLagMonitor.check();
+
+        int replicaPort = readOnlyPort();
+        assertThat(replicaPort).as("replica must be a different instance").isNotEqualTo(primaryPort);
+        assertThat(writePort()).isEqualTo(primaryPort);
+
+        // Replika pada: dok monitor ne primeti, nista se ne menja; posle provere citanja idu na primary
+        admin("ALTER DATABASE " + REPLICA_DATABASE + " ALLOW_CONNECTIONS false");
+        admin("SELECT pg_terminate_backend(pid) FROM pg_stat_activity WHERE datname = '" + REPLICA_DATABASE + "'");
+        replicaLagMonitor.check();
+
+        assertThat(readOnlyPort()).isEqualTo(primaryPort);
+        assertThat(writePort()).isEqualTo(primaryPort);
+
+        // Replika se vraca u rotaciju na sledecoj uspesnoj proveri
+        admin("ALTER DATABASE " + REPLICA_DATABASE + " ALLOW_CONNECTIONS true");
+        replicaLagMonitor.check();
+
+        assertThat(readOnlyPort()).isEqualTo(replicaPort);
+    }
+
+    private int readOnlyPort() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> jdbcTemplate.queryForObject(PORT_SQL, Integer.class));
+    }
+
+    private int writePort() {
+        return new TransactionTemplate(transactionManager)
+            .execute(status -> jdbcTemplate.queryForObject(PORT_SQL, Integer.class));
+    }
+
+    private static void admin(String sql) {
+        try (Connection connection = DriverManager.getConnection(adminUrl, "postgres", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Replica admin statement failed: " + sql, e);
+        }
+    }
+
+    private static Boolean queryAdmin(String sql) {
+        try (Connection connection = DriverManager.getConnection(adminUrl, "postgres", "");
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getBoolean(1);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Replica admin query failed: " + sql, e);
+        }
+    }
+
+    private static synchronized EmbeddedPostgres embeddedReplica() {
+        if (embeddedReplica == null) {
+            try {
+                embeddedReplica = EmbeddedPostgres.start();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Embedded replica did not start (as root set -D" + REPLICA_URL_PROPERTY + ")", e);
+            }
+        }
+        return embeddedReplica;
+    }
+}
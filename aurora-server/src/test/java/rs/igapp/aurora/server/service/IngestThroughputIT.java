@@ -0,0 +1,101 @@
+package rs.igapp.aurora.server.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import rs.igapp.aurora.api.dto.request.LogEventRequest;
+import rs.igapp.aurora.api.dto.response.BulkIngestResponse;
+import rs.igapp.aurora.server.PostgresIntegrationTest;
+import rs.igapp.aurora.server.cache.ReferenceDataCache;
+
+/**
+ * Propusnost upisa: bulk (LogEventIngestService, batch u jednoj transakciji) naspram pojedinacnog
+ * upisa (LogEventService.create, transakcija po dogadjaju) - ista detekcija, rollup i heartbeat
+ *
+ * Rezultat se ispisuje (events/s), a test pada ako bulk nije bar BULK_SPEEDUP puta brzi.
+ */
+class IngestThroughputIT extends PostgresIntegrationTest {
+
+    private static final String AGENT = "throughput-it";
+    private static final int SINGLE_EVENTS = 2_000;
+    private static final int BULK_EVENTS = 50_000;
+    private static final int WARMUP_EVENTS = 500;
+    private static final double BULK_SPEEDUP = 5;
+
+    @Autowired
+    private LogEventService logEventService;
+
+    @Autowired
+    private LogEventIngestService logEventIngestService;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void source() {
+        jdbcTemplate.update("INSERT INTO severities (id, name, level) VALUES (1, 'INFO', 1), (3, 'ERROR', 3) "
+            + "ON CONFLICT (id) DO NOTHING");
+        jdbcTemplate.update("INSERT INTO sources (id, agent_id, hostname, is_active, created_at) "
+            + "VALUES (9101, ?, 'throughput-it', true, now()) ON CONFLICT (id) DO NOTHING", AGENT);
+        referenceDataCache.evictAll();
+    }
+
+    @Test
+    void bulkIngestOutrunsSingleRowInserts() {
+        single(events(WARMUP_EVENTS));
+        logEventIngestService.ingest(events(WARMUP_EVENTS));
+
+        List<LogEventRequest> singleEvents = events(SINGLE_EVENTS);
+        long started = System.nanoTime();
+        single(singleEvents);
+        double singleRate = rate(SINGLE_EVENTS, System.nanoTime() - started);
+
+        List<LogEventRequest> bulkEvents = events(BULK_EVENTS);
+        started = System.nanoTime();
+        BulkIngestResponse response = logEventIngestService.ingest(bulkEvents);
+        double bulkRate = rate(BULK_EVENTS, System.nanoTime() - started);
+
+        System.out.printf("Ingest throughput: single-row %.0f events/s (%d events), bulk %.0f events/s "
+            + "(%d events, %d batches), %.1fx%n", singleRate, SINGLE_EVENTS, bulkRate, BULK_EVENTS,
+            response.getBatches(), bulkRate / singleRate);
+
+        assertThat(response.getAccepted()).isEqualTo(BULK_EVENTS);
+        assertThat(bulkRate).isGreaterThan(singleRate * BULK_SPEEDUP);
+    }
+
+    private void single(List<LogEventRequest> events) {
+        for (LogEventRequest event : events) {
+            logEventService.create(event);
+        }
+    }
+
+    private static List<LogEventRequest> events(int count) {
+        List<LogEventRequest> events = new ArrayList<>(count);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < count; i++) {
+            events.add(LogEventRequest.builder()
+                .sourceId(AGENT)
+                .message("Failed password for invalid user user" + (i % 97) + " from 10.0." + (i % 250) + ".7 port 52314 ssh2")
+                .severityId(i % 10 == 0 ? 3L : 1L)
+                .rawData("{\"file\":\"/var/log/auth.log\",\"line\":" + i + "}")
+                .timestamp(now.minusNanos(i * 1_000L))
+                .build());
+        }
+        return events;
+    }
+
+    private static double rate(int events, long nanos) {
+        return events * 1e9 / nanos;
+    }
+}
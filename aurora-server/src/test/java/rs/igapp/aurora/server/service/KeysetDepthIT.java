@@ -0,0 +1,91 @@
+package rs.igapp.aurora.server.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import rs.igapp.aurora.api.dto.response.CursorPageResponse;
+import rs.igapp.aurora.api.dto.response.LogEventResponse;
+import rs.igapp.aurora.server.PostgresIntegrationTest;
+import rs.igapp.aurora.server.cache.ReferenceDataCache;
+import rs.igapp.aurora.server.pagination.KeysetCursor;
+
+/**
+ * Keyset listanje log dogadjaja: strana 10.000 kosta koliko i prva (OFFSET strana za poredjenje)
+ *
+ * PAGES * PAGE_SIZE redova, kursor za duboku stranu se uzima direktno iz baze (hodanje kroz
+ * 10.000 strana bi merilo samo hodanje). Ispisuje mediane latencija.
+ */
+class KeysetDepthIT extends PostgresIntegrationTest {
+
+    private static final String AGENT = "keyset-it";
+    private static final int PAGE_SIZE = 50;
+    private static final int PAGES = 10_000;
+    private static final int RUNS = 25;
+
+    @Autowired
+    private LogEventService logEventService;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void deepKeysetPageIsAsFastAsTheFirst() {
+        seed((PAGES + 1) * PAGE_SIZE);
+
+        // Poslednji red strane 9.999 = kursor strane 10.000
+        KeysetCursor deep = jdbcTemplate.queryForObject(
+            "SELECT timestamp, id FROM log_events ORDER BY timestamp DESC, id DESC OFFSET ? LIMIT 1",
+            (rs, row) -> new KeysetCursor(rs.getTimestamp(1).toLocalDateTime(), rs.getLong(2)),
+            (long) (PAGES - 1) * PAGE_SIZE - 1);
+        String cursor = deep.encode();
+
+        double first = medianMillis(() -> logEventService.getPage(null, PAGE_SIZE));
+        double keyset = medianMillis(() -> logEventService.getPage(cursor, PAGE_SIZE));
+        double offset = medianMillis(() -> logEventService.getBySource(AGENT, PageRequest.of(PAGES - 1, PAGE_SIZE)));
+
+        CursorPageResponse<LogEventResponse> page = logEventService.getPage(cursor, PAGE_SIZE);
+        System.out.printf("Log event list, %d rows, page size %d: keyset page 1 %.2f ms, keyset page %d %.2f ms, "
+            + "offset page %d %.2f ms (median of %d)%n", (PAGES + 1) * PAGE_SIZE, PAGE_SIZE, first, PAGES, keyset,
+            PAGES, offset, RUNS);
+
+        assertThat(page.getItems()).hasSize(PAGE_SIZE);
+        assertThat(page.isHasNext()).isTrue();
+        assertThat(keyset).isLessThan(Math.max(first * 3, first + 5));
+        assertThat(keyset).isLessThan(offset);
+    }
+
+    private void seed(int rows) {
+        jdbcTemplate.execute("TRUNCATE log_events");
+        jdbcTemplate.update("INSERT INTO sources (id, agent_id, hostname, is_active, created_at) "
+            + "VALUES (9201, ?, 'keyset-it', true, now()) ON CONFLICT (id) DO NOTHING", AGENT);
+        referenceDataCache.evictAll();
+        jdbcTemplate.update("INSERT INTO log_events (id, source_id, message, timestamp, created_at) "
+            + "SELECT 80000000 + g, 9201, 'keyset row ' || g, localtimestamp - g * interval '1 second', now() "
+            + "FROM generate_series(1, ?) g", rows);
+        jdbcTemplate.execute("ANALYZE log_events");
+    }
+
+    private static double medianMillis(Supplier<?> call) {
+        for (int i = 0; i < 5; i++) {
+            call.get();
+        }
+        double[] millis = new double[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long started = System.nanoTime();
+            call.get();
+            millis[i] = (System.nanoTime() - started) / 1e6;
+        }
+        Arrays.sort(millis);
+        return millis[RUNS / 2];
+    }
+}
@@ -0,0 +1,113 @@
+package rs.igapp.aurora.server.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import rs.igapp.aurora.api.dto.response.AlertResponse;
+import rs.igapp.aurora.api.dto.response.CursorPageResponse;
+import rs.igapp.aurora.api.dto.response.IncidentResponse;
+import rs.igapp.aurora.server.PostgresIntegrationTest;
+import rs.igapp.aurora.server.SqlStatementCounter;
+import rs.igapp.aurora.server.SqlStatementCounter.Counted;
+
+/**
+ * Liste alarma i incidenata: broj SQL naredbi po strani ne zavisi od broja redova (nema N+1)
+ *
+ * Svaki alarm/incident ima svoj izvor, pravilo i bitnost - lenja veza ucitana red po red bi
+ * podigla broj naredbi sa brojem redova na strani.
+ */
+class ListQueryCountIT extends PostgresIntegrationTest {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Autowired
+    private AlertService alertService;
+
+    @Autowired
+    private IncidentService incidentService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void alertPageCostsTheSameForFewAndManyRows() {
+        seed(3);
+        Counted<CursorPageResponse<AlertResponse>> few = SqlStatementCounter.count(() -> alertService.getPage(null, PAGE_SIZE));
+
+        seed(250);
+        Counted<CursorPageResponse<AlertResponse>> many = SqlStatementCounter.count(() -> alertService.getPage(null, PAGE_SIZE));
+        Counted<CursorPageResponse<AlertResponse>> next = SqlStatementCounter.count(
+            () -> alertService.getPage(many.result().getNextCursor(), PAGE_SIZE));
+
+        assertThat(few.result().getItems()).hasSize(3);
+        assertThat(many.result().getItems()).hasSize(PAGE_SIZE);
+        assertThat(many.result().getItems()).allSatisfy(alert -> {
+            assertThat(alert.getRuleName()).isNotNull();
+            assertThat(alert.getSourceId()).isNotNull();
+            assertThat(alert.getSeverity()).isNotNull();
+            assertThat(alert.getStatus()).isNotNull();
+        });
+        assertThat(many.statements()).isEqualTo(few.statements()).isEqualTo(1);
+        assertThat(next.statements()).isEqualTo(1);
+    }
+
+    @Test
+    void incidentPageCostsTheSameForFewAndManyRows() {
+        seed(3);
+        Counted<CursorPageResponse<IncidentResponse>> few = SqlStatementCounter.count(() -> incidentService.getPage(null, PAGE_SIZE));
+
+        seed(250);
+        Counted<CursorPageResponse<IncidentResponse>> many = SqlStatementCounter.count(() -> incidentService.getPage(null, PAGE_SIZE));
+
+        assertThat(few.result().getItems()).hasSize(3);
+        assertThat(many.result().getItems()).hasSize(PAGE_SIZE)
+            .allSatisfy(incident -> assertThat(incident.getAlertIds()).hasSize(1));
+        // strana + ID-jevi alarma cele strane
+        assertThat(many.statements()).isEqualTo(few.statements()).isEqualTo(2);
+    }
+
+    @Test
+    void incidentOffsetPageCostsTheSameForFewAndManyRows() {
+        seed(3);
+        Counted<Page<IncidentResponse>> few = SqlStatementCounter.count(
+            () -> incidentService.getAll(PageRequest.of(0, PAGE_SIZE)));
+
+        seed(250);
+        Counted<Page<IncidentResponse>> many = SqlStatementCounter.count(
+            () -> incidentService.getAll(PageRequest.of(1, PAGE_SIZE)));
+
+        assertThat(few.result().getContent()).hasSize(3);
+        assertThat(many.result().getContent()).hasSize(PAGE_SIZE);
+        // strana + ID-jevi alarma; count(*) samo kad strana nije poslednja/nepotpuna
+        assertThat(many.statements()).isLessThanOrEqualTo(few.statements() + 1).isLessThanOrEqualTo(3);
+    }
+
+    // ==================== PODACI ====================
+
+    // count alarma i incidenata, svaki sa svojim izvorom i pravilom; incident i ima alarm i
+    private void seed(int count) {
+        jdbcTemplate.execute("TRUNCATE incident_alerts, incidents, alerts, rules, sources, "
+            + "severities, alert_statuses, rule_statuses CASCADE");
+        jdbcTemplate.update("INSERT INTO severities (id, name, level) VALUES "
+            + "(1, 'INFO', 1), (2, 'WARN', 2), (3, 'ERROR', 3), (4, 'CRITICAL', 4)");
+        jdbcTemplate.update("INSERT INTO alert_statuses (id, name) VALUES (1, 'NEW'), (2, 'RESOLVED')");
+        jdbcTemplate.update("INSERT INTO rule_statuses (id, name) VALUES (1, 'ACTIVE')");
+        jdbcTemplate.update("INSERT INTO sources (id, agent_id, hostname, is_active, created_at) "
+            + "SELECT g, 'agent-' || g, 'host-' || g, true, now() FROM generate_series(1, ?) g", count);
+        jdbcTemplate.update("INSERT INTO rules (id, name, condition, severity_id, status_id, enabled, created_at) "
+            + "SELECT g, 'rule-' || g, 'keyword:rule-' || g, 1 + g % 4, 1, false, now() FROM generate_series(1, ?) g", count);
+        jdbcTemplate.update("INSERT INTO alerts (id, rule_id, log_event_id, source_id, severity_id, status_id, message, "
+            + "occurrence_count, created_at, first_seen, last_seen) "
+            + "SELECT g, g, g, g, 1 + g % 4, 1, 'alert ' || g, 1, "
+            + "now() - g * interval '1 second', now(), now() FROM generate_series(1, ?) g", count);
+        jdbcTemplate.update("INSERT INTO incidents (id, title, severity_id, status_id, created_at) "
+            + "SELECT g, 'incident ' || g, 1 + g % 4, 1, now() - g * interval '1 second' FROM generate_series(1, ?) g", count);
+        jdbcTemplate.update("INSERT INTO incident_alerts (incident_id, alert_id) "
+            + "SELECT g, g FROM generate_series(1, ?) g", count);
+    }
+}
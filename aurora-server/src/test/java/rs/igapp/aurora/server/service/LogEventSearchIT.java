@@ -0,0 +1,66 @@
+package rs.igapp.aurora.server.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import rs.igapp.aurora.api.dto.response.LogEventResponse;
+import rs.igapp.aurora.server.PostgresIntegrationTest;
+import rs.igapp.aurora.server.SqlStatementCounter;
+import rs.igapp.aurora.server.SqlStatementCounter.Counted;
+
+/**
+ * Full-text pretraga: strana pogodaka je jedan SQL upit (projekcija sa izvorom i bitnoscu), redosled po rangu
+ */
+class LogEventSearchIT extends PostgresIntegrationTest {
+
+    @Autowired
+    private LogEventService logEventService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.update("DELETE FROM log_events");
+        jdbcTemplate.update("INSERT INTO severities (id, name, level) VALUES (3, 'ERROR', 3) ON CONFLICT (id) DO NOTHING");
+        jdbcTemplate.update("INSERT INTO sources (id, agent_id, hostname, is_active, created_at) "
+            + "VALUES (9301, 'search-it', 'search-it', true, now()) ON CONFLICT (id) DO NOTHING");
+        // 300 pogodaka za "refused", svaki deseti dva puta (veci rang), plus redovi koji ne pogadjaju
+        jdbcTemplate.update("INSERT INTO log_events (id, source_id, severity_id, message, timestamp, created_at) "
+            + "SELECT 70000000 + g, 9301, CASE WHEN g % 2 = 0 THEN 3 END, "
+            + "CASE WHEN g <= 300 AND g % 10 = 0 THEN 'refused refused port ' || g WHEN g <= 300 THEN 'connection refused port ' || g "
+            + "ELSE 'session opened ' || g END, localtimestamp - g * interval '1 second', now() "
+            + "FROM generate_series(1, 1000) g");
+    }
+
+    @Test
+    void searchPageIsOneStatement() {
+        Counted<Slice<LogEventResponse>> first = SqlStatementCounter.count(
+            () -> logEventService.search("refused", null, null, PageRequest.of(0, 50)));
+        Counted<Slice<LogEventResponse>> last = SqlStatementCounter.count(
+            () -> logEventService.search("refused", null, null, PageRequest.of(5, 50)));
+
+        assertThat(first.statements()).isEqualTo(1);
+        assertThat(last.statements()).isEqualTo(1);
+        assertThat(first.result().getContent()).hasSize(50).allSatisfy(hit -> {
+            assertThat(hit.getSourceId()).isEqualTo("search-it");
+            assertThat(hit.getMessage()).contains("refused");
+            assertThat(hit.getTimestamp()).isNotNull();
+        });
+        assertThat(first.result().hasNext()).isTrue();
+        assertThat(last.result().getContent()).hasSize(50);
+        assertThat(last.result().hasNext()).isFalse();
+
+        // Dvostruki pogoci (svaki deseti red) su prvi, noviji pre starijeg
+        assertThat(first.result().getContent().subList(0, 30))
+            .allSatisfy(hit -> assertThat(hit.getMessage()).startsWith("refused refused"));
+        assertThat(first.result().getContent().get(0).getId()).isEqualTo(70000010L);
+        assertThat(first.result().getContent().get(0).getSeverity()).isEqualTo("ERROR");
+    }
+}
@@ -0,0 +1,182 @@
+package rs.igapp.aurora.server.syslog;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * SyslogParser: RFC 5424, RFC 3164 i odstupanja stvarnih uredjaja (Cisco, rsyslog, bez hostname-a)
+ */
+class SyslogParserTest {
+
+    private final SyslogParser parser = new SyslogParser();
+    private final SyslogMessage message = new SyslogMessage();
+    private byte[] buf;
+
+    @Test
+    void rfc5424WithNilValues() {
+        assertThat(parse("<34>1 2003-10-11T22:14:15.003Z mymachine.example.com su - ID47 - 'su root' failed on /dev/pts/8\n")).isTrue();
+
+        assertThat(message.rfc5424).isTrue();
+        assertThat(message.facility).isEqualTo(4);
+        assertThat(message.severity).isEqualTo(2);
+        assertTime(2003, 10, 11, 22, 14, 15, 3_000_000);
+        assertThat(message.hasOffset).isTrue();
+        assertThat(message.offsetSeconds).isZero();
+        assertThat(host()).isEqualTo("mymachine.example.com");
+        assertThat(app()).isEqualTo("su");
+        assertThat(procId()).isEmpty();
+        assertThat(field(message.msgIdStart, message.msgIdEnd)).isEqualTo("ID47");
+        assertThat(msg()).isEqualTo("'su root' failed on /dev/pts/8");
+    }
+
+    @Test
+    void rfc5424SkipsStructuredDataWithEscapesAndBom() {
+        assertThat(parse("<165>1 2003-08-24T05:14:15.000003-07:00 192.0.2.1 myproc 8710 - "
+            + "[exampleSDID@32473 iut=\"3\" eventSource=\"App\\\"li]c\\]ation\"][x@1 a=\"b\"] \uFEFF%% It's time")).isTrue();
+
+        assertThat(message.facility).isEqualTo(20);
+        assertThat(message.severity).isEqualTo(5);
+        assertTime(2003, 8, 24, 5, 14, 15, 3_000);
+        assertThat(message.offsetSeconds).isEqualTo(-7 * 3600);
+        assertThat(procId()).isEqualTo("8710");
+        assertThat(field(message.msgIdStart, message.msgIdEnd)).isEmpty();
+        assertThat(msg()).isEqualTo("%% It's time");
+    }
+
+    @Test
+    void rfc5424WithBadTimestampUsesReceiveTime() {
+        assertThat(parse("<14>1 2003-13-11T22:14:15Z host app - - - hello")).isTrue();
+
+        assertThat(message.hasTimestamp).isFalse();
+        assertThat(host()).isEqualTo("host");
+        assertThat(msg()).isEqualTo("hello");
+    }
+
+    @Test
+    void bsdWithHostAndTag() {
+        assertThat(parse("<38>Feb  5 17:32:18 10.0.0.99 sshd[4123]: Failed password for root\r\n")).isTrue();
+
+        assertThat(message.rfc5424).isFalse();
+        assertThat(message.facility).isEqualTo(4);
+        assertThat(message.severity).isEqualTo(6);
+        assertTime(0, 2, 5, 17, 32, 18, 0);
+        assertThat(host()).isEqualTo("10.0.0.99");
+        assertThat(app()).isEqualTo("sshd");
+        assertThat(procId()).isEqualTo("4123");
+        assertThat(msg()).isEqualTo("Failed password for root");
+    }
+
+    @Test
+    void bsdWithoutHostname() {
+        assertThat(parse("<6>Oct 11 22:14:15 kernel: eth0 link up")).isTrue();
+
+        assertThat(message.hasHost()).isFalse();
+        assertThat(app()).isEqualTo("kernel");
+        assertThat(msg()).isEqualTo("eth0 link up");
+    }
+
+    @Test
+    void ciscoWithoutNtpAndMilliseconds() {
+        assertThat(parse("<189>*Mar  1 00:01:02.345: %SYS-5-CONFIG_I: Configured from console")).isTrue();
+
+        assertTime(0, 3, 1, 0, 1, 2, 345_000_000);
+        assertThat(message.hasHost()).isFalse();
+        assertThat(app()).isEqualTo("%SYS-5-CONFIG_I");
+        assertThat(msg()).isEqualTo("Configured from console");
+    }
+
+    @Test
+    void rsyslogRfc3339InBsdFrame() {
+        assertThat(parse("<30>2026-03-01T10:00:00.5+01:00 web01 nginx: GET / 200")).isTrue();
+
+        assertTime(2026, 3, 1, 10, 0, 0, 500_000_000);
+        assertThat(message.offsetSeconds).isEqualTo(3600);
+        assertThat(host()).isEqualTo("web01");
+        assertThat(app()).isEqualTo("nginx");
+        assertThat(msg()).isEqualTo("GET / 200");
+    }
+
+    @Test
+    void noTimestampIsTagAndMessage() {
+        assertThat(parse("<14>myapp: hello there")).isTrue();
+
+        assertThat(message.hasTimestamp).isFalse();
+        assertThat(message.hasHost()).isFalse();
+        assertThat(app()).isEqualTo("myapp");
+        assertThat(msg()).isEqualTo("hello there");
+    }
+
+    @Test
+    void invalidBsdTimestampBecomesPartOfMessage() {
+        assertThat(parse("<13>Feb 30 25:00:00 host app: x")).isTrue();
+
+        assertThat(message.hasTimestamp).isFalse();
+        assertThat(message.hasHost()).isFalse();
+        assertThat(msg()).isEqualTo("Feb 30 25:00:00 host app: x");
+    }
+
+    @Test
+    void parsesSliceOfLargerBuffer() {
+        byte[] datagram = "garbage<13>Oct 11 22:14:15 host app: inside\ngarbage".getBytes(StandardCharsets.UTF_8);
+        buf = datagram;
+
+        assertThat(parser.parse(datagram, 7, datagram.length - 7, message)).isTrue();
+        assertThat(host()).isEqualTo("host");
+        assertThat(msg()).isEqualTo("inside");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "",
+        "no pri at all",
+        "<>x",
+        "<192>Oct 11 22:14:15 host app: too high",
+        "<1234>x",
+        "<13 missing bracket",
+        "<13>",
+        "<13>\n",
+        "<13>Oct 11 22:14:15 host sshd[1]: ",
+        "<13>1 2003-10-11T22:14:15Z host app - - -"
+    })
+    void malformedIsRejected(String raw) {
+        assertThat(parse(raw)).isFalse();
+    }
+
+    // ==================== POMOCNE METODE ====================
+
+    private boolean parse(String raw) {
+        buf = raw.getBytes(StandardCharsets.UTF_8);
+        return parser.parse(buf, 0, buf.length, message);
+    }
+
+    private void assertTime(int year, int month, int day, int hour, int minute, int second, int nanos) {
+        assertThat(message.hasTimestamp).isTrue();
+        assertThat(new int[] {message.year, message.month, message.day, message.hour, message.minute, message.second, message.nanos})
+            .containsExactly(year, month, day, hour, minute, second, nanos);
+    }
+
+    private String host() {
+        return field(message.hostStart, message.hostEnd);
+    }
+
+    private String app() {
+        return field(message.appStart, message.appEnd);
+    }
+
+    private String procId() {
+        return field(message.procIdStart, message.procIdEnd);
+    }
+
+    private String msg() {
+        return field(message.msgStart, message.msgEnd);
+    }
+
+    private String field(int start, int end) {
+        return new String(buf, start, end - start, StandardCharsets.UTF_8);
+    }
+}
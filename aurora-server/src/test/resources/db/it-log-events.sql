@@ -0,0 +1,14 @@
+-- Samo za integracione testove (PostgresIntegrationTest), pre pokretanja konteksta.
+-- Na praznoj bazi Hibernate (ddl-auto=update) bi napravio log_events kao obicnu tabelu, a
+-- db/log-events-partitioning.sql ocekuje particionisanog roditelja. Kolone su iste kao u tom skriptu;
+-- FK na sources/severities dodaje Hibernate kad napravi te tabele.
+CREATE TABLE IF NOT EXISTS log_events (
+    id          BIGINT       NOT NULL,
+    source_id   BIGINT       NOT NULL,
+    message     TEXT         NOT NULL,
+    severity_id BIGINT,
+    raw_data    JSONB,
+    timestamp   TIMESTAMP(6) NOT NULL,
+    created_at  TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);